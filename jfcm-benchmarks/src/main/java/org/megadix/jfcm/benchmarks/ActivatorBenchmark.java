@@ -0,0 +1,112 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.Constants.ConceptActivatorTypes;
+import org.megadix.jfcm.act.BaseConceptActivator;
+import org.megadix.jfcm.act.GaussianActivator;
+import org.megadix.jfcm.act.HyperbolicTangentActivator;
+import org.megadix.jfcm.act.SigmoidActivator;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Every {@link BaseConceptActivator} subclass, both through the primitive
+ * {@link BaseConceptActivator#activate(double, double)} and through
+ * {@link BaseConceptActivator#calculateNextOutput(Concept)} on a concept with {@link #INPUTS} incoming connections.
+ * <code>maxError</code> &gt; 0 enables approximate activation of SIGMOID, TANH and GAUSS, ignored by other types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivatorBenchmark {
+
+    public static final int VALUES = 1024;
+    public static final int INPUTS = 8;
+
+    @Param({ "CAUCHY", "GAUSS", "INTERVAL", "LINEAR", "NARY", "SIGMOID", "SIGNUM", "TANH" })
+    public ConceptActivatorTypes type;
+
+    @Param({ "0.0" })
+    public double maxError;
+
+    private BaseConceptActivator activator;
+    private double[] inputs;
+    private double[] outputs;
+    private Concept concept;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        activator = MapGenerator.createActivator(type);
+        if (maxError != 0.0) {
+            if (activator instanceof SigmoidActivator) {
+                ((SigmoidActivator) activator).setMaxError(maxError);
+            } else if (activator instanceof HyperbolicTangentActivator) {
+                ((HyperbolicTangentActivator) activator).setMaxError(maxError);
+            } else if (activator instanceof GaussianActivator) {
+                ((GaussianActivator) activator).setMaxError(maxError);
+            }
+        }
+
+        Random random = new Random(MapGenerator.DEFAULT_SEED);
+        inputs = new double[VALUES];
+        outputs = new double[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            inputs[i] = random.nextDouble() * 8.0 - 4.0;
+            outputs[i] = random.nextDouble();
+        }
+
+        concept = new Concept("target", null);
+        concept.setConceptActivator(activator);
+        concept.setOutput(0.5);
+        for (int i = 0; i < INPUTS; i++) {
+            Concept from = new Concept("from" + i, null);
+            from.setOutput(random.nextDouble());
+            WeightedConnection conn = new WeightedConnection("w" + i, null, random.nextDouble() * 2.0 - 1.0);
+            from.connectOutputTo(conn);
+            conn.connectOutputTo(concept);
+        }
+    }
+
+    /**
+     * @return sum of {@link #VALUES} activations
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double activate() {
+        double sum = 0.0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += activator.activate(inputs[i], outputs[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Double calculateNextOutput() {
+        activator.calculateNextOutput(concept);
+        return concept.getNextOutput();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.megadix.jfcm.exec.BatchCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One epoch of {@link BatchCognitiveMap#execute()}, every scenario starting from random outputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({ "1000" })
+    public int size;
+
+    @Param({ "0.01" })
+    public double density;
+
+    @Param({ "SIGMOID", "MIXED" })
+    public MapGenerator.ActivatorMix mix;
+
+    @Param({ "64" })
+    public int scenarios;
+
+    private BatchCognitiveMap batch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        batch = new BatchCognitiveMap(MapCompiler.compile(MapGenerator.generate(size, density, mix)), scenarios);
+        Random random = new Random(MapGenerator.DEFAULT_SEED);
+        for (int s = 0; s < scenarios; s++) {
+            for (int i = 0; i < size; i++) {
+                batch.setOutput(s, i, random.nextDouble());
+            }
+        }
+    }
+
+    @Benchmark
+    public BatchCognitiveMap execute() {
+        batch.execute();
+        return batch;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One epoch of {@link CognitiveMap#execute()} and of its compiled counterpart, {@link CognitiveMap#copy()} and
+ * {@link CompiledCognitiveMap#copy()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CognitiveMapBenchmark {
+
+    @Param({ "100", "1000" })
+    public int size;
+
+    @Param({ "0.05", "0.2" })
+    public double density;
+
+    @Param({ "SIGMOID", "MIXED" })
+    public MapGenerator.ActivatorMix mix;
+
+    private CognitiveMap map;
+    private CompiledCognitiveMap compiled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = MapGenerator.generate(size, density, mix);
+        compiled = MapCompiler.compile(map.copy());
+    }
+
+    @Benchmark
+    public CognitiveMap execute() {
+        map.execute();
+        return map;
+    }
+
+    @Benchmark
+    public CompiledCognitiveMap executeCompiled() {
+        compiled.execute();
+        return compiled;
+    }
+
+    @Benchmark
+    public CognitiveMap copy() {
+        return map.copy();
+    }
+
+    @Benchmark
+    public CompiledCognitiveMap copyCompiled() {
+        return compiled.copy();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link WeightedConnection#calculateOutput()}, without delay and with delays of growing length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionBenchmark {
+
+    @Param({ "0", "1", "10", "50" })
+    public int delay;
+
+    private Concept from;
+    private WeightedConnection connection;
+    private double value;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        from = new Concept("from", null);
+        from.setOutput(0.5);
+        Concept to = new Concept("to", null);
+        connection = new WeightedConnection("conn", null, 0.75, delay);
+        from.connectOutputTo(connection);
+        connection.connectOutputTo(to);
+        // fill delay buffer
+        for (int i = 0; i <= delay; i++) {
+            connection.calculateOutput();
+        }
+    }
+
+    @Benchmark
+    public Double calculateOutput() {
+        // changing source output defeats constant folding
+        value = value < 1.0 ? value + 0.001 : 0.0;
+        from.setOutput(value);
+        return connection.calculateOutput();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.utils.FcmIO;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link FcmIO} XML and binary formats, in memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IoBenchmark {
+
+    @Param({ "100", "1000" })
+    public int size;
+
+    @Param({ "0.05", "0.2" })
+    public double density;
+
+    @Param({ "MIXED" })
+    public MapGenerator.ActivatorMix mix;
+
+    private CognitiveMap map;
+    private byte[] xml;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = MapGenerator.generate(size, density, mix);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FcmIO.saveAsXml(map, out);
+        xml = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        FcmIO.saveBinary(map, out);
+        binary = out.toByteArray();
+    }
+
+    @Benchmark
+    public List<CognitiveMap> loadXml() throws ParseException {
+        return FcmIO.loadXml(new ByteArrayInputStream(xml));
+    }
+
+    @Benchmark
+    public int saveAsXml() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(xml.length);
+        FcmIO.saveAsXml(map, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public CognitiveMap loadBinary() throws ParseException {
+        return FcmIO.loadBinary(new ByteArrayInputStream(binary));
+    }
+
+    @Benchmark
+    public int saveBinary() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(binary.length);
+        FcmIO.saveBinary(map, out);
+        return out.size();
+    }
+}
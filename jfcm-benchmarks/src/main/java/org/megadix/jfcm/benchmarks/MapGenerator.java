@@ -0,0 +1,134 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.benchmarks;
+
+import java.util.Random;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.Constants.ConceptActivatorTypes;
+import org.megadix.jfcm.act.*;
+import org.megadix.jfcm.conn.WeightedConnection;
+
+/**
+ * Generates random maps for benchmarks. Same parameters and seed always give the same map.
+ */
+public final class MapGenerator {
+
+    /**
+     * Activators assigned to generated concepts
+     */
+    public enum ActivatorMix {
+        SIGMOID, TANH, LINEAR, SIGNUM,
+        /** every activator type, in turn */
+        MIXED
+    }
+
+    public static final long DEFAULT_SEED = 42L;
+
+    private MapGenerator() {
+        // prevents calls
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param size number of concepts
+     * @param density probability that a connection exists between two distinct concepts
+     * @param mix activators of concepts
+     * @param delayFraction fraction of connections with a delay between 1 and 3
+     * @param seed random seed
+     * @return map with random weights in [-1, 1] and random initial outputs in [0, 1]
+     */
+    public static CognitiveMap generate(int size, double density, ActivatorMix mix, double delayFraction,
+            long seed) {
+        Random random = new Random(seed);
+        CognitiveMap map = new CognitiveMap("benchmark-" + size);
+
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = String.format("c%06d", i);
+            Concept c = new Concept(names[i], null);
+            c.setConceptActivator(createActivator(mix, i));
+            c.setOutput(random.nextDouble());
+            map.addConcept(c);
+        }
+
+        int count = 0;
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                if (from == to || random.nextDouble() >= density) {
+                    continue;
+                }
+                int delay = random.nextDouble() < delayFraction ? 1 + random.nextInt(3) : 0;
+                String name = "w" + count++;
+                map.addConnection(new WeightedConnection(name, null, random.nextDouble() * 2.0 - 1.0, delay));
+                map.connect(names[from], name, names[to]);
+            }
+        }
+
+        return map;
+    }
+
+    public static CognitiveMap generate(int size, double density, ActivatorMix mix) {
+        return generate(size, density, mix, 0.0, DEFAULT_SEED);
+    }
+
+    /**
+     * @param type activator type
+     * @return activator with default parameters
+     */
+    public static BaseConceptActivator createActivator(ConceptActivatorTypes type) {
+        switch (type) {
+            case CAUCHY:
+                return new CauchyActivator();
+            case GAUSS:
+                return new GaussianActivator();
+            case INTERVAL:
+                return new IntervalActivator();
+            case LINEAR:
+                return new LinearActivator();
+            case NARY:
+                return new NaryActivator();
+            case SIGMOID:
+                return new SigmoidActivator();
+            case SIGNUM:
+                return new SignumActivator();
+            case TANH:
+                return new HyperbolicTangentActivator();
+            default:
+                throw new IllegalArgumentException("Unsupported activator type: " + type);
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static final ConceptActivatorTypes[] ALL_TYPES = ConceptActivatorTypes.values();
+
+    private static BaseConceptActivator createActivator(ActivatorMix mix, int index) {
+        ConceptActivatorTypes type = mix == ActivatorMix.MIXED ? ALL_TYPES[index % ALL_TYPES.length]
+                : ConceptActivatorTypes.valueOf(mix.name());
+        if (type == ConceptActivatorTypes.LINEAR) {
+            // unbounded by default: would make maps diverge
+            return new LinearActivator(0.0, 1.0, -1.0, 1.0);
+        }
+        return createActivator(type);
+    }
+}
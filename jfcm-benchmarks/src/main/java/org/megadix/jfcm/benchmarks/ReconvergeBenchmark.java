@@ -0,0 +1,78 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.utils.SimpleFcmRunner;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Re-convergence of an already converged map after one of its concepts is changed, with and without
+ * {@link CognitiveMap#setEventDriven(boolean) event-driven} execution. Each invocation moves the same concept
+ * back and forth between two values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReconvergeBenchmark {
+
+    public static final int MAX_EPOCHS = 1000;
+
+    @Param({ "1000", "10000" })
+    public int size;
+
+    /**
+     * Average number of outgoing connections per concept
+     */
+    @Param({ "2" })
+    public double degree;
+
+    @Param({ "false", "true" })
+    public boolean eventDriven;
+
+    private CognitiveMap map;
+    private SimpleFcmRunner runner;
+    private String nudged;
+    private boolean up;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = MapGenerator.generate(size, degree / size, MapGenerator.ActivatorMix.SIGNUM);
+        map.setEventDriven(eventDriven);
+        runner = new SimpleFcmRunner(map, 0.0, MAX_EPOCHS);
+        runner.converge();
+        nudged = map.getConcepts().keySet().iterator().next();
+    }
+
+    @Setup(Level.Invocation)
+    public void nudge() {
+        up = !up;
+        map.setOutput(nudged, up ? 1.0 : -1.0);
+    }
+
+    @Benchmark
+    public boolean converge() {
+        return runner.converge();
+    }
+}
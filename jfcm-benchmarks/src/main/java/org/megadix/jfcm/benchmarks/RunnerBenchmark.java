@@ -0,0 +1,98 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.benchmarks;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.utils.CompiledFcmRunner;
+import org.megadix.jfcm.utils.SimpleFcmRunner;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Full {@link SimpleFcmRunner#converge()} and {@link CompiledFcmRunner#converge()}, always starting from the
+ * same initial state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RunnerBenchmark {
+
+    public static final double MAX_DELTA = 0.0001;
+    public static final int MAX_EPOCHS = 100;
+
+    @Param({ "100", "1000" })
+    public int size;
+
+    @Param({ "0.05", "0.2" })
+    public double density;
+
+    @Param({ "SIGMOID", "MIXED" })
+    public MapGenerator.ActivatorMix mix;
+
+    /**
+     * See {@link CognitiveMap#setFreezeSettledConcepts(boolean)}
+     */
+    @Param({ "false", "true" })
+    public boolean freezeSettledConcepts;
+
+    private CognitiveMap map;
+    private Concept[] concepts;
+    private double[] initialOutputs;
+    private SimpleFcmRunner simpleRunner;
+    private CompiledFcmRunner compiledRunner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = MapGenerator.generate(size, density, mix);
+        map.setFreezeSettledConcepts(freezeSettledConcepts);
+        concepts = new Concept[map.getConcepts().size()];
+        initialOutputs = new double[concepts.length];
+        Iterator<Concept> iter = map.getConceptsIterator();
+        for (int i = 0; iter.hasNext(); i++) {
+            concepts[i] = iter.next();
+            initialOutputs[i] = concepts[i].getOutputAsDouble();
+        }
+        simpleRunner = new SimpleFcmRunner(map, MAX_DELTA, MAX_EPOCHS);
+        compiledRunner = new CompiledFcmRunner(map, MAX_DELTA, MAX_EPOCHS);
+    }
+
+    @Setup(Level.Invocation)
+    public void restore() {
+        for (int i = 0; i < concepts.length; i++) {
+            concepts[i].setOutput(initialOutputs[i]);
+            concepts[i].setPrevOutput(null);
+        }
+    }
+
+    @Benchmark
+    public boolean converge() {
+        return simpleRunner.converge();
+    }
+
+    @Benchmark
+    public boolean convergeCompiled() {
+        return compiledRunner.converge();
+    }
+}
@@ -19,7 +19,10 @@ Temple Place, Suite 330, Boston, MA 02111-1307 USA
 package org.megadix.jfcm;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.megadix.jfcm.act.BaseConceptActivator;
 import org.megadix.jfcm.conn.WeightedConnection;
 import org.megadix.jfcm.utils.StringUtils;
 
@@ -30,12 +33,38 @@ import org.megadix.jfcm.utils.StringUtils;
  */
 public class CognitiveMap implements Cloneable {
 
+    /**
+     * Default min. number of concepts to execute in parallel, see {@link #setParallelThreshold(int)}
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2048;
+
+    /**
+     * Min. number of concepts updated by each parallel task
+     */
+    private static final int MIN_CHUNK_SIZE = 256;
+
     private String name;
     private String description;
     private Map<String, Concept> concepts = new TreeMap<>();
     private Map<String, FcmConnection> connections = new TreeMap<>();
     private Double averageSquareDelta = null;
 
+    // parallel execution
+    private Executor executor = null;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private Concept[] conceptArray = null;
+
+    // settled concepts
+    private boolean freezeSettledConcepts = false;
+    private boolean wakeAll = true;
+
+    // event-driven execution: concepts to update in next epoch, by index in conceptArray
+    private boolean eventDriven = false;
+    private boolean executing = false;
+    private BitSet dirty = null;
+    private BitSet nextDirty = null;
+    private int definedCount;
+
     public CognitiveMap() {
     }
 
@@ -68,33 +97,56 @@ public class CognitiveMap implements Cloneable {
         return result;
     }
 
+    /**
+     * Deep copy of this map: concepts (sharing activators), connections with their weights, delays and delay
+     * lines, execution settings. For many independent copies of the same map, compile it once and use
+     * {@link org.megadix.jfcm.exec.CompiledCognitiveMap#copy()}, that shares topology and weights.
+     *
+     * @return new map
+     * @throws UnsupportedOperationException if a connection is not a {@link WeightedConnection}
+     */
     public CognitiveMap copy() {
 
         CognitiveMap copy = new CognitiveMap(this.name);
-
-        Iterator<Concept> conceptIter = this.getConceptsIterator();
-        while (conceptIter.hasNext()) {
-            Concept concept = conceptIter.next();
-            Concept conceptClone = new Concept(concept);
-            copy.addConcept(conceptClone);
+        copy.description = this.description;
+        copy.executor = this.executor;
+        copy.parallelThreshold = this.parallelThreshold;
+        copy.averageSquareDelta = this.averageSquareDelta;
+
+        // same keys, same order: trees are built in linear time, then values are replaced with copies
+        TreeMap<String, Concept> conceptCopies = sortedCopy(concepts);
+        Map<Concept, Concept> conceptClones = new IdentityHashMap<>(concepts.size() * 2);
+        for (Map.Entry<String, Concept> entry : conceptCopies.entrySet()) {
+            Concept conceptClone = new Concept(entry.getValue());
+            conceptClone.setMap(copy);
+            conceptClones.put(entry.getValue(), conceptClone);
+            entry.setValue(conceptClone);
         }
+        copy.concepts = conceptCopies;
 
-        Iterator<FcmConnection> connIter = this.getConnectionsIterator();
-        while (connIter.hasNext()) {
-            FcmConnection conn = connIter.next();
+        TreeMap<String, FcmConnection> connCopies = sortedCopy(connections);
+        for (Map.Entry<String, FcmConnection> entry : connCopies.entrySet()) {
+            FcmConnection conn = entry.getValue();
             // FIXME: supports only WeightedConnection
             if (!WeightedConnection.class.isAssignableFrom(conn.getClass())) {
                 throw new UnsupportedOperationException("Unsupported FcmConnection implementation: "
                         + conn.getClass().getName());
             }
-            WeightedConnection wConn = (WeightedConnection) conn;
-            WeightedConnection connClone = new WeightedConnection(wConn.getName(), wConn.getDescription(),
-                    wConn.getWeight());
-            copy.addConnection(connClone);
+            WeightedConnection connClone = new WeightedConnection((WeightedConnection) conn);
+            connClone.setMap(copy);
+            entry.setValue(connClone);
             // re-establish connections
-            copy.connect(conn.getFrom().getName(), conn.getName(), conn.getTo().getName());
+            if (conn.getFrom() != null) {
+                conceptClones.get(conn.getFrom()).connectOutputTo(connClone);
+            }
+            if (conn.getTo() != null) {
+                connClone.connectOutputTo(conceptClones.get(conn.getTo()));
+            }
         }
+        copy.connections = connCopies;
 
+        copy.setFreezeSettledConcepts(this.freezeSettledConcepts);
+        copy.setEventDriven(this.eventDriven);
         return copy;
     }
 
@@ -160,6 +212,8 @@ public class CognitiveMap implements Cloneable {
         }
         c.setMap(this);
         concepts.put(c.getName(), c);
+        conceptArray = null;
+        wakeAll = true;
     }
 
     public void removeConcept(String conceptName) {
@@ -177,6 +231,8 @@ public class CognitiveMap implements Cloneable {
             conn.setTo(null);
         }
         concepts.remove(conceptName);
+        conceptArray = null;
+        wakeAll = true;
     }
 
     public void addConnection(FcmConnection conn) {
@@ -188,6 +244,7 @@ public class CognitiveMap implements Cloneable {
         }
         conn.setMap(this);
         connections.put(conn.getName(), conn);
+        wakeAll = true;
     }
 
     public void removeConnection(String connectionName) {
@@ -202,6 +259,7 @@ public class CognitiveMap implements Cloneable {
             conn.getTo().removeInputConnection(conn);
         }
         connections.remove(connectionName);
+        wakeAll = true;
     }
 
     public void connect(String fromName, String connectionName, String toName) {
@@ -224,6 +282,7 @@ public class CognitiveMap implements Cloneable {
 
         from.connectOutputTo(conn);
         conn.connectOutputTo(to);
+        wakeAll = true;
     }
 
     /**
@@ -240,17 +299,58 @@ public class CognitiveMap implements Cloneable {
         }
     }
 
+    /**
+     * Execute one epoch, in two phases: first {@link Concept#startUpdate()} is called on every concept,
+     * then {@link Concept#commitUpdate()}.
+     * <p>
+     * If an {@link #setExecutor(Executor) executor} is set and the map has at least
+     * {@link #setParallelThreshold(int) parallelThreshold} concepts, phase 1 is split in chunks of
+     * concepts executed in parallel, and phase 2 starts only after all chunks have completed.
+     * This is safe because during phase 1 each concept only changes its own state and the state of
+     * its input connections, while reading outputs of other concepts.
+     * </p>
+     * <p>
+     * Average square delta is accumulated during phase 2, and is available from
+     * {@link #getAverageSquareDelta()} without calling {@link #calculateAverageSquareDelta()}.
+     * </p>
+     */
     public void execute() {
-        Iterator<Concept> iter = getConceptsIterator();
-        while (iter.hasNext()) {
-            Concept c = iter.next();
-            c.startUpdate();
+        if (eventDriven) {
+            executeDirty();
+            return;
         }
 
-        iter = concepts.values().iterator();
-        while (iter.hasNext()) {
-            Concept c = iter.next();
-            c.commitUpdate();
+        if (freezeSettledConcepts) {
+            wakeChangedConcepts();
+        }
+
+        double delta = 0.0;
+        int count = 0;
+        executing = true;
+        try {
+            if (executor != null && concepts.size() >= parallelThreshold) {
+                startUpdateParallel(getConceptArray());
+            } else {
+                for (Concept c : concepts.values()) {
+                    startUpdate(c);
+                }
+            }
+
+            for (Concept c : concepts.values()) {
+                c.commitUpdate();
+                if (c.hasPrevOutput() && c.hasOutput()) {
+                    double d = c.output - c.prevOutput;
+                    delta += d * d;
+                    count++;
+                }
+            }
+        } finally {
+            executing = false;
+        }
+        averageSquareDelta = count == 0 ? null : delta / count;
+
+        if (freezeSettledConcepts) {
+            settleConcepts();
         }
     }
 
@@ -266,8 +366,9 @@ public class CognitiveMap implements Cloneable {
         Iterator<Concept> iter = getConceptsIterator();
         while (iter.hasNext()) {
             Concept concept = iter.next();
-            if (concept.getPrevOutput() != null && concept.getOutput() != null) {
-                delta += Math.pow(concept.getOutput() - concept.getPrevOutput(), 2);
+            if (concept.hasPrevOutput() && concept.hasOutput()) {
+                double d = concept.getOutputAsDouble() - concept.getPrevOutputAsDouble();
+                delta += d * d;
                 count++;
             }
         }
@@ -334,6 +435,7 @@ public class CognitiveMap implements Cloneable {
 
     public void setConcepts(Map<String, Concept> concepts) {
         this.concepts = concepts;
+        this.conceptArray = null;
     }
 
     public Map<String, FcmConnection> getConnections() {
@@ -346,6 +448,7 @@ public class CognitiveMap implements Cloneable {
 
     /**
      * Average square variation of Concept output, calculated by {@link #calculateAverageSquareDelta()}
+     * or by last {@link #execute()}
      *
      * @return average square variation
      */
@@ -353,4 +456,438 @@ public class CognitiveMap implements Cloneable {
         return averageSquareDelta;
     }
 
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Executor used to run phase 1 of {@link #execute()} in parallel, <code>null</code> (default) to
+     * always execute sequentially. A {@link ForkJoinPool} splits work recursively, any other
+     * {@link Executor} receives one task per chunk of concepts.
+     *
+     * @param executor executor, or <code>null</code>
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public boolean isFreezeSettledConcepts() {
+        return freezeSettledConcepts;
+    }
+
+    /**
+     * Skip activation of <em>settled</em> concepts in {@link #execute()}: concepts whose output did not change
+     * in the last epoch, and whose sources did not change either, would compute the same output again,
+     * so they keep it until one of their sources changes. Results are exactly the same as without it, as long as
+     * the map is only changed in the ways detected below.
+     * <p>
+     * Only concepts with a {@link BaseConceptActivator} and only {@link WeightedConnection} inputs without delay
+     * can settle. Changes of concepts and map structure between epochs are detected; weights and delays changed
+     * directly on connections are not, and neither are parameters of an activator changed in place
+     * ({@link BaseConceptActivator#setThreshold(double)}, <code>setK</code>, <code>setMaxError</code>, ...):
+     * settled concepts would keep outputs computed with the old values. Call this method again to wake every
+     * concept up.
+     * </p>
+     *
+     * @param freezeSettledConcepts <code>true</code> to skip settled concepts, default <code>false</code>
+     */
+    public void setFreezeSettledConcepts(boolean freezeSettledConcepts) {
+        this.freezeSettledConcepts = freezeSettledConcepts;
+        for (Concept c : concepts.values()) {
+            c.settled = false;
+        }
+        wakeAll = false;
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    /**
+     * Event-driven execution: {@link #execute()} only updates <em>dirty</em> concepts, i.e. concepts whose output,
+     * or the output of one of their sources, changed in the last epoch (destinations are found through
+     * {@link Concept#getOutConnections()}). The other concepts are settled, see
+     * {@link #setFreezeSettledConcepts(boolean)}, and would not change anyway: results are exactly the same as
+     * a full update (with the exceptions below), while the cost of an epoch is proportional to the changed part
+     * of the map. This pays off when a few concepts of a converged map are changed and the map is run again to
+     * equilibrium.
+     * <p>
+     * Every concept is dirty after this call and after structural changes; concepts changed through
+     * {@link Concept} setters between epochs become dirty, together with their destinations. Weights and
+     * delays changed directly on connections are not detected, nor are activator parameters changed on the
+     * activator object itself (e.g. <code>SigmoidActivator.setK</code>, <code>setMaxError</code>): clean concepts
+     * stay clean and keep their stale outputs. After such changes call this method again to mark every concept
+     * as dirty. Overrides {@link #setFreezeSettledConcepts(boolean)}.
+     * </p>
+     *
+     * @param eventDriven <code>true</code> to update only dirty concepts, default <code>false</code>
+     */
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+        for (Concept c : concepts.values()) {
+            c.settled = false;
+        }
+        dirty = null;
+        nextDirty = null;
+    }
+
+    /**
+     * @return number of concepts that will be updated by next {@link #execute()} in event-driven mode
+     *         (see {@link #setEventDriven(boolean)}), every concept otherwise
+     */
+    public int getDirtyConceptCount() {
+        if (!eventDriven || dirty == null || wakeAll) {
+            return concepts.size();
+        }
+        return dirty.cardinality();
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Min. number of concepts to run {@link #execute()} in parallel, smaller maps are always executed
+     * sequentially. Default is {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     *
+     * @param parallelThreshold min. number of concepts
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Called by {@link Concept} when its state is changed from outside {@link #execute()}
+     *
+     * @param c changed concept
+     */
+    void conceptChanged(Concept c) {
+        if (executing) {
+            return;
+        }
+        if (!eventDriven) {
+            // output changes are also detected by wakeChangedConcepts(), but not fixed output changes
+            c.settled = false;
+            return;
+        }
+        if (dirty == null) {
+            return;
+        }
+        if (!isIndexed(c)) {
+            wakeAll = true;
+            return;
+        }
+        dirty.set(c.index);
+        markDestinations(c, dirty);
+    }
+
+    /**
+     * Called by {@link Concept} when its connections are changed
+     */
+    void structureChanged() {
+        wakeAll = true;
+    }
+
+    /*
+     * private stuff
+     */
+
+    /**
+     * Copy of a map set with {@link #setConcepts(Map)} or {@link #setConnections(Map)}, built in linear time
+     * if it is already sorted
+     */
+    private static <V> TreeMap<String, V> sortedCopy(Map<String, V> map) {
+        if (map instanceof SortedMap) {
+            return new TreeMap<String, V>((SortedMap<String, V>) map);
+        }
+        return new TreeMap<String, V>(map);
+    }
+
+    private Concept[] getConceptArray() {
+        // concepts may also be changed directly through getConcepts()
+        if (conceptArray == null || conceptArray.length != concepts.size()) {
+            conceptArray = concepts.values().toArray(new Concept[concepts.size()]);
+        }
+        return conceptArray;
+    }
+
+    /**
+     * Phase 1 of update, skipping activation of settled concepts
+     */
+    private static void startUpdate(Concept c) {
+        if (c.settled) {
+            c.holdUpdate();
+        } else {
+            c.startUpdate();
+        }
+    }
+
+    private static boolean isOutputUnchanged(Concept c, double previous, boolean previousDefined) {
+        boolean defined = c.hasOutput();
+        return defined == previousDefined && (!defined || c.output == previous);
+    }
+
+    /**
+     * Wake up concepts changed since last epoch, and their destinations
+     */
+    private void wakeChangedConcepts() {
+        if (wakeAll) {
+            for (Concept c : concepts.values()) {
+                c.settled = false;
+            }
+            wakeAll = false;
+            return;
+        }
+        for (Concept c : concepts.values()) {
+            if (!isOutputUnchanged(c, c.committedOutput, c.committedOutputDefined)) {
+                c.settled = false;
+                wakeDestinations(c);
+            }
+        }
+    }
+
+    private static void wakeDestinations(Concept c) {
+        for (FcmConnection conn : c.getOutConnections()) {
+            if (conn.getTo() != null) {
+                conn.getTo().settled = false;
+            }
+        }
+    }
+
+    /**
+     * Find settled concepts after phase 2: unchanged, and without changed sources
+     */
+    private void settleConcepts() {
+        int changed = 0;
+        int candidates = 0;
+        for (Concept c : concepts.values()) {
+            c.committedOutput = c.output;
+            c.committedOutputDefined = c.hasOutput();
+            c.changed = !isOutputUnchanged(c, c.prevOutput, c.hasPrevOutput());
+            if (c.changed) {
+                c.settled = false;
+                changed++;
+            } else {
+                if (!c.settled) {
+                    c.settled = canSettle(c);
+                }
+                if (c.settled) {
+                    candidates++;
+                }
+            }
+        }
+        if (changed == 0 || candidates == 0) {
+            return;
+        }
+
+        // visit the smaller set: destinations of changed concepts, or sources of candidates
+        if (changed <= candidates) {
+            for (Concept c : concepts.values()) {
+                if (c.changed) {
+                    wakeDestinations(c);
+                }
+            }
+        } else {
+            for (Concept c : concepts.values()) {
+                if (c.settled) {
+                    for (FcmConnection conn : c.getInConnections()) {
+                        if (conn.getFrom() != null && conn.getFrom().changed) {
+                            c.settled = false;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isIndexed(Concept c) {
+        return conceptArray != null && c.index >= 0 && c.index < conceptArray.length && conceptArray[c.index] == c;
+    }
+
+    private void markDestinations(Concept c, BitSet set) {
+        for (FcmConnection conn : c.getOutConnections()) {
+            Concept to = conn.getTo();
+            if (to == null) {
+                continue;
+            }
+            if (isIndexed(to)) {
+                set.set(to.index);
+            } else {
+                wakeAll = true;
+            }
+        }
+    }
+
+    /**
+     * Mark every concept as dirty
+     */
+    private void resetDirty() {
+        conceptArray = null;
+        Concept[] array = getConceptArray();
+        definedCount = 0;
+        for (int i = 0; i < array.length; i++) {
+            Concept c = array[i];
+            c.index = i;
+            c.counted = c.hasPrevOutput() && c.hasOutput();
+            if (c.counted) {
+                definedCount++;
+            }
+        }
+        dirty = new BitSet(array.length);
+        dirty.set(0, array.length);
+        nextDirty = new BitSet(array.length);
+        wakeAll = false;
+    }
+
+    /**
+     * Event-driven variant of {@link #execute()}, see {@link #setEventDriven(boolean)}
+     */
+    private void executeDirty() {
+        if (dirty == null || wakeAll) {
+            resetDirty();
+        }
+        Concept[] array = conceptArray;
+
+        double delta = 0.0;
+        executing = true;
+        try {
+            // 1. update dirty concepts
+            int count = dirty.cardinality();
+            if (executor != null && count >= parallelThreshold) {
+                Concept[] work = new Concept[count];
+                for (int i = dirty.nextSetBit(0), k = 0; i >= 0; i = dirty.nextSetBit(i + 1)) {
+                    work[k++] = array[i];
+                }
+                startUpdateParallel(work);
+            } else {
+                for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+                    array[i].startUpdate();
+                }
+            }
+
+            // 2. commit, in map order as execute(): other concepts would add 0.0 to delta;
+            // changed concepts and their destinations are dirty in next epoch
+            for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+                Concept c = array[i];
+                c.commitUpdate();
+
+                boolean counted = c.hasPrevOutput() && c.hasOutput();
+                if (counted) {
+                    double d = c.output - c.prevOutput;
+                    delta += d * d;
+                }
+                if (counted != c.counted) {
+                    definedCount += counted ? 1 : -1;
+                    c.counted = counted;
+                }
+
+                if (!isOutputUnchanged(c, c.prevOutput, c.hasPrevOutput())) {
+                    nextDirty.set(i);
+                    markDestinations(c, nextDirty);
+                } else if (!canSettle(c)) {
+                    nextDirty.set(i);
+                }
+            }
+        } finally {
+            executing = false;
+        }
+
+        averageSquareDelta = definedCount == 0 ? null : delta / definedCount;
+
+        BitSet tmp = dirty;
+        dirty = nextDirty;
+        nextDirty = tmp;
+        nextDirty.clear();
+    }
+
+    private static boolean canSettle(Concept c) {
+        if (!(c.getConceptActivator() instanceof BaseConceptActivator)) {
+            return false;
+        }
+        for (FcmConnection conn : c.getInConnections()) {
+            if (!(conn instanceof WeightedConnection) || ((WeightedConnection) conn).getDelay() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void startUpdateParallel(Concept[] array) {
+        int parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        // a few chunks per thread, to balance load
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, array.length / (parallelism * 4) + 1);
+
+        if (executor instanceof ForkJoinPool) {
+            ((ForkJoinPool) executor).invoke(new StartUpdateTask(array, 0, array.length, chunkSize));
+            return;
+        }
+
+        int chunks = (array.length + chunkSize - 1) / chunkSize;
+        final CountDownLatch latch = new CountDownLatch(chunks);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        for (int i = 0; i < chunks; i++) {
+            final Concept[] a = array;
+            final int from = i * chunkSize;
+            final int to = Math.min(from + chunkSize, array.length);
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        for (int j = from; j < to; j++) {
+                            startUpdate(a[j]);
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while executing map", iex);
+        }
+        if (error.get() != null) {
+            throw new RuntimeException("Error executing map", error.get());
+        }
+    }
+
+    /**
+     * Calls {@link Concept#startUpdate()} on a range of concepts, splitting it recursively
+     */
+    private static class StartUpdateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Concept[] array;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        StartUpdateTask(Concept[] array, int from, int to, int chunkSize) {
+            this.array = array;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    startUpdate(array[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new StartUpdateTask(array, from, mid, chunkSize),
+                    new StartUpdateTask(array, mid, to, chunkSize));
+        }
+    }
+
 }
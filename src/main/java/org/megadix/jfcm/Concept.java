@@ -30,16 +30,42 @@ public class Concept {
 
     protected String name;
     protected String description;
+    /** Bit of {@link #defined}: {@link #input} is defined */
+    protected static final int INPUT = 1;
+    /** Bit of {@link #defined}: {@link #prevOutput} is defined */
+    protected static final int PREV_OUTPUT = 2;
+    /** Bit of {@link #defined}: {@link #output} is defined */
+    protected static final int OUTPUT = 4;
+    /** Bit of {@link #defined}: {@link #nextOutput} is defined */
+    protected static final int NEXT_OUTPUT = 8;
+
     protected ConceptActivator conceptActivator;
-    protected Double input;
-    protected Double prevOutput;
-    protected Double output;
-    protected Double nextOutput;
+    protected double input;
+    protected double prevOutput;
+    protected double output;
+    protected double nextOutput;
+    /**
+     * Bitmask of defined values ({@link #INPUT}, {@link #PREV_OUTPUT}, {@link #OUTPUT}, {@link #NEXT_OUTPUT}),
+     * a value whose bit is not set is undefined, i.e. <code>null</code>
+     */
+    protected int defined = 0;
     protected boolean fixedOutput = false;
 
     protected CognitiveMap map;
     protected final Set<FcmConnection> outConnections = new HashSet<>();
     protected final Set<FcmConnection> inConnections = new HashSet<>();
+    private final Set<FcmConnection> outConnectionsView = Collections.unmodifiableSet(outConnections);
+    private final Set<FcmConnection> inConnectionsView = Collections.unmodifiableSet(inConnections);
+
+    // settled concepts, see CognitiveMap#setFreezeSettledConcepts(boolean)
+    boolean settled;
+    boolean changed;
+    double committedOutput;
+    boolean committedOutputDefined;
+
+    // event-driven execution, see CognitiveMap#setEventDriven(boolean)
+    int index = -1;
+    boolean counted;
 
     public Concept() {
     }
@@ -53,8 +79,8 @@ public class Concept {
             boolean fixedOutput) {
         this(name, description);
         this.conceptActivator = conceptActivator;
-        this.input = input;
-        this.output = output;
+        setInput(input);
+        setOutput(output);
         this.fixedOutput = fixedOutput;
     }
 
@@ -77,9 +103,9 @@ public class Concept {
         sb.append("] act = ");
         sb.append(conceptActivator != null ? conceptActivator.getClass().getName() : "null");
         sb.append(", input = ");
-        sb.append(input != null ? input : "null");
+        sb.append(hasInput() ? Double.toString(input) : "null");
         sb.append(", output = ");
-        sb.append(output != null ? output : "null");
+        sb.append(hasOutput() ? Double.toString(output) : "null");
         sb.append(", fixed = ");
         sb.append(Boolean.toString(fixedOutput));
 
@@ -99,6 +125,7 @@ public class Concept {
         this.prevOutput = c.prevOutput;
         this.output = c.output;
         this.nextOutput = c.nextOutput;
+        this.defined = c.defined;
         this.fixedOutput = c.fixedOutput;
     }
 
@@ -126,26 +153,41 @@ public class Concept {
      */
     public void startUpdate() {
         if (conceptActivator == null) {
-            prevOutput = output;
-            nextOutput = output;
+            holdUpdate();
             return;
         }
         conceptActivator.calculateNextOutput(this);
     }
 
+    /**
+     * Phase 1 of update without activation: {@link #prevOutput} and {@link #nextOutput} are set to
+     * current {@link #output}
+     */
+    void holdUpdate() {
+        prevOutput = output;
+        nextOutput = output;
+        defined &= ~(PREV_OUTPUT | NEXT_OUTPUT);
+        if ((defined & OUTPUT) != 0) {
+            defined |= PREV_OUTPUT | NEXT_OUTPUT;
+        }
+    }
+
     /**
      * Phase 2 of update: copy {@link #nextOutput} to {@link #output}
      */
     public void commitUpdate() {
         output = nextOutput;
+        defined = (defined & ~OUTPUT) | ((defined & NEXT_OUTPUT) != 0 ? OUTPUT : 0);
     }
 
     public void addInputConnection(FcmConnection conn) {
         this.inConnections.add(conn);
+        structureChanged();
     }
 
     public void removeInputConnection(FcmConnection conn) {
         this.inConnections.remove(conn);
+        structureChanged();
     }
 
     public void connectOutputTo(FcmConnection conn) {
@@ -154,18 +196,20 @@ public class Concept {
         }
         conn.setFrom(this);
         this.outConnections.add(conn);
+        structureChanged();
     }
 
     public void removeOutputConnection(FcmConnection conn) {
         this.outConnections.remove(conn);
+        structureChanged();
     }
 
     public Set<FcmConnection> getOutConnections() {
-        return Collections.unmodifiableSet(outConnections);
+        return outConnectionsView;
     }
 
     public Set<FcmConnection> getInConnections() {
-        return Collections.unmodifiableSet(inConnections);
+        return inConnectionsView;
     }
 
     /*
@@ -194,6 +238,7 @@ public class Concept {
 
     public void setConceptActivator(ConceptActivator conceptActivator) {
         this.conceptActivator = conceptActivator;
+        stateChanged();
     }
 
     public CognitiveMap getMap() {
@@ -205,35 +250,139 @@ public class Concept {
     }
 
     public Double getInput() {
-        return input;
+        return hasInput() ? input : null;
+    }
+
+    /**
+     * Primitive, allocation-free variant of {@link #getInput()}
+     *
+     * @return input, <code>Double.NaN</code> if undefined
+     */
+    public double getInputAsDouble() {
+        return hasInput() ? input : Double.NaN;
+    }
+
+    /**
+     * @return <code>true</code> if input is defined, i.e. {@link #getInput()} != <code>null</code>
+     */
+    public boolean hasInput() {
+        return (defined & INPUT) != 0;
     }
 
     public void setInput(Double input) {
+        if (input == null) {
+            this.defined &= ~INPUT;
+        } else {
+            setInput(input.doubleValue());
+        }
+    }
+
+    public void setInput(double input) {
         this.input = input;
+        this.defined |= INPUT;
     }
 
     public Double getPrevOutput() {
-        return prevOutput;
+        return hasPrevOutput() ? prevOutput : null;
+    }
+
+    /**
+     * Primitive, allocation-free variant of {@link #getPrevOutput()}
+     *
+     * @return prevOutput, <code>Double.NaN</code> if undefined
+     */
+    public double getPrevOutputAsDouble() {
+        return hasPrevOutput() ? prevOutput : Double.NaN;
+    }
+
+    /**
+     * @return <code>true</code> if prevOutput is defined, i.e. {@link #getPrevOutput()} != <code>null</code>
+     */
+    public boolean hasPrevOutput() {
+        return (defined & PREV_OUTPUT) != 0;
     }
 
     public void setPrevOutput(Double prevOutput) {
+        if (prevOutput == null) {
+            this.defined &= ~PREV_OUTPUT;
+            stateChanged();
+        } else {
+            setPrevOutput(prevOutput.doubleValue());
+        }
+    }
+
+    public void setPrevOutput(double prevOutput) {
         this.prevOutput = prevOutput;
+        this.defined |= PREV_OUTPUT;
+        stateChanged();
     }
 
     public Double getOutput() {
-        return output;
+        return hasOutput() ? output : null;
+    }
+
+    /**
+     * Primitive, allocation-free variant of {@link #getOutput()}
+     *
+     * @return output, <code>Double.NaN</code> if undefined
+     */
+    public double getOutputAsDouble() {
+        return hasOutput() ? output : Double.NaN;
+    }
+
+    /**
+     * @return <code>true</code> if output is defined, i.e. {@link #getOutput()} != <code>null</code>
+     */
+    public boolean hasOutput() {
+        return (defined & OUTPUT) != 0;
     }
 
     public void setOutput(Double output) {
+        if (output == null) {
+            this.defined &= ~OUTPUT;
+            stateChanged();
+        } else {
+            setOutput(output.doubleValue());
+        }
+    }
+
+    public void setOutput(double output) {
         this.output = output;
+        this.defined |= OUTPUT;
+        stateChanged();
     }
 
     public Double getNextOutput() {
-        return nextOutput;
+        return hasNextOutput() ? nextOutput : null;
+    }
+
+    /**
+     * Primitive, allocation-free variant of {@link #getNextOutput()}
+     *
+     * @return nextOutput, <code>Double.NaN</code> if undefined
+     */
+    public double getNextOutputAsDouble() {
+        return hasNextOutput() ? nextOutput : Double.NaN;
+    }
+
+    /**
+     * @return <code>true</code> if nextOutput is defined, i.e. {@link #getNextOutput()} != <code>null</code>
+     */
+    public boolean hasNextOutput() {
+        return (defined & NEXT_OUTPUT) != 0;
     }
 
     public void setNextOutput(Double nextOutput) {
+        if (nextOutput == null) {
+            this.defined &= ~NEXT_OUTPUT;
+        } else {
+            setNextOutput(nextOutput.doubleValue());
+        }
+    }
+
+    public void setNextOutput(double nextOutput) {
         this.nextOutput = nextOutput;
+        this.defined |= NEXT_OUTPUT;
     }
 
     public boolean isFixedOutput() {
@@ -242,5 +391,22 @@ public class Concept {
 
     public void setFixedOutput(boolean fixedOutput) {
         this.fixedOutput = fixedOutput;
+        stateChanged();
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void stateChanged() {
+        if (map != null) {
+            map.conceptChanged(this);
+        }
+    }
+
+    private void structureChanged() {
+        if (map != null) {
+            map.structureChanged();
+        }
     }
 }
@@ -31,7 +31,8 @@ public abstract class FcmConnection {
     protected String description;
     protected Concept from;
     protected Concept to;
-    protected Double output;
+    protected double output;
+    protected boolean outputDefined = false;
 
     public FcmConnection() {
     }
@@ -52,20 +53,60 @@ public abstract class FcmConnection {
 
     /**
      * Implementations should calculate output and put the result in the
-     * {@link #output} property. Clients interested only in current output
+     * {@link #output} and {@link #outputDefined} properties. Clients interested only in current output
      * should call {@link #getOutput()} instead.
      *
      * @return new output
      */
     public abstract Double calculateOutput();
 
+    /**
+     * Allocation-free variant of {@link #calculateOutput()}, that doesn't return the result:
+     * use {@link #hasOutput()} and {@link #getOutputAsDouble()} to read it.
+     * Default implementation calls {@link #calculateOutput()}, implementations should override it
+     * to avoid boxing.
+     */
+    public void updateOutput() {
+        calculateOutput();
+    }
+
     /**
      * Returns the current calculated output, set by {@link #calculateOutput()}
      *
      * @return current output
      */
     public Double getOutput() {
-        return this.output;
+        return outputDefined ? output : null;
+    }
+
+    /**
+     * Primitive variant of {@link #getOutput()}
+     *
+     * @return current output, <code>Double.NaN</code> if undefined
+     */
+    public double getOutputAsDouble() {
+        return outputDefined ? output : Double.NaN;
+    }
+
+    /**
+     * @return <code>true</code> if output is defined, i.e. {@link #getOutput()} != <code>null</code>
+     */
+    public boolean hasOutput() {
+        return outputDefined;
+    }
+
+    /**
+     * Set {@link #output} and {@link #outputDefined} from a boxed value, for implementations written against
+     * the former <code>Double output</code> field: replace <code>output = value</code> with
+     * <code>setOutput(value)</code>
+     *
+     * @param output new output, <code>null</code> for undefined
+     */
+    protected void setOutput(Double output) {
+        this.outputDefined = output != null;
+        if (outputDefined) {
+            this.output = output;
+        }
     }
 
     /*
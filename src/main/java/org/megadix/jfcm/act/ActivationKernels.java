@@ -0,0 +1,61 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.act;
+
+/**
+ * Loops of built-in {@link VectorizedActivator} implementations whose result can be computed exactly
+ * with SIMD instructions.
+ * <p>
+ * This is the Java 7 version, it always runs {@link ScalarKernels}. The library jar is a multi-release
+ * jar: on Java 17 and later <code>META-INF/versions/17</code> contains another version of this class,
+ * built on the <code>jdk.incubator.vector</code> API and used when the JVM is started with
+ * <code>--add-modules jdk.incubator.vector</code>.
+ * </p>
+ */
+final class ActivationKernels {
+
+    private ActivationKernels() {
+        // prevents calls
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return <code>true</code> if kernels run on the Vector API
+     */
+    static boolean isVectorized() {
+        return false;
+    }
+
+    static void linear(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double factor, double min, double max) {
+        ScalarKernels.linear(input, output, result, offset, length, includePrev, threshold, factor, min, max);
+    }
+
+    static void signum(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double below, double zeroValue) {
+        ScalarKernels.signum(input, output, result, offset, length, includePrev, threshold, below, zeroValue);
+    }
+
+    static void interval(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double amplitude, double outside, double zeroValue) {
+        ScalarKernels.interval(input, output, result, offset, length, includePrev, threshold, amplitude, outside,
+                zeroValue);
+    }
+}
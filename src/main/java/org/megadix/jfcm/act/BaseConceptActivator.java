@@ -18,6 +18,10 @@ Temple Place, Suite 330, Boston, MA 02111-1307 USA
 
 package org.megadix.jfcm.act;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.megadix.jfcm.*;
 
 /**
@@ -27,7 +31,7 @@ import org.megadix.jfcm.*;
  * @author De Franciscis Dimitri - www.megadix.it
  *
  */
-public abstract class BaseConceptActivator implements ConceptActivator {
+public abstract class BaseConceptActivator implements ConceptActivator, VectorizedActivator, Cloneable {
 
     public static final double DEFAULT_THRESHOLD = 0.0;
     public static final boolean DEFAULT_INCLUDE_PREVIOUS_OUTPUT = true;
@@ -74,12 +78,30 @@ public abstract class BaseConceptActivator implements ConceptActivator {
         this.includePreviousOutput = includePreviousOutput;
     }
 
+    /**
+     * Create a copy of this activator with the same parameters. The default implementation is a
+     * shallow {@link Object#clone()}: subclasses holding mutable state must override it.
+     *
+     * @return a copy of this activator
+     */
+    public BaseConceptActivator copy() {
+        try {
+            return (BaseConceptActivator) super.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new RuntimeException("Error copying activator", ex);
+        }
+    }
+
     /**
      * Accumulates outputs of incoming connections.
      */
     public final void calculateNextOutput(Concept c) {
 
-        c.setPrevOutput(c.getOutput());
+        if (c.hasOutput()) {
+            c.setPrevOutput(c.getOutputAsDouble());
+        } else {
+            c.setPrevOutput(null);
+        }
 
         if (!c.isFixedOutput() && c.getInConnections().size() == 0) {
             c.setNextOutput(null);
@@ -87,7 +109,11 @@ public abstract class BaseConceptActivator implements ConceptActivator {
         }
 
         if (c.isFixedOutput()) {
-            c.setNextOutput(c.getOutput());
+            if (c.hasOutput()) {
+                c.setNextOutput(c.getOutputAsDouble());
+            } else {
+                c.setNextOutput(null);
+            }
             return;
         }
 
@@ -95,22 +121,22 @@ public abstract class BaseConceptActivator implements ConceptActivator {
         int count = 0;
 
         for (FcmConnection conn : c.getInConnections()) {
-            conn.calculateOutput();
-            Concept from = conn.getFrom();
+            conn.updateOutput();
+            // getOutputAsDouble() is NaN if not defined
+            double fromOutput = conn.getFrom().getOutputAsDouble();
             // if any of the inputs is not defined...
-            if (from.getOutput() == null || from.getOutput().isNaN()) {
+            if (Double.isNaN(fromOutput)) {
                 // skip
                 continue;
 
-            } else if (from.getOutput().isInfinite()) {
+            } else if (Double.isInfinite(fromOutput)) {
                 // set output tu NaN and return
                 c.setNextOutput(Double.NaN);
                 return;
             }
 
-            Double connOutput = conn.getOutput();
-            if (connOutput != null) {
-                temp += connOutput;
+            if (conn.hasOutput()) {
+                temp += conn.getOutputAsDouble();
                 count++;
             }
         }
@@ -118,17 +144,14 @@ public abstract class BaseConceptActivator implements ConceptActivator {
         // Concept input = sum
         if (count == 0) {
             c.setInput(null);
-        } else {
-            c.setInput(temp);
-        }
-
-        if (c.getInput() == null) {
             // set output to null and return
             c.setNextOutput(null);
             return;
         }
 
-        if (c.getInput().isNaN()) {
+        c.setInput(temp);
+
+        if (Double.isNaN(temp)) {
             // set output tu NaN and return
             c.setNextOutput(Double.NaN);
             return;
@@ -150,6 +173,69 @@ public abstract class BaseConceptActivator implements ConceptActivator {
      */
     protected abstract double calculateNextOutputImpl(Concept c);
 
+    /**
+     * Primitive counterpart of {@link #calculateNextOutputImpl(Concept)}, used by
+     * execution engines that keep concept state in arrays instead of {@link Concept} objects
+     * (see {@link org.megadix.jfcm.exec.CompiledCognitiveMap}).
+     * Same edge conditions apply: <code>conceptInput</code> is never NaN.
+     * Default implementation wraps values in a temporary {@link Concept} and delegates to
+     * {@link #calculateNextOutputImpl(Concept)}, built-in activators override it.
+     *
+     * @param conceptInput concept input, i.e. sum of incoming connection outputs
+     * @param conceptOutput current concept output, <code>Double.NaN</code> if undefined
+     * @return next concept output
+     */
+    public double activate(double conceptInput, double conceptOutput) {
+        Concept c = new Concept();
+        c.setInput(conceptInput);
+        if (!Double.isNaN(conceptOutput)) {
+            c.setOutput(conceptOutput);
+        }
+        return calculateNextOutputImpl(c);
+    }
+
+    /**
+     * Scalar fallback, calls {@link #activate(double, double)} for every concept.
+     */
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            result[i] = activate(input[i], output[i]);
+        }
+    }
+
+    /**
+     * Default implementation returns this activator: only concepts sharing the same instance are grouped.
+     * Built-in activators return {@link #activationKey(Object...)}.
+     */
+    public Object getActivationKey() {
+        return this;
+    }
+
+    /**
+     * Activation key made of class, threshold, includePreviousOutput and given parameters
+     *
+     * @param params parameters of the activation function
+     * @return key, see {@link VectorizedActivator#getActivationKey()}
+     */
+    protected final List<Object> activationKey(Object... params) {
+        List<Object> key = new ArrayList<>(params.length + 3);
+        key.add(getClass());
+        key.add(threshold);
+        key.add(includePreviousOutput);
+        Collections.addAll(key, params);
+        return key;
+    }
+
+    /**
+     * Previous output to include in calculations, according to {@link #isIncludePreviousOutput()}
+     *
+     * @param conceptOutput current concept output, <code>Double.NaN</code> if undefined
+     * @return previous output, or 0.0 if not included or undefined
+     */
+    protected final double previousOutput(double conceptOutput) {
+        return (includePreviousOutput && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+    }
+
     /**
      * Default implementation, calls <code>visitor.visitConceptActivator(this);</code>
      */
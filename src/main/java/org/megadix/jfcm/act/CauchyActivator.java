@@ -31,11 +31,38 @@ public class CauchyActivator extends BaseConceptActivator {
 
     @Override
     protected double calculateNextOutputImpl(Concept c) {
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = prevOutput + c.getInput();
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
+        double prevOutput = previousOutput(conceptOutput);
+        double input = prevOutput + conceptInput;
+
+        double x = input - threshold;
+        return 1.0 / (Math.PI * (1.0 + x * x));
+    }
 
-        return 1.0 / (Math.PI * (1.0 + Math.pow(input - threshold, 2)));
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != CauchyActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        final boolean includePrev = includePreviousOutput;
+        final double threshold = this.threshold;
+        for (int i = offset; i < offset + length; i++) {
+            double conceptOutput = output[i];
+            double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+            double x = prevOutput + input[i] - threshold;
+            result[i] = 1.0 / (Math.PI * (1.0 + x * x));
+        }
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey();
     }
 
 }
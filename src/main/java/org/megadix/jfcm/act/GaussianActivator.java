@@ -23,9 +23,12 @@ import org.megadix.jfcm.Concept;
 public class GaussianActivator extends BaseConceptActivator {
 
     public static final double DEFAULT_WIDTH = 1.0;
+    public static final double DEFAULT_MAX_ERROR = 0.0;
 
     private double width = 1.0;
     private double width2 = DEFAULT_WIDTH;
+    private double maxError = DEFAULT_MAX_ERROR;
+    private LookupTable table = null;
 
     public GaussianActivator() {
     }
@@ -48,12 +51,67 @@ public class GaussianActivator extends BaseConceptActivator {
         this.width2 = width * width;
     }
 
+    public double getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * Approximate activation: outputs are interpolated from a table of <code>exp(-x)</code>,
+     * within <code>maxError</code> from exact values.
+     *
+     * @param maxError max absolute error, 0.0 (default) for exact calculation with {@link Math#exp(double)}
+     * @throws IllegalArgumentException if maxError is not 0.0 and not in (0, 1), or too small to be tabulated
+     */
+    public void setMaxError(double maxError) {
+        this.table = maxError == 0.0 ? null : LookupTable.Function.EXP_NEG.getTable(maxError);
+        this.maxError = maxError;
+    }
+
     @Override
     protected double calculateNextOutputImpl(Concept c) {
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = prevOutput + c.getInput();
-        return Math.exp(-1.0 * Math.pow((input), 2.0) / 2.0 * width2);
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
+        double prevOutput = previousOutput(conceptOutput);
+        double input = prevOutput + conceptInput;
+        if (table != null) {
+            return table.evaluate(input * input / 2.0 * width2);
+        }
+        return Math.exp(-1.0 * (input * input) / 2.0 * width2);
+    }
+
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != GaussianActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        final boolean includePrev = includePreviousOutput;
+        final double width2 = this.width2;
+        final LookupTable table = this.table;
+        if (table != null) {
+            for (int i = offset; i < offset + length; i++) {
+                double conceptOutput = output[i];
+                double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+                double x = prevOutput + input[i];
+                result[i] = table.evaluate(x * x / 2.0 * width2);
+            }
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                double conceptOutput = output[i];
+                double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+                double x = prevOutput + input[i];
+                result[i] = Math.exp(-1.0 * (x * x) / 2.0 * width2);
+            }
+        }
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey(width, maxError);
     }
 
 }
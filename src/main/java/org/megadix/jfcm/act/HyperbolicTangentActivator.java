@@ -28,6 +28,11 @@ import org.megadix.jfcm.Concept;
  */
 public class HyperbolicTangentActivator extends BaseConceptActivator {
 
+    public static final double DEFAULT_MAX_ERROR = 0.0;
+
+    private double maxError = DEFAULT_MAX_ERROR;
+    private LookupTable table = null;
+
     public HyperbolicTangentActivator() {
         super();
     }
@@ -42,11 +47,64 @@ public class HyperbolicTangentActivator extends BaseConceptActivator {
 
     @Override
     protected double calculateNextOutputImpl(Concept c) {
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
 
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = prevOutput + c.getInput() + threshold;
+        double prevOutput = previousOutput(conceptOutput);
+        double input = prevOutput + conceptInput + threshold;
 
+        if (table != null) {
+            return table.evaluate(input);
+        }
         return Math.tanh(input);
     }
+
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != HyperbolicTangentActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        final boolean includePrev = includePreviousOutput;
+        final double threshold = this.threshold;
+        final LookupTable table = this.table;
+        if (table != null) {
+            for (int i = offset; i < offset + length; i++) {
+                double conceptOutput = output[i];
+                double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+                result[i] = table.evaluate(prevOutput + input[i] + threshold);
+            }
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                double conceptOutput = output[i];
+                double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+                result[i] = Math.tanh(prevOutput + input[i] + threshold);
+            }
+        }
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey(maxError);
+    }
+
+    public double getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * Approximate activation: outputs are interpolated from a table of the hyperbolic tangent,
+     * within <code>maxError</code> from exact values.
+     *
+     * @param maxError max absolute error, 0.0 (default) for exact calculation with {@link Math#tanh(double)}
+     * @throws IllegalArgumentException if maxError is not 0.0 and not in (0, 1), or too small to be tabulated
+     */
+    public void setMaxError(double maxError) {
+        this.table = maxError == 0.0 ? null : LookupTable.Function.TANH.getTable(maxError);
+        this.maxError = maxError;
+    }
 }
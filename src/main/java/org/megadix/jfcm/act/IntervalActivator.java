@@ -86,10 +86,14 @@ public class IntervalActivator extends BaseConceptActivator {
 
     @Override
     protected double calculateNextOutputImpl(Concept c) {
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
 
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = (prevOutput + c.getInput() + threshold) / amplitude;
+        double prevOutput = previousOutput(conceptOutput);
+        double input = (prevOutput + conceptInput + threshold) / amplitude;
 
         double result = zeroValue;
 
@@ -109,4 +113,22 @@ public class IntervalActivator extends BaseConceptActivator {
         return result;
 
     }
+
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != IntervalActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        // BINARY mode: -1.0 becomes zeroValue
+        double outside = mode == Mode.BINARY ? zeroValue : -1.0;
+        ActivationKernels.interval(input, output, result, offset, length, includePreviousOutput, threshold, amplitude,
+                outside, zeroValue);
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey(mode, zeroValue, amplitude);
+    }
 }
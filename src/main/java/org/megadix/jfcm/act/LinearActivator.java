@@ -74,13 +74,33 @@ public class LinearActivator extends BaseConceptActivator {
 
     @Override
     protected double calculateNextOutputImpl(Concept c) {
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = prevOutput + c.getInput() + threshold;
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
+        double prevOutput = previousOutput(conceptOutput);
+        double input = prevOutput + conceptInput + threshold;
         double result = input * factor;
         result = Math.max(result, min);
         result = Math.min(result, max);
         return result;
     }
 
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != LinearActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        ActivationKernels.linear(input, output, result, offset, length, includePreviousOutput, threshold, factor, min,
+                max);
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey(factor, min, max);
+    }
+
 }
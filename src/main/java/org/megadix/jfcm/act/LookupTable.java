@@ -0,0 +1,224 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.act;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Function sampled at regular intervals on <code>[min, max]</code> and evaluated by linear interpolation,
+ * used by activators for approximate activation (see {@link SigmoidActivator#setMaxError(double)}).
+ * <p>
+ * Given max absolute error <code>e</code>, half of it is spent on interpolation: step <code>h</code> is such
+ * that <code>h<sup>2</sup> / 8 * max|f''| &lt;= e / 2</code>; the other half on range: outside
+ * <code>[min, max]</code> the function is within <code>e / 2</code> of its limit, which is returned.
+ * Tables are immutable and shared: max errors are rounded down to a power of two, so every function has at most
+ * one table per binary order of magnitude of max error, whatever the number of distinct values requested.
+ * </p>
+ */
+final class LookupTable {
+
+    /**
+     * Max. number of samples of a table (16 MB)
+     */
+    static final int MAX_SIZE = 1 << 21;
+
+    /**
+     * Tabulated functions
+     */
+    enum Function {
+
+        /** <code>1 / (1 + exp(-x))</code> */
+        SIGMOID {
+            @Override
+            double value(double x) {
+                return 1.0 / (1.0 + Math.exp(-x));
+            }
+
+            @Override
+            double maxSecondDerivative() {
+                return 1.0 / (6.0 * Math.sqrt(3.0));
+            }
+
+            @Override
+            double min(double err) {
+                return -max(err);
+            }
+
+            @Override
+            double max(double err) {
+                // 1 - f(x) = f(-x) < exp(-x)
+                return Math.log(1.0 / err);
+            }
+        },
+
+        /** <code>tanh(x)</code> */
+        TANH {
+            @Override
+            double value(double x) {
+                return Math.tanh(x);
+            }
+
+            @Override
+            double maxSecondDerivative() {
+                return 4.0 / (3.0 * Math.sqrt(3.0));
+            }
+
+            @Override
+            double min(double err) {
+                return -max(err);
+            }
+
+            @Override
+            double max(double err) {
+                // 1 - f(x) < 2 * exp(-2x)
+                return Math.log(2.0 / err) / 2.0;
+            }
+        },
+
+        /** <code>exp(-x)</code>, for <code>x &gt;= 0</code> */
+        EXP_NEG {
+            @Override
+            double value(double x) {
+                return Math.exp(-x);
+            }
+
+            @Override
+            double maxSecondDerivative() {
+                return 1.0;
+            }
+
+            @Override
+            double min(double err) {
+                return 0.0;
+            }
+
+            @Override
+            double max(double err) {
+                return Math.log(1.0 / err);
+            }
+        };
+
+        // by exponent of max error
+        private final ConcurrentMap<Integer, LookupTable> tables = new ConcurrentHashMap<>();
+
+        abstract double value(double x);
+
+        abstract double maxSecondDerivative();
+
+        /**
+         * @param err max distance from limit value
+         * @return lower end of tabulated range
+         */
+        abstract double min(double err);
+
+        /**
+         * @param err max distance from limit value
+         * @return upper end of tabulated range
+         */
+        abstract double max(double err);
+
+        /**
+         * @param maxError max absolute error, &gt; 0 and &lt; 1
+         * @return shared table, whose max error is the largest power of two &lt;= maxError
+         * @throws IllegalArgumentException if maxError is out of range, or too small for {@link #MAX_SIZE}
+         */
+        LookupTable getTable(double maxError) {
+            if (!(maxError > 0.0 && maxError < 1.0)) {
+                throw new IllegalArgumentException("maxError must be > 0 and < 1: " + maxError);
+            }
+            int exponent = Math.getExponent(maxError);
+            LookupTable table = tables.get(exponent);
+            if (table == null) {
+                table = new LookupTable(this, Math.scalb(1.0, exponent));
+                LookupTable existing = tables.putIfAbsent(exponent, table);
+                if (existing != null) {
+                    table = existing;
+                }
+            }
+            return table;
+        }
+    }
+
+    private final double min;
+    private final double scale;
+    private final double last;
+    private final double[] values;
+    private final double low;
+    private final double high;
+
+    private LookupTable(Function function, double maxError) {
+        if (!(maxError > 0.0 && maxError < 1.0)) {
+            throw new IllegalArgumentException("maxError must be > 0 and < 1: " + maxError);
+        }
+        double err = maxError / 2.0;
+        double min = function.min(err);
+        double max = function.max(err);
+        double step = Math.sqrt(8.0 * err / function.maxSecondDerivative());
+        double size = Math.ceil((max - min) / step) + 1.0;
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("maxError too small: " + maxError);
+        }
+
+        int n = (int) size;
+        step = (max - min) / (n - 1);
+        this.min = min;
+        this.scale = 1.0 / step;
+        this.last = n - 1;
+        this.values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = function.value(min + i * step);
+        }
+        this.low = limit(function, Double.NEGATIVE_INFINITY, values[0]);
+        this.high = limit(function, Double.POSITIVE_INFINITY, values[n - 1]);
+    }
+
+    /**
+     * @param x argument
+     * @return approximate function value; limit value outside tabulated range, NaN if x is NaN
+     */
+    double evaluate(double x) {
+        double pos = (x - min) * scale;
+        if (pos >= 0.0 && pos < last) {
+            int i = (int) pos;
+            double v0 = values[i];
+            return v0 + (values[i + 1] - v0) * (pos - i);
+        }
+        if (Double.isNaN(x)) {
+            return x;
+        }
+        return pos < 0.0 ? low : high;
+    }
+
+    /**
+     * @return number of samples
+     */
+    int size() {
+        return values.length;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static double limit(Function function, double x, double endValue) {
+        double value = function.value(x);
+        return Double.isInfinite(value) ? endValue : value;
+    }
+}
@@ -48,10 +48,14 @@ public class NaryActivator extends BaseConceptActivator {
 
     @Override
     protected double calculateNextOutputImpl(Concept c) {
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
 
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = prevOutput + c.getInput() + threshold;
+        double prevOutput = previousOutput(conceptOutput);
+        double input = prevOutput + conceptInput + threshold;
 
         double result = Math.max(input, -1.0);
         result = Math.min(result, 1.0);
@@ -59,4 +63,29 @@ public class NaryActivator extends BaseConceptActivator {
         return result / n;
     }
 
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != NaryActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        final boolean includePrev = includePreviousOutput;
+        final double threshold = this.threshold;
+        final int n = this.n;
+        for (int i = offset; i < offset + length; i++) {
+            double conceptOutput = output[i];
+            double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+            double r = Math.max(prevOutput + input[i] + threshold, -1.0);
+            r = Math.min(r, 1.0);
+            r = Math.round(r * n);
+            result[i] = r / n;
+        }
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey(n);
+    }
+
 }
@@ -0,0 +1,62 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.act;
+
+/**
+ * Scalar loops of built-in {@link VectorizedActivator} implementations, see {@link ActivationKernels}.
+ */
+final class ScalarKernels {
+
+    private ScalarKernels() {
+        // prevents calls
+        throw new UnsupportedOperationException();
+    }
+
+    static void linear(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double factor, double min, double max) {
+        for (int i = offset; i < offset + length; i++) {
+            double conceptOutput = output[i];
+            double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+            double r = (prevOutput + input[i] + threshold) * factor;
+            r = Math.max(r, min);
+            result[i] = Math.min(r, max);
+        }
+    }
+
+    static void signum(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double below, double zeroValue) {
+        for (int i = offset; i < offset + length; i++) {
+            double conceptOutput = output[i];
+            double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+            double x = prevOutput + input[i];
+            result[i] = x < threshold ? below : (x > threshold ? 1.0 : zeroValue);
+        }
+    }
+
+    static void interval(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double amplitude, double outside, double zeroValue) {
+        for (int i = offset; i < offset + length; i++) {
+            double conceptOutput = output[i];
+            double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+            double x = (prevOutput + input[i] + threshold) / amplitude;
+            result[i] = (x <= -1.0 || x >= 1.0) ? outside : ((x > -1.0 || x < 1.0) ? 1.0 : zeroValue);
+        }
+    }
+}
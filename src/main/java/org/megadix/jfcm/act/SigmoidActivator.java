@@ -29,8 +29,11 @@ import org.megadix.jfcm.Concept;
 public class SigmoidActivator extends BaseConceptActivator {
 
     public static final double DEFAULT_K = 1.0;
+    public static final double DEFAULT_MAX_ERROR = 0.0;
 
     private double k = DEFAULT_K;
+    private double maxError = DEFAULT_MAX_ERROR;
+    private LookupTable table = null;
 
     public SigmoidActivator() {
         super();
@@ -53,12 +56,50 @@ public class SigmoidActivator extends BaseConceptActivator {
 
     @Override
     protected double calculateNextOutputImpl(Concept c) {
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = prevOutput + c.getInput() + threshold;
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
+        double prevOutput = previousOutput(conceptOutput);
+        double input = prevOutput + conceptInput + threshold;
+        if (table != null) {
+            return table.evaluate(k * input);
+        }
         return 1.0 / (1.0 + Math.exp(-k * input));
     }
 
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != SigmoidActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        final boolean includePrev = includePreviousOutput;
+        final double threshold = this.threshold;
+        final double k = this.k;
+        final LookupTable table = this.table;
+        if (table != null) {
+            for (int i = offset; i < offset + length; i++) {
+                double conceptOutput = output[i];
+                double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+                result[i] = table.evaluate(k * (prevOutput + input[i] + threshold));
+            }
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                double conceptOutput = output[i];
+                double prevOutput = (includePrev && !Double.isNaN(conceptOutput)) ? conceptOutput : 0.0;
+                result[i] = 1.0 / (1.0 + Math.exp(-k * (prevOutput + input[i] + threshold)));
+            }
+        }
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey(k, maxError);
+    }
+
     public double getK() {
         return k;
     }
@@ -67,4 +108,20 @@ public class SigmoidActivator extends BaseConceptActivator {
         this.k = k;
     }
 
+    public double getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * Approximate activation: outputs are interpolated from a table of the logistic function,
+     * within <code>maxError</code> from exact values.
+     *
+     * @param maxError max absolute error, 0.0 (default) for exact calculation with {@link Math#exp(double)}
+     * @throws IllegalArgumentException if maxError is not 0.0 and not in (0, 1), or too small to be tabulated
+     */
+    public void setMaxError(double maxError) {
+        this.table = maxError == 0.0 ? null : LookupTable.Function.SIGMOID.getTable(maxError);
+        this.maxError = maxError;
+    }
+
 }
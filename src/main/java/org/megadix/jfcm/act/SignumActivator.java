@@ -73,11 +73,15 @@ public class SignumActivator extends BaseConceptActivator {
 
     @Override
     protected double calculateNextOutputImpl(Concept c) {
+        return activate(c.getInputAsDouble(), c.getOutputAsDouble());
+    }
+
+    @Override
+    public double activate(double conceptInput, double conceptOutput) {
         double result = zeroValue;
 
-        double prevOutput = (includePreviousOutput && c.getOutput() != null && !c.getOutput().isNaN()) ? c.getOutput()
-                : 0.0;
-        double input = prevOutput + c.getInput();
+        double prevOutput = previousOutput(conceptOutput);
+        double input = prevOutput + conceptInput;
 
         // first, calculate as in BIPOLAR mode
 
@@ -94,4 +98,22 @@ public class SignumActivator extends BaseConceptActivator {
 
         return result;
     }
+
+    @Override
+    public void activate(double[] input, double[] output, double[] result, int offset, int length) {
+        if (getClass() != SignumActivator.class) {
+            // subclasses may override activate(double, double)
+            super.activate(input, output, result, offset, length);
+            return;
+        }
+        // BINARY mode: -1.0 becomes zeroValue
+        double below = mode == Mode.BINARY ? zeroValue : -1.0;
+        ActivationKernels.signum(input, output, result, offset, length, includePreviousOutput, threshold, below,
+                zeroValue);
+    }
+
+    @Override
+    public Object getActivationKey() {
+        return activationKey(mode, zeroValue);
+    }
 }
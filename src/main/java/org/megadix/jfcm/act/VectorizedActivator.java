@@ -0,0 +1,59 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.act;
+
+/**
+ * Activation of many concepts sharing the same activation function and parameters in one call,
+ * used by execution engines that keep concept state in arrays (see
+ * {@link org.megadix.jfcm.exec.CompiledCognitiveMap} and {@link org.megadix.jfcm.exec.BatchCognitiveMap}).
+ * <p>
+ * Implementations process a whole slice in one loop over primitive arrays, with parameters hoisted out
+ * of it and without per-concept dispatch. {@link BaseConceptActivator} provides a fallback calling
+ * {@link BaseConceptActivator#activate(double, double)}, built-in activators override it; their subclasses use
+ * the fallback, so that overrides of {@link BaseConceptActivator#activate(double, double)} are honored.
+ * {@link LinearActivator}, {@link SignumActivator} and {@link IntervalActivator} use SIMD instructions of the
+ * <code>jdk.incubator.vector</code> API when running on Java 17 or later with
+ * <code>--add-modules jdk.incubator.vector</code>. The others use scalar loops, because the Vector API has
+ * no form of <code>Math.exp</code>, <code>Math.tanh</code> or <code>Math.round</code> with the same results.
+ * </p>
+ */
+public interface VectorizedActivator {
+
+    /**
+     * Activate <code>length</code> concepts: for each <code>offset &lt;= i &lt; offset + length</code>,
+     * <code>result[i]</code> must be the same as {@link BaseConceptActivator#activate(double, double)
+     * activate(input[i], output[i])}. Same edge conditions apply: inputs are never NaN.
+     *
+     * @param input concept inputs, i.e. sums of incoming connection outputs
+     * @param output current concept outputs, <code>Double.NaN</code> if undefined
+     * @param result destination of next outputs
+     * @param offset index of first concept
+     * @param length number of concepts
+     */
+    void activate(double[] input, double[] output, double[] result, int offset, int length);
+
+    /**
+     * Identifies activation function and parameters: concepts whose activators have equal keys
+     * can be activated together by any of them.
+     *
+     * @return activation key, compared with {@link Object#equals(Object)}
+     */
+    Object getActivationKey();
+}
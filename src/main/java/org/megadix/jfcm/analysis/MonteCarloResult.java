@@ -0,0 +1,110 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+/**
+ * Distribution of equilibrium outputs computed by {@link MonteCarloRunner}, one {@link StreamingStatistics}
+ * per concept; undefined outputs are not counted.
+ */
+public class MonteCarloResult {
+
+    private final String[] conceptNames;
+    private final StreamingStatistics[] statistics;
+    private final int runs;
+    private final int unconvergedRuns;
+    private final long wallTimeNanos;
+
+    MonteCarloResult(String[] conceptNames, StreamingStatistics[] statistics, int runs, int unconvergedRuns,
+            long wallTimeNanos) {
+        this.conceptNames = conceptNames;
+        this.statistics = statistics;
+        this.runs = runs;
+        this.unconvergedRuns = unconvergedRuns;
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    /**
+     * @return names of concepts, by index
+     */
+    public String[] getConceptNames() {
+        return conceptNames.clone();
+    }
+
+    /**
+     * @param index concept index
+     * @return statistics of equilibrium outputs of the concept
+     */
+    public StreamingStatistics getStatistics(int index) {
+        return statistics[index];
+    }
+
+    /**
+     * @param conceptName name of the concept
+     * @return statistics of equilibrium outputs of the concept
+     * @throws IllegalArgumentException if concept is not found
+     */
+    public StreamingStatistics getStatistics(String conceptName) {
+        for (int i = 0; i < conceptNames.length; i++) {
+            if (conceptNames[i].equals(conceptName)) {
+                return statistics[i];
+            }
+        }
+        throw new IllegalArgumentException("Concept not found: " + conceptName);
+    }
+
+    public double getMean(String conceptName) {
+        return getStatistics(conceptName).getMean();
+    }
+
+    public double getStandardDeviation(String conceptName) {
+        return getStatistics(conceptName).getStandardDeviation();
+    }
+
+    /**
+     * @param conceptName name of the concept
+     * @param q quantile, in <code>[0, 1]</code>
+     * @return estimated quantile of equilibrium outputs of the concept
+     */
+    public double getQuantile(String conceptName, double q) {
+        return getStatistics(conceptName).getQuantile(q);
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return number of runs stopped by max. epochs before converging, still included in statistics
+     */
+    public int getUnconvergedRuns() {
+        return unconvergedRuns;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    /**
+     * @return runs per second
+     */
+    public double getThroughput() {
+        return wallTimeNanos == 0 ? Double.NaN : runs * 1e9 / wallTimeNanos;
+    }
+}
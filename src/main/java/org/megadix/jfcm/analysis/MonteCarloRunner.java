@@ -0,0 +1,285 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.FcmConnection;
+import org.megadix.jfcm.conn.WeightDistribution;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.BatchCognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Monte Carlo propagation of weight uncertainty: weights of connections with a
+ * {@link WeightedConnection#getDistribution() distribution} are sampled, every sampled map is run until
+ * convergence from the current state of the map, and equilibrium outputs are summarized by
+ * {@link StreamingStatistics}, one per concept.
+ * <p>
+ * Runs are grouped in blocks of {@link #setBlockSize(int) blockSize} scenarios of a
+ * {@link BatchCognitiveMap} with per-scenario weights, over the same compiled topology: the map is never
+ * copied. Blocks run in parallel by an {@link #setExecutor(ExecutorService) executor}, each with its own
+ * {@link SplitMixRandom} split from {@link #setSeed(long) seed}, and are aggregated in order: results only
+ * depend on seed and block size, not on the number of threads. Only the outputs of the blocks being run are
+ * kept in memory.
+ * </p>
+ */
+public class MonteCarloRunner {
+
+    public static final double DEFAULT_MAX_DELTA = 1e-8;
+    public static final int DEFAULT_MAX_EPOCHS = 1000;
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final CompiledCognitiveMap compiled;
+    private final MapTopology topology;
+    private final WeightDistribution[] distributions;
+    private final double[] baseWeights;
+
+    private double maxDelta = DEFAULT_MAX_DELTA;
+    private int maxEpochs = DEFAULT_MAX_EPOCHS;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int sketchCapacity = QuantileSketch.DEFAULT_CAPACITY;
+    private long seed;
+    private ExecutorService executor;
+
+    /**
+     * Compile the map and read the distributions of its weights; later changes to the map are not seen
+     *
+     * @param map map to run; its current state is the initial state of every run
+     */
+    public MonteCarloRunner(CognitiveMap map) {
+        this.compiled = MapCompiler.compile(map);
+        this.topology = compiled.getTopology();
+        this.baseWeights = topology.getWeights();
+        this.distributions = new WeightDistribution[baseWeights.length];
+        for (int e = 0; e < distributions.length; e++) {
+            FcmConnection conn = map.getConnection(topology.getConnectionName(e));
+            if (conn instanceof WeightedConnection) {
+                distributions[e] = ((WeightedConnection) conn).getDistribution();
+            }
+        }
+    }
+
+    /**
+     * @param runs number of sampled maps
+     * @return equilibrium statistics by concept
+     */
+    public MonteCarloResult run(int runs) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("runs must be >= 1");
+        }
+        long startTime = System.nanoTime();
+        int n = topology.size();
+        SplitMixRandom root = new SplitMixRandom(seed);
+        StreamingStatistics[] statistics = new StreamingStatistics[n];
+        for (int i = 0; i < n; i++) {
+            statistics[i] = new StreamingStatistics(sketchCapacity);
+        }
+
+        int blocks = (runs + blockSize - 1) / blockSize;
+        int slots = executor == null ? 1 : Math.min(blocks, Runtime.getRuntime().availableProcessors());
+        Block[] round = new Block[slots];
+        for (int k = 0; k < slots; k++) {
+            round[k] = new Block(new BatchCognitiveMap(compiled, blockSize));
+        }
+
+        int unconverged = 0;
+        for (int first = 0; first < blocks; first += slots) {
+            int count = Math.min(slots, blocks - first);
+            for (int k = 0; k < count; k++) {
+                int start = (first + k) * blockSize;
+                round[k].prepare(root.split(), Math.min(blockSize, runs - start));
+            }
+            runBlocks(round, count);
+
+            // aggregate in block order
+            for (int k = 0; k < count; k++) {
+                Block block = round[k];
+                for (int s = 0; s < block.scenarios; s++) {
+                    for (int i = 0; i < n; i++) {
+                        statistics[i].add(block.batch.getOutput(s, i));
+                    }
+                }
+                unconverged += block.unconverged;
+            }
+        }
+
+        String[] conceptNames = new String[n];
+        for (int i = 0; i < n; i++) {
+            conceptNames[i] = topology.getConceptName(i);
+        }
+        return new MonteCarloResult(conceptNames, statistics, runs, unconverged, System.nanoTime() - startTime);
+    }
+
+    public double getMaxDelta() {
+        return maxDelta;
+    }
+
+    /**
+     * @param maxDelta runs stop when average square delta is &lt;= maxDelta, default {@link #DEFAULT_MAX_DELTA}
+     */
+    public void setMaxDelta(double maxDelta) {
+        this.maxDelta = maxDelta;
+    }
+
+    public int getMaxEpochs() {
+        return maxEpochs;
+    }
+
+    /**
+     * @param maxEpochs max. epochs of every run, default {@link #DEFAULT_MAX_EPOCHS}
+     */
+    public void setMaxEpochs(int maxEpochs) {
+        this.maxEpochs = maxEpochs;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @param blockSize runs per batch, default {@link #DEFAULT_BLOCK_SIZE}
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be >= 1");
+        }
+        this.blockSize = blockSize;
+    }
+
+    public int getSketchCapacity() {
+        return sketchCapacity;
+    }
+
+    /**
+     * @param sketchCapacity capacity of quantile sketches, see {@link QuantileSketch#QuantileSketch(int)}
+     */
+    public void setSketchCapacity(int sketchCapacity) {
+        if (sketchCapacity < 2 || sketchCapacity % 2 != 0) {
+            throw new IllegalArgumentException("sketchCapacity must be even and >= 2");
+        }
+        this.sketchCapacity = sketchCapacity;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param seed seed of the random number generators, default 0
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor executor used to run blocks in parallel, one per available processor; <code>null</code>
+     *            (default) to run sequentially
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void runBlocks(Block[] round, int count) {
+        if (count == 1) {
+            round[0].call();
+            return;
+        }
+        List<Block> tasks = Arrays.asList(round).subList(0, count);
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running samples", iex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error running samples", ex.getCause());
+        }
+    }
+
+    /**
+     * A batch of sampled maps, reused by every round
+     */
+    private final class Block implements Callable<Void> {
+
+        final BatchCognitiveMap batch;
+        final double[] weights = new double[baseWeights.length];
+        final double[] deltas = new double[blockSize];
+        final boolean[] active = new boolean[blockSize];
+        SplitMixRandom rnd;
+        int scenarios;
+        int unconverged;
+
+        Block(BatchCognitiveMap batch) {
+            this.batch = batch;
+        }
+
+        void prepare(SplitMixRandom rnd, int scenarios) {
+            this.rnd = rnd;
+            this.scenarios = scenarios;
+        }
+
+        public Void call() {
+            batch.reset();
+            for (int s = 0; s < scenarios; s++) {
+                for (int e = 0; e < weights.length; e++) {
+                    weights[e] = distributions[e] == null ? baseWeights[e] : distributions[e].sample(rnd);
+                }
+                batch.setWeights(s, weights);
+            }
+
+            // same convergence test as BatchFcmRunner, at least one epoch per run
+            Arrays.fill(active, 0, scenarios, true);
+            Arrays.fill(active, scenarios, blockSize, false);
+            int remaining = scenarios;
+            for (int epoch = 0; epoch < maxEpochs && remaining > 0; epoch++) {
+                batch.execute(active);
+                batch.calculateAverageSquareDeltas(deltas);
+                for (int s = 0; s < scenarios; s++) {
+                    if (active[s] && !(Double.isNaN(deltas[s]) || Double.isInfinite(deltas[s])
+                            || deltas[s] > maxDelta)) {
+                        active[s] = false;
+                        remaining--;
+                    }
+                }
+            }
+            unconverged = remaining;
+            return null;
+        }
+    }
+}
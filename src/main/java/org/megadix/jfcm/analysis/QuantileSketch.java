@@ -0,0 +1,218 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Mergeable sketch of the distribution of a stream of values, to estimate quantiles in bounded memory.
+ * <p>
+ * Values are kept in a hierarchy of compactors (as in KLL / MRL sketches): level <code>h</code> holds up to
+ * <code>capacity</code> values of weight <code>2<sup>h</sup></code>; a full level is sorted and every other
+ * value is promoted to the next level. Memory is <code>O(capacity * log(n / capacity))</code>, rank error
+ * is in the order of <code>log2(n / capacity) / capacity</code>. Compaction is deterministic: the same stream
+ * always gives the same sketch. Not thread-safe.
+ * </p>
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private double[][] levels = new double[0][];
+    private int[] sizes = new int[0];
+    private boolean[] oddOffset = new boolean[0];
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity values per level, even and &gt;= 2; higher means more accurate
+     */
+    public QuantileSketch(int capacity) {
+        if (capacity < 2 || capacity % 2 != 0) {
+            throw new IllegalArgumentException("capacity must be even and >= 2");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param value value to add, ignored if <code>Double.NaN</code>
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        append(0, value);
+        compact(0);
+    }
+
+    /**
+     * Add all values of another sketch, which is left unchanged
+     *
+     * @param other sketch to merge, built with any capacity
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int h = 0; h < other.sizes.length; h++) {
+            for (int k = 0; k < other.sizes[h]; k++) {
+                append(h, other.levels[h][k]);
+            }
+        }
+        for (int h = 0; h < sizes.length; h++) {
+            compact(h);
+        }
+    }
+
+    /**
+     * @param q quantile, in <code>[0, 1]</code>: 0.0 is the min. value, 0.5 the median, 1.0 the max. value
+     * @return estimated quantile, <code>Double.NaN</code> if no value was added
+     */
+    public double getQuantile(double q) {
+        if (!(q >= 0.0 && q <= 1.0)) {
+            throw new IllegalArgumentException("q must be in [0, 1]");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0.0) {
+            return min;
+        }
+        if (q == 1.0) {
+            return max;
+        }
+
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        // sort (value, weight) pairs by value
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        int p = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            for (int k = 0; k < sizes[h]; k++) {
+                values[p] = levels[h][k];
+                weights[p] = 1L << h;
+                order[p] = p;
+                p++;
+            }
+        }
+        final double[] v = values;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(v[a], v[b]);
+            }
+        });
+
+        double rank = q * count;
+        long cumulative = 0;
+        for (Integer index : order) {
+            cumulative += weights[index];
+            if (cumulative >= rank) {
+                return values[index];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return number of values added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return min. value, <code>Double.NaN</code> if no value was added
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * @return max. value, <code>Double.NaN</code> if no value was added
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void append(int level, double value) {
+        if (level >= sizes.length) {
+            int old = sizes.length;
+            levels = Arrays.copyOf(levels, level + 1);
+            for (int h = old; h <= level; h++) {
+                levels[h] = new double[capacity];
+            }
+            sizes = Arrays.copyOf(sizes, level + 1);
+            oddOffset = Arrays.copyOf(oddOffset, level + 1);
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    /**
+     * Compact a full level and, in cascade, the following ones
+     */
+    private void compact(int level) {
+        for (int h = level; h < sizes.length && sizes[h] >= capacity; h++) {
+            double[] items = levels[h];
+            int size = sizes[h];
+            Arrays.sort(items, 0, size);
+            // an odd item out (the largest) stays at this level
+            int pairs = size / 2;
+            int offset = oddOffset[h] ? 1 : 0;
+            oddOffset[h] = !oddOffset[h];
+            for (int k = 0; k < pairs; k++) {
+                append(h + 1, items[2 * k + offset]);
+            }
+            if (size % 2 != 0) {
+                items[0] = items[size - 1];
+                sizes[h] = 1;
+            } else {
+                sizes[h] = 0;
+            }
+        }
+    }
+}
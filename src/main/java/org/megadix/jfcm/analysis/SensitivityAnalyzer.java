@@ -0,0 +1,529 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.BatchCognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Sensitivity of the equilibrium outputs of a map to the outputs of its input concepts.
+ * <p>
+ * The map is first run to its baseline equilibrium; every perturbation then fixes the outputs of some input
+ * concepts (see {@link #setInputs(String...)}) and runs again until convergence, starting from the baseline
+ * equilibrium instead of the initial state. Concepts with undefined output yield <code>Double.NaN</code>
+ * effects. All perturbations of an analysis are scenarios of
+ * {@link BatchCognitiveMap}s over the same compiled map, one batch per chunk of scenarios, chunks run in
+ * parallel by an {@link #setExecutor(ExecutorService) executor}.
+ * </p>
+ * Available methods, all returning an input &times; concept {@link SensitivityResult}:
+ * <ul>
+ * <li>{@link #oneAtATime()}: local derivatives around the baseline equilibrium;</li>
+ * <li>{@link #morris(int, int)}: elementary effects over the input range (Morris screening);</li>
+ * <li>{@link #sobol(int)}: first-order and total variance-based indices (Saltelli estimators).</li>
+ * </ul>
+ */
+public class SensitivityAnalyzer {
+
+    public static final double DEFAULT_MAX_DELTA = 1e-10;
+    public static final int DEFAULT_MAX_EPOCHS = 1000;
+    public static final double DEFAULT_PERTURBATION = 0.1;
+    public static final int DEFAULT_LEVELS = 4;
+
+    private final CompiledCognitiveMap compiled;
+    private final MapTopology topology;
+    private final int n;
+
+    private int[] inputs;
+    private double maxDelta = DEFAULT_MAX_DELTA;
+    private int maxEpochs = DEFAULT_MAX_EPOCHS;
+    private double perturbation = DEFAULT_PERTURBATION;
+    private double minValue = 0.0;
+    private double maxValue = 1.0;
+    private long seed;
+    private ExecutorService executor;
+
+    /**
+     * @param map map to analyze; its current state is the initial state of the baseline run
+     */
+    public SensitivityAnalyzer(CognitiveMap map) {
+        this(MapCompiler.compile(map));
+    }
+
+    /**
+     * @param compiled compiled map, provides topology, weights and initial state of the baseline run
+     */
+    public SensitivityAnalyzer(CompiledCognitiveMap compiled) {
+        this.compiled = compiled;
+        this.topology = compiled.getTopology();
+        this.n = topology.size();
+        this.inputs = new int[n];
+        for (int i = 0; i < n; i++) {
+            inputs[i] = i;
+        }
+    }
+
+    /**
+     * One-at-a-time analysis: each input in turn is fixed at its baseline output plus
+     * {@link #setPerturbation(double) perturbation} (minus, if that would exceed the input range), other
+     * concepts (including other inputs) evolve from the baseline equilibrium. Element <code>[j][i]</code> of
+     * the main effects is <code>(y<sub>i</sub> - y*<sub>i</sub>) / h</code>, the change of equilibrium output of
+     * concept <code>i</code> per unit change of input <code>j</code>; no interaction effects.
+     *
+     * @return influence matrix, one run per input
+     */
+    public SensitivityResult oneAtATime() {
+        long startTime = System.nanoTime();
+        Baseline baseline = runBaseline();
+        int k = inputs.length;
+        double[][] values = new double[k][k];
+        double[] steps = new double[k];
+        for (int j = 0; j < k; j++) {
+            Arrays.fill(values[j], Double.NaN);
+            double x = baseline.outputs[inputs[j]];
+            x = Double.isNaN(x) ? 0.0 : x;
+            steps[j] = x + perturbation <= maxValue ? perturbation : -perturbation;
+            values[j][j] = x + steps[j];
+        }
+        Runs runs = evaluate(baseline, values);
+
+        double[][] effects = new double[k][n];
+        for (int j = 0; j < k; j++) {
+            for (int i = 0; i < n; i++) {
+                effects[j][i] = (runs.outputs[j][i] - baseline.outputs[i]) / steps[j];
+            }
+        }
+        return result(SensitivityResult.Method.ONE_AT_A_TIME, baseline, effects, null, runs, startTime);
+    }
+
+    /**
+     * Morris screening, all inputs fixed in every run: <code>trajectories</code> random walks on a grid of
+     * <code>levels</code> values spanning the {@link #setInputRange(double, double) input range}, each moving
+     * every input once by <code>levels / (2 * (levels - 1))</code> of the range. Main effects are the mean
+     * absolute elementary effects (&mu;*), interaction effects their standard deviation (&sigma;, high for
+     * non-linear or interacting inputs).
+     *
+     * @param trajectories number of trajectories, <code>trajectories * (inputs + 1)</code> runs
+     * @param levels number of grid levels, even and &gt;= 2; see {@link #DEFAULT_LEVELS}
+     * @return influence matrices
+     */
+    public SensitivityResult morris(int trajectories, int levels) {
+        if (trajectories < 1) {
+            throw new IllegalArgumentException("trajectories must be >= 1");
+        }
+        if (levels < 2 || levels % 2 != 0) {
+            throw new IllegalArgumentException("levels must be even and >= 2");
+        }
+        long startTime = System.nanoTime();
+        Baseline baseline = runBaseline();
+        Random rnd = new Random(seed);
+        int k = inputs.length;
+        double range = maxValue - minValue;
+        double step = range * levels / (2.0 * (levels - 1));
+
+        // each trajectory: base point, then one input changed per run, in random order
+        double[][] values = new double[trajectories * (k + 1)][];
+        int[][] order = new int[trajectories][];
+        double[][] steps = new double[trajectories][k];
+        for (int t = 0; t < trajectories; t++) {
+            int base = t * (k + 1);
+            double[] point = new double[k];
+            for (int j = 0; j < k; j++) {
+                point[j] = minValue + range * rnd.nextInt(levels) / (levels - 1);
+            }
+            values[base] = point.clone();
+            order[t] = shuffle(rnd, k);
+            for (int r = 0; r < k; r++) {
+                int j = order[t][r];
+                steps[t][j] = point[j] + step <= maxValue + range * 1e-12 ? step : -step;
+                point[j] += steps[t][j];
+                values[base + r + 1] = point.clone();
+            }
+        }
+        Runs runs = evaluate(baseline, values);
+
+        double[][] mean = new double[k][n];
+        double[][] sd = new double[k][n];
+        double[][] sumSq = new double[k][n];
+        double[][] sum = new double[k][n];
+        for (int t = 0; t < trajectories; t++) {
+            int base = t * (k + 1);
+            for (int r = 0; r < k; r++) {
+                int j = order[t][r];
+                double[] before = runs.outputs[base + r];
+                double[] after = runs.outputs[base + r + 1];
+                for (int i = 0; i < n; i++) {
+                    double ee = (after[i] - before[i]) / steps[t][j];
+                    mean[j][i] += Math.abs(ee);
+                    sum[j][i] += ee;
+                    sumSq[j][i] += ee * ee;
+                }
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            for (int i = 0; i < n; i++) {
+                mean[j][i] /= trajectories;
+                if (trajectories > 1) {
+                    double m = sum[j][i] / trajectories;
+                    sd[j][i] = Math.sqrt(Math.max(0.0, (sumSq[j][i] - trajectories * m * m) / (trajectories - 1)));
+                }
+            }
+        }
+        return result(SensitivityResult.Method.MORRIS, baseline, mean, sd, runs, startTime);
+    }
+
+    /**
+     * Variance-based analysis, all inputs fixed in every run: inputs are sampled uniformly and independently in the
+     * {@link #setInputRange(double, double) input range}. Main effects are first-order Sobol indices
+     * (share of the variance of equilibrium output <code>i</code> due to input <code>j</code> alone),
+     * interaction effects total-order indices (including interactions with other inputs); both are 0.0
+     * for outputs with no variance. Estimators of Saltelli et al. (2010), first-order on centered outputs.
+     *
+     * @param samples number of base samples, <code>samples * (inputs + 2)</code> runs
+     * @return influence matrices
+     */
+    public SensitivityResult sobol(int samples) {
+        if (samples < 2) {
+            throw new IllegalArgumentException("samples must be >= 2");
+        }
+        long startTime = System.nanoTime();
+        Baseline baseline = runBaseline();
+        Random rnd = new Random(seed);
+        int k = inputs.length;
+        double range = maxValue - minValue;
+
+        // rows: A[0..samples), B[0..samples), then A with column j from B, for every j
+        double[][] values = new double[samples * (k + 2)][];
+        for (int r = 0; r < 2 * samples; r++) {
+            values[r] = new double[k];
+            for (int j = 0; j < k; j++) {
+                values[r][j] = minValue + range * rnd.nextDouble();
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            for (int r = 0; r < samples; r++) {
+                double[] ab = values[r].clone();
+                ab[j] = values[samples + r][j];
+                values[(j + 2) * samples + r] = ab;
+            }
+        }
+        Runs runs = evaluate(baseline, values);
+        double[][] y = runs.outputs;
+
+        double[][] first = new double[k][n];
+        double[][] total = new double[k][n];
+        for (int i = 0; i < n; i++) {
+            double sum = 0.0;
+            double sumSq = 0.0;
+            for (int r = 0; r < 2 * samples; r++) {
+                sum += y[r][i];
+                sumSq += y[r][i] * y[r][i];
+            }
+            double mean = sum / (2 * samples);
+            double variance = sumSq / (2 * samples) - mean * mean;
+            if (!(variance > 0.0)) {
+                continue;
+            }
+            for (int j = 0; j < k; j++) {
+                double s = 0.0;
+                double st = 0.0;
+                for (int r = 0; r < samples; r++) {
+                    double a = y[r][i];
+                    double b = y[samples + r][i] - mean;
+                    double ab = y[(j + 2) * samples + r][i];
+                    s += b * (ab - a);
+                    st += (a - ab) * (a - ab);
+                }
+                first[j][i] = s / samples / variance;
+                total[j][i] = st / (2.0 * samples) / variance;
+            }
+        }
+        return result(SensitivityResult.Method.SOBOL, baseline, first, total, runs, startTime);
+    }
+
+    /**
+     * @param conceptNames concepts perturbed by analyses, default all concepts; {@link #morris(int, int)} and
+     *            {@link #sobol(int)} fix all of them, so they should be the drivers of the map
+     * @throws IllegalArgumentException if a concept is not found
+     */
+    public void setInputs(String... conceptNames) {
+        int[] indexes = new int[conceptNames.length];
+        for (int j = 0; j < indexes.length; j++) {
+            indexes[j] = topology.indexOf(conceptNames[j]);
+            if (indexes[j] < 0) {
+                throw new IllegalArgumentException("Concept not found: " + conceptNames[j]);
+            }
+        }
+        this.inputs = indexes;
+    }
+
+    public String[] getInputs() {
+        String[] names = new String[inputs.length];
+        for (int j = 0; j < names.length; j++) {
+            names[j] = topology.getConceptName(inputs[j]);
+        }
+        return names;
+    }
+
+    public double getMaxDelta() {
+        return maxDelta;
+    }
+
+    /**
+     * @param maxDelta runs stop when average square delta is &lt;= maxDelta, default {@link #DEFAULT_MAX_DELTA}
+     */
+    public void setMaxDelta(double maxDelta) {
+        this.maxDelta = maxDelta;
+    }
+
+    public int getMaxEpochs() {
+        return maxEpochs;
+    }
+
+    /**
+     * @param maxEpochs max. epochs of every run, default {@link #DEFAULT_MAX_EPOCHS}
+     */
+    public void setMaxEpochs(int maxEpochs) {
+        this.maxEpochs = maxEpochs;
+    }
+
+    public double getPerturbation() {
+        return perturbation;
+    }
+
+    /**
+     * @param perturbation change of inputs in {@link #oneAtATime()}, default {@link #DEFAULT_PERTURBATION}
+     */
+    public void setPerturbation(double perturbation) {
+        if (!(perturbation > 0.0) || Double.isInfinite(perturbation)) {
+            throw new IllegalArgumentException("Invalid perturbation: " + perturbation);
+        }
+        this.perturbation = perturbation;
+    }
+
+    /**
+     * @param minValue min. output of inputs, default 0.0
+     * @param maxValue max. output of inputs, default 1.0
+     */
+    public void setInputRange(double minValue, double maxValue) {
+        if (!(minValue < maxValue) || Double.isInfinite(minValue) || Double.isInfinite(maxValue)) {
+            throw new IllegalArgumentException("Invalid range: [" + minValue + ", " + maxValue + "]");
+        }
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param seed seed of the random number generator of {@link #morris(int, int)} and {@link #sobol(int)},
+     *            default 0
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor executor used to run chunks of scenarios in parallel, one per available processor;
+     *            <code>null</code> (default) to run sequentially
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private SensitivityResult result(SensitivityResult.Method method, Baseline baseline, double[][] main,
+            double[][] interaction, Runs runs, long startTime) {
+        String[] conceptNames = new String[n];
+        for (int i = 0; i < n; i++) {
+            conceptNames[i] = topology.getConceptName(i);
+        }
+        return new SensitivityResult(method, getInputs(), conceptNames, baseline.outputs, baseline.converged,
+                main, interaction, runs.outputs.length, runs.unconverged, System.nanoTime() - startTime);
+    }
+
+    private static int[] shuffle(Random rnd, int k) {
+        int[] order = new int[k];
+        for (int j = 0; j < k; j++) {
+            order[j] = j;
+        }
+        for (int j = k - 1; j > 0; j--) {
+            int r = rnd.nextInt(j + 1);
+            int tmp = order[j];
+            order[j] = order[r];
+            order[r] = tmp;
+        }
+        return order;
+    }
+
+    private Baseline runBaseline() {
+        BatchCognitiveMap batch = new BatchCognitiveMap(compiled, 1);
+        boolean[] converged = new boolean[1];
+        converge(batch, converged);
+        Baseline baseline = new Baseline();
+        baseline.outputs = new double[n];
+        for (int i = 0; i < n; i++) {
+            baseline.outputs[i] = batch.getOutput(0, i);
+        }
+        baseline.converged = converged[0];
+        return baseline;
+    }
+
+    /**
+     * @param values outputs of inputs by run, <code>Double.NaN</code> for inputs left free
+     * @return equilibrium outputs by run
+     */
+    private Runs evaluate(final Baseline baseline, final double[][] values) {
+        final Runs runs = new Runs();
+        runs.outputs = new double[values.length][];
+        if (values.length == 0) {
+            return runs;
+        }
+        int chunks = executor == null ? 1 : Math.min(values.length, Runtime.getRuntime().availableProcessors());
+        if (chunks == 1) {
+            runs.unconverged = evaluate(baseline, values, runs.outputs, 0, values.length);
+            return runs;
+        }
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            final int from = (int) ((long) values.length * c / chunks);
+            final int to = (int) ((long) values.length * (c + 1) / chunks);
+            tasks.add(new Callable<Integer>() {
+                public Integer call() {
+                    return evaluate(baseline, values, runs.outputs, from, to);
+                }
+            });
+        }
+        try {
+            for (Future<Integer> result : executor.invokeAll(tasks)) {
+                runs.unconverged += result.get();
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running perturbations", iex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error running perturbations", ex.getCause());
+        }
+        return runs;
+    }
+
+    /**
+     * Run scenarios <code>[from, to)</code> as one batch
+     *
+     * @return number of runs not converged
+     */
+    private int evaluate(Baseline baseline, double[][] values, double[][] outputs, int from, int to) {
+        int scenarios = to - from;
+        BatchCognitiveMap batch = new BatchCognitiveMap(compiled, scenarios);
+        for (int s = 0; s < scenarios; s++) {
+            for (int i = 0; i < n; i++) {
+                if (Double.isNaN(baseline.outputs[i])) {
+                    batch.clearOutput(s, i);
+                } else {
+                    batch.setOutput(s, i, baseline.outputs[i]);
+                }
+            }
+            double[] row = values[from + s];
+            for (int j = 0; j < inputs.length; j++) {
+                if (!Double.isNaN(row[j])) {
+                    batch.setOutput(s, inputs[j], row[j]);
+                    batch.setFixedOutput(s, inputs[j], true);
+                }
+            }
+        }
+
+        boolean[] converged = new boolean[scenarios];
+        converge(batch, converged);
+        int unconverged = 0;
+        for (int s = 0; s < scenarios; s++) {
+            double[] out = new double[n];
+            for (int i = 0; i < n; i++) {
+                out[i] = batch.getOutput(s, i);
+            }
+            outputs[from + s] = out;
+            if (!converged[s]) {
+                unconverged++;
+            }
+        }
+        return unconverged;
+    }
+
+    /**
+     * Same convergence test as {@link org.megadix.jfcm.utils.BatchFcmRunner}, at least one epoch per scenario
+     */
+    private void converge(BatchCognitiveMap batch, boolean[] converged) {
+        int scenarios = batch.getScenarioCount();
+        double[] deltas = new double[scenarios];
+        boolean[] active = new boolean[scenarios];
+        Arrays.fill(active, true);
+        int remaining = scenarios;
+        for (int epoch = 0; epoch < maxEpochs && remaining > 0; epoch++) {
+            batch.execute(active);
+            batch.calculateAverageSquareDeltas(deltas);
+            for (int s = 0; s < scenarios; s++) {
+                if (active[s] && isConverged(deltas[s])) {
+                    active[s] = false;
+                    converged[s] = true;
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    private boolean isConverged(double delta) {
+        return !(Double.isNaN(delta) || Double.isInfinite(delta) || delta > maxDelta);
+    }
+
+    /**
+     * Equilibrium of the unperturbed map
+     */
+    private static final class Baseline {
+
+        double[] outputs;
+        boolean converged;
+    }
+
+    private static final class Runs {
+
+        double[][] outputs;
+        int unconverged;
+    }
+}
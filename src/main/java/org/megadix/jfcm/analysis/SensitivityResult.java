@@ -0,0 +1,173 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+/**
+ * Influence matrices computed by {@link SensitivityAnalyzer}: element <code>[j][i]</code> measures the influence
+ * of input <code>j</code> (see {@link #getInputNames()}) on the equilibrium output of concept <code>i</code>
+ * (see {@link #getConceptNames()}, i.e. concept name order). Meaning of main and interaction effects depends on
+ * {@link #getMethod()}. Undefined outputs yield <code>Double.NaN</code> elements.
+ */
+public class SensitivityResult {
+
+    /**
+     * Analysis method
+     */
+    public enum Method {
+        /** Main effects: local derivatives; no interaction effects */
+        ONE_AT_A_TIME,
+        /** Main effects: mean absolute elementary effects (&mu;*); interaction effects: their std. dev. (&sigma;) */
+        MORRIS,
+        /** Main effects: first-order indices; interaction effects: total-order indices */
+        SOBOL
+    }
+
+    private final Method method;
+    private final String[] inputNames;
+    private final String[] conceptNames;
+    private final double[] baseline;
+    private final boolean baselineConverged;
+    private final double[][] mainEffects;
+    private final double[][] interactionEffects;
+    private final int runs;
+    private final int unconvergedRuns;
+    private final long wallTimeNanos;
+
+    SensitivityResult(Method method, String[] inputNames, String[] conceptNames, double[] baseline,
+            boolean baselineConverged, double[][] mainEffects, double[][] interactionEffects, int runs,
+            int unconvergedRuns, long wallTimeNanos) {
+        this.method = method;
+        this.inputNames = inputNames;
+        this.conceptNames = conceptNames;
+        this.baseline = baseline;
+        this.baselineConverged = baselineConverged;
+        this.mainEffects = mainEffects;
+        this.interactionEffects = interactionEffects;
+        this.runs = runs;
+        this.unconvergedRuns = unconvergedRuns;
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return names of perturbed concepts, by row
+     */
+    public String[] getInputNames() {
+        return inputNames.clone();
+    }
+
+    /**
+     * @return names of all concepts, by column
+     */
+    public String[] getConceptNames() {
+        return conceptNames.clone();
+    }
+
+    /**
+     * @return equilibrium outputs of the unperturbed map, by concept index
+     */
+    public double[] getBaseline() {
+        return baseline.clone();
+    }
+
+    public boolean isBaselineConverged() {
+        return baselineConverged;
+    }
+
+    /**
+     * @return <code>[inputs][concepts]</code> main effects; not copied
+     */
+    public double[][] getMainEffects() {
+        return mainEffects;
+    }
+
+    /**
+     * @param input name of the input concept
+     * @param concept name of the influenced concept
+     * @return main effect of input on concept
+     * @throws IllegalArgumentException if a concept is not found
+     */
+    public double getMainEffect(String input, String concept) {
+        return mainEffects[row(input)][column(concept)];
+    }
+
+    /**
+     * @return <code>[inputs][concepts]</code> interaction effects, not copied; <code>null</code> for
+     *         {@link Method#ONE_AT_A_TIME}
+     */
+    public double[][] getInteractionEffects() {
+        return interactionEffects;
+    }
+
+    /**
+     * @param input name of the input concept
+     * @param concept name of the influenced concept
+     * @return interaction effect of input on concept, <code>Double.NaN</code> for {@link Method#ONE_AT_A_TIME}
+     * @throws IllegalArgumentException if a concept is not found
+     */
+    public double getInteractionEffect(String input, String concept) {
+        int row = row(input);
+        int column = column(concept);
+        return interactionEffects == null ? Double.NaN : interactionEffects[row][column];
+    }
+
+    /**
+     * @return number of perturbed runs, excluding baseline
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return number of perturbed runs stopped by max. epochs before converging
+     */
+    public int getUnconvergedRuns() {
+        return unconvergedRuns;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private int row(String input) {
+        for (int j = 0; j < inputNames.length; j++) {
+            if (inputNames[j].equals(input)) {
+                return j;
+            }
+        }
+        throw new IllegalArgumentException("Not an input: " + input);
+    }
+
+    private int column(String concept) {
+        for (int i = 0; i < conceptNames.length; i++) {
+            if (conceptNames[i].equals(concept)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Concept not found: " + concept);
+    }
+}
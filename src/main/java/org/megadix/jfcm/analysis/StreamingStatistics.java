@@ -0,0 +1,121 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+/**
+ * Summary statistics of a stream of values, without storing them: count, mean and variance (Welford's
+ * algorithm), min., max. and quantiles (see {@link QuantileSketch}). Mergeable, not thread-safe.
+ */
+public class StreamingStatistics {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private final QuantileSketch sketch;
+
+    public StreamingStatistics() {
+        this(QuantileSketch.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param sketchCapacity capacity of the quantile sketch, see {@link QuantileSketch#QuantileSketch(int)}
+     */
+    public StreamingStatistics(int sketchCapacity) {
+        this.sketch = new QuantileSketch(sketchCapacity);
+    }
+
+    /**
+     * @param value value to add, ignored if <code>Double.NaN</code>
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        double d = value - mean;
+        mean += d / count;
+        m2 += d * (value - mean);
+        sketch.add(value);
+    }
+
+    /**
+     * Add all values of another instance, which is left unchanged
+     *
+     * @param other statistics to merge
+     */
+    public void merge(StreamingStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double d = other.mean - mean;
+        mean += d * other.count / total;
+        m2 += other.m2 + d * d * count * other.count / total;
+        count = total;
+        sketch.merge(other.sketch);
+    }
+
+    /**
+     * @return number of values added, excluding <code>Double.NaN</code>
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return mean, <code>Double.NaN</code> if no value was added
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return sample variance, <code>Double.NaN</code> if less than two values were added
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return sketch.getMin();
+    }
+
+    public double getMax() {
+        return sketch.getMax();
+    }
+
+    /**
+     * @param q quantile, in <code>[0, 1]</code>
+     * @return estimated quantile, see {@link QuantileSketch#getQuantile(double)}
+     */
+    public double getQuantile(double q) {
+        return sketch.getQuantile(q);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + getMean() + ", sd=" + getStandardDeviation() + ", min=" + getMin()
+                + ", median=" + getQuantile(0.5) + ", max=" + getMax();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.conn;
+
+import java.util.Random;
+
+/**
+ * Probability distribution of the weight of a {@link WeightedConnection}, e.g. to express the uncertainty of
+ * expert-elicited weights; see {@link WeightedConnection#setDistribution(WeightDistribution)}.
+ * Distributions are immutable and can be shared by many connections and threads.
+ */
+public abstract class WeightDistribution {
+
+    /**
+     * @param min lower bound
+     * @param max upper bound
+     * @return uniform distribution in <code>[min, max)</code>
+     */
+    public static WeightDistribution uniform(double min, double max) {
+        checkRange(min, max);
+        return new Uniform(min, max);
+    }
+
+    /**
+     * @param min lower bound
+     * @param mode most likely value
+     * @param max upper bound
+     * @return triangular distribution
+     */
+    public static WeightDistribution triangular(double min, double mode, double max) {
+        checkRange(min, max);
+        if (!(mode >= min && mode <= max)) {
+            throw new IllegalArgumentException("mode must be in [" + min + ", " + max + "]");
+        }
+        return new Triangular(min, mode, max);
+    }
+
+    /**
+     * @param mean mean
+     * @param standardDeviation standard deviation, &gt;= 0.0
+     * @return normal distribution, not truncated
+     */
+    public static WeightDistribution normal(double mean, double standardDeviation) {
+        if (!(standardDeviation >= 0.0) || Double.isInfinite(standardDeviation) || Double.isNaN(mean)
+                || Double.isInfinite(mean)) {
+            throw new IllegalArgumentException("Invalid normal distribution: mean = " + mean
+                    + ", standardDeviation = " + standardDeviation);
+        }
+        return new Normal(mean, standardDeviation);
+    }
+
+    /**
+     * @param rnd source of randomness, used by the calling thread only
+     * @return a random weight
+     */
+    public abstract double sample(Random rnd);
+
+    public abstract double getMean();
+
+    /*
+     * private stuff
+     */
+
+    private static void checkRange(double min, double max) {
+        if (!(min <= max) || Double.isInfinite(min) || Double.isInfinite(max)) {
+            throw new IllegalArgumentException("Invalid range: [" + min + ", " + max + "]");
+        }
+    }
+
+    private static final class Uniform extends WeightDistribution {
+
+        private final double min;
+        private final double max;
+
+        Uniform(double min, double max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public double sample(Random rnd) {
+            return min + rnd.nextDouble() * (max - min);
+        }
+
+        @Override
+        public double getMean() {
+            return (min + max) / 2.0;
+        }
+
+        @Override
+        public String toString() {
+            return "uniform(" + min + ", " + max + ")";
+        }
+    }
+
+    private static final class Triangular extends WeightDistribution {
+
+        private final double min;
+        private final double mode;
+        private final double max;
+
+        Triangular(double min, double mode, double max) {
+            this.min = min;
+            this.mode = mode;
+            this.max = max;
+        }
+
+        @Override
+        public double sample(Random rnd) {
+            // inverse of the cumulative distribution function
+            double u = rnd.nextDouble();
+            double range = max - min;
+            if (u * range < mode - min) {
+                return min + Math.sqrt(u * range * (mode - min));
+            }
+            return max - Math.sqrt((1.0 - u) * range * (max - mode));
+        }
+
+        @Override
+        public double getMean() {
+            return (min + mode + max) / 3.0;
+        }
+
+        @Override
+        public String toString() {
+            return "triangular(" + min + ", " + mode + ", " + max + ")";
+        }
+    }
+
+    private static final class Normal extends WeightDistribution {
+
+        private final double mean;
+        private final double standardDeviation;
+
+        Normal(double mean, double standardDeviation) {
+            this.mean = mean;
+            this.standardDeviation = standardDeviation;
+        }
+
+        @Override
+        public double sample(Random rnd) {
+            return mean + rnd.nextGaussian() * standardDeviation;
+        }
+
+        @Override
+        public double getMean() {
+            return mean;
+        }
+
+        @Override
+        public String toString() {
+            return "normal(" + mean + ", " + standardDeviation + ")";
+        }
+    }
+}
@@ -18,9 +18,6 @@ Temple Place, Suite 330, Boston, MA 02111-1307 USA
 
 package org.megadix.jfcm.conn;
 
-import java.util.Deque;
-import java.util.LinkedList;
-
 import org.megadix.jfcm.FcmConnection;
 
 /**
@@ -37,7 +34,14 @@ public class WeightedConnection extends FcmConnection {
 
     private double weight = 1.0;
     private int delay = 0;
-    private Deque<Double> buffer = null;
+    private WeightDistribution distribution = null;
+
+    // delay line: circular buffer of the last "delay" outputs, oldest at bufferPos;
+    // bufferFill < delay means "not yet filled", i.e. no delayed output available
+    private double[] buffer = null;
+    private boolean[] bufferDefined = null;
+    private int bufferPos;
+    private int bufferFill;
 
     public WeightedConnection() {
     }
@@ -45,10 +49,7 @@ public class WeightedConnection extends FcmConnection {
     public WeightedConnection(String name, String description, double weight, int delay) {
         super(name, description);
         this.weight = weight;
-        this.delay = delay;
-        if (delay > 0) {
-            buffer = new LinkedList<>();
-        }
+        setDelay(delay);
     }
 
     public WeightedConnection(String name, String description, double weight) {
@@ -56,6 +57,27 @@ public class WeightedConnection extends FcmConnection {
         this.weight = weight;
     }
 
+    /**
+     * Copy constructor: name, description, weight, delay, weight distribution, current output and content of
+     * the delay line are copied; the new connection is not connected to any concept.
+     *
+     * @param c connection to copy
+     */
+    public WeightedConnection(WeightedConnection c) {
+        super(c.name, c.description);
+        this.weight = c.weight;
+        this.delay = c.delay;
+        this.distribution = c.distribution;
+        this.output = c.output;
+        this.outputDefined = c.outputDefined;
+        if (c.buffer != null) {
+            this.buffer = c.buffer.clone();
+            this.bufferDefined = c.bufferDefined.clone();
+        }
+        this.bufferPos = c.bufferPos;
+        this.bufferFill = c.bufferFill;
+    }
+
     @Override
     public String toString() {
         return "[" + name + "] weight=" + weight + ", delay=" + delay;
@@ -63,26 +85,34 @@ public class WeightedConnection extends FcmConnection {
 
     @Override
     public Double calculateOutput() {
-        if (from.getOutput() == null) {
-            this.output = null;
-        } else {
-            this.output = from.getOutput() * weight;
+        updateOutput();
+        return getOutput();
+    }
+
+    @Override
+    public void updateOutput() {
+        this.outputDefined = from.hasOutput();
+        if (outputDefined) {
+            this.output = from.getOutputAsDouble() * weight;
         }
 
         if (delay > 0) {
-            // insert result into buffer
-            buffer.addFirst(output);
-            // if buffer is big enough
-            if (buffer.size() == delay + 1) {
-                // return delayed result
-                this.output = buffer.removeLast();
+            double pushed = output;
+            boolean pushedDefined = outputDefined;
+            if (bufferFill < delay) {
+                // signal not yet at the end of delay line
+                bufferFill++;
+                this.outputDefined = false;
             } else {
-                // else return null (signal not yet at the end of delay queue)
-                this.output = null;
+                // return delayed result
+                this.output = buffer[bufferPos];
+                this.outputDefined = bufferDefined[bufferPos];
             }
+            // current result replaces the oldest one
+            buffer[bufferPos] = pushed;
+            bufferDefined[bufferPos] = pushedDefined;
+            bufferPos = bufferPos + 1 == delay ? 0 : bufferPos + 1;
         }
-
-        return this.output;
     }
 
     /*
@@ -97,16 +127,39 @@ public class WeightedConnection extends FcmConnection {
         this.weight = weight;
     }
 
+    public WeightDistribution getDistribution() {
+        return distribution;
+    }
+
+    /**
+     * Uncertainty of the weight, sampled by {@link org.megadix.jfcm.analysis.MonteCarloRunner}; not used by
+     * {@link #updateOutput()}, which always applies {@link #getWeight()}
+     *
+     * @param distribution distribution of the weight, <code>null</code> (default) if the weight is certain
+     */
+    public void setDistribution(WeightDistribution distribution) {
+        this.distribution = distribution;
+    }
+
     public int getDelay() {
         return delay;
     }
 
+    /**
+     * Set delay, in epochs; delay line is emptied
+     *
+     * @param delay delay, 0 for none
+     */
     public void setDelay(int delay) {
         this.delay = delay;
         if (delay > 0) {
-            buffer = new LinkedList<>();
+            buffer = new double[delay];
+            bufferDefined = new boolean[delay];
         } else {
             buffer = null;
+            bufferDefined = null;
         }
+        bufferPos = 0;
+        bufferFill = 0;
     }
 }
@@ -0,0 +1,486 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import java.util.Arrays;
+
+import org.megadix.jfcm.act.BaseConceptActivator;
+
+/**
+ * Many independent states (<em>scenarios</em>) of the same {@link CompiledCognitiveMap}, executed
+ * together: state is a <code>size() * getScenarioCount()</code> row-major matrix with one column per
+ * scenario, so that each epoch is a single weight matrix / state matrix product.
+ * <p>
+ * Every scenario follows the same semantics as {@link CompiledCognitiveMap#execute()}, and gives
+ * exactly the same results as running it alone. Scenarios can be excluded from execution (e.g. after
+ * convergence), their state is then left untouched. Instances are not thread-safe.
+ * </p>
+ * <p>
+ * Scenarios can also have their own weights ({@link #setWeights(int, double[])}), e.g. to evaluate many
+ * candidate weight vectors of the same topology together; weight matrix / state matrix products then
+ * become one pass over the edges.
+ * </p>
+ */
+public class BatchCognitiveMap {
+
+    private final CompiledCognitiveMap compiled;
+    private final MapTopology topology;
+    private final int n;
+    private final int scenarios;
+
+    // state, element (concept i, scenario s) is at i * scenarios + s
+    private double[] output;
+    private boolean[] outputDefined;
+    private double[] prevOutput;
+    private boolean[] prevOutputDefined;
+    private double[] nextOutput;
+    private boolean[] nextOutputDefined;
+    private final boolean[] fixed;
+
+    // initial state, one element per concept: state of the compiled map when the batch was created
+    private final double[] initialOutput;
+    private final boolean[] initialOutputDefined;
+    private final double[] initialPrevOutput;
+    private final boolean[] initialPrevOutputDefined;
+    private final boolean[] initialFixed;
+
+    // weights by scenario, element (edge e, scenario s) is at e * scenarios + s; null to use compiled weights
+    private double[] weights;
+
+    // history of sources of delayed edges (see CompiledCognitiveMap), one per scenario:
+    // element (epoch slot k, column c, scenario s) is at (k * historySources.length + c) * scenarios + s
+    private final double[] history;
+    private final boolean[] historyDefined;
+    private final int[] historyPos;
+    private final int[] historyFill;
+
+    // per-epoch work areas
+    private final double[] values;
+    private final double[] sums;
+    private final int[] counts;
+    private final boolean[] forceNaN;
+    private final double[] groupInput;
+    private final double[] groupOutput;
+    private final double[] groupResult;
+    private final int[] groupCells;
+
+    /**
+     * Create a new batch, every scenario starts from current state of <code>compiled</code>
+     * (output, previous output, fixed outputs), copied: later changes to <code>compiled</code> state
+     * don't affect the batch; delay lines start empty.
+     *
+     * @param compiled compiled map, provides topology, weights and initial state
+     * @param scenarios number of scenarios
+     */
+    public BatchCognitiveMap(CompiledCognitiveMap compiled, int scenarios) {
+        if (scenarios <= 0) {
+            throw new IllegalArgumentException("scenarios must be > 0");
+        }
+        this.compiled = compiled;
+        this.topology = compiled.getTopology();
+        this.n = topology.size();
+        this.scenarios = scenarios;
+
+        int cells = n * scenarios;
+        output = new double[cells];
+        outputDefined = new boolean[cells];
+        prevOutput = new double[cells];
+        prevOutputDefined = new boolean[cells];
+        nextOutput = new double[cells];
+        nextOutputDefined = new boolean[cells];
+        fixed = new boolean[cells];
+
+        initialOutput = compiled.output.clone();
+        initialOutputDefined = compiled.outputDefined.clone();
+        initialPrevOutput = compiled.prevOutput.clone();
+        initialPrevOutputDefined = compiled.prevOutputDefined.clone();
+        initialFixed = compiled.fixed.clone();
+
+        history = new double[topology.historyDepth * topology.historySources.length * scenarios];
+        historyDefined = new boolean[history.length];
+        historyPos = new int[scenarios];
+        historyFill = new int[scenarios];
+
+        reset();
+
+        values = new double[cells];
+        sums = new double[cells];
+        counts = new int[cells];
+        forceNaN = new boolean[cells];
+        groupInput = new double[scenarios];
+        groupOutput = new double[scenarios];
+        groupResult = new double[scenarios];
+        groupCells = new int[scenarios];
+    }
+
+    /**
+     * Restore initial state of every scenario: current state of the compiled map when this batch was created,
+     * empty delay lines. Weights set by {@link #setWeights(int, double[])} are kept.
+     */
+    public void reset() {
+        for (int i = 0; i < n; i++) {
+            int row = i * scenarios;
+            Arrays.fill(output, row, row + scenarios, initialOutput[i]);
+            Arrays.fill(outputDefined, row, row + scenarios, initialOutputDefined[i]);
+            Arrays.fill(prevOutput, row, row + scenarios, initialPrevOutput[i]);
+            Arrays.fill(prevOutputDefined, row, row + scenarios, initialPrevOutputDefined[i]);
+            Arrays.fill(fixed, row, row + scenarios, initialFixed[i]);
+        }
+        Arrays.fill(historyPos, 0);
+        Arrays.fill(historyFill, 0);
+    }
+
+    /**
+     * Execute one epoch for every scenario
+     */
+    public void execute() {
+        execute(null);
+    }
+
+    /**
+     * Execute one epoch, see {@link CompiledCognitiveMap#execute()}.
+     *
+     * @param active scenarios to execute, <code>null</code> for all
+     */
+    public void execute(boolean[] active) {
+        final MapTopology t = topology;
+        final int cols = scenarios;
+
+        // 1. sanitize sources and count valid incoming connections
+        Arrays.fill(counts, 0);
+        boolean anyInfinite = false;
+        for (int j = 0; j < n; j++) {
+            int row = j * cols;
+            for (int s = 0; s < cols; s++) {
+                int cell = row + s;
+                double v = output[cell];
+                if (!outputDefined[cell] || Double.isNaN(v)) {
+                    values[cell] = 0.0;
+                } else if (Double.isInfinite(v)) {
+                    values[cell] = 0.0;
+                    if (!anyInfinite) {
+                        Arrays.fill(forceNaN, false);
+                        anyInfinite = true;
+                    }
+                    for (int k = t.outOffsets[j]; k < t.outOffsets[j + 1]; k++) {
+                        forceNaN[t.outTargets[k] * cols + s] = true;
+                    }
+                } else {
+                    values[cell] = v;
+                    for (int k = t.outOffsets[j]; k < t.outOffsets[j + 1]; k++) {
+                        counts[t.outTargets[k] * cols + s]++;
+                    }
+                }
+            }
+        }
+
+        // 2. matrix / matrix product
+        final double[] w = weights;
+        final int direct = t.edgeTo.length;
+        if (w == null) {
+            compiled.multiply(values, sums, cols);
+        } else {
+            // edges are sorted by (to, from), same summation order as SparseCognitiveMap
+            Arrays.fill(sums, 0.0);
+            for (int e = 0; e < direct; e++) {
+                int toRow = t.edgeTo[e] * cols;
+                int fromRow = t.edgeFrom[e] * cols;
+                int wRow = e * cols;
+                for (int s = 0; s < cols; s++) {
+                    sums[toRow + s] += w[wRow + s] * values[fromRow + s];
+                }
+            }
+        }
+
+        // 3. delayed and parallel connections
+        for (int e = 0; e < t.exTo.length; e++) {
+            int to = t.exTo[e];
+            int from = t.exFrom[e];
+            int delay = t.exDelay[e];
+            int wRow = (direct + e) * cols;
+            for (int s = 0; s < cols; s++) {
+                int toCell = to * cols + s;
+                if (fixed[toCell] || (active != null && !active[s])) {
+                    continue;
+                }
+                int fromCell = from * cols + s;
+                boolean defined = outputDefined[fromCell];
+                double weight = w == null ? t.exWeight[e] : w[wRow + s];
+                double v = defined ? output[fromCell] * weight : 0.0;
+
+                if (delay > 0) {
+                    // output of source "delay" epochs ago
+                    if (historyFill[s] < delay) {
+                        defined = false;
+                    } else {
+                        int slot = historyPos[s] - delay;
+                        if (slot < 0) {
+                            slot += t.historyDepth;
+                        }
+                        int idx = (slot * t.historySources.length + t.exHistoryColumn[e]) * cols + s;
+                        defined = historyDefined[idx];
+                        v = defined ? history[idx] * weight : 0.0;
+                    }
+                }
+
+                double src = output[fromCell];
+                if (!outputDefined[fromCell] || Double.isNaN(src)) {
+                    continue;
+                } else if (Double.isInfinite(src)) {
+                    if (!anyInfinite) {
+                        Arrays.fill(forceNaN, false);
+                        anyInfinite = true;
+                    }
+                    forceNaN[toCell] = true;
+                } else if (defined) {
+                    sums[toCell] += v;
+                    counts[toCell]++;
+                }
+            }
+        }
+
+        // record current outputs of delayed sources
+        if (t.historyDepth > 0) {
+            int width = t.historySources.length;
+            for (int s = 0; s < cols; s++) {
+                if (active != null && !active[s]) {
+                    continue;
+                }
+                int base = historyPos[s] * width;
+                for (int c = 0; c < width; c++) {
+                    int idx = (base + c) * cols + s;
+                    int fromCell = t.historySources[c] * cols + s;
+                    history[idx] = output[fromCell];
+                    historyDefined[idx] = outputDefined[fromCell];
+                }
+                historyPos[s] = historyPos[s] + 1 == t.historyDepth ? 0 : historyPos[s] + 1;
+                if (historyFill[s] < t.historyDepth) {
+                    historyFill[s]++;
+                }
+            }
+        }
+
+        // 4. activation: edge conditions first, then every remaining scenario of a concept in one call
+        for (int i = 0; i < n; i++) {
+            BaseConceptActivator act = t.activators[i];
+            int row = i * cols;
+            int count = 0;
+            for (int s = 0; s < cols; s++) {
+                int cell = row + s;
+                if (act == null || fixed[cell] || (active != null && !active[s])) {
+                    nextOutput[cell] = output[cell];
+                    nextOutputDefined[cell] = outputDefined[cell];
+                } else if (t.inDegree[i] == 0) {
+                    nextOutputDefined[cell] = false;
+                } else if (anyInfinite && forceNaN[cell]) {
+                    nextOutput[cell] = Double.NaN;
+                    nextOutputDefined[cell] = true;
+                } else if (counts[cell] == 0) {
+                    nextOutputDefined[cell] = false;
+                } else {
+                    double sum = sums[cell];
+                    if (Double.isNaN(sum)) {
+                        nextOutput[cell] = Double.NaN;
+                    } else {
+                        groupInput[count] = sum;
+                        groupOutput[count] = outputDefined[cell] ? output[cell] : Double.NaN;
+                        groupCells[count++] = cell;
+                    }
+                    nextOutputDefined[cell] = true;
+                }
+            }
+            if (count > 0) {
+                act.activate(groupInput, groupOutput, groupResult, 0, count);
+                for (int k = 0; k < count; k++) {
+                    nextOutput[groupCells[k]] = groupResult[k];
+                }
+            }
+        }
+
+        // 5. commit: prevOutput <- output <- nextOutput;
+        // skipped scenarios already have nextOutput == output, keep their previous output too
+        if (active != null) {
+            for (int i = 0; i < n; i++) {
+                int row = i * cols;
+                for (int s = 0; s < cols; s++) {
+                    if (!active[s]) {
+                        output[row + s] = prevOutput[row + s];
+                        outputDefined[row + s] = prevOutputDefined[row + s];
+                    }
+                }
+            }
+        }
+
+        double[] tmp = prevOutput;
+        prevOutput = output;
+        output = nextOutput;
+        nextOutput = tmp;
+
+        boolean[] tmpDefined = prevOutputDefined;
+        prevOutputDefined = outputDefined;
+        outputDefined = nextOutputDefined;
+        nextOutputDefined = tmpDefined;
+    }
+
+    /**
+     * Calculate average square of previous vs current output of every scenario,
+     * see {@link CompiledCognitiveMap#calculateAverageSquareDelta()}.
+     *
+     * @param deltas destination, one element per scenario; <code>Double.NaN</code> if not available
+     */
+    public void calculateAverageSquareDeltas(double[] deltas) {
+        int[] count = new int[scenarios];
+        Arrays.fill(deltas, 0, scenarios, 0.0);
+        for (int i = 0; i < n; i++) {
+            int row = i * scenarios;
+            for (int s = 0; s < scenarios; s++) {
+                int cell = row + s;
+                if (prevOutputDefined[cell] && outputDefined[cell]) {
+                    double d = output[cell] - prevOutput[cell];
+                    deltas[s] += d * d;
+                    count[s]++;
+                }
+            }
+        }
+        for (int s = 0; s < scenarios; s++) {
+            deltas[s] = count[s] == 0 ? Double.NaN : deltas[s] / count[s];
+        }
+    }
+
+    /*
+     * state access
+     */
+
+    public MapTopology getTopology() {
+        return topology;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public int getScenarioCount() {
+        return scenarios;
+    }
+
+    public int indexOf(String conceptName) {
+        return topology.indexOf(conceptName);
+    }
+
+    public boolean hasOutput(int scenario, int index) {
+        return outputDefined[cell(scenario, index)];
+    }
+
+    /**
+     * @param scenario scenario index
+     * @param index concept index
+     * @return output of concept, <code>Double.NaN</code> if undefined (see {@link #hasOutput(int, int)})
+     */
+    public double getOutput(int scenario, int index) {
+        int cell = cell(scenario, index);
+        return outputDefined[cell] ? output[cell] : Double.NaN;
+    }
+
+    public void setOutput(int scenario, int index, double value) {
+        int cell = cell(scenario, index);
+        output[cell] = value;
+        outputDefined[cell] = true;
+    }
+
+    public void clearOutput(int scenario, int index) {
+        outputDefined[cell(scenario, index)] = false;
+    }
+
+    public boolean hasPrevOutput(int scenario, int index) {
+        return prevOutputDefined[cell(scenario, index)];
+    }
+
+    public double getPrevOutput(int scenario, int index) {
+        int cell = cell(scenario, index);
+        return prevOutputDefined[cell] ? prevOutput[cell] : Double.NaN;
+    }
+
+    public boolean isFixedOutput(int scenario, int index) {
+        return fixed[cell(scenario, index)];
+    }
+
+    public void setFixedOutput(int scenario, int index, boolean fixedOutput) {
+        fixed[cell(scenario, index)] = fixedOutput;
+    }
+
+    /**
+     * Set the weights of a scenario; other scenarios keep weights of the compiled map until set.
+     *
+     * @param scenario scenario index
+     * @param edgeWeights weights by edge index, see {@link MapTopology#getEdgeCount()}
+     * @throws IllegalArgumentException if the weight of a direct edge (see
+     *                                  {@link MapTopology#getDirectEdgeCount()}) is infinite or NaN
+     */
+    public void setWeights(int scenario, double[] edgeWeights) {
+        checkScenario(scenario);
+        int m = topology.getEdgeCount();
+        if (edgeWeights.length != m) {
+            throw new IllegalArgumentException("edgeWeights.length != " + m);
+        }
+        for (int e = 0; e < topology.getDirectEdgeCount(); e++) {
+            if (Double.isNaN(edgeWeights[e]) || Double.isInfinite(edgeWeights[e])) {
+                throw new IllegalArgumentException("Illegal weight of direct edge " + e + ": " + edgeWeights[e]);
+            }
+        }
+        if (weights == null) {
+            double[] initial = topology.getWeights();
+            weights = new double[m * scenarios];
+            for (int e = 0; e < m; e++) {
+                Arrays.fill(weights, e * scenarios, (e + 1) * scenarios, initial[e]);
+            }
+        }
+        for (int e = 0; e < m; e++) {
+            weights[e * scenarios + scenario] = edgeWeights[e];
+        }
+    }
+
+    /**
+     * @param scenario scenario index
+     * @param edge edge index, see {@link MapTopology#getEdgeCount()}
+     * @return weight of the edge in the scenario
+     */
+    public double getWeight(int scenario, int edge) {
+        checkScenario(scenario);
+        if (weights == null) {
+            return edge < topology.edgeWeight.length ? topology.edgeWeight[edge]
+                    : topology.exWeight[edge - topology.edgeWeight.length];
+        }
+        return weights[edge * scenarios + scenario];
+    }
+
+    /*
+     * private stuff
+     */
+
+    private int cell(int scenario, int index) {
+        checkScenario(scenario);
+        return index * scenarios + scenario;
+    }
+
+    private void checkScenario(int scenario) {
+        if (scenario < 0 || scenario >= scenarios) {
+            throw new IndexOutOfBoundsException("scenario: " + scenario);
+        }
+    }
+}
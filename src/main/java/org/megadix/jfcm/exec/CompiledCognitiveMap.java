@@ -0,0 +1,516 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import java.util.Arrays;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.act.BaseConceptActivator;
+
+/**
+ * {@link CognitiveMap} compiled to primitive arrays: topology is frozen in a {@link MapTopology},
+ * concept state is kept in <code>double[]</code> vectors (plus "defined" flags, as a replacement
+ * for <code>null</code> values) and each {@link #execute()} is a weight matrix / state vector
+ * product followed by activation.
+ * <p>
+ * Semantics are the same as {@link CognitiveMap#execute()}: undefined and NaN outputs are skipped,
+ * infinite outputs turn the destination into NaN, fixed outputs never change,
+ * {@link BaseConceptActivator#isIncludePreviousOutput()} is honoured by the activators themselves.
+ * Concepts are activated by activator group (see {@link MapTopology}), one
+ * {@link org.megadix.jfcm.act.VectorizedActivator#activate(double[], double[], double[], int, int)} call each.
+ * The only difference is summation order of incoming connections, which here follows concept order
+ * (<code>Concept.getInConnections()</code> has no defined order).
+ * </p>
+ * <p>
+ * Delay lines of delayed connections start empty, as after {@link CognitiveMap} loading. Instead of
+ * a buffer per connection, the last {@link MapTopology#getHistoryDepth()} outputs of their source
+ * concepts are kept in a shared history matrix: a delayed connection reads the output its source had
+ * <code>delay</code> epochs ago, even while its destination has a fixed output.
+ * Instances are created by {@link MapCompiler}, and are not thread-safe: use {@link #copy()} to fork
+ * independent copies sharing topology and weights.
+ * </p>
+ */
+public abstract class CompiledCognitiveMap {
+
+    protected final MapTopology topology;
+    protected final int n;
+
+    // state
+    protected double[] output;
+    protected boolean[] outputDefined;
+    protected double[] prevOutput;
+    protected boolean[] prevOutputDefined;
+    protected double[] nextOutput;
+    protected boolean[] nextOutputDefined;
+    protected final double[] input;
+    protected final boolean[] inputDefined;
+    protected final boolean[] fixed;
+    protected double averageSquareDelta = Double.NaN;
+
+    // history of sources of delayed edges, element (epoch slot k, column c) is at k * historySources.length + c;
+    // historyPos is the slot of current epoch, historyFill the number of epochs recorded (up to historyDepth)
+    protected final double[] history;
+    protected final boolean[] historyDefined;
+    protected int historyPos;
+    protected int historyFill;
+
+    // per-epoch work areas
+    protected final double[] values;
+    protected final double[] sums;
+    protected final int[] counts;
+    protected final boolean[] forceNaN;
+    protected final boolean[] pending;
+    protected final double[] groupInput;
+    protected final double[] groupOutput;
+    protected final double[] groupResult;
+
+    protected CompiledCognitiveMap(MapTopology topology) {
+        this.topology = topology;
+        this.n = topology.size();
+
+        output = new double[n];
+        outputDefined = new boolean[n];
+        prevOutput = new double[n];
+        prevOutputDefined = new boolean[n];
+        nextOutput = new double[n];
+        nextOutputDefined = new boolean[n];
+        input = new double[n];
+        inputDefined = new boolean[n];
+        fixed = new boolean[n];
+
+        history = new double[topology.historyDepth * topology.historySources.length];
+        historyDefined = new boolean[history.length];
+
+        values = new double[n];
+        sums = new double[n];
+        counts = new int[n];
+        forceNaN = new boolean[n];
+        pending = new boolean[n];
+        groupInput = new double[n];
+        groupOutput = new double[n];
+        groupResult = new double[n];
+    }
+
+    /**
+     * Copy constructor for {@link #copy()}: shares topology, copies state and delay history
+     *
+     * @param source map to copy
+     */
+    protected CompiledCognitiveMap(CompiledCognitiveMap source) {
+        this(source.topology);
+        copyStateFrom(source);
+    }
+
+    /**
+     * Fork this map: the copy shares {@link MapTopology}, activators and weight matrix, which are never
+     * modified, and gets its own copy of the state (outputs, fixed outputs, delay history).
+     * Cost is proportional to {@link #size()} and to delay history, not to the number of connections;
+     * copy and original can then be executed independently, also by different threads.
+     *
+     * @return independent copy
+     */
+    public abstract CompiledCognitiveMap copy();
+
+    /**
+     * Overwrite state (outputs, fixed outputs, delay history) with state of a map with the same topology
+     *
+     * @param source map to copy state from
+     */
+    void copyStateFrom(CompiledCognitiveMap source) {
+        System.arraycopy(source.output, 0, output, 0, n);
+        System.arraycopy(source.outputDefined, 0, outputDefined, 0, n);
+        System.arraycopy(source.prevOutput, 0, prevOutput, 0, n);
+        System.arraycopy(source.prevOutputDefined, 0, prevOutputDefined, 0, n);
+        System.arraycopy(source.input, 0, input, 0, n);
+        System.arraycopy(source.inputDefined, 0, inputDefined, 0, n);
+        System.arraycopy(source.fixed, 0, fixed, 0, n);
+        averageSquareDelta = source.averageSquareDelta;
+
+        System.arraycopy(source.history, 0, history, 0, history.length);
+        System.arraycopy(source.historyDefined, 0, historyDefined, 0, history.length);
+        historyPos = source.historyPos;
+        historyFill = source.historyFill;
+    }
+
+    /**
+     * Calculate <code>sums = W * x</code> for direct edges, where <code>W[to][from]</code> is the
+     * connection weight and <code>x</code> is a <code>size() * columns</code> row-major matrix
+     * (one column per state vector). Every element of <code>sums</code> must be assigned.
+     *
+     * @param x source values, 0.0 for undefined / NaN / infinite outputs
+     * @param sums destination, same layout as <code>x</code>
+     * @param columns number of state vectors
+     */
+    protected abstract void multiply(double[] x, double[] sums, int columns);
+
+    /**
+     * Execute one epoch, see {@link CognitiveMap#execute()}
+     */
+    public void execute() {
+        final MapTopology t = topology;
+
+        // 1. sanitize sources and count valid incoming connections
+        Arrays.fill(counts, 0);
+        boolean anyInfinite = false;
+        for (int j = 0; j < n; j++) {
+            double v = output[j];
+            if (!outputDefined[j] || Double.isNaN(v)) {
+                values[j] = 0.0;
+            } else if (Double.isInfinite(v)) {
+                values[j] = 0.0;
+                if (!anyInfinite) {
+                    Arrays.fill(forceNaN, false);
+                    anyInfinite = true;
+                }
+                for (int k = t.outOffsets[j]; k < t.outOffsets[j + 1]; k++) {
+                    forceNaN[t.outTargets[k]] = true;
+                }
+            } else {
+                values[j] = v;
+                for (int k = t.outOffsets[j]; k < t.outOffsets[j + 1]; k++) {
+                    counts[t.outTargets[k]]++;
+                }
+            }
+        }
+
+        // 2. matrix / vector product
+        multiply(values, sums, 1);
+
+        // 3. delayed and parallel connections
+        for (int e = 0; e < t.exTo.length; e++) {
+            int to = t.exTo[e];
+            if (fixed[to]) {
+                continue;
+            }
+            int from = t.exFrom[e];
+            boolean defined = outputDefined[from];
+            double v = defined ? output[from] * t.exWeight[e] : 0.0;
+
+            int delay = t.exDelay[e];
+            if (delay > 0) {
+                // output of source "delay" epochs ago
+                if (historyFill < delay) {
+                    defined = false;
+                } else {
+                    int slot = historyPos - delay;
+                    if (slot < 0) {
+                        slot += t.historyDepth;
+                    }
+                    int idx = slot * t.historySources.length + t.exHistoryColumn[e];
+                    defined = historyDefined[idx];
+                    v = defined ? history[idx] * t.exWeight[e] : 0.0;
+                }
+            }
+
+            double src = output[from];
+            if (!outputDefined[from] || Double.isNaN(src)) {
+                continue;
+            } else if (Double.isInfinite(src)) {
+                if (!anyInfinite) {
+                    Arrays.fill(forceNaN, false);
+                    anyInfinite = true;
+                }
+                forceNaN[to] = true;
+            } else if (defined) {
+                sums[to] += v;
+                counts[to]++;
+            }
+        }
+
+        // record current outputs of delayed sources
+        if (t.historyDepth > 0) {
+            int base = historyPos * t.historySources.length;
+            for (int c = 0; c < t.historySources.length; c++) {
+                int from = t.historySources[c];
+                history[base + c] = output[from];
+                historyDefined[base + c] = outputDefined[from];
+            }
+            historyPos = historyPos + 1 == t.historyDepth ? 0 : historyPos + 1;
+            if (historyFill < t.historyDepth) {
+                historyFill++;
+            }
+        }
+
+        // 4. activation: edge conditions first, then one call per activator group
+        for (int i = 0; i < n; i++) {
+            pending[i] = false;
+            BaseConceptActivator act = t.activators[i];
+            if (act == null || fixed[i]) {
+                nextOutput[i] = output[i];
+                nextOutputDefined[i] = outputDefined[i];
+            } else if (t.inDegree[i] == 0) {
+                nextOutputDefined[i] = false;
+            } else if (anyInfinite && forceNaN[i]) {
+                nextOutput[i] = Double.NaN;
+                nextOutputDefined[i] = true;
+            } else if (counts[i] == 0) {
+                inputDefined[i] = false;
+                nextOutputDefined[i] = false;
+            } else {
+                double sum = sums[i];
+                input[i] = sum;
+                inputDefined[i] = true;
+                nextOutput[i] = Double.NaN;
+                nextOutputDefined[i] = true;
+                pending[i] = !Double.isNaN(sum);
+            }
+        }
+        for (int g = 0; g < t.groupActivators.length; g++) {
+            // gather
+            int count = 0;
+            for (int k = t.groupOffsets[g]; k < t.groupOffsets[g + 1]; k++) {
+                int i = t.groupMembers[k];
+                if (pending[i]) {
+                    groupInput[count] = sums[i];
+                    groupOutput[count] = outputDefined[i] ? output[i] : Double.NaN;
+                    count++;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            t.groupActivators[g].activate(groupInput, groupOutput, groupResult, 0, count);
+            // scatter
+            count = 0;
+            for (int k = t.groupOffsets[g]; k < t.groupOffsets[g + 1]; k++) {
+                int i = t.groupMembers[k];
+                if (pending[i]) {
+                    nextOutput[i] = groupResult[count++];
+                }
+            }
+        }
+
+        // 5. commit: prevOutput <- output <- nextOutput
+        double[] tmp = prevOutput;
+        prevOutput = output;
+        output = nextOutput;
+        nextOutput = tmp;
+
+        boolean[] tmpDefined = prevOutputDefined;
+        prevOutputDefined = outputDefined;
+        outputDefined = nextOutputDefined;
+        nextOutputDefined = tmpDefined;
+    }
+
+    /**
+     * Calculate average square of previous vs current output, see
+     * {@link CognitiveMap#calculateAverageSquareDelta()}.
+     *
+     * @return average square variation of output, <code>Double.NaN</code> if not available
+     */
+    public double calculateAverageSquareDelta() {
+        double delta = 0.0;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (prevOutputDefined[i] && outputDefined[i]) {
+                double d = output[i] - prevOutput[i];
+                delta += d * d;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        averageSquareDelta = delta / count;
+        return averageSquareDelta;
+    }
+
+    /**
+     * Resets state, see {@link CognitiveMap#reset()}
+     */
+    public void reset() {
+        for (int i = 0; i < n; i++) {
+            if (!fixed[i]) {
+                outputDefined[i] = false;
+            }
+            prevOutputDefined[i] = false;
+        }
+    }
+
+    /**
+     * Read concept state (output, previous output, input, fixed output) from a map
+     * with the same concepts this instance was compiled from.
+     *
+     * @param map source map
+     */
+    public void readFrom(CognitiveMap map) {
+        for (int i = 0; i < n; i++) {
+            Concept c = getConcept(map, i);
+
+            outputDefined[i] = c.hasOutput();
+            output[i] = c.getOutputAsDouble();
+            prevOutputDefined[i] = c.hasPrevOutput();
+            prevOutput[i] = c.getPrevOutputAsDouble();
+            inputDefined[i] = c.hasInput();
+            input[i] = c.getInputAsDouble();
+            fixed[i] = c.isFixedOutput();
+        }
+    }
+
+    /**
+     * Write concept state back to a map with the same concepts this instance was compiled from.
+     *
+     * @param map destination map
+     */
+    public void writeTo(CognitiveMap map) {
+        for (int i = 0; i < n; i++) {
+            Concept c = getConcept(map, i);
+
+            if (outputDefined[i]) {
+                c.setOutput(output[i]);
+                c.setNextOutput(output[i]);
+            } else {
+                c.setOutput(null);
+                c.setNextOutput(null);
+            }
+            if (prevOutputDefined[i]) {
+                c.setPrevOutput(prevOutput[i]);
+            } else {
+                c.setPrevOutput(null);
+            }
+            if (inputDefined[i]) {
+                c.setInput(input[i]);
+            } else {
+                c.setInput(null);
+            }
+            c.setFixedOutput(fixed[i]);
+        }
+    }
+
+    /*
+     * state access
+     */
+
+    public MapTopology getTopology() {
+        return topology;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Approximate heap size of state vectors and weight matrix, {@link MapTopology} excluded
+     *
+     * @return size in bytes
+     */
+    public long estimateMemory() {
+        long bytes = 9 * MapTopology.arraySize(n, 8) + 7 * MapTopology.arraySize(n, 1) + MapTopology.arraySize(n, 4);
+        bytes += MapTopology.arraySize(history.length, 8) + MapTopology.arraySize(history.length, 1);
+        return bytes + estimateWeightsMemory();
+    }
+
+    /**
+     * @return approximate heap size of the weight matrix in bytes, shared by copies
+     */
+    protected long estimateWeightsMemory() {
+        return 0L;
+    }
+
+    public int indexOf(String conceptName) {
+        return topology.indexOf(conceptName);
+    }
+
+    public boolean hasOutput(int index) {
+        return outputDefined[index];
+    }
+
+    /**
+     * @param index concept index
+     * @return output of concept, <code>Double.NaN</code> if undefined (see {@link #hasOutput(int)})
+     */
+    public double getOutput(int index) {
+        return outputDefined[index] ? output[index] : Double.NaN;
+    }
+
+    public void setOutput(int index, double value) {
+        output[index] = value;
+        outputDefined[index] = true;
+    }
+
+    public void clearOutput(int index) {
+        outputDefined[index] = false;
+    }
+
+    public boolean hasPrevOutput(int index) {
+        return prevOutputDefined[index];
+    }
+
+    public double getPrevOutput(int index) {
+        return prevOutputDefined[index] ? prevOutput[index] : Double.NaN;
+    }
+
+    public boolean hasInput(int index) {
+        return inputDefined[index];
+    }
+
+    public double getInput(int index) {
+        return inputDefined[index] ? input[index] : Double.NaN;
+    }
+
+    public boolean isFixedOutput(int index) {
+        return fixed[index];
+    }
+
+    public void setFixedOutput(int index, boolean fixedOutput) {
+        fixed[index] = fixedOutput;
+    }
+
+    public void setOutput(String conceptName, double value) {
+        setOutput(checkIndex(conceptName), value);
+    }
+
+    public void setFixedOutput(String conceptName, double value) {
+        int index = checkIndex(conceptName);
+        setFixedOutput(index, true);
+        setOutput(index, value);
+    }
+
+    /**
+     * Average square variation of output, calculated by {@link #calculateAverageSquareDelta()}
+     *
+     * @return average square variation, <code>Double.NaN</code> if not available
+     */
+    public double getAverageSquareDelta() {
+        return averageSquareDelta;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private int checkIndex(String conceptName) {
+        int index = topology.indexOf(conceptName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Concept \"" + conceptName + "\" not found");
+        }
+        return index;
+    }
+
+    private Concept getConcept(CognitiveMap map, int index) {
+        Concept c = map.getConcept(topology.conceptNames[index]);
+        if (c == null) {
+            throw new IllegalArgumentException("Concept \"" + topology.conceptNames[index] + "\" not found");
+        }
+        return c;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import java.util.Arrays;
+
+/**
+ * {@link CompiledCognitiveMap} backed by a dense, row-major <code>n * n</code> weight matrix.
+ * Best suited for small or densely connected maps.
+ */
+public class DenseCognitiveMap extends CompiledCognitiveMap {
+
+    /**
+     * Max. number of concepts supported, so that the matrix fits in a single array
+     */
+    public static final int MAX_SIZE = 46340;
+
+    private final double[] weights;
+
+    public DenseCognitiveMap(MapTopology topology) {
+        super(topology);
+        if (n > MAX_SIZE) {
+            throw new IllegalArgumentException("Too many concepts for a dense weight matrix: " + n);
+        }
+        weights = new double[n * n];
+        for (int e = 0; e < topology.edgeTo.length; e++) {
+            weights[topology.edgeTo[e] * n + topology.edgeFrom[e]] = topology.edgeWeight[e];
+        }
+    }
+
+    /**
+     * Copy constructor, weight matrix is shared
+     *
+     * @param source map to copy
+     */
+    protected DenseCognitiveMap(DenseCognitiveMap source) {
+        super(source);
+        weights = source.weights;
+    }
+
+    @Override
+    public DenseCognitiveMap copy() {
+        return new DenseCognitiveMap(this);
+    }
+
+    @Override
+    protected long estimateWeightsMemory() {
+        return MapTopology.arraySize(weights.length, 8);
+    }
+
+    @Override
+    protected void multiply(double[] x, double[] sums, int columns) {
+        if (columns == 1) {
+            for (int i = 0; i < n; i++) {
+                double sum = 0.0;
+                int row = i * n;
+                for (int j = 0; j < n; j++) {
+                    sum += weights[row + j] * x[j];
+                }
+                sums[i] = sum;
+            }
+            return;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int row = i * n;
+            int out = i * columns;
+            Arrays.fill(sums, out, out + columns, 0.0);
+            for (int j = 0; j < n; j++) {
+                double w = weights[row + j];
+                // skipping zeros doesn't change results: x is always finite
+                if (w == 0.0) {
+                    continue;
+                }
+                int in = j * columns;
+                for (int c = 0; c < columns; c++) {
+                    sums[out + c] += w * x[in + c];
+                }
+            }
+        }
+    }
+}
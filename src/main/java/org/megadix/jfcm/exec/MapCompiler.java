@@ -0,0 +1,310 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import java.util.*;
+
+import org.megadix.jfcm.*;
+import org.megadix.jfcm.act.BaseConceptActivator;
+import org.megadix.jfcm.conn.WeightedConnection;
+
+/**
+ * Compiles a {@link CognitiveMap} to a {@link CompiledCognitiveMap}.
+ * Supports {@link BaseConceptActivator} and {@link WeightedConnection} implementations only.
+ */
+public final class MapCompiler {
+
+    /**
+     * Weight matrix representation
+     */
+    public enum Backend {
+        /** Choose from map size and density, see {@link MapCompiler#chooseBackend(MapTopology)} */
+        AUTO,
+        /** {@link DenseCognitiveMap} */
+        DENSE,
+        /** {@link SparseCognitiveMap} */
+        SPARSE
+    }
+
+    /**
+     * Min. ratio of connections to <code>size * size</code> for {@link Backend#DENSE}
+     */
+    public static final double DENSE_MIN_DENSITY = 0.25;
+
+    /**
+     * Max. number of concepts for {@link Backend#DENSE}, to limit weight matrix memory
+     */
+    public static final int DENSE_MAX_SIZE = 2048;
+
+    private MapCompiler() {
+        // prevents calls
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Compile a map and load its current state, choosing the backend automatically.
+     *
+     * @param map map to compile
+     * @return compiled map
+     */
+    public static CompiledCognitiveMap compile(CognitiveMap map) {
+        return compile(map, Backend.AUTO);
+    }
+
+    /**
+     * Compile a map and load its current state.
+     *
+     * @param map map to compile
+     * @param backend weight matrix representation
+     * @return compiled map
+     */
+    public static CompiledCognitiveMap compile(CognitiveMap map, Backend backend) {
+        CompiledCognitiveMap compiled = newInstance(compileTopology(map), backend);
+        compiled.readFrom(map);
+        return compiled;
+    }
+
+    /**
+     * Create a new {@link CompiledCognitiveMap}, with all concepts undefined.
+     *
+     * @param topology map topology
+     * @param backend weight matrix representation
+     * @return compiled map
+     */
+    public static CompiledCognitiveMap newInstance(MapTopology topology, Backend backend) {
+        if (backend == Backend.AUTO) {
+            backend = chooseBackend(topology);
+        }
+        switch (backend) {
+        case DENSE:
+            return new DenseCognitiveMap(topology);
+        default:
+            return new SparseCognitiveMap(topology);
+        }
+    }
+
+    /**
+     * Choose {@link Backend#DENSE} for small maps with at least {@link #DENSE_MIN_DENSITY}
+     * of all possible connections, {@link Backend#SPARSE} otherwise.
+     *
+     * @param topology map topology
+     * @return {@link Backend#DENSE} or {@link Backend#SPARSE}
+     */
+    public static Backend chooseBackend(MapTopology topology) {
+        int n = topology.size();
+        if (n == 0 || n > DENSE_MAX_SIZE) {
+            return Backend.SPARSE;
+        }
+        double density = (double) topology.getDirectEdgeCount() / ((double) n * n);
+        return density >= DENSE_MIN_DENSITY ? Backend.DENSE : Backend.SPARSE;
+    }
+
+    /**
+     * Freeze the structure of a map (concepts, activators, connections, weights and delays)
+     *
+     * @param map map to compile
+     * @return map topology
+     * @throws IllegalArgumentException if a connection is connected to a concept not in the map
+     */
+    public static MapTopology compileTopology(CognitiveMap map) {
+        int n = map.getConcepts().size();
+        String[] conceptNames = new String[n];
+        BaseConceptActivator[] activators = new BaseConceptActivator[n];
+        // by identity: Concept.equals() compares names, a foreign concept would match one of the map
+        Map<Concept, Integer> indices = new IdentityHashMap<>(n * 2);
+
+        int i = 0;
+        Iterator<Concept> conceptIter = map.getConceptsIterator();
+        while (conceptIter.hasNext()) {
+            Concept c = conceptIter.next();
+            ConceptActivator act = c.getConceptActivator();
+            if (act != null && !(act instanceof BaseConceptActivator)) {
+                throw new UnsupportedOperationException("Unsupported ConceptActivator implementation: "
+                        + act.getClass().getName());
+            }
+            conceptNames[i] = c.getName();
+            activators[i] = (BaseConceptActivator) act;
+            indices.put(c, i);
+            i++;
+        }
+
+        int m = map.getConnections().size();
+        String[] connNames = new String[m];
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] weights = new double[m];
+        int[] delays = new int[m];
+
+        int e = 0;
+        Iterator<FcmConnection> connIter = map.getConnectionsIterator();
+        while (connIter.hasNext()) {
+            FcmConnection conn = connIter.next();
+            if (!(conn instanceof WeightedConnection)) {
+                throw new UnsupportedOperationException("Unsupported FcmConnection implementation: "
+                        + conn.getClass().getName());
+            }
+            WeightedConnection wConn = (WeightedConnection) conn;
+            connNames[e] = conn.getName();
+            from[e] = indexOf(indices, conn, conn.getFrom());
+            to[e] = indexOf(indices, conn, conn.getTo());
+            weights[e] = wConn.getWeight();
+            delays[e] = wConn.getDelay();
+            e++;
+        }
+
+        return compileTopology(map.getName(), conceptNames, activators, connNames, from, to, weights, delays);
+    }
+
+    /**
+     * Freeze the structure of a map described by arrays, without building a {@link CognitiveMap}:
+     * concept <code>i</code> is <code>conceptNames[i]</code>, connection <code>e</code> goes from concept
+     * <code>from[e]</code> to concept <code>to[e]</code>.
+     *
+     * @param mapName name of the map
+     * @param conceptNames concept names, by index
+     * @param activators concept activators, by index; <code>null</code> elements for concepts without activator
+     * @param connectionNames connection names, by index; may be <code>null</code>
+     * @param from source concept of each connection, -1 if not connected
+     * @param to destination concept of each connection, -1 if not connected
+     * @param weights weight of each connection
+     * @param delays delay of each connection
+     * @return map topology
+     */
+    public static MapTopology compileTopology(String mapName, String[] conceptNames, BaseConceptActivator[] activators,
+            String[] connectionNames, int[] from, int[] to, double[] weights, int[] delays) {
+        int n = conceptNames.length;
+        int m = from.length;
+        if (activators.length != n || to.length != m || weights.length != m || delays.length != m
+                || (connectionNames != null && connectionNames.length != m)) {
+            throw new IllegalArgumentException("Array lengths don't match");
+        }
+
+        // connections that take part in execution: both ends connected, destination with an activator
+        int[] inDegree = new int[n];
+        int[] candidates = new int[m];
+        int candidateCount = 0;
+        boolean[] extra = new boolean[m];
+        int extraCount = 0;
+        for (int e = 0; e < m; e++) {
+            if (from[e] < 0 || to[e] < 0) {
+                continue;
+            }
+            if (from[e] >= n || to[e] >= n) {
+                throw new IllegalArgumentException("Connection " + e + ": concept index out of range");
+            }
+            // connections to concepts without activator are never calculated
+            if (activators[to[e]] == null) {
+                continue;
+            }
+            inDegree[to[e]]++;
+            // weight matrix multiplies undefined sources by 0.0: non-finite weights would give NaN
+            if (delays[e] > 0 || Double.isNaN(weights[e]) || Double.isInfinite(weights[e])) {
+                extra[e] = true;
+                extraCount++;
+            } else {
+                candidates[candidateCount++] = e;
+            }
+        }
+
+        // stable sort of non-delayed connections by (to, from): two counting sort passes
+        int[] sorted = countingSort(countingSort(Arrays.copyOf(candidates, candidateCount), from, n), to, n);
+
+        // first connection of each (to, from) couple is direct, others are handled one by one
+        int directCount = 0;
+        for (int k = 0; k < sorted.length; k++) {
+            int e = sorted[k];
+            if (k > 0 && to[sorted[k - 1]] == to[e] && from[sorted[k - 1]] == from[e]) {
+                extra[e] = true;
+                extraCount++;
+            } else {
+                sorted[directCount++] = e;
+            }
+        }
+
+        int[] edgeTo = new int[directCount];
+        int[] edgeFrom = new int[directCount];
+        double[] edgeWeight = new double[directCount];
+        String[] edgeNames = new String[directCount];
+        for (int k = 0; k < directCount; k++) {
+            int e = sorted[k];
+            edgeTo[k] = to[e];
+            edgeFrom[k] = from[e];
+            edgeWeight[k] = weights[e];
+            edgeNames[k] = connectionNames == null ? null : connectionNames[e];
+        }
+
+        // extra edges keep connection order
+        int[] exTo = new int[extraCount];
+        int[] exFrom = new int[extraCount];
+        double[] exWeight = new double[extraCount];
+        int[] exDelay = new int[extraCount];
+        String[] exNames = new String[extraCount];
+        int x = 0;
+        for (int e = 0; e < m; e++) {
+            if (extra[e]) {
+                exTo[x] = to[e];
+                exFrom[x] = from[e];
+                exWeight[x] = weights[e];
+                exDelay[x] = Math.max(delays[e], 0);
+                exNames[x] = connectionNames == null ? null : connectionNames[e];
+                x++;
+            }
+        }
+
+        return new MapTopology(mapName, conceptNames, activators, inDegree,
+                edgeTo, edgeFrom, edgeWeight, edgeNames, exFrom, exTo, exWeight, exDelay, exNames);
+    }
+
+    /*
+     * private stuff
+     */
+
+    /**
+     * @return index of concept connected to <code>conn</code>, -1 if <code>concept</code> is <code>null</code>
+     */
+    private static int indexOf(Map<Concept, Integer> indices, FcmConnection conn, Concept concept) {
+        if (concept == null) {
+            return -1;
+        }
+        Integer index = indices.get(concept);
+        if (index == null) {
+            throw new IllegalArgumentException("Connection " + conn.getName() + " is connected to concept "
+                    + concept.getName() + ", not in the map");
+        }
+        return index;
+    }
+
+    /**
+     * Stable sort of connection indices by <code>keys[e]</code>, in <code>[0, range)</code>
+     */
+    private static int[] countingSort(int[] edges, int[] keys, int range) {
+        int[] offsets = new int[range + 1];
+        for (int e : edges) {
+            offsets[keys[e] + 1]++;
+        }
+        for (int i = 0; i < range; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] result = new int[edges.length];
+        for (int e : edges) {
+            result[offsets[keys[e]]++] = e;
+        }
+        return result;
+    }
+}
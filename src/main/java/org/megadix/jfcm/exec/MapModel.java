@@ -0,0 +1,117 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.exec;
+
+import org.megadix.jfcm.CognitiveMap;
+
+/**
+ * Immutable, compiled model of a {@link CognitiveMap}: topology, activators, weights, delays and initial state.
+ * Any number of threads can run their own {@link SimulationSession} against the same model, without locking
+ * and without copying the map: sessions share everything but their state vectors.
+ * <p>
+ * Activators are copied when compiling (see {@link MapTopology}): later changes to the activators of the
+ * source map do not affect the model.
+ * </p>
+ */
+public final class MapModel {
+
+    // never executed nor modified: sessions start from a copy of its state
+    private final CompiledCognitiveMap initial;
+
+    /**
+     * Compile a map, choosing the backend automatically; current state of the map becomes
+     * initial state of sessions.
+     *
+     * @param map map to compile
+     */
+    public MapModel(CognitiveMap map) {
+        this(map, MapCompiler.Backend.AUTO);
+    }
+
+    /**
+     * Compile a map; current state of the map becomes initial state of sessions.
+     *
+     * @param map map to compile
+     * @param backend weight matrix representation
+     */
+    public MapModel(CognitiveMap map, MapCompiler.Backend backend) {
+        this.initial = MapCompiler.compile(map, backend);
+    }
+
+    /**
+     * Model of an already compiled map; its current state becomes initial state of sessions.
+     *
+     * @param compiled compiled map, its state is copied
+     */
+    public MapModel(CompiledCognitiveMap compiled) {
+        this.initial = compiled.copy();
+    }
+
+    /**
+     * Start a new session from initial state, see {@link CompiledCognitiveMap#copy()} for costs
+     *
+     * @return new session
+     */
+    public SimulationSession newSession() {
+        return new SimulationSession(this, initial.copy());
+    }
+
+    /**
+     * Restore initial state in a session of this model
+     *
+     * @param state session state
+     */
+    void restart(CompiledCognitiveMap state) {
+        state.copyStateFrom(initial);
+    }
+
+    public String getName() {
+        return initial.getTopology().getMapName();
+    }
+
+    public MapTopology getTopology() {
+        return initial.getTopology();
+    }
+
+    /**
+     * Approximate heap size of the model: topology, weight matrix and initial state, activators excluded.
+     * Each session adds {@link CompiledCognitiveMap#estimateMemory()} minus the shared weight matrix.
+     *
+     * @return size in bytes
+     */
+    public long estimateMemory() {
+        return initial.getTopology().estimateMemory() + initial.estimateMemory();
+    }
+
+    /**
+     * @return number of concepts
+     */
+    public int size() {
+        return initial.size();
+    }
+
+    /**
+     * @param conceptName name of the concept
+     * @return index of the concept, -1 if not found
+     */
+    public int indexOf(String conceptName) {
+        return initial.indexOf(conceptName);
+    }
+}
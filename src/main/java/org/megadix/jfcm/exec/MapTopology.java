@@ -0,0 +1,346 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.megadix.jfcm.act.BaseConceptActivator;
+
+/**
+ * Immutable, index-based description of a {@link org.megadix.jfcm.CognitiveMap}:
+ * concepts are numbered following map order (i.e. by name), connections are split in
+ * <ul>
+ * <li><em>direct</em> edges: no delay, finite weight and at most one per (from, to) couple, handled as a weight
+ * matrix;</li>
+ * <li><em>extra</em> edges: delayed or parallel connections, or with non-finite weight, handled one by one.</li>
+ * </ul>
+ * Delayed edges share a history of past outputs of their source concepts, with one column per
+ * distinct source and {@link #getHistoryDepth()} rows: a delay is an index into it.
+ * Concepts with equal {@link org.megadix.jfcm.act.VectorizedActivator#getActivationKey() activation keys}
+ * form an activator group, activated in one call.
+ * Activators are copied when the topology is created (see {@link BaseConceptActivator#copy()}): later changes
+ * to the activators of the source map are not seen by compiled maps.
+ * Instances are created by {@link MapCompiler}.
+ */
+public final class MapTopology {
+
+    final String mapName;
+    final String[] conceptNames;
+    final Map<String, Integer> indices;
+    final BaseConceptActivator[] activators;
+    final int[] inDegree;
+
+    // direct edges, sorted by (to, from)
+    final int[] edgeTo;
+    final int[] edgeFrom;
+    final double[] edgeWeight;
+    final String[] edgeNames;
+
+    // direct edges grouped by source concept
+    final int[] outOffsets;
+    final int[] outTargets;
+
+    // delayed / parallel edges
+    final int[] exFrom;
+    final int[] exTo;
+    final double[] exWeight;
+    final int[] exDelay;
+    final String[] exNames;
+
+    // history of sources of delayed edges
+    final int historyDepth;
+    final int[] historySources;
+    final int[] exHistoryColumn;
+
+    // activator groups, members of group g are groupMembers[groupOffsets[g] .. groupOffsets[g + 1] - 1]
+    final BaseConceptActivator[] groupActivators;
+    final int[] groupOffsets;
+    final int[] groupMembers;
+
+    MapTopology(String mapName, String[] conceptNames, BaseConceptActivator[] activators, int[] inDegree,
+            int[] edgeTo, int[] edgeFrom, double[] edgeWeight, String[] edgeNames,
+            int[] exFrom, int[] exTo, double[] exWeight, int[] exDelay, String[] exNames) {
+        this.mapName = mapName;
+        this.conceptNames = conceptNames;
+        this.activators = freeze(activators);
+        this.inDegree = inDegree;
+        this.edgeTo = edgeTo;
+        this.edgeFrom = edgeFrom;
+        this.edgeWeight = edgeWeight;
+        this.edgeNames = edgeNames;
+        this.exFrom = exFrom;
+        this.exTo = exTo;
+        this.exWeight = exWeight;
+        this.exDelay = exDelay;
+        this.exNames = exNames;
+
+        int n = conceptNames.length;
+
+        this.indices = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            indices.put(conceptNames[i], i);
+        }
+
+        // group direct edges by source
+        outOffsets = new int[n + 1];
+        for (int from : edgeFrom) {
+            outOffsets[from + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+        }
+        outTargets = new int[edgeFrom.length];
+        int[] pos = new int[n];
+        for (int e = 0; e < edgeFrom.length; e++) {
+            int from = edgeFrom[e];
+            outTargets[outOffsets[from] + pos[from]++] = edgeTo[e];
+        }
+
+        // history: one column per distinct source of delayed edges
+        int[] columns = new int[n];
+        Arrays.fill(columns, -1);
+        exHistoryColumn = new int[exDelay.length];
+        int depth = 0;
+        int width = 0;
+        for (int e = 0; e < exDelay.length; e++) {
+            if (exDelay[e] > 0) {
+                depth = Math.max(depth, exDelay[e]);
+                int from = exFrom[e];
+                if (columns[from] < 0) {
+                    columns[from] = width++;
+                }
+                exHistoryColumn[e] = columns[from];
+            } else {
+                exHistoryColumn[e] = -1;
+            }
+        }
+        historyDepth = depth;
+        historySources = new int[width];
+        for (int i = 0; i < n; i++) {
+            if (columns[i] >= 0) {
+                historySources[columns[i]] = i;
+            }
+        }
+
+        // activator groups, in order of first member
+        Map<Object, Integer> groupIndices = new HashMap<>();
+        List<BaseConceptActivator> leaders = new ArrayList<>();
+        int[] group = new int[n];
+        int[] groupSizes = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (this.activators[i] == null) {
+                group[i] = -1;
+                continue;
+            }
+            Object key = this.activators[i].getActivationKey();
+            Integer g = groupIndices.get(key);
+            if (g == null) {
+                g = leaders.size();
+                groupIndices.put(key, g);
+                leaders.add(this.activators[i]);
+            }
+            group[i] = g;
+            groupSizes[g]++;
+        }
+        groupActivators = leaders.toArray(new BaseConceptActivator[leaders.size()]);
+        groupOffsets = new int[groupActivators.length + 1];
+        for (int g = 0; g < groupActivators.length; g++) {
+            groupOffsets[g + 1] = groupOffsets[g] + groupSizes[g];
+        }
+        groupMembers = new int[groupOffsets[groupActivators.length]];
+        Arrays.fill(groupSizes, 0);
+        for (int i = 0; i < n; i++) {
+            int g = group[i];
+            if (g >= 0) {
+                groupMembers[groupOffsets[g] + groupSizes[g]++] = i;
+            }
+        }
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    /**
+     * @return number of concepts
+     */
+    public int size() {
+        return conceptNames.length;
+    }
+
+    /**
+     * @return number of direct (non-delayed, non-parallel) connections
+     */
+    public int getDirectEdgeCount() {
+        return edgeTo.length;
+    }
+
+    /**
+     * @return number of delayed or parallel connections
+     */
+    public int getExtraEdgeCount() {
+        return exTo.length;
+    }
+
+    /**
+     * @return number of past epochs kept for delayed connections, i.e. their maximum delay
+     */
+    public int getHistoryDepth() {
+        return historyDepth;
+    }
+
+    /**
+     * @return number of activator groups, i.e. distinct activation functions and parameters
+     */
+    public int getActivatorGroupCount() {
+        return groupActivators.length;
+    }
+
+    public String getConceptName(int index) {
+        return conceptNames[index];
+    }
+
+    /**
+     * @return number of connections taking part in execution: direct edges, then extra edges
+     */
+    public int getEdgeCount() {
+        return edgeTo.length + exTo.length;
+    }
+
+    /**
+     * @param edge edge index, see {@link #getEdgeCount()}
+     * @return index of the source concept
+     */
+    public int getEdgeSource(int edge) {
+        return edge < edgeFrom.length ? edgeFrom[edge] : exFrom[edge - edgeFrom.length];
+    }
+
+    /**
+     * @param edge edge index, see {@link #getEdgeCount()}
+     * @return index of the destination concept
+     */
+    public int getEdgeTarget(int edge) {
+        return edge < edgeTo.length ? edgeTo[edge] : exTo[edge - edgeTo.length];
+    }
+
+    /**
+     * @param edge edge index, see {@link #getEdgeCount()}
+     * @return delay of the connection, 0 for direct edges
+     */
+    public int getEdgeDelay(int edge) {
+        return edge < edgeTo.length ? 0 : exDelay[edge - edgeTo.length];
+    }
+
+    /**
+     * @param edge edge index, see {@link #getEdgeCount()}
+     * @return name of the connection, may be <code>null</code>
+     */
+    public String getConnectionName(int edge) {
+        return edge < edgeNames.length ? edgeNames[edge] : exNames[edge - edgeNames.length];
+    }
+
+    /**
+     * @return weights of all edges, by edge index (see {@link #getEdgeCount()}); a new array
+     */
+    public double[] getWeights() {
+        double[] weights = Arrays.copyOf(edgeWeight, getEdgeCount());
+        System.arraycopy(exWeight, 0, weights, edgeWeight.length, exWeight.length);
+        return weights;
+    }
+
+    /**
+     * Approximate heap size of this topology, activators excluded
+     *
+     * @return size in bytes
+     */
+    public long estimateMemory() {
+        long bytes = arraySize(conceptNames.length, REFERENCE_SIZE) + arraySize(edgeNames.length, REFERENCE_SIZE)
+                + arraySize(exNames.length, REFERENCE_SIZE) + arraySize(activators.length, REFERENCE_SIZE);
+        for (String name : conceptNames) {
+            // String + char array, plus one HashMap entry and boxed index for indices
+            bytes += stringSize(name) + 48;
+        }
+        bytes += arraySize(conceptNames.length * 2, REFERENCE_SIZE);
+        for (String name : edgeNames) {
+            bytes += stringSize(name);
+        }
+        for (String name : exNames) {
+            bytes += stringSize(name);
+        }
+        bytes += arraySize(inDegree.length, 4) + arraySize(edgeTo.length, 4) + arraySize(edgeFrom.length, 4)
+                + arraySize(edgeWeight.length, 8) + arraySize(outOffsets.length, 4) + arraySize(outTargets.length, 4)
+                + arraySize(exFrom.length, 4) + arraySize(exTo.length, 4) + arraySize(exWeight.length, 8)
+                + arraySize(exDelay.length, 4) + arraySize(historySources.length, 4)
+                + arraySize(exHistoryColumn.length, 4) + arraySize(groupActivators.length, REFERENCE_SIZE)
+                + arraySize(groupOffsets.length, 4) + arraySize(groupMembers.length, 4);
+        return bytes;
+    }
+
+    /**
+     * @param conceptName name of the concept
+     * @return index of the concept, -1 if not found
+     */
+    public int indexOf(String conceptName) {
+        Integer index = indices.get(conceptName);
+        return index == null ? -1 : index;
+    }
+
+    /*
+     * memory estimates, assuming compressed references
+     */
+
+    private static final int REFERENCE_SIZE = 4;
+
+    static long arraySize(int length, int elementSize) {
+        return 16L + (long) length * elementSize;
+    }
+
+    private static long stringSize(String s) {
+        return s == null ? 0L : 24L + arraySize(s.length(), 2);
+    }
+
+    /*
+     * private stuff
+     */
+
+    /**
+     * Copies activators, concepts sharing the same instance keep sharing the copy.
+     */
+    private static BaseConceptActivator[] freeze(BaseConceptActivator[] activators) {
+        Map<BaseConceptActivator, BaseConceptActivator> copies = new IdentityHashMap<>();
+        BaseConceptActivator[] result = new BaseConceptActivator[activators.length];
+        for (int i = 0; i < activators.length; i++) {
+            if (activators[i] == null) {
+                continue;
+            }
+            BaseConceptActivator copy = copies.get(activators[i]);
+            if (copy == null) {
+                copy = activators[i].copy();
+                copies.put(activators[i], copy);
+            }
+            result[i] = copy;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.exec;
+
+import org.megadix.jfcm.CognitiveMap;
+
+/**
+ * One simulation run of a {@link MapModel}: concept outputs, fixed outputs, delay history and
+ * average square delta. Sessions are created by {@link MapModel#newSession()}, are cheap (state vectors only)
+ * and independent from each other, so each thread can run its own; a single session is not thread-safe.
+ * Semantics are the same as {@link CompiledCognitiveMap}.
+ */
+public final class SimulationSession {
+
+    private final MapModel model;
+    private final CompiledCognitiveMap state;
+    private int epochs;
+
+    SimulationSession(MapModel model, CompiledCognitiveMap state) {
+        this.model = model;
+        this.state = state;
+    }
+
+    public MapModel getModel() {
+        return model;
+    }
+
+    /**
+     * Execute one epoch and update average square delta
+     */
+    public void execute() {
+        state.execute();
+        state.calculateAverageSquareDelta();
+        epochs++;
+    }
+
+    /**
+     * Execute a fixed number of epochs
+     *
+     * @param epochs number of epochs
+     */
+    public void run(int epochs) {
+        for (int i = 0; i < epochs; i++) {
+            execute();
+        }
+    }
+
+    /**
+     * Execute until average square delta &lt;= maxDelta, same test as
+     * {@link org.megadix.jfcm.utils.CompiledFcmRunner#converge()}
+     *
+     * @param maxDelta max average square delta
+     * @param maxEpochs max number of epochs
+     * @return <code>true</code> if converged
+     */
+    public boolean converge(double maxDelta, int maxEpochs) {
+        double delta = state.calculateAverageSquareDelta();
+        int i = 0;
+        while ((Double.isNaN(delta) || Double.isInfinite(delta) || delta > maxDelta) && i < maxEpochs) {
+            execute();
+            delta = state.getAverageSquareDelta();
+            i++;
+        }
+        return delta <= maxDelta;
+    }
+
+    /**
+     * Restore initial state of the model, delay history included
+     */
+    public void restart() {
+        model.restart(state);
+        epochs = 0;
+    }
+
+    /**
+     * Write state back to a map with the same concepts as the model, see
+     * {@link CompiledCognitiveMap#writeTo(CognitiveMap)}
+     *
+     * @param map destination map
+     */
+    public void writeTo(CognitiveMap map) {
+        state.writeTo(map);
+    }
+
+    /**
+     * @return number of epochs executed since creation or {@link #restart()}
+     */
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * Calculate average square delta of current state, see {@link CompiledCognitiveMap#calculateAverageSquareDelta()}
+     *
+     * @return average square variation of output, <code>Double.NaN</code> if not available
+     */
+    public double calculateAverageSquareDelta() {
+        return state.calculateAverageSquareDelta();
+    }
+
+    /**
+     * @return average square variation of output in last epoch, <code>Double.NaN</code> if not available
+     */
+    public double getAverageSquareDelta() {
+        return state.getAverageSquareDelta();
+    }
+
+    /*
+     * state access, by index (see MapModel#indexOf(String)) or name
+     */
+
+    public boolean hasOutput(int index) {
+        return state.hasOutput(index);
+    }
+
+    /**
+     * @param index concept index
+     * @return output of concept, <code>Double.NaN</code> if undefined (see {@link #hasOutput(int)})
+     */
+    public double getOutput(int index) {
+        return state.getOutput(index);
+    }
+
+    public double getOutput(String conceptName) {
+        return state.getOutput(checkIndex(conceptName));
+    }
+
+    public void setOutput(int index, double value) {
+        state.setOutput(index, value);
+    }
+
+    public void setOutput(String conceptName, double value) {
+        state.setOutput(conceptName, value);
+    }
+
+    public void clearOutput(int index) {
+        state.clearOutput(index);
+    }
+
+    public boolean isFixedOutput(int index) {
+        return state.isFixedOutput(index);
+    }
+
+    public void setFixedOutput(int index, boolean fixedOutput) {
+        state.setFixedOutput(index, fixedOutput);
+    }
+
+    public void setFixedOutput(String conceptName, double value) {
+        state.setFixedOutput(conceptName, value);
+    }
+
+    /**
+     * Copy outputs of all concepts
+     *
+     * @param dest destination, <code>Double.NaN</code> for undefined outputs; <code>null</code> to allocate it
+     * @return outputs, by concept index
+     */
+    public double[] getOutputs(double[] dest) {
+        if (dest == null) {
+            dest = new double[state.size()];
+        }
+        for (int i = 0; i < state.size(); i++) {
+            dest[i] = state.getOutput(i);
+        }
+        return dest;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private int checkIndex(String conceptName) {
+        int index = state.indexOf(conceptName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Concept \"" + conceptName + "\" not found");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import java.util.Arrays;
+
+/**
+ * {@link CompiledCognitiveMap} backed by a compressed-sparse-row (CSR) weight matrix:
+ * incoming connections of concept <code>i</code> are stored in
+ * <code>[rowOffsets[i], rowOffsets[i + 1])</code> of flat column index / weight arrays.
+ * Memory and time per epoch are proportional to the number of connections, best suited
+ * for large, sparsely connected maps.
+ */
+public class SparseCognitiveMap extends CompiledCognitiveMap {
+
+    private final int[] rowOffsets;
+    private final int[] columns;
+    private final double[] weights;
+
+    public SparseCognitiveMap(MapTopology topology) {
+        super(topology);
+
+        // direct edges are already sorted by (to, from)
+        rowOffsets = new int[n + 1];
+        for (int to : topology.edgeTo) {
+            rowOffsets[to + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            rowOffsets[i + 1] += rowOffsets[i];
+        }
+        columns = topology.edgeFrom.clone();
+        weights = topology.edgeWeight.clone();
+    }
+
+    /**
+     * Copy constructor, weight matrix is shared
+     *
+     * @param source map to copy
+     */
+    protected SparseCognitiveMap(SparseCognitiveMap source) {
+        super(source);
+        rowOffsets = source.rowOffsets;
+        columns = source.columns;
+        weights = source.weights;
+    }
+
+    @Override
+    public SparseCognitiveMap copy() {
+        return new SparseCognitiveMap(this);
+    }
+
+    @Override
+    protected long estimateWeightsMemory() {
+        return MapTopology.arraySize(rowOffsets.length, 4) + MapTopology.arraySize(columns.length, 4)
+                + MapTopology.arraySize(weights.length, 8);
+    }
+
+    @Override
+    protected void multiply(double[] x, double[] sums, int cols) {
+        if (cols == 1) {
+            for (int i = 0; i < n; i++) {
+                double sum = 0.0;
+                for (int k = rowOffsets[i]; k < rowOffsets[i + 1]; k++) {
+                    sum += weights[k] * x[columns[k]];
+                }
+                sums[i] = sum;
+            }
+            return;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int out = i * cols;
+            Arrays.fill(sums, out, out + cols, 0.0);
+            for (int k = rowOffsets[i]; k < rowOffsets[i + 1]; k++) {
+                double w = weights[k];
+                int in = columns[k] * cols;
+                for (int c = 0; c < cols; c++) {
+                    sums[out + c] += w * x[in + c];
+                }
+            }
+        }
+    }
+}
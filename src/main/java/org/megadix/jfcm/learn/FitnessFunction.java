@@ -0,0 +1,53 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import org.megadix.jfcm.exec.BatchCognitiveMap;
+
+/**
+ * Error of candidate weight vectors evaluated by {@link WeightOptimizer}: every candidate is a scenario
+ * of a {@link BatchCognitiveMap} with its own weights, run for {@link #getEpochs()} epochs.
+ * Called concurrently by evaluation threads, implementations must be thread-safe.
+ */
+public interface FitnessFunction {
+
+    /**
+     * @return number of epochs to run each candidate
+     */
+    int getEpochs();
+
+    /**
+     * Set the initial state of a scenario, after {@link BatchCognitiveMap#reset()}
+     *
+     * @param batch candidates being evaluated
+     * @param scenario scenario index
+     */
+    void initialize(BatchCognitiveMap batch, int scenario);
+
+    /**
+     * Error of a scenario after an epoch; errors of all epochs are summed, lower is better
+     *
+     * @param batch candidates being evaluated
+     * @param scenario scenario index
+     * @param epoch number of epochs executed, from 1 to {@link #getEpochs()}
+     * @return error, &gt;= 0.0
+     */
+    double error(BatchCognitiveMap batch, int scenario, int epoch);
+}
@@ -0,0 +1,360 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Hebbian learning of connection weights from concept trajectories, e.g. recorded by
+ * {@link org.megadix.jfcm.utils.BaseFcmRunner#setRecordTrajectory(boolean)} or observed data.
+ * <p>
+ * Works on the edges of a compiled {@link MapTopology}: only existing connections are learned. For an edge
+ * with weight <code>w</code> from source <code>s</code> to target <code>t</code>, at every step
+ * <code>k</code> of the trajectory (the source is read <code>delay</code> steps earlier):
+ * </p>
+ * <ul>
+ * <li>{@link Rule#NHL} (Nonlinear Hebbian Learning):
+ * <code>w = (1 - decay) * w + rate * t * (s - sgn(w) * w * t)</code>;</li>
+ * <li>{@link Rule#AHL} (Active Hebbian Learning): <code>w = (1 - decay) * w + rate * t * (s - w * t)</code>,
+ * only at steps where the target is <em>activated</em>, i.e. its output changed by more than
+ * {@link #setActivationThreshold(double) activationThreshold}.</li>
+ * </ul>
+ * <p>
+ * Weights are kept in <code>[-1, 1]</code> and, by default, keep their sign. A <em>sweep</em> applies all
+ * steps of the trajectory once; sweeps are repeated until no weight changes by more than
+ * {@link #setTolerance(double) tolerance}, or {@link #setMaxSweeps(int) maxSweeps} is reached.
+ * Edges are independent, so with an {@link #setExecutor(ExecutorService) executor} large maps are
+ * split in chunks of edges learned in parallel.
+ * </p>
+ */
+public class HebbianLearning {
+
+    /**
+     * Learning rule
+     */
+    public enum Rule {
+        /** Nonlinear Hebbian Learning, every step updates every edge */
+        NHL,
+        /** Active Hebbian Learning, a step updates only edges to activated concepts */
+        AHL
+    }
+
+    public static final double DEFAULT_LEARNING_RATE = 0.04;
+    public static final double DEFAULT_DECAY = 0.02;
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+    public static final int DEFAULT_MAX_SWEEPS = 1000;
+
+    /**
+     * Default min. number of edges to learn in parallel
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    private final MapTopology topology;
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] delays;
+
+    private Rule rule = Rule.NHL;
+    private double learningRate = DEFAULT_LEARNING_RATE;
+    private double decay = DEFAULT_DECAY;
+    private double tolerance = DEFAULT_TOLERANCE;
+    private int maxSweeps = DEFAULT_MAX_SWEEPS;
+    private double activationThreshold = 0.0;
+    private boolean preserveSigns = true;
+    private ExecutorService executor;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * @param map map whose connections are learned, see {@link MapCompiler#compileTopology(CognitiveMap)}
+     */
+    public HebbianLearning(CognitiveMap map) {
+        this(MapCompiler.compileTopology(map));
+    }
+
+    public HebbianLearning(MapTopology topology) {
+        this.topology = topology;
+        int m = topology.getEdgeCount();
+        sources = new int[m];
+        targets = new int[m];
+        delays = new int[m];
+        for (int e = 0; e < m; e++) {
+            sources[e] = topology.getEdgeSource(e);
+            targets[e] = topology.getEdgeTarget(e);
+            delays[e] = topology.getEdgeDelay(e);
+        }
+    }
+
+    /**
+     * Learn weights starting from the weights of the topology
+     *
+     * @param trajectory outputs by step and concept index (concept name order), <code>Double.NaN</code> for
+     *            undefined outputs; steps with undefined source or target are skipped
+     * @return learned weights and termination
+     */
+    public LearningResult learn(double[][] trajectory) {
+        return learn(trajectory, topology.getWeights());
+    }
+
+    /**
+     * @param trajectory outputs by step and concept index, see {@link #learn(double[][])}
+     * @param initialWeights initial weights by edge index, see {@link MapTopology#getEdgeCount()}
+     * @return learned weights and termination
+     */
+    public LearningResult learn(double[][] trajectory, double[] initialWeights) {
+        int n = topology.size();
+        int m = sources.length;
+        if (initialWeights.length != m) {
+            throw new IllegalArgumentException("initialWeights.length != " + m);
+        }
+        long startTime = System.nanoTime();
+
+        // by concept, then by step: each edge reads two contiguous series
+        final int steps = trajectory.length;
+        final double[] series = new double[n * steps];
+        for (int k = 0; k < steps; k++) {
+            if (trajectory[k].length != n) {
+                throw new IllegalArgumentException("trajectory[" + k + "].length != " + n);
+            }
+            for (int i = 0; i < n; i++) {
+                series[i * steps + k] = trajectory[k][i];
+            }
+        }
+
+        final double[] weights = initialWeights.clone();
+        final double[] signs = new double[m];
+        for (int e = 0; e < m; e++) {
+            signs[e] = preserveSigns ? Math.signum(weights[e]) : 0.0;
+        }
+        int sweep = 0;
+        double maxChange = Double.NaN;
+        while (sweep < maxSweeps) {
+            maxChange = sweep(series, steps, weights, signs);
+            sweep++;
+            if (maxChange <= tolerance) {
+                break;
+            }
+        }
+
+        LearningResult.StopReason reason = maxChange <= tolerance ? LearningResult.StopReason.CONVERGED
+                : LearningResult.StopReason.MAX_SWEEPS;
+        return new LearningResult(topology, weights, reason, sweep, maxChange, System.nanoTime() - startTime);
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * @param rule learning rule, default {@link Rule#NHL}
+     */
+    public void setRule(Rule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("rule == null");
+        }
+        this.rule = rule;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * @param learningRate learning rate, default {@link #DEFAULT_LEARNING_RATE}
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    public double getDecay() {
+        return decay;
+    }
+
+    /**
+     * @param decay weight decay per step, in <code>[0, 1]</code>; default {@link #DEFAULT_DECAY}
+     */
+    public void setDecay(double decay) {
+        if (!(decay >= 0.0 && decay <= 1.0)) {
+            throw new IllegalArgumentException("decay must be in [0, 1]: " + decay);
+        }
+        this.decay = decay;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance learning stops when no weight changes by more than this in a sweep; default
+     *            {@link #DEFAULT_TOLERANCE}
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public int getMaxSweeps() {
+        return maxSweeps;
+    }
+
+    /**
+     * @param maxSweeps max. number of passes over the trajectory, default {@link #DEFAULT_MAX_SWEEPS}
+     */
+    public void setMaxSweeps(int maxSweeps) {
+        this.maxSweeps = maxSweeps;
+    }
+
+    public double getActivationThreshold() {
+        return activationThreshold;
+    }
+
+    /**
+     * @param activationThreshold {@link Rule#AHL} only: min. change of output of a concept to activate it,
+     *            default 0.0 (any change)
+     */
+    public void setActivationThreshold(double activationThreshold) {
+        this.activationThreshold = activationThreshold;
+    }
+
+    public boolean isPreserveSigns() {
+        return preserveSigns;
+    }
+
+    /**
+     * @param preserveSigns <code>true</code> (default) to stop weights at 0.0 instead of changing sign,
+     *            i.e. keep the kind of causal relationship defined by experts; initial weights of 0.0 can
+     *            take any sign
+     */
+    public void setPreserveSigns(boolean preserveSigns) {
+        this.preserveSigns = preserveSigns;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor executor used to learn chunks of edges in parallel, <code>null</code> (default) to
+     *            always learn sequentially
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * @param parallelThreshold min. number of edges to learn in parallel, default
+     *            {@link #DEFAULT_PARALLEL_THRESHOLD}
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /*
+     * private stuff
+     */
+
+    /**
+     * @return max. absolute weight change
+     */
+    private double sweep(final double[] series, final int steps, final double[] weights, final double[] signs) {
+        final int m = weights.length;
+        if (executor == null || m < parallelThreshold) {
+            return sweep(series, steps, weights, signs, 0, m);
+        }
+
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, m / (Runtime.getRuntime().availableProcessors() * 4) + 1);
+        List<Callable<Double>> tasks = new ArrayList<>();
+        for (int from = 0; from < m; from += chunkSize) {
+            final int start = from;
+            final int end = Math.min(from + chunkSize, m);
+            tasks.add(new Callable<Double>() {
+                public Double call() {
+                    return sweep(series, steps, weights, signs, start, end);
+                }
+            });
+        }
+
+        double maxChange = 0.0;
+        try {
+            for (Future<Double> result : executor.invokeAll(tasks)) {
+                maxChange = Math.max(maxChange, result.get());
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while learning", iex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error learning weights", ex.getCause());
+        }
+        return maxChange;
+    }
+
+    private double sweep(double[] series, int steps, double[] weights, double[] signs, int start, int end) {
+        boolean ahl = rule == Rule.AHL;
+        double keep = 1.0 - decay;
+        double rate = learningRate;
+        double threshold = activationThreshold;
+        double maxChange = 0.0;
+
+        for (int e = start; e < end; e++) {
+            double w0 = weights[e];
+            double w = w0;
+            int s0 = sources[e] * steps - delays[e];
+            int t0 = targets[e] * steps;
+            double sign = signs[e];
+            for (int k = delays[e]; k < steps; k++) {
+                double s = series[s0 + k];
+                double t = series[t0 + k];
+                if (Double.isNaN(s) || Double.isNaN(t)) {
+                    continue;
+                }
+                double next;
+                if (ahl) {
+                    if (k == 0 || !(Math.abs(t - series[t0 + k - 1]) > threshold)) {
+                        continue;
+                    }
+                    next = keep * w + rate * t * (s - w * t);
+                } else {
+                    next = keep * w + rate * t * (s - Math.signum(w) * w * t);
+                }
+                if (sign * next < 0.0) {
+                    // sign preserved
+                    next = 0.0;
+                }
+                w = next < -1.0 ? -1.0 : (next > 1.0 ? 1.0 : next);
+            }
+            weights[e] = w;
+            maxChange = Math.max(maxChange, Math.abs(w - w0));
+        }
+        return maxChange;
+    }
+}
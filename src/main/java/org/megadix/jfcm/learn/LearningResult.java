@@ -0,0 +1,155 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.FcmConnection;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Weights learned by {@link HebbianLearning}, by edge index of {@link MapTopology}, and termination of the run.
+ */
+public class LearningResult {
+
+    /**
+     * Why learning stopped
+     */
+    public enum StopReason {
+        /** No weight changed by more than tolerance in the last sweep */
+        CONVERGED,
+        /** Max. number of sweeps executed */
+        MAX_SWEEPS
+    }
+
+    private final MapTopology topology;
+    private final double[] weights;
+    private final StopReason reason;
+    private final int sweeps;
+    private final double maxChange;
+    private final long wallTimeNanos;
+
+    LearningResult(MapTopology topology, double[] weights, StopReason reason, int sweeps, double maxChange,
+            long wallTimeNanos) {
+        this.topology = topology;
+        this.weights = weights;
+        this.reason = reason;
+        this.sweeps = sweeps;
+        this.maxChange = maxChange;
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public MapTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * @return learned weights by edge index, see {@link MapTopology#getEdgeCount()}; a new array
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * @param edge edge index
+     * @return learned weight
+     */
+    public double getWeight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * @param connectionName name of the connection
+     * @return learned weight
+     * @throws IllegalArgumentException if the connection is not an edge of the topology
+     */
+    public double getWeight(String connectionName) {
+        for (int e = 0; e < weights.length; e++) {
+            if (connectionName.equals(topology.getConnectionName(e))) {
+                return weights[e];
+            }
+        }
+        throw new IllegalArgumentException("Connection \"" + connectionName + "\" not found");
+    }
+
+    /**
+     * Set learned weights on the {@link WeightedConnection}s of a map, matched by name. Maps with
+     * {@link CognitiveMap#setFreezeSettledConcepts(boolean) settled concepts} don't detect weight changes.
+     *
+     * @param map map with the connections of the topology
+     * @throws IllegalArgumentException if a connection is not found, the map is left unchanged
+     */
+    public void applyTo(CognitiveMap map) {
+        applyWeights(topology, weights, map);
+    }
+
+    public StopReason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return number of passes over the trajectory
+     */
+    public int getSweeps() {
+        return sweeps;
+    }
+
+    /**
+     * @return max. absolute weight change in the last sweep
+     */
+    public double getMaxChange() {
+        return maxChange;
+    }
+
+    /**
+     * @return elapsed time of the run, in nanoseconds
+     */
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return reason + " after " + sweeps + " sweeps, max change = " + maxChange;
+    }
+
+    /**
+     * Set weights on the {@link WeightedConnection}s of a map, matched by name. All connections are looked up
+     * first: if one is missing the map is left unchanged.
+     *
+     * @param topology topology of the weights
+     * @param weights weights by edge index
+     * @param map destination map
+     */
+    static void applyWeights(MapTopology topology, double[] weights, CognitiveMap map) {
+        WeightedConnection[] connections = new WeightedConnection[weights.length];
+        for (int e = 0; e < weights.length; e++) {
+            String name = topology.getConnectionName(e);
+            FcmConnection conn = name == null ? null : map.getConnection(name);
+            if (!(conn instanceof WeightedConnection)) {
+                throw new IllegalArgumentException("WeightedConnection \"" + name + "\" not found");
+            }
+            connections[e] = (WeightedConnection) conn;
+        }
+        for (int e = 0; e < weights.length; e++) {
+            connections[e].setWeight(weights[e]);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Best weights found by {@link WeightOptimizer}, by edge index of {@link MapTopology}, with termination of
+ * the run and evaluation throughput.
+ */
+public class OptimizationResult {
+
+    /**
+     * Why optimization stopped
+     */
+    public enum StopReason {
+        /** Best error &lt;= target error */
+        TARGET_REACHED,
+        /** Max. number of generations executed */
+        MAX_GENERATIONS
+    }
+
+    private final MapTopology topology;
+    private final double[] weights;
+    private final double error;
+    private final StopReason reason;
+    private final int generations;
+    private final long evaluations;
+    private final long evaluationTimeNanos;
+    private final long wallTimeNanos;
+
+    OptimizationResult(MapTopology topology, double[] weights, double error, StopReason reason, int generations,
+            long evaluations, long evaluationTimeNanos, long wallTimeNanos) {
+        this.topology = topology;
+        this.weights = weights;
+        this.error = error;
+        this.reason = reason;
+        this.generations = generations;
+        this.evaluations = evaluations;
+        this.evaluationTimeNanos = evaluationTimeNanos;
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public MapTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * @return best weights by edge index, see {@link MapTopology#getEdgeCount()}; a new array
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * @return error of best weights
+     */
+    public double getError() {
+        return error;
+    }
+
+    /**
+     * Set best weights on the connections of a map, matched by name
+     *
+     * @param map map with the connections of the topology
+     * @throws IllegalArgumentException if a connection is not found, the map is left unchanged
+     */
+    public void applyTo(CognitiveMap map) {
+        LearningResult.applyWeights(topology, weights, map);
+    }
+
+    public StopReason getReason() {
+        return reason;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * @return number of candidates evaluated
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return time spent evaluating candidates, in nanoseconds
+     */
+    public long getEvaluationTimeNanos() {
+        return evaluationTimeNanos;
+    }
+
+    /**
+     * @return elapsed time of the whole run, in nanoseconds
+     */
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    /**
+     * @return candidates evaluated per second of evaluation time
+     */
+    public double getThroughput() {
+        return evaluationTimeNanos == 0 ? Double.NaN : evaluations * 1e9 / evaluationTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return reason + " after " + generations + " generations, error = " + error + ", "
+                + Math.round(getThroughput()) + " candidates/s";
+    }
+}
@@ -0,0 +1,86 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import org.megadix.jfcm.exec.BatchCognitiveMap;
+
+/**
+ * {@link FitnessFunction}: squared error between outputs and a target trajectory, e.g. observed data.
+ * Row 0 of the trajectory is the initial state, following rows are the targets of each epoch; columns
+ * follow concept index (i.e. name) order, <code>Double.NaN</code> values are not set / not compared.
+ * Undefined and NaN outputs count as 0.0.
+ */
+public class TrajectoryError implements FitnessFunction {
+
+    private final double[][] targets;
+
+    /**
+     * @param targets outputs by epoch and concept index, at least two rows; not copied, must not be modified
+     */
+    public TrajectoryError(double[][] targets) {
+        if (targets.length < 2) {
+            throw new IllegalArgumentException("targets must have at least 2 rows");
+        }
+        for (int k = 1; k < targets.length; k++) {
+            if (targets[k].length != targets[0].length) {
+                throw new IllegalArgumentException("targets[" + k + "].length != " + targets[0].length);
+            }
+        }
+        this.targets = targets;
+    }
+
+    public int getEpochs() {
+        return targets.length - 1;
+    }
+
+    public void initialize(BatchCognitiveMap batch, int scenario) {
+        checkSize(batch);
+        double[] initial = targets[0];
+        for (int i = 0; i < initial.length; i++) {
+            if (!Double.isNaN(initial[i])) {
+                batch.setOutput(scenario, i, initial[i]);
+            }
+        }
+    }
+
+    public double error(BatchCognitiveMap batch, int scenario, int epoch) {
+        double[] target = targets[epoch];
+        double error = 0.0;
+        for (int i = 0; i < target.length; i++) {
+            if (!Double.isNaN(target[i])) {
+                double output = batch.getOutput(scenario, i);
+                double d = (Double.isNaN(output) ? 0.0 : output) - target[i];
+                error += d * d;
+            }
+        }
+        return error;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void checkSize(BatchCognitiveMap batch) {
+        if (batch.size() != targets[0].length) {
+            throw new IllegalArgumentException("Map has " + batch.size() + " concepts, targets have "
+                    + targets[0].length);
+        }
+    }
+}
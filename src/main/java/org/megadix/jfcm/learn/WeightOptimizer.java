@@ -0,0 +1,347 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.BatchCognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Fits the weights of a map to a {@link FitnessFunction} with differential evolution (DE/rand/1/bin):
+ * a population of real-coded weight vectors evolves by mutation (difference of two random members, scaled by
+ * {@link #setDifferentialWeight(double) differentialWeight}, added to a third), binomial crossover and
+ * greedy selection.
+ * <p>
+ * Candidates share the compiled topology: a whole population is evaluated as scenarios of
+ * {@link BatchCognitiveMap}s with their own weights, one batch per chunk of the population, chunks run in
+ * parallel by an {@link #setExecutor(ExecutorService) executor}. Random numbers are drawn by the calling
+ * thread only, so results depend on {@link #setSeed(long) seed} and not on parallelism.
+ * </p>
+ */
+public class WeightOptimizer {
+
+    public static final int DEFAULT_POPULATION_SIZE = 40;
+    public static final int DEFAULT_MAX_GENERATIONS = 200;
+    public static final double DEFAULT_DIFFERENTIAL_WEIGHT = 0.5;
+    public static final double DEFAULT_CROSSOVER_RATE = 0.9;
+
+    private final CompiledCognitiveMap compiled;
+    private final MapTopology topology;
+    private final FitnessFunction fitness;
+
+    private int populationSize = DEFAULT_POPULATION_SIZE;
+    private int maxGenerations = DEFAULT_MAX_GENERATIONS;
+    private double differentialWeight = DEFAULT_DIFFERENTIAL_WEIGHT;
+    private double crossoverRate = DEFAULT_CROSSOVER_RATE;
+    private double minWeight = -1.0;
+    private double maxWeight = 1.0;
+    private double targetError = 0.0;
+    private long seed;
+    private ExecutorService executor;
+
+    /**
+     * @param map map to optimize; its current state is the initial state of every candidate, before
+     *            {@link FitnessFunction#initialize(BatchCognitiveMap, int)}
+     * @param fitness error to minimize
+     */
+    public WeightOptimizer(CognitiveMap map, FitnessFunction fitness) {
+        this(MapCompiler.compile(map), fitness);
+    }
+
+    /**
+     * @param compiled compiled map, provides topology, initial weights and initial state
+     * @param fitness error to minimize
+     */
+    public WeightOptimizer(CompiledCognitiveMap compiled, FitnessFunction fitness) {
+        this.compiled = compiled;
+        this.topology = compiled.getTopology();
+        this.fitness = fitness;
+    }
+
+    /**
+     * Run the optimization. The initial population contains the current weights of the map, other members
+     * are uniformly distributed in <code>[minWeight, maxWeight]</code>.
+     *
+     * @return best weights found
+     */
+    public OptimizationResult optimize() {
+        if (populationSize < 4) {
+            throw new IllegalStateException("populationSize must be >= 4");
+        }
+        long startTime = System.nanoTime();
+        Random rnd = new Random(seed);
+        int m = topology.getEdgeCount();
+        Evaluator evaluator = new Evaluator();
+
+        double[][] population = new double[populationSize][];
+        population[0] = topology.getWeights();
+        for (int e = 0; e < m; e++) {
+            population[0][e] = clip(population[0][e]);
+        }
+        for (int p = 1; p < populationSize; p++) {
+            population[p] = new double[m];
+            for (int e = 0; e < m; e++) {
+                population[p][e] = minWeight + rnd.nextDouble() * (maxWeight - minWeight);
+            }
+        }
+        double[] errors = new double[populationSize];
+        evaluator.evaluate(population, errors);
+
+        double[][] trials = new double[populationSize][m];
+        double[] trialErrors = new double[populationSize];
+        int best = best(errors);
+        int generation = 0;
+        while (generation < maxGenerations && !(errors[best] <= targetError)) {
+            for (int p = 0; p < populationSize; p++) {
+                int a = pick(rnd, p, -1, -1);
+                int b = pick(rnd, p, a, -1);
+                int c = pick(rnd, p, a, b);
+                int forced = rnd.nextInt(Math.max(m, 1));
+                for (int e = 0; e < m; e++) {
+                    if (e == forced || rnd.nextDouble() < crossoverRate) {
+                        trials[p][e] = clip(population[a][e] + differentialWeight
+                                * (population[b][e] - population[c][e]));
+                    } else {
+                        trials[p][e] = population[p][e];
+                    }
+                }
+            }
+            evaluator.evaluate(trials, trialErrors);
+
+            for (int p = 0; p < populationSize; p++) {
+                if (trialErrors[p] <= errors[p]) {
+                    double[] tmp = population[p];
+                    population[p] = trials[p];
+                    trials[p] = tmp;
+                    errors[p] = trialErrors[p];
+                }
+            }
+            best = best(errors);
+            generation++;
+        }
+
+        OptimizationResult.StopReason reason = errors[best] <= targetError
+                ? OptimizationResult.StopReason.TARGET_REACHED : OptimizationResult.StopReason.MAX_GENERATIONS;
+        return new OptimizationResult(topology, population[best].clone(), errors[best], reason, generation,
+                evaluator.evaluations, evaluator.evaluationTime, System.nanoTime() - startTime);
+    }
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    /**
+     * @param populationSize number of candidates, at least 4; default {@link #DEFAULT_POPULATION_SIZE}
+     */
+    public void setPopulationSize(int populationSize) {
+        this.populationSize = populationSize;
+    }
+
+    public int getMaxGenerations() {
+        return maxGenerations;
+    }
+
+    /**
+     * @param maxGenerations max. number of generations, default {@link #DEFAULT_MAX_GENERATIONS}
+     */
+    public void setMaxGenerations(int maxGenerations) {
+        this.maxGenerations = maxGenerations;
+    }
+
+    public double getDifferentialWeight() {
+        return differentialWeight;
+    }
+
+    /**
+     * @param differentialWeight mutation scale factor (F), usually in <code>[0.4, 1]</code>; default
+     *            {@link #DEFAULT_DIFFERENTIAL_WEIGHT}
+     */
+    public void setDifferentialWeight(double differentialWeight) {
+        this.differentialWeight = differentialWeight;
+    }
+
+    public double getCrossoverRate() {
+        return crossoverRate;
+    }
+
+    /**
+     * @param crossoverRate probability of taking each weight from the mutant (CR), default
+     *            {@link #DEFAULT_CROSSOVER_RATE}
+     */
+    public void setCrossoverRate(double crossoverRate) {
+        this.crossoverRate = crossoverRate;
+    }
+
+    /**
+     * @param minWeight min. weight, default -1.0
+     * @param maxWeight max. weight, default 1.0
+     */
+    public void setWeightRange(double minWeight, double maxWeight) {
+        if (!(minWeight <= maxWeight)) {
+            throw new IllegalArgumentException("minWeight > maxWeight");
+        }
+        this.minWeight = minWeight;
+        this.maxWeight = maxWeight;
+    }
+
+    public double getTargetError() {
+        return targetError;
+    }
+
+    /**
+     * @param targetError optimization stops when the best error is &lt;= this, default 0.0
+     */
+    public void setTargetError(double targetError) {
+        this.targetError = targetError;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param seed seed of the random number generator, default 0
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor executor used to evaluate chunks of the population in parallel, one per available
+     *            processor; <code>null</code> (default) to evaluate sequentially
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private double clip(double w) {
+        return w < minWeight ? minWeight : (w > maxWeight ? maxWeight : w);
+    }
+
+    private int pick(Random rnd, int x, int y, int z) {
+        int p;
+        do {
+            p = rnd.nextInt(populationSize);
+        } while (p == x || p == y || p == z);
+        return p;
+    }
+
+    private static int best(double[] errors) {
+        int best = 0;
+        for (int p = 1; p < errors.length; p++) {
+            if (errors[p] < errors[best]) {
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Evaluates populations with one {@link BatchCognitiveMap} per chunk, reused by every generation
+     */
+    private final class Evaluator {
+
+        private final BatchCognitiveMap[] batches;
+        private final int[] offsets;
+        private long evaluations;
+        private long evaluationTime;
+
+        Evaluator() {
+            int chunks = executor == null ? 1 : Math.min(populationSize, Runtime.getRuntime().availableProcessors());
+            batches = new BatchCognitiveMap[chunks];
+            offsets = new int[chunks + 1];
+            for (int k = 0; k < chunks; k++) {
+                offsets[k + 1] = (int) ((long) populationSize * (k + 1) / chunks);
+                batches[k] = new BatchCognitiveMap(compiled, offsets[k + 1] - offsets[k]);
+            }
+        }
+
+        void evaluate(final double[][] candidates, final double[] errors) {
+            long start = System.nanoTime();
+            if (batches.length == 1) {
+                evaluate(batches[0], candidates, errors, 0);
+            } else {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (int k = 0; k < batches.length; k++) {
+                    final BatchCognitiveMap batch = batches[k];
+                    final int offset = offsets[k];
+                    tasks.add(new Callable<Void>() {
+                        public Void call() {
+                            evaluate(batch, candidates, errors, offset);
+                            return null;
+                        }
+                    });
+                }
+                try {
+                    for (Future<Void> result : executor.invokeAll(tasks)) {
+                        result.get();
+                    }
+                } catch (InterruptedException iex) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while evaluating candidates", iex);
+                } catch (ExecutionException ex) {
+                    throw new RuntimeException("Error evaluating candidates", ex.getCause());
+                }
+            }
+            evaluations += candidates.length;
+            evaluationTime += System.nanoTime() - start;
+        }
+
+        private void evaluate(BatchCognitiveMap batch, double[][] candidates, double[] errors, int offset) {
+            int count = batch.getScenarioCount();
+            batch.reset();
+            for (int s = 0; s < count; s++) {
+                batch.setWeights(s, candidates[offset + s]);
+                fitness.initialize(batch, s);
+                errors[offset + s] = 0.0;
+            }
+            int epochs = fitness.getEpochs();
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                batch.execute();
+                for (int s = 0; s < count; s++) {
+                    errors[offset + s] += fitness.error(batch, s, epoch);
+                }
+            }
+            for (int s = 0; s < count; s++) {
+                if (Double.isNaN(errors[offset + s])) {
+                    errors[offset + s] = Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+    }
+}
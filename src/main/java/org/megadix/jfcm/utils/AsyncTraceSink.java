@@ -0,0 +1,237 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link TraceSink} that hands snapshots off to a background thread, which writes them to another sink.
+ * <p>
+ * Snapshots are copied into a bounded ring buffer of preallocated arrays, so the simulation thread
+ * never formats or writes data and doesn't allocate; when the buffer is full, behaviour depends on
+ * {@link Backpressure}. {@link #close()} waits until every accepted snapshot has been written, then closes
+ * the target sink. Errors of the background thread are reported by the next call to
+ * {@link #write(int, double[])} or {@link #close()}.
+ * </p>
+ */
+public class AsyncTraceSink implements TraceSink {
+
+    /**
+     * What to do when the buffer is full, or which epochs to accept
+     */
+    public enum Backpressure {
+        /** Wait for a free slot: every epoch is written */
+        BLOCK,
+        /** Discard the snapshot, see {@link AsyncTraceSink#getDroppedCount()} */
+        DROP,
+        /** Accept only every Nth epoch, waiting for a free slot */
+        SAMPLE
+    }
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final TraceSink target;
+    private final int capacity;
+    private final Backpressure backpressure;
+    private final int sampleInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // ring buffer: slots [head, head + count) are waiting to be written
+    private double[][] slots;
+    private int[] iterations;
+    private int head;
+    private int count;
+    private boolean closing;
+    private long droppedCount;
+
+    private Thread worker;
+    private volatile Throwable error;
+
+    public AsyncTraceSink(TraceSink target) {
+        this(target, DEFAULT_CAPACITY, Backpressure.BLOCK, 1);
+    }
+
+    /**
+     * @param target destination sink, used by the background thread only
+     * @param capacity number of snapshots the buffer can hold
+     * @param backpressure behaviour when buffer is full
+     * @param sampleInterval with {@link Backpressure#SAMPLE}, write only epochs multiple of this value
+     */
+    public AsyncTraceSink(TraceSink target, int capacity, Backpressure backpressure, int sampleInterval) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("sampleInterval must be > 0");
+        }
+        this.target = target;
+        this.capacity = capacity;
+        this.backpressure = backpressure;
+        this.sampleInterval = sampleInterval;
+    }
+
+    public void open(String[] conceptNames) throws IOException {
+        target.open(conceptNames);
+
+        slots = new double[capacity][conceptNames.length];
+        iterations = new int[capacity];
+        head = 0;
+        count = 0;
+        closing = false;
+        droppedCount = 0;
+        error = null;
+
+        worker = new Thread(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "jfcm-trace-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void write(int iteration, double[] outputs) throws IOException {
+        checkError();
+        if (backpressure == Backpressure.SAMPLE && iteration % sampleInterval != 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            while (count == capacity) {
+                if (backpressure == Backpressure.DROP) {
+                    droppedCount++;
+                    return;
+                }
+                notFull.await();
+                checkError();
+            }
+            int tail = (head + count) % capacity;
+            System.arraycopy(outputs, 0, slots[tail], 0, outputs.length);
+            iterations[tail] = iteration;
+            count++;
+            notEmpty.signal();
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for trace buffer");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        if (worker != null) {
+            lock.lock();
+            try {
+                closing = true;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while flushing trace buffer");
+            } finally {
+                worker = null;
+            }
+        }
+
+        try {
+            checkError();
+        } finally {
+            target.close();
+        }
+    }
+
+    /**
+     * @return number of snapshots discarded with {@link Backpressure#DROP}
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void drain() {
+        while (true) {
+            int slot;
+            lock.lock();
+            try {
+                while (count == 0 && !closing) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (count == 0) {
+                    return;
+                }
+                slot = head;
+            } finally {
+                lock.unlock();
+            }
+
+            // the slot is not reused by producer until released below
+            try {
+                target.write(iterations[slot], slots[slot]);
+            } catch (Throwable t) {
+                error = t;
+            }
+
+            lock.lock();
+            try {
+                head = (head + 1) % capacity;
+                count--;
+                notFull.signal();
+                if (error != null) {
+                    // stop writing, discard pending snapshots
+                    count = 0;
+                    notFull.signalAll();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void checkError() throws IOException {
+        Throwable t = error;
+        if (t != null) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw new IOException("Error writing trace", t);
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package org.megadix.jfcm.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.megadix.jfcm.CognitiveMap;
 
 /**
- * Basic implementation of {@link org.megadix.jfcm.utils.FcmRunner}
+ * Basic implementation of {@link org.megadix.jfcm.utils.FcmRunner}, with {@link EpochListener}s and
+ * a {@link RunResult} of the last run.
  */
 public abstract class BaseFcmRunner implements FcmRunner {
 
+    private static final EpochListener[] NO_LISTENERS = new EpochListener[0];
+
     protected CognitiveMap map;
     protected int maxEpochs;
 
+    // copy on write, so that iteration doesn't allocate
+    private EpochListener[] listeners = NO_LISTENERS;
+    private boolean recordTrajectory;
+
+    // current run
+    private long startTime;
+    private TrajectoryRecorder trajectory;
+    private RunResult lastResult;
+
     public BaseFcmRunner() {
     }
 
@@ -33,4 +49,113 @@ public abstract class BaseFcmRunner implements FcmRunner {
     public void setMaxEpochs(int maxEpochs) {
         this.maxEpochs = maxEpochs;
     }
+
+    /**
+     * @param listener listener to call after every epoch
+     */
+    public void addEpochListener(EpochListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener == null");
+        }
+        EpochListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    public void removeEpochListener(EpochListener listener) {
+        List<EpochListener> list = new ArrayList<>(Arrays.asList(listeners));
+        if (list.remove(listener)) {
+            listeners = list.toArray(NO_LISTENERS);
+        }
+    }
+
+    /**
+     * Record outputs of every epoch in {@link RunResult#getTrajectory()}; memory grows with
+     * epochs * concepts. Default <code>false</code>.
+     *
+     * @param recordTrajectory <code>true</code> to record trajectories
+     */
+    public void setRecordTrajectory(boolean recordTrajectory) {
+        this.recordTrajectory = recordTrajectory;
+    }
+
+    public boolean isRecordTrajectory() {
+        return recordTrajectory;
+    }
+
+    /**
+     * @return result of last {@link #converge()} or {@link #run()}, <code>null</code> if not run yet
+     *         or if it failed
+     */
+    public RunResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Start timing a run; implementations must call {@link #finishRun(RunResult.StopReason, int, double, int, int)}
+     * when it completes.
+     */
+    protected void startRun() {
+        lastResult = null;
+        trajectory = recordTrajectory ? new TrajectoryRecorder() : null;
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * @return <code>true</code> if {@link #fireEpochCompleted(int, EpochState)} must be called,
+     *         i.e. there are listeners or trajectory is recorded
+     */
+    protected boolean hasEpochListeners() {
+        return listeners.length > 0 || trajectory != null;
+    }
+
+    protected void fireEpochCompleted(int epoch, EpochState state) {
+        EpochListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            current[i].epochCompleted(epoch, state);
+        }
+        if (trajectory != null) {
+            trajectory.epochCompleted(epoch, state);
+        }
+    }
+
+    /**
+     * Store the {@link RunResult} of the current run
+     *
+     * @param reason why computation stopped
+     * @param epochs number of epochs executed
+     * @param averageSquareDelta final average square delta, <code>Double.NaN</code> if not available
+     * @param cycleStart epoch of the first occurrence of a repeated state, -1 if none
+     * @param cycleLength length of the detected cycle, 0 if none
+     */
+    protected void finishRun(RunResult.StopReason reason, int epochs, double averageSquareDelta, int cycleStart,
+            int cycleLength) {
+        long wallTime = System.nanoTime() - startTime;
+        lastResult = new RunResult(reason, epochs, averageSquareDelta, wallTime, cycleStart, cycleLength,
+                trajectory != null ? trajectory.conceptNames : null,
+                trajectory != null ? trajectory.rows.toArray(new double[0][]) : null);
+        trajectory = null;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static final class TrajectoryRecorder implements EpochListener {
+
+        private String[] conceptNames;
+        private final List<double[]> rows = new ArrayList<>();
+
+        public void epochCompleted(int epoch, EpochState state) {
+            if (conceptNames == null) {
+                conceptNames = new String[state.size()];
+                for (int i = 0; i < conceptNames.length; i++) {
+                    conceptNames[i] = state.getConceptName(i);
+                }
+            }
+            double[] row = new double[state.size()];
+            state.getOutputs(row);
+            rows.add(row);
+        }
+    }
 }
@@ -0,0 +1,263 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.BatchCognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+
+/**
+ * Runs many scenarios (initial states) against the same map, with the same convergence test
+ * as {@link SimpleFcmRunner}. Scenarios are executed together by a {@link BatchCognitiveMap},
+ * the map itself is left untouched.
+ * <p>
+ * Initial states are given as matrices with one row per scenario and one column per concept,
+ * following map order (i.e. concept name order, see {@link #indexOf(String)});
+ * {@link #createInitialOutputs(int)} and {@link #createFixedOutputs(int)} return matrices filled
+ * with current map state, ready to be modified.
+ * </p>
+ */
+public class BatchFcmRunner {
+
+    private CognitiveMap map;
+    private double maxDelta;
+    private int maxEpochs;
+    private MapCompiler.Backend backend = MapCompiler.Backend.AUTO;
+
+    public BatchFcmRunner() {
+    }
+
+    public BatchFcmRunner(double maxDelta, int maxEpochs) {
+        this.maxDelta = maxDelta;
+        this.maxEpochs = maxEpochs;
+    }
+
+    public BatchFcmRunner(CognitiveMap map, double maxDelta, int maxEpochs) {
+        this.map = map;
+        this.maxDelta = maxDelta;
+        this.maxEpochs = maxEpochs;
+    }
+
+    /**
+     * @param conceptName name of the concept
+     * @return column of the concept in initial state matrices, -1 if not found
+     */
+    public int indexOf(String conceptName) {
+        checkMap();
+        int index = 0;
+        for (String name : map.getConcepts().keySet()) {
+            if (name.equals(conceptName)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * @param scenarios number of scenarios
+     * @return <code>[scenarios][concepts]</code> matrix of current outputs, <code>Double.NaN</code> if undefined
+     */
+    public double[][] createInitialOutputs(int scenarios) {
+        CompiledCognitiveMap compiled = compile();
+        double[][] outputs = new double[scenarios][compiled.size()];
+        for (int i = 0; i < compiled.size(); i++) {
+            double value = compiled.getOutput(i);
+            for (int s = 0; s < scenarios; s++) {
+                outputs[s][i] = value;
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * @param scenarios number of scenarios
+     * @return <code>[scenarios][concepts]</code> matrix of current fixed output flags
+     */
+    public boolean[][] createFixedOutputs(int scenarios) {
+        CompiledCognitiveMap compiled = compile();
+        boolean[][] fixed = new boolean[scenarios][compiled.size()];
+        for (int i = 0; i < compiled.size(); i++) {
+            boolean value = compiled.isFixedOutput(i);
+            for (int s = 0; s < scenarios; s++) {
+                fixed[s][i] = value;
+            }
+        }
+        return fixed;
+    }
+
+    /**
+     * Run every scenario until its average square delta is &lt;= maxDelta, or maxEpochs is reached.
+     * Converged scenarios are not executed anymore.
+     *
+     * @param initialOutputs <code>[scenarios][concepts]</code> initial outputs, <code>Double.NaN</code> for
+     *            undefined
+     * @param fixedOutputs <code>[scenarios][concepts]</code> fixed output flags, <code>null</code> to keep map
+     *            settings
+     * @return final states
+     */
+    public BatchResult converge(double[][] initialOutputs, boolean[][] fixedOutputs) {
+        return execute(initialOutputs, fixedOutputs, true);
+    }
+
+    /**
+     * Run every scenario for exactly maxEpochs epochs.
+     *
+     * @param initialOutputs <code>[scenarios][concepts]</code> initial outputs, <code>Double.NaN</code> for
+     *            undefined
+     * @param fixedOutputs <code>[scenarios][concepts]</code> fixed output flags, <code>null</code> to keep map
+     *            settings
+     * @return final states
+     */
+    public BatchResult run(double[][] initialOutputs, boolean[][] fixedOutputs) {
+        return execute(initialOutputs, fixedOutputs, false);
+    }
+
+    /* simple set/get */
+
+    public CognitiveMap getMap() {
+        return map;
+    }
+
+    public void setMap(CognitiveMap map) {
+        this.map = map;
+    }
+
+    public double getMaxDelta() {
+        return maxDelta;
+    }
+
+    /**
+     * When average square delta of a scenario is &lt;= maxDelta, its computation stops.
+     *
+     * @param maxDelta max average square delta
+     */
+    public void setMaxDelta(double maxDelta) {
+        this.maxDelta = maxDelta;
+    }
+
+    public int getMaxEpochs() {
+        return maxEpochs;
+    }
+
+    public void setMaxEpochs(int maxEpochs) {
+        this.maxEpochs = maxEpochs;
+    }
+
+    public MapCompiler.Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Weight matrix representation, default is {@link MapCompiler.Backend#AUTO}
+     *
+     * @param backend weight matrix representation
+     */
+    public void setBackend(MapCompiler.Backend backend) {
+        this.backend = backend;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void checkMap() {
+        if (map == null) {
+            throw new IllegalStateException("map == null");
+        }
+    }
+
+    private CompiledCognitiveMap compile() {
+        checkMap();
+        return MapCompiler.compile(map, backend);
+    }
+
+    private BatchResult execute(double[][] initialOutputs, boolean[][] fixedOutputs, boolean converge) {
+        CompiledCognitiveMap compiled = compile();
+        int n = compiled.size();
+        int scenarios = initialOutputs.length;
+        if (fixedOutputs != null && fixedOutputs.length != scenarios) {
+            throw new IllegalArgumentException("fixedOutputs must have " + scenarios + " rows");
+        }
+
+        BatchCognitiveMap batch = new BatchCognitiveMap(compiled, scenarios);
+        for (int s = 0; s < scenarios; s++) {
+            if (initialOutputs[s].length != n) {
+                throw new IllegalArgumentException("initialOutputs[" + s + "] must have " + n + " columns");
+            }
+            if (fixedOutputs != null && fixedOutputs[s].length != n) {
+                throw new IllegalArgumentException("fixedOutputs[" + s + "] must have " + n + " columns");
+            }
+            for (int i = 0; i < n; i++) {
+                double value = initialOutputs[s][i];
+                if (Double.isNaN(value)) {
+                    batch.clearOutput(s, i);
+                } else {
+                    batch.setOutput(s, i, value);
+                }
+                if (fixedOutputs != null) {
+                    batch.setFixedOutput(s, i, fixedOutputs[s][i]);
+                }
+            }
+        }
+
+        int[] epochs = new int[scenarios];
+        double[] deltas = new double[scenarios];
+        boolean[] active = new boolean[scenarios];
+        int remaining = 0;
+
+        batch.calculateAverageSquareDeltas(deltas);
+        for (int s = 0; s < scenarios; s++) {
+            active[s] = !converge || !isConverged(deltas[s]);
+            if (active[s]) {
+                remaining++;
+            }
+        }
+
+        for (int epoch = 0; epoch < maxEpochs && remaining > 0; epoch++) {
+            batch.execute(active);
+            batch.calculateAverageSquareDeltas(deltas);
+            for (int s = 0; s < scenarios; s++) {
+                if (active[s]) {
+                    epochs[s]++;
+                    if (converge && isConverged(deltas[s])) {
+                        active[s] = false;
+                        remaining--;
+                    }
+                }
+            }
+        }
+
+        double[][] outputs = new double[scenarios][n];
+        boolean[] converged = new boolean[scenarios];
+        for (int s = 0; s < scenarios; s++) {
+            for (int i = 0; i < n; i++) {
+                outputs[s][i] = batch.getOutput(s, i);
+            }
+            converged[s] = deltas[s] <= maxDelta;
+        }
+
+        return new BatchResult(compiled.getTopology(), outputs, epochs, converged, deltas);
+    }
+
+    private boolean isConverged(double delta) {
+        return !(Double.isNaN(delta) || Double.isInfinite(delta) || delta > maxDelta);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Outcome of a {@link BatchFcmRunner} execution: final state, number of executed epochs
+ * and convergence flag of every scenario.
+ */
+public class BatchResult {
+
+    private final MapTopology topology;
+    private final double[][] outputs;
+    private final int[] epochs;
+    private final boolean[] converged;
+    private final double[] averageSquareDeltas;
+
+    BatchResult(MapTopology topology, double[][] outputs, int[] epochs, boolean[] converged,
+            double[] averageSquareDeltas) {
+        this.topology = topology;
+        this.outputs = outputs;
+        this.epochs = epochs;
+        this.converged = converged;
+        this.averageSquareDeltas = averageSquareDeltas;
+    }
+
+    public int getScenarioCount() {
+        return outputs.length;
+    }
+
+    /**
+     * @param conceptName name of the concept
+     * @return column of the concept in {@link #getOutputs(int)}, -1 if not found
+     */
+    public int indexOf(String conceptName) {
+        return topology.indexOf(conceptName);
+    }
+
+    /**
+     * @param scenario scenario index
+     * @return final outputs, by concept index; <code>Double.NaN</code> for undefined outputs
+     */
+    public double[] getOutputs(int scenario) {
+        return outputs[scenario];
+    }
+
+    public double getOutput(int scenario, String conceptName) {
+        int index = topology.indexOf(conceptName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Concept not found: " + conceptName);
+        }
+        return outputs[scenario][index];
+    }
+
+    /**
+     * @param scenario scenario index
+     * @return number of epochs executed
+     */
+    public int getEpochs(int scenario) {
+        return epochs[scenario];
+    }
+
+    /**
+     * @param scenario scenario index
+     * @return <code>true</code> if final average square delta is &lt;= max delta
+     */
+    public boolean isConverged(int scenario) {
+        return converged[scenario];
+    }
+
+    /**
+     * @param scenario scenario index
+     * @return final average square delta, <code>Double.NaN</code> if not available
+     */
+    public double getAverageSquareDelta(int scenario) {
+        return averageSquareDeltas[scenario];
+    }
+}
@@ -0,0 +1,168 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+
+/**
+ * {@link FcmRunner} with the same convergence test as {@link SimpleFcmRunner}, that compiles
+ * the map with {@link MapCompiler} before running it and writes final state back to the map.
+ * Doesn't support CSV output, use {@link EpochListener}s instead.
+ */
+public class CompiledFcmRunner extends BaseFcmRunner {
+
+    private double maxDelta;
+    private MapCompiler.Backend backend = MapCompiler.Backend.AUTO;
+    private CompiledCognitiveMap compiled;
+
+    public CompiledFcmRunner() {
+    }
+
+    public CompiledFcmRunner(CognitiveMap map, int maxEpochs) {
+        super(map, maxEpochs);
+    }
+
+    public CompiledFcmRunner(double maxDelta, int maxEpochs) {
+        super(maxEpochs);
+        this.maxDelta = maxDelta;
+    }
+
+    public CompiledFcmRunner(CognitiveMap map, double maxDelta, int maxEpochs) {
+        super(map, maxEpochs);
+        this.maxDelta = maxDelta;
+    }
+
+    /**
+     * When average square delta &lt;= maxDelta, computation stops.
+     *
+     * @param maxDelta max average square delta
+     */
+    public void setMaxDelta(double maxDelta) {
+        this.maxDelta = maxDelta;
+    }
+
+    /**
+     * Weight matrix representation, default is {@link MapCompiler.Backend#AUTO}
+     *
+     * @param backend weight matrix representation
+     */
+    public void setBackend(MapCompiler.Backend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * @return map compiled by last {@link #converge()} or {@link #run()}
+     */
+    public CompiledCognitiveMap getCompiledMap() {
+        return compiled;
+    }
+
+    public boolean converge() {
+        if (map == null) {
+            throw new IllegalStateException("map == null");
+        }
+
+        startRun();
+        compiled = MapCompiler.compile(map, backend);
+        CompiledState state = hasEpochListeners() ? new CompiledState(compiled) : null;
+
+        double delta = compiled.calculateAverageSquareDelta();
+        if (state != null) {
+            fireEpochCompleted(0, state);
+        }
+        int i = 0;
+        while ((Double.isNaN(delta) || Double.isInfinite(delta) || delta > maxDelta) && i < maxEpochs) {
+            compiled.execute();
+            delta = compiled.calculateAverageSquareDelta();
+            i++;
+            if (state != null) {
+                fireEpochCompleted(i, state);
+            }
+        }
+
+        compiled.writeTo(map);
+
+        boolean converged = delta <= maxDelta;
+        finishRun(converged ? RunResult.StopReason.CONVERGED : RunResult.StopReason.MAX_EPOCHS, i, delta, -1, 0);
+        return converged;
+    }
+
+    public void run() {
+        if (map == null) {
+            throw new IllegalStateException("map == null");
+        }
+
+        startRun();
+        compiled = MapCompiler.compile(map, backend);
+        CompiledState state = hasEpochListeners() ? new CompiledState(compiled) : null;
+
+        if (state != null) {
+            compiled.calculateAverageSquareDelta();
+            fireEpochCompleted(0, state);
+        }
+        for (int i = 0; i < maxEpochs; i++) {
+            compiled.execute();
+            if (state != null) {
+                compiled.calculateAverageSquareDelta();
+                fireEpochCompleted(i + 1, state);
+            }
+        }
+
+        compiled.writeTo(map);
+
+        finishRun(RunResult.StopReason.MAX_EPOCHS, maxEpochs, compiled.calculateAverageSquareDelta(), -1, 0);
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static final class CompiledState implements EpochState {
+
+        private final CompiledCognitiveMap compiled;
+
+        CompiledState(CompiledCognitiveMap compiled) {
+            this.compiled = compiled;
+        }
+
+        public int size() {
+            return compiled.size();
+        }
+
+        public String getConceptName(int index) {
+            return compiled.getTopology().getConceptName(index);
+        }
+
+        public double getOutput(int index) {
+            return compiled.getOutput(index);
+        }
+
+        public void getOutputs(double[] dest) {
+            for (int i = 0; i < compiled.size(); i++) {
+                dest[i] = compiled.getOutput(i);
+            }
+        }
+
+        public double getAverageSquareDelta() {
+            return compiled.getAverageSquareDelta();
+        }
+    }
+}
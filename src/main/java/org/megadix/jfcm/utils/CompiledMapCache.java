@@ -0,0 +1,205 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.megadix.jfcm.exec.MapModel;
+
+/**
+ * Cache of compiled maps ({@link MapModel}), keyed by map content ({@link ContentHashVisitor}): maps loaded
+ * again and again, e.g. by {@link FcmIO#loadXml(String)} on every request, are compiled only once.
+ * <p>
+ * Least recently used models are evicted when the estimated size of cached models
+ * ({@link MapModel#estimateMemory()}) exceeds a memory budget. Hits, misses and evictions are counted.
+ * Thread-safe; models are immutable and can be shared, see {@link MapModel}: they hold copies of the
+ * activators, so changing the activators of a map after {@link #get(CognitiveMap)} does not affect hits.
+ * </p>
+ */
+public class CompiledMapCache {
+
+    /**
+     * Default memory budget, 64 MB
+     */
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    private final long maxMemory;
+    private final MapCompiler.Backend backend;
+
+    // access-ordered: eldest entry is the least recently used
+    private final LinkedHashMap<String, MapModel> models = new LinkedHashMap<>(16, 0.75f, true);
+    private long memory;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CompiledMapCache() {
+        this(DEFAULT_MAX_MEMORY);
+    }
+
+    /**
+     * @param maxMemory memory budget in bytes
+     */
+    public CompiledMapCache(long maxMemory) {
+        this(maxMemory, MapCompiler.Backend.AUTO);
+    }
+
+    /**
+     * @param maxMemory memory budget in bytes
+     * @param backend weight matrix representation of compiled maps
+     */
+    public CompiledMapCache(long maxMemory, MapCompiler.Backend backend) {
+        if (maxMemory < 0) {
+            throw new IllegalArgumentException("maxMemory < 0");
+        }
+        if (backend == null) {
+            throw new IllegalArgumentException("backend == null");
+        }
+        this.maxMemory = maxMemory;
+        this.backend = backend;
+    }
+
+    /**
+     * Get the compiled model of a map, compiling and caching it if not found.
+     * Models larger than the whole memory budget, or of maps with activators that are not built-in classes
+     * (see {@link ContentHashVisitor#hasBuiltInActivators(CognitiveMap)}), are returned but not cached.
+     *
+     * @param map map to compile, its current state becomes initial state of sessions
+     * @return compiled model
+     */
+    public MapModel get(CognitiveMap map) {
+        if (!ContentHashVisitor.hasBuiltInActivators(map)) {
+            synchronized (this) {
+                misses++;
+            }
+            return new MapModel(map, backend);
+        }
+
+        String hash = ContentHashVisitor.hash(map);
+        synchronized (this) {
+            MapModel model = models.get(hash);
+            if (model != null) {
+                hits++;
+                return model;
+            }
+            misses++;
+        }
+
+        // compile outside the lock, concurrent misses on the same map may compile it twice
+        MapModel model = new MapModel(map, backend);
+        synchronized (this) {
+            MapModel existing = models.get(hash);
+            if (existing != null) {
+                return existing;
+            }
+            long size = model.estimateMemory();
+            if (size <= maxMemory) {
+                models.put(hash, model);
+                memory += size;
+                evict();
+            }
+        }
+        return model;
+    }
+
+    /**
+     * @param hash content hash, see {@link ContentHashVisitor#hash(CognitiveMap)}
+     * @return cached model, <code>null</code> if not found
+     */
+    public synchronized MapModel getIfPresent(String hash) {
+        MapModel model = models.get(hash);
+        if (model != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return model;
+    }
+
+    /**
+     * @param hash content hash, see {@link ContentHashVisitor#hash(CognitiveMap)}
+     * @return <code>true</code> if a model was removed
+     */
+    public synchronized boolean invalidate(String hash) {
+        MapModel model = models.remove(hash);
+        if (model == null) {
+            return false;
+        }
+        memory -= model.estimateMemory();
+        return true;
+    }
+
+    /**
+     * Remove all models, counters are not reset
+     */
+    public synchronized void clear() {
+        models.clear();
+        memory = 0;
+    }
+
+    /**
+     * @return number of cached models
+     */
+    public synchronized int size() {
+        return models.size();
+    }
+
+    /**
+     * @return estimated size of cached models in bytes
+     */
+    public synchronized long getMemory() {
+        return memory;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void evict() {
+        Iterator<Map.Entry<String, MapModel>> iter = models.entrySet().iterator();
+        while (memory > maxMemory && iter.hasNext()) {
+            MapModel model = iter.next().getValue();
+            iter.remove();
+            memory -= model.estimateMemory();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.megadix.jfcm.*;
+import org.megadix.jfcm.act.*;
+import org.megadix.jfcm.conn.WeightedConnection;
+
+/**
+ * {@link Visitor} that computes a SHA-256 hash of the content of visited maps: names, activators and their
+ * parameters, connections with weights and delays, inputs, current and previous outputs, fixed outputs.
+ * Descriptions are ignored, so maps with the same hash compile to equivalent
+ * {@link org.megadix.jfcm.exec.CompiledCognitiveMap}s, provided all activators are built-in classes (see
+ * {@link #hasBuiltInActivators(CognitiveMap)}): the state of subclasses is not known, two instances with
+ * the same class name and built-in parameters may behave differently.
+ */
+public class ContentHashVisitor extends BaseVisitor {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Set<Class<?>> BUILT_IN_ACTIVATORS = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+            CauchyActivator.class, GaussianActivator.class, HyperbolicTangentActivator.class,
+            IntervalActivator.class, LinearActivator.class, NaryActivator.class, SigmoidActivator.class,
+            SignumActivator.class));
+
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[8];
+    private final Map<String, String> params = new LinkedHashMap<>();
+
+    public ContentHashVisitor() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /**
+     * Hash the content of a single map
+     *
+     * @param map map to hash
+     * @return hex-encoded hash, see {@link #getHash()}
+     * @throws IllegalArgumentException if map contains unsupported activators
+     */
+    public static String hash(CognitiveMap map) {
+        ContentHashVisitor visitor = new ContentHashVisitor();
+        map.accept(visitor);
+        return visitor.getHash();
+    }
+
+    /**
+     * @param map map to check
+     * @return <code>true</code> if the activator of every concept is <code>null</code> or exactly a built-in
+     *         class, i.e. equal hashes imply equivalent maps
+     */
+    public static boolean hasBuiltInActivators(CognitiveMap map) {
+        Iterator<Concept> iter = map.getConceptsIterator();
+        while (iter.hasNext()) {
+            ConceptActivator act = iter.next().getConceptActivator();
+            if (act != null && !BUILT_IN_ACTIVATORS.contains(act.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean visitCognitiveMap(CognitiveMap _map) {
+        super.visitCognitiveMap(_map);
+        update('M');
+        update(map.getName());
+        return true;
+    }
+
+    public boolean visitConcept(Concept _concept) {
+        super.visitConcept(_concept);
+        update('C');
+        update(concept.getName());
+        update(concept.hasInput());
+        if (concept.hasInput()) {
+            update(concept.getInputAsDouble());
+        }
+        update(concept.hasOutput());
+        if (concept.hasOutput()) {
+            update(concept.getOutputAsDouble());
+        }
+        update(concept.hasPrevOutput());
+        if (concept.hasPrevOutput()) {
+            update(concept.getPrevOutputAsDouble());
+        }
+        update(concept.isFixedOutput());
+        if (concept.getConceptActivator() == null) {
+            update('-');
+        }
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if activator is not supported by
+     *                                  {@link StreamingXmlVisitor#describeActivator(ConceptActivator, Map)}
+     */
+    public boolean visitConceptActivator(ConceptActivator _activator) {
+        super.visitConceptActivator(_activator);
+        params.clear();
+        update('A');
+        // subclasses of built-in activators are described as their parent
+        update(activator.getClass().getName());
+        update(StreamingXmlVisitor.describeActivator(activator, params));
+        update(params.size());
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            update(param.getKey());
+            update(param.getValue());
+        }
+        return true;
+    }
+
+    public boolean visitConnection(FcmConnection _connection) {
+        super.visitConnection(_connection);
+        if (!(connection instanceof WeightedConnection)) {
+            throw new UnsupportedOperationException("FcmConnection implementation not supported: "
+                    + connection.getClass().getName());
+        }
+        WeightedConnection wc = (WeightedConnection) connection;
+        update('W');
+        update(connection.getName());
+        update(connection.getFrom() != null ? connection.getFrom().getName() : null);
+        update(connection.getTo() != null ? connection.getTo().getName() : null);
+        update(wc.getWeight());
+        update(wc.getDelay());
+        return true;
+    }
+
+    /**
+     * Complete the hash of maps visited so far and start a new one
+     *
+     * @return hex-encoded SHA-256 hash
+     */
+    public String getHash() {
+        byte[] hash = digest.digest();
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void update(char tag) {
+        digest.update((byte) tag);
+    }
+
+    private void update(boolean value) {
+        digest.update((byte) (value ? 1 : 0));
+    }
+
+    private void update(int value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[i] = (byte) (value >>> (24 - 8 * i));
+        }
+        digest.update(buffer, 0, 4);
+    }
+
+    private void update(double value) {
+        long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            buffer[i] = (byte) (bits >>> (56 - 8 * i));
+        }
+        digest.update(buffer, 0, 8);
+    }
+
+    // length-prefixed, so that consecutive strings can't be confused
+    private void update(String value) {
+        if (value == null) {
+            update(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        update(bytes.length);
+        digest.update(bytes);
+    }
+}
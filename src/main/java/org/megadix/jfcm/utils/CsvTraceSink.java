@@ -0,0 +1,119 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * {@link TraceSink} writing CSV: a header row with <code>"iteration"</code> and concept names,
+ * then one row per epoch; undefined, NaN and infinite outputs are written as empty values.
+ */
+public class CsvTraceSink implements TraceSink {
+
+    private final String fileName;
+    private final Charset charset;
+    private Writer writer;
+    private final StringBuilder row = new StringBuilder(256);
+
+    /**
+     * Write to a file, replacing it if it already exists; the file is created by {@link #open(String[])}.
+     *
+     * @param fileName path of csv output file
+     * @param charset charset to use
+     */
+    public CsvTraceSink(String fileName, Charset charset) {
+        this.fileName = fileName;
+        this.charset = charset;
+    }
+
+    /**
+     * @param writer destination, closed by {@link #close()}
+     */
+    public CsvTraceSink(Writer writer) {
+        this.fileName = null;
+        this.charset = null;
+        this.writer = writer;
+    }
+
+    public void open(String[] conceptNames) throws IOException {
+        if (fileName != null) {
+            writer = new BufferedWriter(new OutputStreamWriter(new BufferedOutputStream(
+                    new FileOutputStream(createFile())), charset));
+        }
+
+        row.setLength(0);
+        row.append("\"iteration\"");
+        for (String conceptName : conceptNames) {
+            row.append(",\"").append(conceptName.replaceAll("\"", "\"\"")).append('"');
+        }
+        row.append('\n');
+        writer.write(row.toString());
+    }
+
+    public void write(int iteration, double[] outputs) throws IOException {
+        row.setLength(0);
+        row.append(iteration);
+        for (double output : outputs) {
+            row.append(',');
+            if (!Double.isNaN(output) && !Double.isInfinite(output)) {
+                row.append(output);
+            }
+        }
+        row.append('\n');
+        writer.write(row.toString());
+    }
+
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    private File createFile() throws IOException {
+        Path path = Paths.get(fileName);
+        File file = path.toFile();
+
+        if (file.exists()) {
+            if (file.isDirectory()) {
+                throw new IllegalArgumentException("CSV output \"" + path.toAbsolutePath() + "\" is a directory");
+            } else if (!file.canWrite()) {
+                throw new IllegalArgumentException("Cannot write to CSV output file: \"" + path.toAbsolutePath());
+            }
+            // delete old file
+            if (!file.delete()) {
+                throw new IOException("Cannot delete file: " + path.toAbsolutePath());
+            }
+        } else if (file.getAbsoluteFile().getParentFile() != null && !file.getAbsoluteFile().getParentFile().exists()) {
+            // create parent directory if necessary
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        }
+
+        if (!file.createNewFile()) {
+            throw new IOException("Cannot create file: " + path.toAbsolutePath());
+        }
+        return file;
+    }
+}
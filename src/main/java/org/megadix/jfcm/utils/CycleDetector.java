@@ -0,0 +1,142 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import java.util.Arrays;
+
+/**
+ * Detects repeated states of a deterministic map: keeps the state vectors of the last <code>historySize</code>
+ * epochs in a ring, so cycles up to that length are detected as soon as they close. States are stored as
+ * {@link #key(double) keys} of concept outputs, with a 64-bit hash each: hashes select candidates, states
+ * are compared to confirm a repeat. Memory is <code>historySize</code> &times; concepts longs.
+ */
+final class CycleDetector {
+
+    private static final long UNDEFINED = 0x7ff80000deadbeefL;
+
+    private final long[][] states;
+    private final long[] hashes;
+    private final int[] epochs;
+    private final double quantum;
+    private int pos;
+    private int fill;
+    private int cycleStart = -1;
+
+    /**
+     * @param historySize number of remembered states, i.e. max. cycle length
+     * @param quantum states are compared after rounding to multiples of <code>quantum</code>,
+     *                0.0 to compare exact values
+     */
+    CycleDetector(int historySize, double quantum) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("historySize <= 0");
+        }
+        if (!(quantum >= 0.0) || Double.isInfinite(quantum)) {
+            throw new IllegalArgumentException("Invalid quantum: " + quantum);
+        }
+        this.states = new long[historySize][];
+        this.hashes = new long[historySize];
+        this.epochs = new int[historySize];
+        this.quantum = quantum;
+    }
+
+    void reset() {
+        pos = 0;
+        fill = 0;
+        cycleStart = -1;
+    }
+
+    /**
+     * Comparison key of an output: outputs with the same key are the same state
+     *
+     * @param value output of a concept, <code>Double.NaN</code> if undefined
+     * @return key
+     */
+    long key(double value) {
+        if (Double.isNaN(value)) {
+            return UNDEFINED;
+        } else if (quantum > 0.0 && !Double.isInfinite(value)) {
+            return Math.round(value / quantum);
+        } else {
+            // +0.0 and -0.0 are the same output
+            return Double.doubleToLongBits(value + 0.0);
+        }
+    }
+
+    /**
+     * Record the state of an epoch
+     *
+     * @param epoch epoch number, increasing
+     * @param state keys of concept outputs, see {@link #key(double)}; copied
+     * @return length of the cycle if the same state was seen in one of the last <code>historySize</code>
+     *         epochs (1 for a fixed point), 0 otherwise
+     */
+    int add(int epoch, long[] state) {
+        long hash = hash(state);
+        // most recent first, to report the shortest cycle
+        for (int k = 1; k <= fill; k++) {
+            int i = (pos - k + hashes.length) % hashes.length;
+            if (hashes[i] == hash && Arrays.equals(states[i], state)) {
+                cycleStart = epochs[i];
+                return epoch - epochs[i];
+            }
+        }
+        if (states[pos] == null || states[pos].length != state.length) {
+            states[pos] = new long[state.length];
+        }
+        System.arraycopy(state, 0, states[pos], 0, state.length);
+        hashes[pos] = hash;
+        epochs[pos] = epoch;
+        pos = (pos + 1) % hashes.length;
+        if (fill < hashes.length) {
+            fill++;
+        }
+        return 0;
+    }
+
+    /**
+     * @return epoch of the first occurrence of the repeated state, -1 if no cycle was detected
+     */
+    int getCycleStart() {
+        return cycleStart;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static long hash(long[] state) {
+        long hash = 0x9e3779b97f4a7c15L;
+        for (long key : state) {
+            hash = mix(hash * 31 + key);
+        }
+        return hash;
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe51a85b9L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
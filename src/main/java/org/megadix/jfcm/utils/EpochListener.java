@@ -0,0 +1,35 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+/**
+ * Receives the state of a map run by a {@link BaseFcmRunner} after every epoch, e.g. to stream trajectories
+ * to custom destinations without CSV files.
+ */
+public interface EpochListener {
+
+    /**
+     * Called with epoch 0 (initial state) before the first epoch, then after every epoch.
+     *
+     * @param epoch number of epochs executed
+     * @param state read-only view of the map, valid only during the call
+     */
+    void epochCompleted(int epoch, EpochState state);
+}
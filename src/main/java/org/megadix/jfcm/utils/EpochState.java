@@ -0,0 +1,56 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+/**
+ * Read-only view of the state of a running map, passed to {@link EpochListener}s.
+ * The same instance is reused for every epoch of a run.
+ */
+public interface EpochState {
+
+    /**
+     * @return number of concepts
+     */
+    int size();
+
+    /**
+     * @param index concept index, concepts are sorted by name
+     * @return name of the concept
+     */
+    String getConceptName(int index);
+
+    /**
+     * @param index concept index
+     * @return output of the concept, <code>Double.NaN</code> if undefined
+     */
+    double getOutput(int index);
+
+    /**
+     * Copy outputs of all concepts
+     *
+     * @param dest destination, at least {@link #size()} elements; <code>Double.NaN</code> for undefined outputs
+     */
+    void getOutputs(double[] dest);
+
+    /**
+     * @return average square delta of the last epoch, <code>Double.NaN</code> if not available
+     */
+    double getAverageSquareDelta();
+}
@@ -0,0 +1,562 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.*;
+
+import org.megadix.jfcm.*;
+import org.megadix.jfcm.act.*;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Compact binary map format, see {@link FcmIO#saveBinary(CognitiveMap, OutputStream)}.
+ * All values are big-endian, arrays are stored column by column so that they can be bulk-copied:
+ *
+ * <pre>
+ * int      magic "JFCM", int version
+ * int      string count S, int[S + 1] offsets, byte[offsets[S]] UTF-8 data
+ * int      map name, int map description               (string indices, -1 for null)
+ * int      concept count N
+ * int[N]   names, int[N] descriptions
+ * byte[N]  activator types (0 = none, else Constants.ConceptActivatorTypes ordinal + 1)
+ * byte[N]  flags (input defined, output defined, fixed output, include previous output)
+ * double[N] thresholds, double[N * 3] activator parameters, double[N] inputs, double[N] outputs
+ * int      connection count M
+ * int[M]   names, int[M] descriptions, int[M] from, int[M] to (concept indices, -1 if not connected)
+ * int[M]   delays, double[M] weights
+ * </pre>
+ */
+final class FcmBinary {
+
+    static final int MAGIC = 0x4A46434D;
+    static final int VERSION = 1;
+
+    static final int FLAG_INPUT = 1;
+    static final int FLAG_OUTPUT = 2;
+    static final int FLAG_FIXED = 4;
+    static final int FLAG_INCLUDE_PREVIOUS_OUTPUT = 8;
+
+    static final int ACT_PARAMS = 3;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Constants.ConceptActivatorTypes[] ACT_TYPES = Constants.ConceptActivatorTypes.values();
+
+    private FcmBinary() {
+        // prevents calls
+        throw new UnsupportedOperationException();
+    }
+
+    /*
+     * write
+     */
+
+    static void write(CognitiveMap map, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndices = new HashMap<>();
+
+        int n = map.getConcepts().size();
+        // by identity: Concept.equals() compares names, a foreign concept would match one of the map
+        Map<Concept, Integer> conceptIndices = new IdentityHashMap<>(n * 2);
+        int[] conceptNames = new int[n];
+        int[] conceptDescriptions = new int[n];
+        byte[] actTypes = new byte[n];
+        byte[] flags = new byte[n];
+        double[] thresholds = new double[n];
+        double[] actParams = new double[n * ACT_PARAMS];
+        double[] inputs = new double[n];
+        double[] outputs = new double[n];
+
+        int i = 0;
+        for (Concept c : map.getConcepts().values()) {
+            conceptIndices.put(c, i);
+            conceptNames[i] = intern(c.getName(), strings, stringIndices);
+            conceptDescriptions[i] = intern(c.getDescription(), strings, stringIndices);
+            int f = 0;
+            if (c.hasInput()) {
+                f |= FLAG_INPUT;
+                inputs[i] = c.getInputAsDouble();
+            }
+            if (c.hasOutput()) {
+                f |= FLAG_OUTPUT;
+                outputs[i] = c.getOutputAsDouble();
+            }
+            if (c.isFixedOutput()) {
+                f |= FLAG_FIXED;
+            }
+            ConceptActivator act = c.getConceptActivator();
+            if (act != null) {
+                if (!(act instanceof BaseConceptActivator)) {
+                    throw new IllegalArgumentException("Unsupported ConceptActivator: " + act.getClass().getName());
+                }
+                BaseConceptActivator baseAct = (BaseConceptActivator) act;
+                if (baseAct.isIncludePreviousOutput()) {
+                    f |= FLAG_INCLUDE_PREVIOUS_OUTPUT;
+                }
+                thresholds[i] = baseAct.getThreshold();
+                actTypes[i] = (byte) (encodeActivator(baseAct, actParams, i * ACT_PARAMS).ordinal() + 1);
+            }
+            flags[i] = (byte) f;
+            i++;
+        }
+
+        int m = map.getConnections().size();
+        int[] connNames = new int[m];
+        int[] connDescriptions = new int[m];
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int[] delays = new int[m];
+        double[] weights = new double[m];
+
+        int e = 0;
+        for (FcmConnection conn : map.getConnections().values()) {
+            if (!(conn instanceof WeightedConnection)) {
+                throw new UnsupportedOperationException("FcmConnection implementation not supported: "
+                        + conn.getClass().getName());
+            }
+            WeightedConnection wConn = (WeightedConnection) conn;
+            connNames[e] = intern(conn.getName(), strings, stringIndices);
+            connDescriptions[e] = intern(conn.getDescription(), strings, stringIndices);
+            from[e] = indexOf(conceptIndices, conn, conn.getFrom());
+            to[e] = indexOf(conceptIndices, conn, conn.getTo());
+            delays[e] = wConn.getDelay();
+            weights[e] = wConn.getWeight();
+            e++;
+        }
+
+        int mapName = intern(map.getName(), strings, stringIndices);
+        int mapDescription = intern(map.getDescription(), strings, stringIndices);
+
+        // header
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        // string table
+        byte[][] encoded = new byte[strings.size()][];
+        int offset = 0;
+        out.writeInt(strings.size());
+        out.writeInt(0);
+        for (int s = 0; s < encoded.length; s++) {
+            encoded[s] = strings.get(s).getBytes(UTF_8);
+            offset += encoded[s].length;
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+
+        out.writeInt(mapName);
+        out.writeInt(mapDescription);
+
+        // concepts
+        out.writeInt(n);
+        writeInts(out, conceptNames);
+        writeInts(out, conceptDescriptions);
+        out.write(actTypes);
+        out.write(flags);
+        writeDoubles(out, thresholds);
+        writeDoubles(out, actParams);
+        writeDoubles(out, inputs);
+        writeDoubles(out, outputs);
+
+        // connections
+        out.writeInt(m);
+        writeInts(out, connNames);
+        writeInts(out, connDescriptions);
+        writeInts(out, from);
+        writeInts(out, to);
+        writeInts(out, delays);
+        writeDoubles(out, weights);
+
+        out.flush();
+    }
+
+    /*
+     * read
+     */
+
+    /**
+     * Build a {@link CognitiveMap}
+     */
+    static CognitiveMap readMap(ByteBuffer buffer) throws ParseException {
+        Data data = new Data(buffer, true);
+
+        CognitiveMap map = new CognitiveMap(data.string(data.mapName));
+        map.setDescription(data.string(data.mapDescription));
+
+        Concept[] concepts = new Concept[data.n];
+        for (int i = 0; i < data.n; i++) {
+            int f = data.flags[i];
+            Concept c = new Concept(data.string(data.conceptNames[i]), data.string(data.conceptDescriptions[i]),
+                    data.activator(i), null, null, (f & FLAG_FIXED) != 0);
+            if ((f & FLAG_INPUT) != 0) {
+                c.setInput(data.inputs[i]);
+            }
+            if ((f & FLAG_OUTPUT) != 0) {
+                c.setOutput(data.outputs[i]);
+            }
+            concepts[i] = c;
+            map.addConcept(c);
+        }
+
+        for (int e = 0; e < data.m; e++) {
+            WeightedConnection conn = new WeightedConnection(data.string(data.connNames[e]),
+                    data.string(data.connDescriptions[e]), data.weights[e], data.delays[e]);
+            map.addConnection(conn);
+            if (data.from[e] >= 0) {
+                concepts[data.from[e]].connectOutputTo(conn);
+            }
+            if (data.to[e] >= 0) {
+                conn.connectOutputTo(concepts[data.to[e]]);
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Build a {@link CompiledCognitiveMap} directly from arrays, without {@link Concept} and
+     * {@link FcmConnection} objects
+     */
+    static CompiledCognitiveMap readCompiled(ByteBuffer buffer, MapCompiler.Backend backend) throws ParseException {
+        Data data = new Data(buffer, false);
+
+        String[] conceptNames = new String[data.n];
+        BaseConceptActivator[] activators = new BaseConceptActivator[data.n];
+        for (int i = 0; i < data.n; i++) {
+            conceptNames[i] = data.string(data.conceptNames[i]);
+            activators[i] = data.activator(i);
+        }
+
+        MapTopology topology;
+        try {
+            topology = MapCompiler.compileTopology(data.string(data.mapName), conceptNames, activators, null,
+                    data.from, data.to, data.weights, data.delays);
+        } catch (IllegalArgumentException ex) {
+            ParseException pex = new ParseException("Invalid JFCM binary map: " + ex.getMessage(), 0);
+            pex.initCause(ex);
+            throw pex;
+        }
+        CompiledCognitiveMap compiled = MapCompiler.newInstance(topology, backend);
+        for (int i = 0; i < data.n; i++) {
+            int f = data.flags[i];
+            if ((f & FLAG_OUTPUT) != 0) {
+                compiled.setOutput(i, data.outputs[i]);
+            }
+            compiled.setFixedOutput(i, (f & FLAG_FIXED) != 0);
+        }
+
+        return compiled;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static int indexOf(Map<Concept, Integer> indices, FcmConnection conn, Concept concept) {
+        if (concept == null) {
+            return -1;
+        }
+        Integer index = indices.get(concept);
+        if (index == null) {
+            throw new IllegalArgumentException("Connection " + conn.getName() + " is connected to concept "
+                    + concept.getName() + ", not in the map");
+        }
+        return index;
+    }
+
+    private static int intern(String s, List<String> strings, Map<String, Integer> indices) {
+        if (s == null) {
+            return -1;
+        }
+        Integer index = indices.get(s);
+        if (index == null) {
+            index = strings.size();
+            strings.add(s);
+            indices.put(s, index);
+        }
+        return index;
+    }
+
+    private static Constants.ConceptActivatorTypes encodeActivator(BaseConceptActivator act, double[] params,
+            int offset) {
+        if (act instanceof CauchyActivator) {
+            return Constants.ConceptActivatorTypes.CAUCHY;
+
+        } else if (act instanceof GaussianActivator) {
+            GaussianActivator actImpl = (GaussianActivator) act;
+            params[offset] = actImpl.getWidth();
+            params[offset + 1] = actImpl.getMaxError();
+            return Constants.ConceptActivatorTypes.GAUSS;
+
+        } else if (act instanceof IntervalActivator) {
+            IntervalActivator actImpl = (IntervalActivator) act;
+            params[offset] = actImpl.getMode().ordinal();
+            params[offset + 1] = actImpl.getZeroValue();
+            params[offset + 2] = actImpl.getAmplitude();
+            return Constants.ConceptActivatorTypes.INTERVAL;
+
+        } else if (act instanceof LinearActivator) {
+            LinearActivator actImpl = (LinearActivator) act;
+            params[offset] = actImpl.getFactor();
+            params[offset + 1] = actImpl.getMin();
+            params[offset + 2] = actImpl.getMax();
+            return Constants.ConceptActivatorTypes.LINEAR;
+
+        } else if (act instanceof NaryActivator) {
+            params[offset] = ((NaryActivator) act).getN();
+            return Constants.ConceptActivatorTypes.NARY;
+
+        } else if (act instanceof SigmoidActivator) {
+            SigmoidActivator actImpl = (SigmoidActivator) act;
+            params[offset] = actImpl.getK();
+            params[offset + 1] = actImpl.getMaxError();
+            return Constants.ConceptActivatorTypes.SIGMOID;
+
+        } else if (act instanceof SignumActivator) {
+            SignumActivator actImpl = (SignumActivator) act;
+            params[offset] = actImpl.getMode().ordinal();
+            params[offset + 1] = actImpl.getZeroValue();
+            return Constants.ConceptActivatorTypes.SIGNUM;
+
+        } else if (act instanceof HyperbolicTangentActivator) {
+            params[offset] = ((HyperbolicTangentActivator) act).getMaxError();
+            return Constants.ConceptActivatorTypes.TANH;
+
+        } else {
+            throw new IllegalArgumentException("Unsupported ConceptActivator: " + act.getClass().getName());
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        for (double v : values) {
+            out.writeLong(Double.doubleToRawLongBits(v));
+        }
+    }
+
+    /**
+     * Raw content of a binary map
+     */
+    private static class Data {
+        final ByteBuffer buffer;
+
+        final int stringCount;
+        final int[] stringOffsets;
+        final int stringData;
+
+        final int mapName;
+        final int mapDescription;
+
+        final int n;
+        final int[] conceptNames;
+        final int[] conceptDescriptions;
+        final byte[] actTypes;
+        final byte[] flags;
+        final double[] thresholds;
+        final double[] actParams;
+        final double[] inputs;
+        final double[] outputs;
+
+        final int m;
+        final int[] connNames;
+        final int[] connDescriptions;
+        final int[] from;
+        final int[] to;
+        final int[] delays;
+        final double[] weights;
+
+        /**
+         * @param descriptive <code>false</code> to skip descriptions and connection names
+         */
+        Data(ByteBuffer buffer, boolean descriptive) throws ParseException {
+            this.buffer = buffer;
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new ParseException("Not a JFCM binary map", 0);
+                }
+                int version = buffer.getInt();
+                if (version != VERSION) {
+                    throw new ParseException("Unsupported JFCM binary map version: " + version, 4);
+                }
+
+                stringCount = buffer.getInt();
+                stringOffsets = readInts(stringCount + 1);
+                stringData = buffer.position();
+                buffer.position(stringData + stringOffsets[stringCount]);
+
+                mapName = buffer.getInt();
+                mapDescription = buffer.getInt();
+
+                n = buffer.getInt();
+                conceptNames = readInts(n);
+                conceptDescriptions = descriptive ? readInts(n) : skip(n, 4);
+                actTypes = readBytes(n);
+                flags = readBytes(n);
+                thresholds = readDoubles(n);
+                actParams = readDoubles(n * ACT_PARAMS);
+                inputs = readDoubles(n);
+                outputs = readDoubles(n);
+
+                m = buffer.getInt();
+                connNames = descriptive ? readInts(m) : skip(m, 4);
+                connDescriptions = descriptive ? readInts(m) : skip(m, 4);
+                from = readInts(m);
+                to = readInts(m);
+                delays = readInts(m);
+                weights = readDoubles(m);
+
+            } catch (RuntimeException ex) {
+                // BufferUnderflowException, IllegalArgumentException, NegativeArraySizeException...
+                ParseException pex = new ParseException("Corrupted JFCM binary map", buffer.position());
+                pex.initCause(ex);
+                throw pex;
+            }
+
+            for (int e = 0; e < m; e++) {
+                if (from[e] < -1 || from[e] >= n || to[e] < -1 || to[e] >= n) {
+                    throw new ParseException("Invalid endpoints of connection " + e + ": " + from[e] + " -> " + to[e],
+                            0);
+                }
+                if (delays[e] < 0) {
+                    throw new ParseException("Invalid delay of connection " + e + ": " + delays[e], 0);
+                }
+            }
+        }
+
+        String string(int index) throws ParseException {
+            if (index < 0) {
+                return null;
+            }
+            if (index >= stringCount) {
+                throw new ParseException("Invalid string index: " + index, 0);
+            }
+            int start = stringOffsets[index];
+            byte[] bytes = new byte[stringOffsets[index + 1] - start];
+            ByteBuffer dup = buffer.duplicate();
+            dup.position(stringData + start);
+            dup.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+
+        BaseConceptActivator activator(int i) throws ParseException {
+            int type = actTypes[i];
+            if (type == 0) {
+                return null;
+            }
+            if (type < 0 || type > ACT_TYPES.length) {
+                throw new ParseException("Invalid activator type: " + type, 0);
+            }
+            int p = i * ACT_PARAMS;
+            if (ACT_TYPES[type - 1] == Constants.ConceptActivatorTypes.INTERVAL
+                    || ACT_TYPES[type - 1] == Constants.ConceptActivatorTypes.SIGNUM) {
+                int modes = ACT_TYPES[type - 1] == Constants.ConceptActivatorTypes.INTERVAL
+                        ? IntervalActivator.Mode.values().length : SignumActivator.Mode.values().length;
+                if (actParams[p] < 0 || actParams[p] >= modes) {
+                    throw new ParseException("Invalid activator mode: " + actParams[p], 0);
+                }
+            }
+            double threshold = thresholds[i];
+            boolean includePreviousOutput = (flags[i] & FLAG_INCLUDE_PREVIOUS_OUTPUT) != 0;
+
+            try {
+                return activator(ACT_TYPES[type - 1], threshold, includePreviousOutput, p);
+            } catch (IllegalArgumentException ex) {
+                ParseException pex = new ParseException("Invalid activator parameters: " + ex.getMessage(), 0);
+                pex.initCause(ex);
+                throw pex;
+            }
+        }
+
+        private BaseConceptActivator activator(Constants.ConceptActivatorTypes type, double threshold,
+                boolean includePreviousOutput, int p) {
+            switch (type) {
+            case CAUCHY:
+                return new CauchyActivator(threshold, includePreviousOutput);
+            case GAUSS:
+                GaussianActivator gauss = new GaussianActivator(threshold, includePreviousOutput, actParams[p]);
+                if (actParams[p + 1] != GaussianActivator.DEFAULT_MAX_ERROR) {
+                    gauss.setMaxError(actParams[p + 1]);
+                }
+                return gauss;
+            case INTERVAL:
+                return new IntervalActivator(threshold, includePreviousOutput,
+                        IntervalActivator.Mode.values()[(int) actParams[p]], actParams[p + 1], actParams[p + 2]);
+            case LINEAR:
+                return new LinearActivator(threshold, includePreviousOutput, actParams[p], actParams[p + 1],
+                        actParams[p + 2]);
+            case NARY:
+                return new NaryActivator(threshold, includePreviousOutput, (int) actParams[p]);
+            case SIGMOID:
+                SigmoidActivator sigmoid = new SigmoidActivator(threshold, includePreviousOutput, actParams[p]);
+                if (actParams[p + 1] != SigmoidActivator.DEFAULT_MAX_ERROR) {
+                    sigmoid.setMaxError(actParams[p + 1]);
+                }
+                return sigmoid;
+            case SIGNUM:
+                return new SignumActivator(threshold, includePreviousOutput,
+                        SignumActivator.Mode.values()[(int) actParams[p]], actParams[p + 1]);
+            default:
+                HyperbolicTangentActivator tanh = new HyperbolicTangentActivator(threshold, includePreviousOutput);
+                if (actParams[p] != HyperbolicTangentActivator.DEFAULT_MAX_ERROR) {
+                    tanh.setMaxError(actParams[p]);
+                }
+                return tanh;
+            }
+        }
+
+        private int[] readInts(int count) {
+            int[] values = new int[count];
+            buffer.asIntBuffer().get(values);
+            buffer.position(buffer.position() + count * 4);
+            return values;
+        }
+
+        private int[] skip(int count, int size) {
+            buffer.position(buffer.position() + count * size);
+            return null;
+        }
+
+        private byte[] readBytes(int count) {
+            byte[] values = new byte[count];
+            buffer.get(values);
+            return values;
+        }
+
+        private double[] readDoubles(int count) {
+            double[] values = new double[count];
+            buffer.asDoubleBuffer().get(values);
+            buffer.position(buffer.position() + count * 8);
+            return values;
+        }
+    }
+}
@@ -19,29 +19,22 @@ Temple Place, Suite 330, Boston, MA 02111-1307 USA
 package org.megadix.jfcm.utils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.ParseException;
 import java.util.*;
 
-import javax.xml.parsers.*;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.xpath.*;
-
 import org.megadix.jfcm.*;
 import org.megadix.jfcm.act.*;
 import org.megadix.jfcm.act.SignumActivator.Mode;
 import org.megadix.jfcm.conn.WeightedConnection;
-import org.w3c.dom.*;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.MapCompiler;
 
 public class FcmIO {
 
     public static final String JFCM_SCHEMA_1_1 = "http://www.megadix.org/standards/JFCM-map-v-1.1.xsd";
     public static final String JFCM_SCHEMA_1_2 = "http://www.megadix.org/standards/JFCM-map-v-1.2.xsd";
-    private static final String JAXP_SCHEMA_SOURCE = "http://java.sun.com/xml/jaxp/properties/schemaSource";
 
     private static final Map<String, BaseConceptActivatorBuilder> actBuilders;
 
@@ -69,6 +62,9 @@ public class FcmIO {
                 if (params.containsKey("width")) {
                     act.setWidth(Double.parseDouble(params.get("width")));
                 }
+                if (params.containsKey("maxError")) {
+                    act.setMaxError(Double.parseDouble(params.get("maxError")));
+                }
                 return act;
             }
         };
@@ -137,6 +133,9 @@ public class FcmIO {
                 if (params.containsKey("k")) {
                     act.setK(Double.parseDouble(params.get("k")));
                 }
+                if (params.containsKey("maxError")) {
+                    act.setMaxError(Double.parseDouble(params.get("maxError")));
+                }
                 return act;
             }
         };
@@ -165,7 +164,11 @@ public class FcmIO {
             @Override
             public BaseConceptActivator build(Map<String, String> params) throws InstantiationException,
                     IllegalAccessException {
-                return super.build(params);
+                HyperbolicTangentActivator act = (HyperbolicTangentActivator) super.build(params);
+                if (params.containsKey("maxError")) {
+                    act.setMaxError(Double.parseDouble(params.get("maxError")));
+                }
+                return act;
             }
         };
         actBuilders.put(Constants.ConceptActivatorTypes.TANH.name(), actBuilder);
@@ -182,19 +185,11 @@ public class FcmIO {
     }
 
     public static void saveAsXml(List<CognitiveMap> maps, OutputStream outputStream) {
-        ToXmlVisitor xmlVisitor = new ToXmlVisitor();
-
-        for (CognitiveMap map : maps) {
-            map.accept(xmlVisitor);
-        }
-
-        xmlVisitor.saveTo(outputStream);
+        saveAsXml(maps, new StreamingXmlVisitor(outputStream));
     }
 
     public static void saveAsXml(CognitiveMap map, Writer writer) {
-        ToXmlVisitor xmlVisitor = new ToXmlVisitor();
-        map.accept(xmlVisitor);
-        xmlVisitor.saveTo(writer);
+        saveAsXml(Collections.singletonList(map), new StreamingXmlVisitor(writer));
     }
 
     public static List<CognitiveMap> loadXml(String filename) throws ParseException, FileNotFoundException {
@@ -202,197 +197,186 @@ public class FcmIO {
     }
 
     public static List<CognitiveMap> loadXml(InputStream inputStream) throws ParseException {
-        return loadXml(new InputStreamReader(inputStream));
+        return loadXml(inputStream, false);
+    }
+
+    /**
+     * Load every map of an XML file, see {@link FcmXmlReader} to read maps one at a time.
+     *
+     * @param inputStream source, closed at the end; encoding is detected from XML declaration
+     * @param validate <code>true</code> to validate against <code>JFCM-map-v-1.2.xsd</code>
+     * @return maps
+     * @throws ParseException if the document is malformed, invalid or contains unsupported types
+     */
+    public static List<CognitiveMap> loadXml(InputStream inputStream, boolean validate) throws ParseException {
+        return loadXml(new FcmXmlReader(inputStream, validate));
     }
 
     public static List<CognitiveMap> loadXml(Reader reader) throws ParseException {
-        try {
-            DocumentBuilder documentBuilder = getDocumentBuilder(true);
-            Document doc = documentBuilder.parse(new InputSource(reader));
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            List<CognitiveMap> maps = new ArrayList<>();
-            NodeList nodelist = (NodeList) xpath.evaluate("/maps/map", doc, XPathConstants.NODESET);
-            for (int i = 0; i < nodelist.getLength(); i++) {
-                Element mapElem = (Element) nodelist.item(i);
-                maps.add(parseMap(xpath, mapElem));
-            }
+        return loadXml(reader, false);
+    }
 
-            return maps;
+    /**
+     * Load every map of an XML file, see {@link FcmXmlReader} to read maps one at a time.
+     *
+     * @param reader source, closed at the end
+     * @param validate <code>true</code> to validate against <code>JFCM-map-v-1.2.xsd</code>
+     * @return maps
+     * @throws ParseException if the document is malformed, invalid or contains unsupported types
+     */
+    public static List<CognitiveMap> loadXml(Reader reader, boolean validate) throws ParseException {
+        return loadXml(new FcmXmlReader(reader, validate));
+    }
 
-        } catch (ParseException pex) {
-            throw pex;
-        } catch (Exception ex) {
-            throw new RuntimeException("Error loading XML file", ex);
+    /**
+     * Save a map in compact binary format. Only {@link BaseConceptActivator} subclasses defined in
+     * {@link Constants.ConceptActivatorTypes} and {@link WeightedConnection} are supported.
+     *
+     * @param map map to save
+     * @param outputStream destination, closed at the end
+     * @throws IllegalArgumentException if a connection is connected to a concept not in the map
+     */
+    public static void saveBinary(CognitiveMap map, OutputStream outputStream) {
+        try {
+            FcmBinary.write(map, outputStream);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error writing binary output", ex);
         } finally {
             try {
-                reader.close();
+                outputStream.close();
             } catch (IOException ioex) {
-                throw new RuntimeException("Error closing reader", ioex);
+                throw new RuntimeException("Error closing stream", ioex);
             }
         }
     }
 
-    /*
-     * private stuff
-     */
+    public static void saveBinary(CognitiveMap map, String filename) throws FileNotFoundException {
+        saveBinary(map, new FileOutputStream(filename));
+    }
 
-    private static DocumentBuilder getDocumentBuilder(boolean strict) throws SAXException, ParserConfigurationException {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        if (strict) {
-            Source schemaSource = new StreamSource(FcmIO.class.getResourceAsStream("/JFCM-map-v-1.2.xsd"));
-            Schema schema = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema").newSchema(schemaSource);
-            documentBuilderFactory.setAttribute(JAXP_SCHEMA_SOURCE, schema);
+    /**
+     * Load a map saved by {@link #saveBinary(CognitiveMap, OutputStream)}.
+     *
+     * @param inputStream source, closed at the end
+     * @return map
+     * @throws ParseException if data is not a valid binary map
+     */
+    public static CognitiveMap loadBinary(InputStream inputStream) throws ParseException {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1 << 16];
+            int len;
+            while ((len = inputStream.read(buffer)) >= 0) {
+                baos.write(buffer, 0, len);
+            }
+            return FcmBinary.readMap(ByteBuffer.wrap(baos.toByteArray()));
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading binary input", ex);
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException ioex) {
+                throw new RuntimeException("Error closing stream", ioex);
+            }
         }
+    }
 
-        return documentBuilderFactory.newDocumentBuilder();
+    /**
+     * Load a map saved by {@link #saveBinary(CognitiveMap, String)}, memory-mapping the file.
+     *
+     * @param filename source file
+     * @return map
+     * @throws ParseException if file is not a valid binary map
+     * @throws IOException if file cannot be read
+     */
+    public static CognitiveMap loadBinary(String filename) throws ParseException, IOException {
+        return FcmBinary.readMap(mapFile(filename));
     }
 
-    private static CognitiveMap parseMap(XPath xpath, Element mapElem) throws Exception {
-        NodeList nodelist;
-        CognitiveMap map = new CognitiveMap();
+    /**
+     * Load a map saved by {@link #saveBinary(CognitiveMap, String)} directly into a {@link CompiledCognitiveMap},
+     * memory-mapping the file and without creating {@link Concept} and {@link FcmConnection} objects.
+     * Output and fixed output of concepts are loaded as initial state.
+     *
+     * @param filename source file
+     * @param backend weight matrix representation
+     * @return compiled map
+     * @throws ParseException if file is not a valid binary map
+     * @throws IOException if file cannot be read
+     */
+    public static CompiledCognitiveMap loadBinaryCompiled(String filename, MapCompiler.Backend backend)
+            throws ParseException, IOException {
+        return FcmBinary.readCompiled(mapFile(filename), backend);
+    }
 
-        map.setName(xpath.evaluate("@name", mapElem));
-        String description = xpath.evaluate("description/text()", mapElem);
-        if (StringUtils.isNotBlank(description)) {
-            map.setDescription(description);
-        }
+    /*
+     * private stuff
+     */
 
-        nodelist = (NodeList) xpath.evaluate("concepts/concept", mapElem, XPathConstants.NODESET);
-        for (int i = 0; i < nodelist.getLength(); i++) {
-            Element conceptElem = (Element) nodelist.item(i);
-            map.addConcept(parseConcept(xpath, conceptElem));
+    private static ByteBuffer mapFile(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + filename);
+            }
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         }
+    }
 
-        nodelist = (NodeList) xpath.evaluate("connections/connection", mapElem, XPathConstants.NODESET);
-        for (int i = 0; i < nodelist.getLength(); i++) {
-            Element connElem = (Element) nodelist.item(i);
-            map.addConnection(parseConnection(map, xpath, connElem));
+    /**
+     * Build a {@link BaseConceptActivator} from its XML representation
+     *
+     * @param act activator type, see {@link Constants.ConceptActivatorTypes}
+     * @param params activator parameters
+     * @return new activator
+     * @throws ParseException if type is not supported
+     */
+    static BaseConceptActivator buildActivator(String act, Map<String, String> params) throws ParseException {
+        BaseConceptActivatorBuilder actBuilder = actBuilders.get(act);
+        if (actBuilder == null) {
+            throw new ParseException("ConceptActivator not supported: \"" + StringUtils.defaultString(act) + "\"", 0);
         }
-
-        // TODO optimize
-        Iterator<FcmConnection> iter = map.getConnectionsIterator();
-        while (iter.hasNext()) {
-            FcmConnection conn = iter.next();
-            map.connect(conn.getFrom().getName(), conn.getName(), conn.getTo().getName());
+        try {
+            return actBuilder.build(params);
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new RuntimeException("Error creating ConceptActivator", ex);
+        } catch (IllegalArgumentException ex) {
+            ParseException pex = new ParseException("Invalid ConceptActivator parameter: " + ex.getMessage(), 0);
+            pex.initCause(ex);
+            throw pex;
         }
-
-        return map;
     }
 
-    private static Concept parseConcept(XPath xpath, Element conceptElem) {
+    private static void saveAsXml(List<CognitiveMap> maps, StreamingXmlVisitor xmlVisitor) {
         try {
-            Concept c = new Concept();
-            c.setName(xpath.evaluate("@name", conceptElem));
-
-            String description = xpath.evaluate("description/text()", conceptElem);
-            if (StringUtils.isNotBlank(description)) {
-                c.setDescription(description);
-            }
-
-            String actAttr = conceptElem.getAttribute("act");
-
-            Map<String, String> params = parseParams(conceptElem, xpath);
-
-            if (!actBuilders.containsKey(actAttr)) {
-                throw new ParseException("ConceptActivator not supported: \"" + StringUtils.defaultString(actAttr)
-                        + "\"", 0);
-            }
-
-            BaseConceptActivatorBuilder actBuilder = actBuilders.get(actAttr);
-            c.setConceptActivator(actBuilder.build(params));
-
-            String s;
-            s = xpath.evaluate("@input", conceptElem);
-            if (StringUtils.isNotBlank(s)) {
-                c.setInput(Double.parseDouble(s));
-            }
-            s = xpath.evaluate("@output", conceptElem);
-            if (StringUtils.isNotBlank(s)) {
-                c.setOutput(Double.parseDouble(s));
+            for (CognitiveMap map : maps) {
+                map.accept(xmlVisitor);
             }
-            s = xpath.evaluate("@fixed", conceptElem);
-            if (StringUtils.isNotBlank(s)) {
-                c.setFixedOutput(Boolean.parseBoolean(s));
+        } finally {
+            try {
+                xmlVisitor.close();
+            } catch (IOException ioex) {
+                throw new RuntimeException("Error closing stream", ioex);
             }
-
-            return c;
-
-        } catch (Exception ex) {
-            throw new RuntimeException("Error parsing concept", ex);
         }
     }
 
-    private static Map<String, String> parseParams(Element elem, XPath xpath) throws XPathExpressionException {
-        Map<String, String> params = new HashMap<>();
-        Element paramsElem = (Element) xpath.evaluate("params", elem, XPathConstants.NODE);
-        if (paramsElem != null) {
-            NodeList paramsList = (NodeList) xpath.evaluate("param", paramsElem, XPathConstants.NODESET);
-            for (int i = 0; i < paramsList.getLength(); i++) {
-                Element param = (Element) paramsList.item(i);
-                params.put(param.getAttribute("name"), param.getAttribute("value"));
+    private static List<CognitiveMap> loadXml(FcmXmlReader xmlReader) throws ParseException {
+        try {
+            List<CognitiveMap> maps = new ArrayList<>();
+            CognitiveMap map;
+            while ((map = xmlReader.readMap()) != null) {
+                maps.add(map);
             }
-        }
-
-        return params;
-    }
-
-    private static FcmConnection parseConnection(CognitiveMap map, XPath xpath, Element connElem) throws Exception {
-
-        FcmConnection conn;
-        String s;
-        String name = xpath.evaluate("@name", connElem);
-        if (StringUtils.isBlank(name)) {
-            throw new Exception("Missing connection name");
-        }
-
-        Map<String, String> params = parseParams(connElem, xpath);
-
-        String type = xpath.evaluate("@type", connElem);
+            return maps;
 
-        if ("WEIGHTED".equalsIgnoreCase(type)) {
-            WeightedConnection wConn = new WeightedConnection();
-            if (params.containsKey("weight")) {
-                wConn.setWeight(Double.parseDouble(params.get("weight")));
-            }
-            if (params.containsKey("delay")) {
-                wConn.setDelay(Integer.parseInt(params.get("delay")));
+        } finally {
+            try {
+                xmlReader.close();
+            } catch (IOException ioex) {
+                throw new RuntimeException("Error closing reader", ioex);
             }
-            conn = wConn;
-
-        } else {
-            throw new ParseException("Connection type not supported: \"" + type + "\"", 0);
         }
-
-        conn.setName(name);
-
-        String description = xpath.evaluate("description/text()", connElem);
-        if (StringUtils.isNotBlank(description)) {
-            conn.setDescription(description);
-        }
-
-        Concept c;
-
-        s = xpath.evaluate("@from", connElem);
-        if (StringUtils.isBlank(s)) {
-            throw new Exception("Missing \"from\" reference in connection \"" + conn.getName() + "\"");
-        }
-        c = map.getConcept(s);
-        if (c == null) {
-            throw new Exception("Missing \"from\" reference in connection \"" + conn.getName() + "\"");
-        }
-        conn.setFrom(c);
-
-        s = xpath.evaluate("@to", connElem);
-        if (StringUtils.isBlank(s)) {
-            throw new Exception("Missing \"to\" reference in connection \"" + conn.getName() + "\"");
-        }
-        c = map.getConcept(s);
-        if (c == null) {
-            throw new Exception("Missing \"to\" reference in connection \"" + conn.getName() + "\"");
-        }
-        conn.setTo(c);
-
-        return conn;
     }
 
 }
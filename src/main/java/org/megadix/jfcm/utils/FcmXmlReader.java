@@ -0,0 +1,469 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.FcmConnection;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Streaming (StAX) reader of JFCM XML files: maps are built in a single pass, one at a time, so
+ * memory usage is bounded by the largest map rather than by the whole document.
+ * <p>
+ * Elements are matched by local name, so both namespace-qualified and unqualified documents are accepted.
+ * When validation is enabled, every event is also fed to a {@link ValidatorHandler} for
+ * <code>JFCM-map-v-1.2.xsd</code>, and the first violation is reported as a {@link ParseException}.
+ * </p>
+ *
+ * <pre>
+ * try (FcmXmlReader reader = new FcmXmlReader(inputStream)) {
+ *     CognitiveMap map;
+ *     while ((map = reader.readMap()) != null) {
+ *         // ...
+ *     }
+ * }
+ * </pre>
+ */
+public class FcmXmlReader implements Closeable {
+
+    private static Schema schema;
+
+    private final Closeable source;
+    private final XMLStreamReader xml;
+    private final ValidatorHandler validator;
+    private final StringBuilder text = new StringBuilder();
+    private boolean started;
+    private boolean finished;
+
+    public FcmXmlReader(InputStream inputStream) throws ParseException {
+        this(inputStream, false);
+    }
+
+    /**
+     * @param inputStream source, encoding is detected from XML declaration
+     * @param validate <code>true</code> to validate against <code>JFCM-map-v-1.2.xsd</code>
+     * @throws ParseException if the document cannot be opened
+     */
+    public FcmXmlReader(InputStream inputStream, boolean validate) throws ParseException {
+        this.source = inputStream;
+        try {
+            this.xml = createInputFactory().createXMLStreamReader(inputStream);
+        } catch (XMLStreamException ex) {
+            throw toParseException(ex);
+        }
+        this.validator = validate ? createValidator() : null;
+    }
+
+    public FcmXmlReader(Reader reader) throws ParseException {
+        this(reader, false);
+    }
+
+    /**
+     * @param reader source
+     * @param validate <code>true</code> to validate against <code>JFCM-map-v-1.2.xsd</code>
+     * @throws ParseException if the document cannot be opened
+     */
+    public FcmXmlReader(Reader reader, boolean validate) throws ParseException {
+        this.source = reader;
+        try {
+            this.xml = createInputFactory().createXMLStreamReader(reader);
+        } catch (XMLStreamException ex) {
+            throw toParseException(ex);
+        }
+        this.validator = validate ? createValidator() : null;
+    }
+
+    /**
+     * Read next map.
+     *
+     * @return next map, <code>null</code> if there are no more maps
+     * @throws ParseException if the document is malformed, invalid or contains unsupported types
+     */
+    public CognitiveMap readMap() throws ParseException {
+        if (finished) {
+            return null;
+        }
+
+        try {
+            if (!started) {
+                started = true;
+                if (validator != null) {
+                    validator.startDocument();
+                }
+                if (nextTag() != XMLStreamConstants.START_ELEMENT || !"maps".equals(xml.getLocalName())) {
+                    throw parseError("Root element must be <maps>");
+                }
+            }
+
+            while (true) {
+                int event = nextTag();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    // </maps>
+                    while (next() != XMLStreamConstants.END_DOCUMENT) {
+                        // trailing comments / processing instructions
+                    }
+                    finished = true;
+                    return null;
+                } else if ("map".equals(xml.getLocalName())) {
+                    return parseMap();
+                } else {
+                    skipElement();
+                }
+            }
+
+        } catch (XMLStreamException ex) {
+            throw toParseException(ex);
+        } catch (SAXException ex) {
+            throw toParseException(ex);
+        }
+    }
+
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        } finally {
+            source.close();
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    private static synchronized Schema getSchema() throws SAXException {
+        if (schema == null) {
+            StreamSource schemaSource = new StreamSource(FcmXmlReader.class.getResourceAsStream("/JFCM-map-v-1.2.xsd"));
+            schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(schemaSource);
+        }
+        return schema;
+    }
+
+    private static ValidatorHandler createValidator() throws ParseException {
+        try {
+            ValidatorHandler handler = getSchema().newValidatorHandler();
+            handler.setErrorHandler(new ErrorHandler() {
+                public void warning(SAXParseException exception) {
+                    // ignored
+                }
+
+                public void error(SAXParseException exception) throws SAXException {
+                    throw exception;
+                }
+
+                public void fatalError(SAXParseException exception) throws SAXException {
+                    throw exception;
+                }
+            });
+            return handler;
+        } catch (SAXException ex) {
+            throw new RuntimeException("Error loading XML schema", ex);
+        }
+    }
+
+    private CognitiveMap parseMap() throws XMLStreamException, SAXException, ParseException {
+        CognitiveMap map = new CognitiveMap();
+        map.setName(xml.getAttributeValue(null, "name"));
+
+        while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = xml.getLocalName();
+            if ("description".equals(name)) {
+                String description = readText();
+                if (StringUtils.isNotBlank(description)) {
+                    map.setDescription(description);
+                }
+            } else if ("concepts".equals(name)) {
+                while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if ("concept".equals(xml.getLocalName())) {
+                        map.addConcept(parseConcept());
+                    } else {
+                        skipElement();
+                    }
+                }
+            } else if ("connections".equals(name)) {
+                while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if ("connection".equals(xml.getLocalName())) {
+                        parseConnection(map);
+                    } else {
+                        skipElement();
+                    }
+                }
+            } else {
+                skipElement();
+            }
+        }
+
+        return map;
+    }
+
+    private Concept parseConcept() throws XMLStreamException, SAXException, ParseException {
+        Concept c = new Concept();
+        c.setName(xml.getAttributeValue(null, "name"));
+
+        String act = xml.getAttributeValue(null, "act");
+        String input = xml.getAttributeValue(null, "input");
+        String output = xml.getAttributeValue(null, "output");
+        String fixed = xml.getAttributeValue(null, "fixed");
+        Map<String, String> params = new HashMap<>();
+
+        while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = xml.getLocalName();
+            if ("description".equals(name)) {
+                String description = readText();
+                if (StringUtils.isNotBlank(description)) {
+                    c.setDescription(description);
+                }
+            } else if ("params".equals(name)) {
+                parseParams(params);
+            } else {
+                skipElement();
+            }
+        }
+
+        try {
+            c.setConceptActivator(FcmIO.buildActivator(act, params));
+            if (StringUtils.isNotBlank(input)) {
+                c.setInput(Double.parseDouble(input));
+            }
+            if (StringUtils.isNotBlank(output)) {
+                c.setOutput(Double.parseDouble(output));
+            }
+            if (StringUtils.isNotBlank(fixed)) {
+                c.setFixedOutput(Boolean.parseBoolean(fixed));
+            }
+        } catch (NumberFormatException ex) {
+            throw parseError("Error parsing concept \"" + c.getName() + "\": " + ex.getMessage());
+        }
+
+        return c;
+    }
+
+    private void parseConnection(CognitiveMap map) throws XMLStreamException, SAXException, ParseException {
+        String connName = xml.getAttributeValue(null, "name");
+        if (StringUtils.isBlank(connName)) {
+            throw parseError("Missing connection name");
+        }
+        String type = xml.getAttributeValue(null, "type");
+        String from = xml.getAttributeValue(null, "from");
+        String to = xml.getAttributeValue(null, "to");
+        String description = null;
+        Map<String, String> params = new HashMap<>();
+
+        while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = xml.getLocalName();
+            if ("description".equals(name)) {
+                description = readText();
+            } else if ("params".equals(name)) {
+                parseParams(params);
+            } else {
+                skipElement();
+            }
+        }
+
+        FcmConnection conn;
+        if ("WEIGHTED".equalsIgnoreCase(type)) {
+            WeightedConnection wConn = new WeightedConnection();
+            try {
+                if (params.containsKey("weight")) {
+                    wConn.setWeight(Double.parseDouble(params.get("weight")));
+                }
+                if (params.containsKey("delay")) {
+                    wConn.setDelay(Integer.parseInt(params.get("delay")));
+                }
+            } catch (NumberFormatException ex) {
+                throw parseError("Error parsing connection \"" + connName + "\": " + ex.getMessage());
+            }
+            conn = wConn;
+        } else {
+            throw parseError("Connection type not supported: \"" + type + "\"");
+        }
+
+        conn.setName(connName);
+        if (StringUtils.isNotBlank(description)) {
+            conn.setDescription(description);
+        }
+
+        if (StringUtils.isBlank(from) || map.getConcept(from) == null) {
+            throw parseError("Missing \"from\" reference in connection \"" + connName + "\"");
+        }
+        if (StringUtils.isBlank(to) || map.getConcept(to) == null) {
+            throw parseError("Missing \"to\" reference in connection \"" + connName + "\"");
+        }
+
+        map.addConnection(conn);
+        map.connect(from, connName, to);
+    }
+
+    private void parseParams(Map<String, String> params) throws XMLStreamException, SAXException {
+        while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("param".equals(xml.getLocalName())) {
+                params.put(xml.getAttributeValue(null, "name"), xml.getAttributeValue(null, "value"));
+            }
+            skipElement();
+        }
+    }
+
+    /**
+     * Advance to next START_ELEMENT or END_ELEMENT, skipping text, comments and processing instructions
+     */
+    private int nextTag() throws XMLStreamException, SAXException {
+        while (true) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT
+                    || event == XMLStreamConstants.END_DOCUMENT) {
+                return event;
+            }
+        }
+    }
+
+    /**
+     * Read text content of current element, up to its END_ELEMENT
+     */
+    private String readText() throws XMLStreamException, SAXException {
+        text.setLength(0);
+        int depth = 1;
+        while (depth > 0) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE)) {
+                text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Skip current element, up to its END_ELEMENT
+     */
+    private void skipElement() throws XMLStreamException, SAXException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Advance to next event, forwarding it to validator
+     */
+    private int next() throws XMLStreamException, SAXException {
+        int event = xml.next();
+        if (validator != null) {
+            validate(event);
+        }
+        return event;
+    }
+
+    private void validate(int event) throws SAXException {
+        switch (event) {
+        case XMLStreamConstants.START_ELEMENT:
+            for (int i = 0; i < xml.getNamespaceCount(); i++) {
+                validator.startPrefixMapping(emptyIfNull(xml.getNamespacePrefix(i)), xml.getNamespaceURI(i));
+            }
+            AttributesImpl attributes = new AttributesImpl();
+            for (int i = 0; i < xml.getAttributeCount(); i++) {
+                attributes.addAttribute(emptyIfNull(xml.getAttributeNamespace(i)), xml.getAttributeLocalName(i),
+                        qName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i)), xml.getAttributeType(i),
+                        xml.getAttributeValue(i));
+            }
+            validator.startElement(emptyIfNull(xml.getNamespaceURI()), xml.getLocalName(),
+                    qName(xml.getPrefix(), xml.getLocalName()), attributes);
+            break;
+        case XMLStreamConstants.END_ELEMENT:
+            validator.endElement(emptyIfNull(xml.getNamespaceURI()), xml.getLocalName(),
+                    qName(xml.getPrefix(), xml.getLocalName()));
+            for (int i = 0; i < xml.getNamespaceCount(); i++) {
+                validator.endPrefixMapping(emptyIfNull(xml.getNamespacePrefix(i)));
+            }
+            break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+            validator.characters(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+            break;
+        case XMLStreamConstants.END_DOCUMENT:
+            validator.endDocument();
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static String emptyIfNull(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static String qName(String prefix, String localName) {
+        return StringUtils.isBlank(prefix) ? localName : prefix + ":" + localName;
+    }
+
+    private ParseException parseError(String message) {
+        Location location = xml.getLocation();
+        return new ParseException(message + " (line " + location.getLineNumber() + ")",
+                Math.max(location.getCharacterOffset(), 0));
+    }
+
+    private static ParseException toParseException(Exception ex) {
+        ParseException pex = new ParseException(ex.getMessage(), 0);
+        pex.initCause(ex);
+        return pex;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+/**
+ * Outcome of the last {@link FcmRunner#converge()} or {@link FcmRunner#run()} of a {@link BaseFcmRunner}:
+ * why computation stopped, number of epochs, final delta, wall time, detected fixed point or limit cycle
+ * and, if recorded, the trajectory of outputs.
+ */
+public class RunResult {
+
+    /**
+     * Why computation stopped
+     */
+    public enum StopReason {
+        /** Average square delta &lt;= max delta */
+        CONVERGED,
+        /** State repeated after one epoch (compared after quantization), but delta &gt; max delta */
+        FIXED_POINT,
+        /**
+         * State repeated after two or more epochs. With exact comparison (quantum 0.0) the map will never
+         * converge; with quantum &gt; 0.0 a map still settling by steps smaller than quantum may be reported too
+         */
+        LIMIT_CYCLE,
+        /** Max. number of epochs executed */
+        MAX_EPOCHS
+    }
+
+    private final StopReason reason;
+    private final int epochs;
+    private final double averageSquareDelta;
+    private final long wallTimeNanos;
+    private final int cycleStart;
+    private final int cycleLength;
+    private final String[] conceptNames;
+    private final double[][] trajectory;
+
+    RunResult(StopReason reason, int epochs, double averageSquareDelta, long wallTimeNanos, int cycleStart,
+            int cycleLength, String[] conceptNames, double[][] trajectory) {
+        this.reason = reason;
+        this.epochs = epochs;
+        this.averageSquareDelta = averageSquareDelta;
+        this.wallTimeNanos = wallTimeNanos;
+        this.cycleStart = cycleStart;
+        this.cycleLength = cycleLength;
+        this.conceptNames = conceptNames;
+        this.trajectory = trajectory;
+    }
+
+    public StopReason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return <code>true</code> if reason is {@link StopReason#CONVERGED}
+     */
+    public boolean isConverged() {
+        return reason == StopReason.CONVERGED;
+    }
+
+    /**
+     * @return number of epochs executed, i.e. the epoch at which the fixed point or cycle was detected
+     */
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * @return final average square delta, <code>Double.NaN</code> if not available
+     */
+    public double getAverageSquareDelta() {
+        return averageSquareDelta;
+    }
+
+    /**
+     * @return elapsed time of the whole run, in nanoseconds
+     */
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    /**
+     * @return epoch of the first occurrence of the repeated state, -1 if no cycle was detected
+     */
+    public int getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * @return number of epochs of the cycle, 1 for {@link StopReason#FIXED_POINT}, 0 if no cycle was detected
+     */
+    public int getCycleLength() {
+        return cycleLength;
+    }
+
+    /**
+     * @return names of the concepts, i.e. columns of {@link #getTrajectory()}; <code>null</code> if the
+     *         trajectory was not recorded
+     */
+    public String[] getConceptNames() {
+        return conceptNames;
+    }
+
+    /**
+     * Outputs of every epoch, see {@link BaseFcmRunner#setRecordTrajectory(boolean)}
+     *
+     * @return outputs by epoch (row 0 is initial state) and concept, <code>Double.NaN</code> for undefined
+     *         outputs; <code>null</code> if not recorded
+     */
+    public double[][] getTrajectory() {
+        return trajectory;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(reason).append(" after ").append(epochs).append(" epochs");
+        if (cycleLength > 0) {
+            sb.append(", cycle length = ").append(cycleLength).append(" from epoch ").append(cycleStart);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,410 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.MapModel;
+import org.megadix.jfcm.exec.SimulationSession;
+
+/**
+ * Runs many small, independent scenarios ({@link ScenarioRequest}) concurrently against registered maps.
+ * <p>
+ * Maps are compiled once when registered (by name and version) into a {@link MapModel}, every request runs
+ * its own {@link SimulationSession} on it: no map copies, no locks. Requests run on virtual threads
+ * ({@link #newVirtualThreadExecutor()}, Java 21+) or on a bounded pool of platform threads
+ * ({@link #newPlatformThreadExecutor(int, int)}). Timeouts and cancellation
+ * (<code>Future.cancel(true)</code>) are checked between epochs.
+ * </p>
+ * <p>
+ * Counters and timings are kept for monitoring: submitted, queued, running, completed requests by
+ * {@link ScenarioResult.Status}, rejections, executed epochs, queue and run times, throughput.
+ * </p>
+ */
+public class ScenarioExecutor {
+
+    /**
+     * Default max. number of queued requests of {@link #newPlatformThreadExecutor(int)}
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final ConcurrentMap<List<String>, MapModel> models = new ConcurrentHashMap<>();
+    private final long startTime = System.nanoTime();
+
+    // metrics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong running = new AtomicLong();
+    // started and completed, excludes requests cancelled before starting
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong[] completed = new AtomicLong[ScenarioResult.Status.values().length];
+    private final AtomicLong epochs = new AtomicLong();
+    private final AtomicLong queueTimeNanos = new AtomicLong();
+    private final AtomicLong runTimeNanos = new AtomicLong();
+
+    /**
+     * @param executor runs requests; shut down by {@link #shutdown()}
+     */
+    public ScenarioExecutor(ExecutorService executor) {
+        this(executor, false);
+    }
+
+    private ScenarioExecutor(ExecutorService executor, boolean virtualThreads) {
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+        for (int i = 0; i < completed.length; i++) {
+            completed[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * One virtual thread per request, if supported by the JVM (Java 21+); otherwise falls back to
+     * {@link #newPlatformThreadExecutor(int)} with one thread per available processor.
+     *
+     * @return new executor
+     */
+    public static ScenarioExecutor newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new ScenarioExecutor((ExecutorService) factory.invoke(null), true);
+        } catch (NoSuchMethodException ex) {
+            return newPlatformThreadExecutor(Runtime.getRuntime().availableProcessors());
+        } catch (Exception ex) {
+            throw new IllegalStateException("Error creating virtual thread executor", ex);
+        }
+    }
+
+    /**
+     * Fixed pool of platform threads, with a queue of {@link #DEFAULT_QUEUE_CAPACITY} requests
+     *
+     * @param threads number of threads
+     * @return new executor
+     */
+    public static ScenarioExecutor newPlatformThreadExecutor(int threads) {
+        return newPlatformThreadExecutor(threads, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Fixed pool of platform threads with a bounded queue: when it is full, {@link #submit(ScenarioRequest)}
+     * throws {@link RejectedExecutionException}.
+     *
+     * @param threads number of threads
+     * @param queueCapacity max. number of queued requests
+     * @return new executor
+     */
+    public static ScenarioExecutor newPlatformThreadExecutor(int threads, int queueCapacity) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+                    private final AtomicLong count = new AtomicLong();
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "jfcm-scenario-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        return new ScenarioExecutor(pool, false);
+    }
+
+    /**
+     * @return <code>true</code> if requests run on virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Compile and register a map, replacing any map with the same name and version.
+     * Later changes to the map don't affect registered model.
+     *
+     * @param name map name, used by requests
+     * @param version map version, used by requests
+     * @param map map to compile; current state is initial state of scenarios
+     * @return compiled model
+     */
+    public MapModel register(String name, String version, CognitiveMap map) {
+        MapModel model = new MapModel(map);
+        register(name, version, model);
+        return model;
+    }
+
+    public void register(String name, String version, MapModel model) {
+        models.put(key(name, version), model);
+    }
+
+    public void unregister(String name, String version) {
+        models.remove(key(name, version));
+    }
+
+    /**
+     * @param name map name
+     * @param version map version
+     * @return registered model, <code>null</code> if not found
+     */
+    public MapModel getModel(String name, String version) {
+        return models.get(key(name, version));
+    }
+
+    /**
+     * Submit a request: outputs, fixed outputs, convergence test and timeout are copied, later changes to
+     * <code>request</code> do not affect the submitted scenario
+     *
+     * @param request scenario
+     * @return result, <code>Future.cancel(true)</code> stops the scenario at next epoch
+     * @throws IllegalArgumentException if map is not registered
+     * @throws RejectedExecutionException if queue is full or executor has been shut down
+     */
+    public Future<ScenarioResult> submit(ScenarioRequest request) {
+        MapModel model = getModel(request.getMapName(), request.getMapVersion());
+        if (model == null) {
+            throw new IllegalArgumentException("Map not registered: " + request.getMapName() + ", version "
+                    + request.getMapVersion());
+        }
+
+        final ScenarioTask task = new ScenarioTask(model, request, System.nanoTime());
+        FutureTask<ScenarioResult> future = new FutureTask<ScenarioResult>(task) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    task.cancelled();
+                }
+            }
+        };
+
+        submitted.incrementAndGet();
+        queued.incrementAndGet();
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException ex) {
+            submitted.decrementAndGet();
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw ex;
+        }
+        return future;
+    }
+
+    /**
+     * Stop accepting requests, queued and running requests are completed
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /*
+     * metrics
+     */
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * @return number of requests rejected by {@link #submit(ScenarioRequest)}
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return number of requests waiting to start
+     */
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getRunningCount() {
+        return running.get();
+    }
+
+    /**
+     * @return number of completed requests, cancelled ones included
+     */
+    public long getCompletedCount() {
+        long count = 0;
+        for (AtomicLong c : completed) {
+            count += c.get();
+        }
+        return count;
+    }
+
+    /**
+     * @param status outcome
+     * @return number of requests completed with given status
+     */
+    public long getCompletedCount(ScenarioResult.Status status) {
+        return completed[status.ordinal()].get();
+    }
+
+    /**
+     * @return total number of epochs executed
+     */
+    public long getEpochCount() {
+        return epochs.get();
+    }
+
+    /**
+     * @return average time from submission to start of started requests, in nanoseconds
+     */
+    public double getAverageQueueTimeNanos() {
+        long count = started.get();
+        return count == 0 ? 0.0 : (double) queueTimeNanos.get() / count;
+    }
+
+    /**
+     * @return average execution time of started and completed requests, in nanoseconds
+     */
+    public double getAverageRunTimeNanos() {
+        long count = finished.get();
+        return count == 0 ? 0.0 : (double) runTimeNanos.get() / count;
+    }
+
+    /**
+     * @return completed requests per second, since creation of this executor
+     */
+    public double getThroughput() {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0.0 : getCompletedCount() * 1e9 / elapsed;
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static List<String> key(String name, String version) {
+        return Arrays.asList(name, version);
+    }
+
+    private final class ScenarioTask implements Callable<ScenarioResult> {
+
+        private final MapModel model;
+        // copied from the request, which may be changed by the caller after submit()
+        private final Map<String, Double> outputs;
+        private final Map<String, Double> fixedOutputs;
+        private final double maxDelta;
+        private final int maxEpochs;
+        private final long timeout;
+        private final long submitTime;
+        // set by the first of call() and cancelled()
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        ScenarioTask(MapModel model, ScenarioRequest request, long submitTime) {
+            this.model = model;
+            this.outputs = new LinkedHashMap<>(request.getOutputs());
+            this.fixedOutputs = new LinkedHashMap<>(request.getFixedOutputs());
+            this.maxDelta = request.getMaxDelta();
+            this.maxEpochs = request.getMaxEpochs();
+            this.timeout = request.getTimeoutNanos();
+            this.submitTime = submitTime;
+        }
+
+        public ScenarioResult call() {
+            if (!taken.compareAndSet(false, true)) {
+                return null;
+            }
+            long startTime = System.nanoTime();
+            long queueTime = startTime - submitTime;
+            queued.decrementAndGet();
+            started.incrementAndGet();
+            queueTimeNanos.addAndGet(queueTime);
+            running.incrementAndGet();
+
+            ScenarioResult result;
+            try {
+                result = run(startTime, queueTime);
+            } catch (RuntimeException ex) {
+                result = new ScenarioResult(ScenarioResult.Status.FAILED, model.getTopology(), null, 0,
+                        Double.NaN, queueTime, System.nanoTime() - startTime, ex);
+            }
+
+            running.decrementAndGet();
+            finished.incrementAndGet();
+            completed[result.getStatus().ordinal()].incrementAndGet();
+            epochs.addAndGet(result.getEpochs());
+            runTimeNanos.addAndGet(result.getRunTimeNanos());
+            return result;
+        }
+
+        /**
+         * Called when the future has been cancelled: counts requests cancelled before starting
+         */
+        void cancelled() {
+            if (taken.compareAndSet(false, true)) {
+                queued.decrementAndGet();
+                completed[ScenarioResult.Status.CANCELLED.ordinal()].incrementAndGet();
+            }
+        }
+
+        private ScenarioResult run(long startTime, long queueTime) {
+            if (timeout > 0 && queueTime >= timeout) {
+                return new ScenarioResult(ScenarioResult.Status.TIMED_OUT, model.getTopology(), null, 0, Double.NaN,
+                        queueTime, 0L, null);
+            }
+
+            SimulationSession session = model.newSession();
+            for (Map.Entry<String, Double> e : outputs.entrySet()) {
+                session.setOutput(e.getKey(), e.getValue());
+            }
+            for (Map.Entry<String, Double> e : fixedOutputs.entrySet()) {
+                session.setFixedOutput(e.getKey(), e.getValue());
+            }
+
+            ScenarioResult.Status status = null;
+            double delta = session.calculateAverageSquareDelta();
+            while (Double.isNaN(delta) || Double.isInfinite(delta) || delta > maxDelta) {
+                if (session.getEpochs() >= maxEpochs) {
+                    break;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    status = ScenarioResult.Status.CANCELLED;
+                    break;
+                }
+                if (timeout > 0 && System.nanoTime() - submitTime >= timeout) {
+                    status = ScenarioResult.Status.TIMED_OUT;
+                    break;
+                }
+                session.execute();
+                delta = session.getAverageSquareDelta();
+            }
+            if (status == null) {
+                status = delta <= maxDelta ? ScenarioResult.Status.CONVERGED : ScenarioResult.Status.MAX_EPOCHS;
+            }
+
+            return new ScenarioResult(status, model.getTopology(), session.getOutputs(null), session.getEpochs(),
+                    delta, queueTime, System.nanoTime() - startTime, null);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scenario to run by a {@link ScenarioExecutor}: registered map (name and version), initial and fixed outputs
+ * of concepts, convergence test (max delta, max epochs) and timeout.
+ */
+public class ScenarioRequest {
+
+    private final String mapName;
+    private final String mapVersion;
+    private final Map<String, Double> outputs = new LinkedHashMap<>();
+    private final Map<String, Double> fixedOutputs = new LinkedHashMap<>();
+    private double maxDelta;
+    private int maxEpochs;
+    private long timeoutNanos;
+
+    /**
+     * @param mapName name of a map registered in the executor
+     * @param mapVersion version of the map
+     * @param maxDelta max average square delta, see {@link SimpleFcmRunner#setMaxDelta(double)}
+     * @param maxEpochs max number of epochs
+     */
+    public ScenarioRequest(String mapName, String mapVersion, double maxDelta, int maxEpochs) {
+        this.mapName = mapName;
+        this.mapVersion = mapVersion;
+        this.maxDelta = maxDelta;
+        this.maxEpochs = maxEpochs;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public String getMapVersion() {
+        return mapVersion;
+    }
+
+    /**
+     * Initial output of a concept, replaces output of the registered map
+     *
+     * @param conceptName name of the concept
+     * @param value initial output
+     */
+    public void setOutput(String conceptName, double value) {
+        outputs.put(conceptName, value);
+    }
+
+    /**
+     * Fixed output of a concept, see {@link org.megadix.jfcm.Concept#setFixedOutput(boolean)}
+     *
+     * @param conceptName name of the concept
+     * @param value fixed output
+     */
+    public void setFixedOutput(String conceptName, double value) {
+        fixedOutputs.put(conceptName, value);
+    }
+
+    public Map<String, Double> getOutputs() {
+        return Collections.unmodifiableMap(outputs);
+    }
+
+    public Map<String, Double> getFixedOutputs() {
+        return Collections.unmodifiableMap(fixedOutputs);
+    }
+
+    public double getMaxDelta() {
+        return maxDelta;
+    }
+
+    public void setMaxDelta(double maxDelta) {
+        this.maxDelta = maxDelta;
+    }
+
+    public int getMaxEpochs() {
+        return maxEpochs;
+    }
+
+    public void setMaxEpochs(int maxEpochs) {
+        this.maxEpochs = maxEpochs;
+    }
+
+    /**
+     * @return timeout in nanoseconds, 0 for none
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * Max. time from submission to completion, checked between epochs
+     *
+     * @param timeout timeout, 0 for none
+     * @param unit unit of timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout < 0");
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import org.megadix.jfcm.exec.MapTopology;
+
+/**
+ * Outcome of a {@link ScenarioRequest} run by a {@link ScenarioExecutor}.
+ */
+public class ScenarioResult {
+
+    /**
+     * How a scenario ended
+     */
+    public enum Status {
+        /** Average square delta &lt;= max delta */
+        CONVERGED,
+        /** Max number of epochs executed without convergence */
+        MAX_EPOCHS,
+        /** Timeout expired, while queued or between two epochs */
+        TIMED_OUT,
+        /** Cancelled while running */
+        CANCELLED,
+        /** Invalid request (e.g. unknown concept) or execution error */
+        FAILED
+    }
+
+    private final Status status;
+    private final MapTopology topology;
+    private final double[] outputs;
+    private final int epochs;
+    private final double averageSquareDelta;
+    private final long queueTimeNanos;
+    private final long runTimeNanos;
+    private final Throwable error;
+
+    ScenarioResult(Status status, MapTopology topology, double[] outputs, int epochs, double averageSquareDelta,
+            long queueTimeNanos, long runTimeNanos, Throwable error) {
+        this.status = status;
+        this.topology = topology;
+        this.outputs = outputs;
+        this.epochs = epochs;
+        this.averageSquareDelta = averageSquareDelta;
+        this.queueTimeNanos = queueTimeNanos;
+        this.runTimeNanos = runTimeNanos;
+        this.error = error;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isConverged() {
+        return status == Status.CONVERGED;
+    }
+
+    /**
+     * @return final outputs, by concept index (see {@link #indexOf(String)}); <code>Double.NaN</code> for
+     *         undefined outputs, <code>null</code> if the scenario never started or failed
+     */
+    public double[] getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * @param conceptName name of the concept
+     * @return index of the concept in {@link #getOutputs()}, -1 if not found
+     */
+    public int indexOf(String conceptName) {
+        return topology == null ? -1 : topology.indexOf(conceptName);
+    }
+
+    public double getOutput(String conceptName) {
+        int index = indexOf(conceptName);
+        if (index < 0 || outputs == null) {
+            throw new IllegalArgumentException("Concept not found: " + conceptName);
+        }
+        return outputs[index];
+    }
+
+    /**
+     * @return number of epochs executed
+     */
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * @return final average square delta, <code>Double.NaN</code> if not available
+     */
+    public double getAverageSquareDelta() {
+        return averageSquareDelta;
+    }
+
+    /**
+     * @return time from submission to start, in nanoseconds
+     */
+    public long getQueueTimeNanos() {
+        return queueTimeNanos;
+    }
+
+    /**
+     * @return execution time, in nanoseconds
+     */
+    public long getRunTimeNanos() {
+        return runTimeNanos;
+    }
+
+    /**
+     * @return cause of {@link Status#FAILED}, <code>null</code> otherwise
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return status + ", epochs=" + epochs + ", averageSquareDelta=" + averageSquareDelta;
+    }
+}
@@ -20,26 +20,48 @@ package org.megadix.jfcm.utils;
 
 import org.megadix.jfcm.CognitiveMap;
 import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.FcmConnection;
+import org.megadix.jfcm.conn.WeightedConnection;
 
-import java.io.*;
+import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
 /**
  * Simple implementation of {@link org.megadix.jfcm.utils.FcmRunner} that permits iterative
  * execution of the map, CSV output and a simple convergence-detection mechanism.
+ * <p>
+ * {@link #converge()} can also detect limit cycles, frequent with discrete activators, and stop as soon as
+ * the state of the map repeats: see {@link #setCycleDetection(int, double)} and {@link #getLastResult()}.
+ * </p>
  */
 public class SimpleFcmRunner extends BaseFcmRunner {
 
+    /**
+     * Suggested number of past states remembered by cycle detection, i.e. max. detected cycle length,
+     * see {@link #setCycleDetection(int, double)}
+     */
+    public static final int DEFAULT_CYCLE_HISTORY = 64;
+
     private double maxDelta;
 
+    // cycle detection
+    private int cycleHistory = 0;
+    private double cycleQuantum = 0.0;
+    private CycleDetector cycleDetector;
+    private long[] cycleState;
+
+    // epoch listeners
+    private ConceptsState epochState;
+
     // CSV output stuff
     private String csvOutputFileName;
     private Charset csvOutputCharset = Charset.forName("UTF-8");
-    private File csvOutputFile;
-    private OutputStream csvOutputStream;
-    private BufferedWriter csvWriter;
+
+    // trace output
+    private TraceSink traceSink;
+    private TraceSink activeTraceSink;
+    private Concept[] tracedConcepts;
+    private double[] traceOutputs;
 
     public SimpleFcmRunner() {
     }
@@ -67,6 +89,49 @@ public class SimpleFcmRunner extends BaseFcmRunner {
         this.maxDelta = maxDelta;
     }
 
+    /**
+     * Configure cycle detection of {@link #converge()}, disabled by default: computation stops when the outputs
+     * of all concepts are the same as in one of the last <code>history</code> epochs. With <code>quantum</code>
+     * 0.0 outputs must be exactly the same, so the map would cycle forever and {@link #converge()} returns
+     * <code>false</code> anyway; with <code>quantum &gt; 0.0</code> outputs are rounded to multiples of it, and
+     * a map that changes by less than <code>quantum</code> stops as {@link RunResult.StopReason#FIXED_POINT}.
+     * <p>
+     * Either way the run stops early: final outputs, epoch listeners and trace output are those of the epoch
+     * that closed the cycle, not of the last of <code>maxEpochs</code> epochs. Each epoch costs an additional
+     * pass over all concepts, and <code>history</code> &times; concepts longs are kept in memory.
+     * Disabled for maps with delayed connections, whose state includes past outputs.
+     * </p>
+     *
+     * @param history number of past states to remember, 0 to disable (default);
+     *                e.g. {@link #DEFAULT_CYCLE_HISTORY}
+     * @param quantum resolution of output comparison, 0.0 for exact comparison
+     */
+    public void setCycleDetection(int history, double quantum) {
+        if (history < 0) {
+            throw new IllegalArgumentException("history < 0");
+        }
+        if (!(quantum >= 0.0) || Double.isInfinite(quantum)) {
+            throw new IllegalArgumentException("Invalid quantum: " + quantum);
+        }
+        this.cycleHistory = history;
+        this.cycleQuantum = quantum;
+        this.cycleDetector = null;
+    }
+
+    /**
+     * Destination of per-epoch outputs, replaces CSV output file if set.
+     * Wrap it in an {@link AsyncTraceSink} to write from a background thread.
+     *
+     * @param traceSink trace destination, <code>null</code> to disable
+     */
+    public void setTraceSink(TraceSink traceSink) {
+        this.traceSink = traceSink;
+    }
+
+    public TraceSink getTraceSink() {
+        return traceSink;
+    }
+
     /**
      * File to output CSV values to, default charset (UTF-8)
      *
@@ -96,20 +161,45 @@ public class SimpleFcmRunner extends BaseFcmRunner {
         Double delta;
 
         try {
+            startRun();
             beforeRun();
 
+            Concept[] concepts = startCycleDetection();
+            int cycleLength = 0;
+
             delta = map.calculateAverageSquareDelta();
             int i = 0;
             while ((delta == null || Double.isNaN(delta) || Double.isInfinite(delta) || delta > maxDelta) && i < maxEpochs) {
                 map.execute();
-                delta = map.calculateAverageSquareDelta();
+                // accumulated by execute()
+                delta = map.getAverageSquareDelta();
                 writeOutputs(i + 1);
                 i++;
+                if (concepts != null && !(delta != null && delta <= maxDelta)) {
+                    cycleLength = cycleDetector.add(i, cycleState(concepts));
+                    if (cycleLength > 0) {
+                        break;
+                    }
+                }
             }
 
             afterRun();
 
+            RunResult.StopReason reason;
+            if (delta != null && delta <= maxDelta) {
+                reason = RunResult.StopReason.CONVERGED;
+            } else if (cycleLength == 1) {
+                reason = RunResult.StopReason.FIXED_POINT;
+            } else if (cycleLength > 1) {
+                reason = RunResult.StopReason.LIMIT_CYCLE;
+            } else {
+                reason = RunResult.StopReason.MAX_EPOCHS;
+            }
+            finishRun(reason, i, delta != null ? delta : Double.NaN,
+                    cycleLength > 0 ? cycleDetector.getCycleStart() : -1, cycleLength);
+
         } catch (Exception ex) {
+            closeTraceQuietly();
             throw new RuntimeException("Error running map", ex);
         }
 
@@ -122,6 +212,7 @@ public class SimpleFcmRunner extends BaseFcmRunner {
         }
 
         try {
+            startRun();
             beforeRun();
 
             // main loop
@@ -132,107 +223,147 @@ public class SimpleFcmRunner extends BaseFcmRunner {
 
             afterRun();
 
+            Double delta = map.getAverageSquareDelta();
+            finishRun(RunResult.StopReason.MAX_EPOCHS, maxEpochs, delta != null ? delta : Double.NaN, -1, 0);
+
         } catch (Exception ex) {
+            closeTraceQuietly();
             throw new RuntimeException("Error running map", ex);
         }
     }
 
     protected void beforeRun() throws IOException {
+        epochState = hasEpochListeners() ? new ConceptsState(map) : null;
         // write headers
         writeHeaders();
         // write initial map state
         writeOutputs(0);
     }
 
+    /**
+     * Flushes and closes trace output
+     *
+     * @throws IOException on write errors
+     */
     protected void afterRun() throws IOException {
-        // close file
-        closeCsvFile();
+        epochState = null;
+        closeTrace();
     }
 
     /**
-     * Create csvOutputFile
+     * Record initial state for cycle detection
      *
-     * @return <code>true</code> if new file, <code>false otherwise</code>
-     * @throws IOException
+     * @return concepts to compare, <code>null</code> if cycle detection is disabled
      */
-    private boolean openOutputFile() throws IOException {
-        boolean created = false;
-        Path path = Paths.get(csvOutputFileName);
-        csvOutputFile = path.toFile();
-
-        if (csvOutputFile.exists()) {
-            if (csvOutputFile.isDirectory()) {
-                throw new IllegalArgumentException("CSV output \"" + path.toAbsolutePath() + "\" is a directory");
-            } else if (!csvOutputFile.canWrite()) {
-                throw new IllegalArgumentException("Cannot write to CSV output file: \"" + path.toAbsolutePath());
-            }
-            // delete old file
-            if (!csvOutputFile.delete()) {
-                throw new IOException("Cannot delete file: " + path.toAbsolutePath());
-            }
-            // re-create file
-            created = csvOutputFile.createNewFile();
-            if (!created) {
-                throw new IOException("Cannot create file: " + path.toAbsolutePath());
-            }
-
-        } else {
-            // create parent directory if necessary
-            if (!csvOutputFile.getParentFile().exists()) {
-                csvOutputFile.getParentFile().mkdirs();
-            }
-            // create file
-            created = csvOutputFile.createNewFile();
-            if (!created) {
-                throw new IOException("Cannot create file: " + path.toAbsolutePath());
+    private Concept[] startCycleDetection() {
+        if (cycleHistory == 0) {
+            return null;
+        }
+        for (FcmConnection conn : map.getConnections().values()) {
+            if (!(conn instanceof WeightedConnection) || ((WeightedConnection) conn).getDelay() > 0) {
+                return null;
             }
         }
+        if (cycleDetector == null) {
+            cycleDetector = new CycleDetector(cycleHistory, cycleQuantum);
+        }
+        cycleDetector.reset();
+        Concept[] concepts = map.getConcepts().values().toArray(new Concept[0]);
+        cycleState = new long[concepts.length];
+        cycleDetector.add(0, cycleState(concepts));
+        return concepts;
+    }
 
-        csvOutputStream = new BufferedOutputStream(new FileOutputStream(csvOutputFile));
-        csvWriter = new BufferedWriter(new OutputStreamWriter(csvOutputStream, csvOutputCharset));
-
-        return created;
+    private long[] cycleState(Concept[] concepts) {
+        for (int i = 0; i < concepts.length; i++) {
+            Concept c = concepts[i];
+            cycleState[i] = cycleDetector.key(c.hasOutput() ? c.getOutputAsDouble() : Double.NaN);
+        }
+        return cycleState;
     }
 
-    private void closeCsvFile() throws IOException {
-        if (csvOutputFile == null) {
+    private void closeTrace() throws IOException {
+        if (activeTraceSink == null) {
             return;
         }
-        csvWriter.close();
-        csvOutputStream.close();
+        TraceSink sink = activeTraceSink;
+        activeTraceSink = null;
+        sink.close();
+    }
+
+    private void closeTraceQuietly() {
+        epochState = null;
+        try {
+            closeTrace();
+        } catch (IOException ioex) {
+            // error already being reported
+        }
     }
 
     private void writeHeaders() throws IOException {
-        if (csvOutputFileName == null) {
+        activeTraceSink = traceSink;
+        if (activeTraceSink == null && csvOutputFileName != null) {
+            activeTraceSink = new CsvTraceSink(csvOutputFileName, csvOutputCharset);
+        }
+        if (activeTraceSink == null) {
             return;
         }
 
-        boolean newFile = openOutputFile();
-        if (newFile) {
-            csvWriter.write("\"iteration\"");
-
-            for (Concept c : map.getConcepts().values()) {
-                csvWriter.write(",");
-                String name = c.getName().replaceAll("\"", "\"\"");
-                csvWriter.write("\"" + name + "\"");
-            }
-            csvWriter.write("\n");
+        tracedConcepts = map.getConcepts().values().toArray(new Concept[0]);
+        traceOutputs = new double[tracedConcepts.length];
+        String[] names = new String[tracedConcepts.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = tracedConcepts[i].getName();
         }
+        activeTraceSink.open(names);
     }
 
     private void writeOutputs(int iteration) throws IOException {
-        if (csvOutputFile == null) {
+        if (epochState != null) {
+            fireEpochCompleted(iteration, epochState);
+        }
+        if (activeTraceSink == null) {
             return;
         }
 
-        csvWriter.write(Integer.toString(iteration));
+        for (int i = 0; i < tracedConcepts.length; i++) {
+            traceOutputs[i] = tracedConcepts[i].getOutputAsDouble();
+        }
+        activeTraceSink.write(iteration, traceOutputs);
+    }
+
+    private static final class ConceptsState implements EpochState {
+
+        private final CognitiveMap map;
+        private final Concept[] concepts;
+
+        ConceptsState(CognitiveMap map) {
+            this.map = map;
+            this.concepts = map.getConcepts().values().toArray(new Concept[0]);
+        }
+
+        public int size() {
+            return concepts.length;
+        }
+
+        public String getConceptName(int index) {
+            return concepts[index].getName();
+        }
 
-        for (Concept c : map.getConcepts().values()) {
-            csvWriter.write(",");
-            if (c.getOutput() != null && !c.getOutput().isNaN() && !c.getOutput().isInfinite()) {
-                csvWriter.write(c.getOutput().toString());
+        public double getOutput(int index) {
+            Concept c = concepts[index];
+            return c.hasOutput() ? c.getOutputAsDouble() : Double.NaN;
+        }
+
+        public void getOutputs(double[] dest) {
+            for (int i = 0; i < concepts.length; i++) {
+                dest[i] = getOutput(i);
             }
         }
-        csvWriter.write("\n");
+
+        public double getAverageSquareDelta() {
+            Double delta = map.getAverageSquareDelta();
+            return delta != null ? delta : Double.NaN;
+        }
     }
 }
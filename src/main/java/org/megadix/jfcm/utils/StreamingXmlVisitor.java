@@ -0,0 +1,343 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.megadix.jfcm.*;
+import org.megadix.jfcm.act.*;
+import org.megadix.jfcm.conn.WeightedConnection;
+
+/**
+ * {@link Visitor} that writes visited maps as JFCM XML (<code>JFCM-map-v-1.2.xsd</code>) directly to an
+ * {@link OutputStream} or {@link Writer}, as visit callbacks arrive: unlike {@link ToXmlVisitor}, no document
+ * is kept in memory. Many maps can be visited in sequence, {@link #close()} completes the document and
+ * closes the destination.
+ */
+public class StreamingXmlVisitor extends BaseVisitor implements Closeable {
+
+    private final Closeable destination;
+    private final XMLStreamWriter xml;
+
+    private boolean started;
+    private boolean inMap;
+    private boolean inConcepts;
+    private boolean closed;
+
+    /**
+     * @param outputStream destination, UTF-8 encoded
+     */
+    public StreamingXmlVisitor(OutputStream outputStream) {
+        this.destination = outputStream;
+        try {
+            this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, "UTF-8");
+        } catch (XMLStreamException ex) {
+            throw new RuntimeException("Error creating XML writer", ex);
+        }
+    }
+
+    public StreamingXmlVisitor(Writer writer) {
+        this.destination = writer;
+        try {
+            this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+        } catch (XMLStreamException ex) {
+            throw new RuntimeException("Error creating XML writer", ex);
+        }
+    }
+
+    public boolean visitCognitiveMap(CognitiveMap _map) {
+        super.visitCognitiveMap(_map);
+
+        try {
+            startDocument();
+            endMap();
+
+            xml.writeStartElement("map");
+            writeAttribute("name", map.getName());
+            writeDescription(map.getDescription());
+            xml.writeStartElement("concepts");
+            inMap = true;
+            inConcepts = true;
+
+        } catch (Exception ex) {
+            throw new RuntimeException("Error visiting map", ex);
+        }
+
+        return true;
+    }
+
+    public boolean visitConcept(Concept _concept) {
+        super.visitConcept(_concept);
+
+        try {
+            if (concept.getConceptActivator() == null) {
+                throw new IllegalStateException("conceptActivator == null, Concept = " + concept.getName());
+            }
+
+            Map<String, String> params = new LinkedHashMap<>();
+            String act = describeActivator(concept.getConceptActivator(), params);
+
+            xml.writeStartElement("concept");
+            writeAttribute("name", concept.getName());
+            xml.writeAttribute("act", act);
+            if (concept.hasInput()) {
+                xml.writeAttribute("input", Double.toString(concept.getInputAsDouble()));
+            }
+            if (concept.hasOutput()) {
+                xml.writeAttribute("output", Double.toString(concept.getOutputAsDouble()));
+            }
+            if (concept.isFixedOutput()) {
+                xml.writeAttribute("fixed", "true");
+            }
+            writeDescription(concept.getDescription());
+            writeParams(params);
+            xml.writeEndElement();
+
+        } catch (Exception ex) {
+            throw new RuntimeException("Error visiting concept", ex);
+        }
+
+        return true;
+    }
+
+    public boolean visitConnection(FcmConnection _connection) {
+        super.visitConnection(_connection);
+
+        try {
+            if (!(connection instanceof WeightedConnection)) {
+                throw new UnsupportedOperationException("FcmConnection implementation not supported: "
+                        + connection.getClass().getName());
+            }
+
+            if (inConcepts) {
+                xml.writeEndElement();
+                xml.writeStartElement("connections");
+                inConcepts = false;
+            }
+
+            WeightedConnection wc = (WeightedConnection) connection;
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("weight", Double.toString(wc.getWeight()));
+            if (wc.getDelay() != 0) {
+                params.put("delay", Integer.toString(wc.getDelay()));
+            }
+
+            xml.writeStartElement("connection");
+            writeAttribute("name", connection.getName());
+            if (connection.getFrom() != null) {
+                xml.writeAttribute("from", connection.getFrom().getName());
+            }
+            if (connection.getTo() != null) {
+                xml.writeAttribute("to", connection.getTo().getName());
+            }
+            xml.writeAttribute("type", "WEIGHTED");
+            writeDescription(connection.getDescription());
+            writeParams(params);
+            xml.writeEndElement();
+
+        } catch (Exception ex) {
+            throw new RuntimeException("Error visiting connection", ex);
+        }
+
+        return true;
+    }
+
+    /**
+     * Complete the document and close destination
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            startDocument();
+            endMap();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Error writing XML output", ex);
+        } finally {
+            destination.close();
+        }
+    }
+
+    /**
+     * Describe a {@link ConceptActivator} as XML, omitting parameters with default values
+     *
+     * @param activator activator
+     * @param params destination of activator parameters
+     * @return activator type, see {@link Constants.ConceptActivatorTypes}
+     * @throws IllegalArgumentException if activator type is not supported
+     */
+    static String describeActivator(ConceptActivator activator, Map<String, String> params) {
+        if (activator instanceof BaseConceptActivator) {
+            BaseConceptActivator act = (BaseConceptActivator) activator;
+            if (act.getThreshold() != BaseConceptActivator.DEFAULT_THRESHOLD) {
+                params.put("threshold", Double.toString(act.getThreshold()));
+            }
+            if (act.isIncludePreviousOutput() != BaseConceptActivator.DEFAULT_INCLUDE_PREVIOUS_OUTPUT) {
+                params.put("includePreviousOutput", Boolean.toString(act.isIncludePreviousOutput()));
+            }
+        }
+
+        if (activator instanceof CauchyActivator) {
+            return Constants.ConceptActivatorTypes.CAUCHY.name();
+
+        } else if (activator instanceof GaussianActivator) {
+            GaussianActivator actImpl = (GaussianActivator) activator;
+            if (actImpl.getWidth() != GaussianActivator.DEFAULT_WIDTH) {
+                params.put("width", Double.toString(actImpl.getWidth()));
+            }
+            if (actImpl.getMaxError() != GaussianActivator.DEFAULT_MAX_ERROR) {
+                params.put("maxError", Double.toString(actImpl.getMaxError()));
+            }
+            return Constants.ConceptActivatorTypes.GAUSS.name();
+
+        } else if (activator instanceof IntervalActivator) {
+            IntervalActivator actImpl = (IntervalActivator) activator;
+            if (actImpl.getMode() != IntervalActivator.DEFAULT_MODE) {
+                params.put("mode", actImpl.getMode().name());
+            }
+            if (actImpl.getZeroValue() != IntervalActivator.DEFAULT_ZERO_VALUE) {
+                params.put("zeroValue", Double.toString(actImpl.getZeroValue()));
+            }
+            if (actImpl.getAmplitude() != IntervalActivator.DEFAULT_AMPLITUDE) {
+                params.put("amplitude", Double.toString(actImpl.getAmplitude()));
+            }
+            return Constants.ConceptActivatorTypes.INTERVAL.name();
+
+        } else if (activator instanceof LinearActivator) {
+            LinearActivator actImpl = (LinearActivator) activator;
+            if (actImpl.getFactor() != LinearActivator.DEFAULT_FACTOR) {
+                params.put("factor", Double.toString(actImpl.getFactor()));
+            }
+            if (actImpl.getMin() != LinearActivator.DEFAULT_MIN) {
+                params.put("min", Double.toString(actImpl.getMin()));
+            }
+            if (actImpl.getMax() != LinearActivator.DEFAULT_MAX) {
+                params.put("max", Double.toString(actImpl.getMax()));
+            }
+            return Constants.ConceptActivatorTypes.LINEAR.name();
+
+        } else if (activator instanceof NaryActivator) {
+            NaryActivator actImpl = (NaryActivator) activator;
+            if (actImpl.getN() != NaryActivator.DEFAULT_N) {
+                params.put("n", Integer.toString(actImpl.getN()));
+            }
+            return Constants.ConceptActivatorTypes.NARY.name();
+
+        } else if (activator instanceof SigmoidActivator) {
+            SigmoidActivator actImpl = (SigmoidActivator) activator;
+            if (actImpl.getK() != SigmoidActivator.DEFAULT_K) {
+                params.put("k", Double.toString(actImpl.getK()));
+            }
+            if (actImpl.getMaxError() != SigmoidActivator.DEFAULT_MAX_ERROR) {
+                params.put("maxError", Double.toString(actImpl.getMaxError()));
+            }
+            return Constants.ConceptActivatorTypes.SIGMOID.name();
+
+        } else if (activator instanceof SignumActivator) {
+            SignumActivator actImpl = (SignumActivator) activator;
+            if (actImpl.getMode() != SignumActivator.DEFAULT_MODE) {
+                params.put("mode", actImpl.getMode().name());
+            }
+            if (actImpl.getZeroValue() != SignumActivator.DEFAULT_ZERO_VALUE) {
+                params.put("zeroValue", Double.toString(actImpl.getZeroValue()));
+            }
+            return Constants.ConceptActivatorTypes.SIGNUM.name();
+
+        } else if (activator instanceof HyperbolicTangentActivator) {
+            HyperbolicTangentActivator actImpl = (HyperbolicTangentActivator) activator;
+            if (actImpl.getMaxError() != HyperbolicTangentActivator.DEFAULT_MAX_ERROR) {
+                params.put("maxError", Double.toString(actImpl.getMaxError()));
+            }
+            return Constants.ConceptActivatorTypes.TANH.name();
+
+        } else {
+            throw new IllegalArgumentException("Unsupported ConceptActivator: " + activator.getClass().getName());
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void startDocument() throws XMLStreamException {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        xml.writeStartDocument("UTF-8", "1.0");
+        xml.writeStartElement("jfcm", "maps", FcmIO.JFCM_SCHEMA_1_2);
+        xml.writeNamespace("jfcm", FcmIO.JFCM_SCHEMA_1_2);
+    }
+
+    private void endMap() throws XMLStreamException {
+        if (!inMap) {
+            return;
+        }
+        if (inConcepts) {
+            // map without connections
+            xml.writeEndElement();
+            xml.writeEmptyElement("connections");
+        } else {
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+        inMap = false;
+        inConcepts = false;
+    }
+
+    private void writeAttribute(String name, String value) throws XMLStreamException {
+        xml.writeAttribute(name, value == null ? "" : value);
+    }
+
+    private void writeDescription(String description) throws XMLStreamException {
+        if (StringUtils.isBlank(description)) {
+            return;
+        }
+        xml.writeStartElement("description");
+        xml.writeCharacters(description);
+        xml.writeEndElement();
+    }
+
+    private void writeParams(Map<String, String> params) throws XMLStreamException {
+        xml.writeStartElement("params");
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            xml.writeEmptyElement("param");
+            xml.writeAttribute("name", param.getKey());
+            xml.writeAttribute("value", param.getValue());
+        }
+        xml.writeEndElement();
+    }
+}
@@ -1,6 +1,8 @@
 package org.megadix.jfcm.utils;
 
 import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.parsers.*;
 import javax.xml.transform.*;
@@ -11,7 +13,6 @@ import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 
 import org.megadix.jfcm.*;
-import org.megadix.jfcm.act.*;
 import org.megadix.jfcm.conn.WeightedConnection;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -106,85 +107,10 @@ public class ToXmlVisitor extends BaseVisitor {
         super.visitConceptActivator(_activator);
 
         try {
-            // append params for ConceptActivator
-
-            if (BaseConceptActivator.class.isAssignableFrom(activator.getClass())) {
-                BaseConceptActivator act = (BaseConceptActivator) activator;
-                if (act.getThreshold() != BaseConceptActivator.DEFAULT_THRESHOLD) {
-                    addXmlParam(xmlElemConceptParams, "threshold", Double.toString(act.getThreshold()));
-                }
-                if (act.isIncludePreviousOutput() != BaseConceptActivator.DEFAULT_INCLUDE_PREVIOUS_OUTPUT) {
-                    addXmlParam(xmlElemConceptParams, "includePreviousOutput",
-                            Boolean.toString(act.isIncludePreviousOutput()));
-                }
-            }
-
-            if (activator instanceof CauchyActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.CAUCHY.name());
-
-            } else if (activator instanceof GaussianActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.GAUSS.name());
-                GaussianActivator actImpl = (GaussianActivator) activator;
-                if (actImpl.getWidth() != GaussianActivator.DEFAULT_WIDTH) {
-                    addXmlParam(xmlElemConceptParams, "width", Double.toString(actImpl.getWidth()));
-                }
-
-            } else if (activator instanceof IntervalActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.INTERVAL.name());
-                IntervalActivator actImpl = (IntervalActivator) activator;
-                if (actImpl.getMode() != IntervalActivator.DEFAULT_MODE) {
-                    addXmlParam(xmlElemConceptParams, "mode", actImpl.getMode().name());
-                }
-                if (actImpl.getZeroValue() != IntervalActivator.DEFAULT_ZERO_VALUE) {
-                    addXmlParam(xmlElemConceptParams, "zeroValue", Double.toString(actImpl.getZeroValue()));
-                }
-                if (actImpl.getAmplitude() != IntervalActivator.DEFAULT_AMPLITUDE) {
-                    addXmlParam(xmlElemConceptParams, "amplitude", Double.toString(actImpl.getAmplitude()));
-                }
-
-            } else if (activator instanceof LinearActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.LINEAR.name());
-                LinearActivator actImpl = (LinearActivator) activator;
-
-                if (actImpl.getFactor() != LinearActivator.DEFAULT_FACTOR) {
-                    addXmlParam(xmlElemConceptParams, "factor", Double.toString(actImpl.getFactor()));
-                }
-                if (actImpl.getMin() != LinearActivator.DEFAULT_MIN) {
-                    addXmlParam(xmlElemConceptParams, "min", Double.toString(actImpl.getMin()));
-                }
-                if (actImpl.getMax() != LinearActivator.DEFAULT_MAX) {
-                    addXmlParam(xmlElemConceptParams, "max", Double.toString(actImpl.getMax()));
-                }
-
-            } else if (activator instanceof NaryActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.NARY.name());
-                NaryActivator actImpl = (NaryActivator) activator;
-                if (actImpl.getN() != NaryActivator.DEFAULT_N) {
-                    addXmlParam(xmlElemConceptParams, "n", Integer.toString(actImpl.getN()));
-                }
-
-            } else if (activator instanceof SigmoidActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.SIGMOID.name());
-                SigmoidActivator actImpl = (SigmoidActivator) activator;
-                if (actImpl.getK() != SigmoidActivator.DEFAULT_K) {
-                    addXmlParam(xmlElemConceptParams, "k", Double.toString(actImpl.getK()));
-                }
-
-            } else if (activator instanceof SignumActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.SIGNUM.name());
-                SignumActivator actImpl = (SignumActivator) activator;
-                if (actImpl.getMode() != SignumActivator.DEFAULT_MODE) {
-                    addXmlParam(xmlElemConceptParams, "mode", actImpl.getMode().name());
-                }
-                if (actImpl.getZeroValue() != SignumActivator.DEFAULT_ZERO_VALUE) {
-                    addXmlParam(xmlElemConceptParams, "zeroValue", Double.toString(actImpl.getZeroValue()));
-                }
-
-            } else if (activator instanceof HyperbolicTangentActivator) {
-                xmlElemConcept.setAttribute("act", Constants.ConceptActivatorTypes.TANH.name());
-
-            } else {
-                throw new IllegalArgumentException("Unsupported ConceptActivator: " + activator.getClass().getName());
+            Map<String, String> params = new LinkedHashMap<>();
+            xmlElemConcept.setAttribute("act", StreamingXmlVisitor.describeActivator(activator, params));
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                addXmlParam(xmlElemConceptParams, param.getKey(), param.getValue());
             }
 
         } catch (Exception ex) {
@@ -0,0 +1,54 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of per-epoch concept outputs written by {@link SimpleFcmRunner}.
+ * Outputs are passed as primitive arrays following map order (i.e. concept name order).
+ */
+public interface TraceSink extends Closeable {
+
+    /**
+     * Called once before the first epoch
+     *
+     * @param conceptNames names of concepts, in the same order as outputs
+     * @throws IOException on write errors
+     */
+    void open(String[] conceptNames) throws IOException;
+
+    /**
+     * Write the state of an epoch
+     *
+     * @param iteration epoch number, 0 for initial state
+     * @param outputs concept outputs, <code>Double.NaN</code> if undefined; the array is reused by
+     *            the caller after this method returns
+     * @throws IOException on write errors
+     */
+    void write(int iteration, double[] outputs) throws IOException;
+
+    /**
+     * Flush pending data and release resources
+     *
+     * @throws IOException on write errors
+     */
+    void close() throws IOException;
+}
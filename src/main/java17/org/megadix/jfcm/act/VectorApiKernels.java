@@ -0,0 +1,102 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.act;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ScalarKernels} on the <code>jdk.incubator.vector</code> API: same operations in the same order,
+ * so results are bit-for-bit identical. Loaded only if the module is available, see {@link ActivationKernels}.
+ */
+final class VectorApiKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorApiKernels() {
+        // prevents calls
+        throw new UnsupportedOperationException();
+    }
+
+    static void linear(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double factor, double min, double max) {
+        int end = offset + length;
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector x = previousOutput(output, i, includePrev).add(DoubleVector.fromArray(SPECIES, input, i));
+            x.add(threshold).mul(factor)
+                    .lanewise(VectorOperators.MAX, min)
+                    .lanewise(VectorOperators.MIN, max)
+                    .intoArray(result, i);
+        }
+        ScalarKernels.linear(input, output, result, i, end - i, includePrev, threshold, factor, min, max);
+    }
+
+    static void signum(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double below, double zeroValue) {
+        int end = offset + length;
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector x = previousOutput(output, i, includePrev).add(DoubleVector.fromArray(SPECIES, input, i));
+            // NaN compares false: zeroValue
+            DoubleVector.broadcast(SPECIES, zeroValue)
+                    .blend(1.0, x.compare(VectorOperators.GT, threshold))
+                    .blend(below, x.compare(VectorOperators.LT, threshold))
+                    .intoArray(result, i);
+        }
+        ScalarKernels.signum(input, output, result, i, end - i, includePrev, threshold, below, zeroValue);
+    }
+
+    static void interval(double[] input, double[] output, double[] result, int offset, int length,
+            boolean includePrev, double threshold, double amplitude, double outside, double zeroValue) {
+        int end = offset + length;
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector x = previousOutput(output, i, includePrev).add(DoubleVector.fromArray(SPECIES, input, i))
+                    .add(threshold).div(amplitude);
+            VectorMask<Double> out = x.compare(VectorOperators.LE, -1.0).or(x.compare(VectorOperators.GE, 1.0));
+            // NaN compares false: zeroValue
+            DoubleVector.broadcast(SPECIES, zeroValue)
+                    .blend(1.0, x.compare(VectorOperators.GT, -1.0).or(x.compare(VectorOperators.LT, 1.0)))
+                    .blend(outside, out)
+                    .intoArray(result, i);
+        }
+        ScalarKernels.interval(input, output, result, i, end - i, includePrev, threshold, amplitude, outside,
+                zeroValue);
+    }
+
+    /*
+     * private stuff
+     */
+
+    /**
+     * Previous outputs, zero where undefined (NaN) or not included.
+     */
+    private static DoubleVector previousOutput(double[] output, int i, boolean includePrev) {
+        if (!includePrev) {
+            return DoubleVector.zero(SPECIES);
+        }
+        DoubleVector prev = DoubleVector.fromArray(SPECIES, output, i);
+        // NaN is the only value not equal to itself
+        return DoubleVector.zero(SPECIES).blend(prev, prev.compare(VectorOperators.EQ, prev));
+    }
+}
@@ -20,11 +20,14 @@ package org.megadix.jfcm;
 
 import static org.junit.Assert.*;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.*;
 
 import org.junit.Test;
 import org.megadix.jfcm.act.SignumActivator;
 import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
 
 public class CognitiveMapTest {
 
@@ -96,6 +99,36 @@ public class CognitiveMapTest {
         checkTestMap_1(copy);
     }
 
+    @Test
+    public void test_copy_unsortedMaps() {
+        CognitiveMap map_1 = buildTestMap_1();
+        map_1.setConcepts(new HashMap<String, Concept>(map_1.getConcepts()));
+        map_1.setConnections(new HashMap<String, FcmConnection>(map_1.getConnections()));
+        CognitiveMap copy = map_1.copy();
+        checkTestMap_1(copy);
+    }
+
+    @Test
+    public void test_copy_delayed() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(7, 30, 120);
+        for (int i = 0; i < 3; i++) {
+            map.execute();
+        }
+
+        // delay lines are copied too
+        CognitiveMap copy = map.copy();
+        for (FcmConnection conn : map.getConnections().values()) {
+            assertEquals(((WeightedConnection) conn).getDelay(),
+                    ((WeightedConnection) copy.getConnection(conn.getName())).getDelay());
+        }
+        checkSameState(map, copy);
+        for (int i = 0; i < 10; i++) {
+            map.execute();
+            copy.execute();
+            checkSameState(map, copy);
+        }
+    }
+
     @Test
     public void test_addConcept() throws Exception {
         CognitiveMap map = new CognitiveMap("Test map 1");
@@ -262,6 +295,37 @@ public class CognitiveMapTest {
         map.execute();
     }
 
+    @Test
+    public void test_execute_parallel() throws Exception {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        ExecutorService threadPool = Executors.newFixedThreadPool(3);
+        try {
+            checkParallelExecution(forkJoinPool);
+            checkParallelExecution(threadPool);
+        } finally {
+            forkJoinPool.shutdown();
+            threadPool.shutdown();
+        }
+    }
+
+    private void checkParallelExecution(Executor executor) {
+        CognitiveMap expected = CompiledCognitiveMapTest.buildRandomMap(3, 2000, 8000);
+        CognitiveMap actual = CompiledCognitiveMapTest.buildRandomMap(3, 2000, 8000);
+        actual.setExecutor(executor);
+        actual.setParallelThreshold(100);
+
+        for (int epoch = 0; epoch < 10; epoch++) {
+            expected.execute();
+            actual.execute();
+        }
+
+        for (Concept c : expected.getConcepts().values()) {
+            Concept c2 = actual.getConcept(c.getName());
+            assertEquals(c.hasOutput(), c2.hasOutput());
+            assertEquals(c.getOutputAsDouble(), c2.getOutputAsDouble(), 1e-9);
+        }
+    }
+
     @Test
     public void test_reset() {
         CognitiveMap map = buildTestMap_1();
@@ -319,6 +383,132 @@ public class CognitiveMapTest {
         assertEquals(0.25, delta, 0.0);
     }
 
+    @Test
+    public void test_execute_averageSquareDelta() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(5, 200, 600);
+        for (int epoch = 0; epoch < 20; epoch++) {
+            map.execute();
+            Double accumulated = map.getAverageSquareDelta();
+            assertEquals(map.calculateAverageSquareDelta(), accumulated);
+        }
+    }
+
+    @Test
+    public void test_execute_freezeSettledConcepts() throws Exception {
+        for (long seed = 0; seed < 5; seed++) {
+            CognitiveMap expected = CompiledCognitiveMapTest.buildRandomMap(seed, 300, 600);
+            CognitiveMap actual = CompiledCognitiveMapTest.buildRandomMap(seed, 300, 600);
+            actual.setFreezeSettledConcepts(true);
+
+            int settled = 0;
+            for (int epoch = 0; epoch < 60; epoch++) {
+                if (epoch == 30) {
+                    // perturbation between epochs
+                    expected.setOutput("c7", 0.25);
+                    actual.setOutput("c7", 0.25);
+                }
+                expected.execute();
+                actual.execute();
+                // summation order of incoming connections differs between maps
+                assertEquals(expected.getAverageSquareDelta(), actual.getAverageSquareDelta(), 1e-9);
+
+                for (Concept c : expected.getConcepts().values()) {
+                    Concept c2 = actual.getConcept(c.getName());
+                    assertEquals(c.hasOutput(), c2.hasOutput());
+                    assertEquals(c.getOutputAsDouble(), c2.getOutputAsDouble(), 1e-9);
+                    assertEquals(c.getPrevOutputAsDouble(), c2.getPrevOutputAsDouble(), 1e-9);
+                    if (c2.settled) {
+                        settled++;
+                    }
+                }
+            }
+            assertTrue(settled > 0);
+        }
+    }
+
+    @Test
+    public void test_execute_eventDriven() throws Exception {
+        for (long seed = 0; seed < 5; seed++) {
+            CognitiveMap expected = CompiledCognitiveMapTest.buildRandomMap(seed, 300, 600);
+            CognitiveMap actual = CompiledCognitiveMapTest.buildRandomMap(seed, 300, 600);
+            actual.setEventDriven(true);
+            assertEquals(300, actual.getDirtyConceptCount());
+
+            for (int epoch = 0; epoch < 80; epoch++) {
+                if (epoch == 40) {
+                    // perturbation between epochs
+                    expected.setOutput("c7", 0.25);
+                    actual.setOutput("c7", 0.25);
+                    expected.getConcept("c12").setOutput(null);
+                    actual.getConcept("c12").setOutput(null);
+                }
+                expected.execute();
+                actual.execute();
+                checkSameState(expected, actual);
+            }
+            assertTrue(actual.getDirtyConceptCount() < 300);
+        }
+    }
+
+    @Test
+    public void test_execute_eventDriven_reconverge() throws Exception {
+        CognitiveMap expected = buildChainMap(500);
+        CognitiveMap actual = buildChainMap(500);
+        actual.setEventDriven(true);
+
+        for (int epoch = 0; epoch < 600; epoch++) {
+            expected.execute();
+            actual.execute();
+        }
+        checkSameState(expected, actual);
+        assertEquals(0, actual.getDirtyConceptCount());
+
+        // nudge the middle of the chain: only downstream concepts are updated
+        expected.setOutput("c0400", -1.0);
+        actual.setOutput("c0400", -1.0);
+        assertEquals(2, actual.getDirtyConceptCount());
+        for (int epoch = 0; epoch < 10; epoch++) {
+            expected.execute();
+            actual.execute();
+            checkSameState(expected, actual);
+            assertTrue(actual.getDirtyConceptCount() <= 3);
+        }
+    }
+
+    /**
+     * Chain of concepts, each one following the sign of the previous one; first concept is fixed
+     */
+    private static CognitiveMap buildChainMap(int size) {
+        CognitiveMap map = new CognitiveMap("chain");
+        for (int i = 0; i < size; i++) {
+            SignumActivator act = new SignumActivator(0.0, false, SignumActivator.Mode.BIPOLAR, 1.0);
+            map.addConcept(new Concept(String.format("c%04d", i), null, act, null, 0.0, i == 0));
+        }
+        map.getConcept("c0000").setOutput(1.0);
+        for (int i = 1; i < size; i++) {
+            String name = "w" + i;
+            map.addConnection(new WeightedConnection(name, null, 1.0));
+            map.connect(String.format("c%04d", i - 1), name, String.format("c%04d", i));
+        }
+        return map;
+    }
+
+    private static void checkSameState(CognitiveMap expected, CognitiveMap actual) {
+        // summation order of incoming connections differs between maps
+        if (expected.getAverageSquareDelta() == null) {
+            assertNull(actual.getAverageSquareDelta());
+        } else {
+            assertEquals(expected.getAverageSquareDelta(), actual.getAverageSquareDelta(), 1e-9);
+        }
+        for (Concept c : expected.getConcepts().values()) {
+            Concept c2 = actual.getConcept(c.getName());
+            assertEquals(c.hasOutput(), c2.hasOutput());
+            assertEquals(c.getOutputAsDouble(), c2.getOutputAsDouble(), 1e-9);
+            assertEquals(c.hasPrevOutput(), c2.hasPrevOutput());
+            assertEquals(c.getPrevOutputAsDouble(), c2.getPrevOutputAsDouble(), 1e-9);
+        }
+    }
+
     @Test
     public void test_setFixedOutput() throws Exception {
         CognitiveMap map = buildTestMap_1();
@@ -63,6 +63,32 @@ public class ConceptTest {
         assertEquals(3.3, c2.getPrevOutput(), 0.0);
     }
 
+    @Test
+    public void test_primitiveState() throws Exception {
+        Concept c = new Concept("name", "desc", new SignumActivator(), null, 2.0, false);
+        assertFalse(c.hasInput());
+        assertTrue(Double.isNaN(c.getInputAsDouble()));
+        assertTrue(c.hasOutput());
+        assertEquals(2.0, c.getOutputAsDouble(), 0.0);
+
+        c.setOutput(Double.NaN);
+        assertTrue(c.hasOutput());
+        assertTrue(c.getOutput().isNaN());
+
+        c.setOutput(null);
+        assertFalse(c.hasOutput());
+        assertNull(c.getOutput());
+
+        c.setNextOutput(3.0);
+        c.commitUpdate();
+        assertEquals(3.0, c.getOutput(), 0.0);
+
+        c.setNextOutput(null);
+        c.commitUpdate();
+        assertFalse(c.hasOutput());
+        assertFalse(c.hasPrevOutput());
+    }
+
     @Test
     public void test_equals_hashCode() {
         Concept cA = new Concept("A", null);
@@ -23,4 +23,22 @@ public class FcmConnectionTest {
 
         assertNotNull(visitor.connection);
     }
+
+    @Test
+    public void test_setOutput_boxed() {
+        FcmConnection conn = new FcmConnection() {
+            @Override
+            public Double calculateOutput() {
+                setOutput(from.getOutput() != null ? from.getOutput() * 2.0 : null);
+                return getOutput();
+            }
+        };
+        conn.setFrom(new Concept("c1", null, null, null, 0.25, false));
+        assertEquals(0.5, conn.calculateOutput(), 0.0);
+        assertEquals(0.5, conn.getOutputAsDouble(), 0.0);
+
+        conn.getFrom().setOutput(null);
+        assertNull(conn.calculateOutput());
+        assertFalse(conn.hasOutput());
+    }
 }
@@ -0,0 +1,134 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.act;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LookupTableTest {
+
+    private static final double[] MAX_ERRORS = { 1e-3, 1e-6, 1e-9 };
+
+    @Test
+    public void test_evaluate_maxError() {
+        Random rnd = new Random(1);
+        for (LookupTable.Function function : LookupTable.Function.values()) {
+            for (double maxError : MAX_ERRORS) {
+                LookupTable table = function.getTable(maxError);
+                // exp(-x) is tabulated for x >= 0 only
+                double min = function == LookupTable.Function.EXP_NEG ? 0.0 : function.min(maxError / 2.0) - 5.0;
+                double max = function.max(maxError / 2.0) + 5.0;
+                double step = (max - min) / (table.size() * 4);
+
+                // dense grid, including points between samples
+                for (double x = min; x <= max; x += step) {
+                    checkError(function, table, maxError, x);
+                }
+                for (int i = 0; i < 100000; i++) {
+                    checkError(function, table, maxError, min + rnd.nextDouble() * (max - min));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_evaluate_special() {
+        for (LookupTable.Function function : LookupTable.Function.values()) {
+            LookupTable table = function.getTable(1e-6);
+            assertTrue(Double.isNaN(table.evaluate(Double.NaN)));
+            assertEquals(function.value(Double.POSITIVE_INFINITY), table.evaluate(Double.POSITIVE_INFINITY), 0.0);
+        }
+        assertEquals(0.0, LookupTable.Function.SIGMOID.getTable(1e-6).evaluate(-1e300), 0.0);
+        assertEquals(0.0, LookupTable.Function.SIGMOID.getTable(1e-6).evaluate(Double.NEGATIVE_INFINITY), 0.0);
+        assertEquals(-1.0, LookupTable.Function.TANH.getTable(1e-6).evaluate(Double.NEGATIVE_INFINITY), 0.0);
+    }
+
+    @Test
+    public void test_getTable_shared() {
+        assertSame(LookupTable.Function.SIGMOID.getTable(1e-4), LookupTable.Function.SIGMOID.getTable(1e-4));
+        assertNotSame(LookupTable.Function.SIGMOID.getTable(1e-4), LookupTable.Function.TANH.getTable(1e-4));
+        // one table per power of two: 2^-14 <= 7e-5, 1e-4, 1.2e-4 < 2^-13
+        assertSame(LookupTable.Function.SIGMOID.getTable(1e-4), LookupTable.Function.SIGMOID.getTable(7e-5));
+        assertSame(LookupTable.Function.SIGMOID.getTable(1e-4), LookupTable.Function.SIGMOID.getTable(1.2e-4));
+        assertNotSame(LookupTable.Function.SIGMOID.getTable(1e-4), LookupTable.Function.SIGMOID.getTable(1e-5));
+    }
+
+    @Test
+    public void test_getTable_invalid() {
+        double[] invalid = { 0.0, -1e-3, 1.0, Double.NaN, 1e-15 };
+        for (double maxError : invalid) {
+            try {
+                LookupTable.Function.TANH.getTable(maxError);
+                fail("should fail: " + maxError);
+            } catch (IllegalArgumentException ex) {
+                // OK
+            }
+        }
+    }
+
+    @Test
+    public void test_activators_maxError() {
+        Random rnd = new Random(2);
+        for (double maxError : MAX_ERRORS) {
+            SigmoidActivator sigmoid = new SigmoidActivator(0.3, false, 2.5);
+            SigmoidActivator sigmoidApprox = new SigmoidActivator(0.3, false, 2.5);
+            sigmoidApprox.setMaxError(maxError);
+            HyperbolicTangentActivator tanh = new HyperbolicTangentActivator(-0.2, true);
+            HyperbolicTangentActivator tanhApprox = new HyperbolicTangentActivator(-0.2, true);
+            tanhApprox.setMaxError(maxError);
+            GaussianActivator gauss = new GaussianActivator(0.0, false, 3.0);
+            GaussianActivator gaussApprox = new GaussianActivator(0.0, false, 3.0);
+            gaussApprox.setMaxError(maxError);
+
+            for (int i = 0; i < 100000; i++) {
+                double input = rnd.nextDouble() * 40.0 - 20.0;
+                double prevOutput = rnd.nextDouble() * 2.0 - 1.0;
+                assertEquals(sigmoid.activate(input, prevOutput),
+                        sigmoidApprox.activate(input, prevOutput), maxError);
+                assertEquals(tanh.activate(input, prevOutput),
+                        tanhApprox.activate(input, prevOutput), maxError);
+                assertEquals(gauss.activate(input, prevOutput),
+                        gaussApprox.activate(input, prevOutput), maxError);
+            }
+        }
+
+        SigmoidActivator act = new SigmoidActivator();
+        act.setMaxError(1e-6);
+        assertEquals(1e-6, act.getMaxError(), 0.0);
+        act.setMaxError(SigmoidActivator.DEFAULT_MAX_ERROR);
+        assertEquals(1.0 / (1.0 + Math.exp(-0.5)), act.activate(0.5, 0.0), 0.0);
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static void checkError(LookupTable.Function function, LookupTable table, double maxError, double x) {
+        double expected = function.value(x);
+        double actual = table.evaluate(x);
+        if (!(Math.abs(expected - actual) <= maxError)) {
+            fail(function + ", maxError = " + maxError + ", x = " + x + ": expected " + expected + ", actual "
+                    + actual);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.act;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VectorizedActivatorTest {
+
+    @Test
+    public void test_activate_sameAsScalar() {
+        Random rnd = new Random(1);
+        double[] input = new double[1000];
+        double[] output = new double[input.length];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = rnd.nextInt(10) == 0 ? 0.0 : rnd.nextDouble() * 10.0 - 5.0;
+            output[i] = rnd.nextInt(5) == 0 ? Double.NaN : rnd.nextDouble() * 2.0 - 1.0;
+        }
+
+        for (boolean includePreviousOutput : new boolean[] { true, false }) {
+            SigmoidActivator approxSigmoid = new SigmoidActivator(0.1, includePreviousOutput, 3.0);
+            approxSigmoid.setMaxError(1e-6);
+            HyperbolicTangentActivator approxTanh = new HyperbolicTangentActivator(0.1, includePreviousOutput);
+            approxTanh.setMaxError(1e-6);
+            GaussianActivator approxGauss = new GaussianActivator(0.1, includePreviousOutput, 2.0);
+            approxGauss.setMaxError(1e-6);
+
+            BaseConceptActivator[] activators = {
+                    new CauchyActivator(0.1, includePreviousOutput),
+                    new GaussianActivator(0.1, includePreviousOutput, 2.0),
+                    approxGauss,
+                    new IntervalActivator(0.1, includePreviousOutput, IntervalActivator.Mode.BIPOLAR, 0.5, 2.0),
+                    new IntervalActivator(0.1, includePreviousOutput, IntervalActivator.Mode.BINARY, 0.5, 2.0),
+                    new LinearActivator(0.1, includePreviousOutput, 1.5, -1.0, 1.0),
+                    new NaryActivator(0.1, includePreviousOutput, 5),
+                    new SigmoidActivator(0.1, includePreviousOutput, 3.0),
+                    approxSigmoid,
+                    new SignumActivator(0.0, includePreviousOutput, SignumActivator.Mode.BIPOLAR, 0.5),
+                    new SignumActivator(0.0, includePreviousOutput, SignumActivator.Mode.BINARY, 0.5),
+                    new HyperbolicTangentActivator(0.1, includePreviousOutput),
+                    approxTanh };
+
+            for (BaseConceptActivator act : activators) {
+                double[] result = new double[input.length];
+                act.activate(input, output, result, 10, input.length - 20);
+                for (int i = 0; i < input.length; i++) {
+                    double expected = i < 10 || i >= input.length - 10 ? 0.0 : act.activate(input[i], output[i]);
+                    assertEquals(act.getClass().getSimpleName() + "[" + i + "]", expected, result[i], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_activate_subclass() {
+        SigmoidActivator act = new SigmoidActivator() {
+            @Override
+            public double activate(double conceptInput, double conceptOutput) {
+                return 1.0;
+            }
+        };
+        double[] result = new double[3];
+        act.activate(new double[] { -1.0, 0.0, 1.0 }, new double[] { Double.NaN, 0.5, 0.5 }, result, 0, 3);
+        assertArrayEquals(new double[] { 1.0, 1.0, 1.0 }, result, 0.0);
+    }
+
+    @Test
+    public void test_getActivationKey() {
+        assertEquals(new SigmoidActivator(0.5, true, 2.0).getActivationKey(),
+                new SigmoidActivator(0.5, true, 2.0).getActivationKey());
+        assertEquals(new CauchyActivator().getActivationKey(), new CauchyActivator().getActivationKey());
+        assertFalse(new SigmoidActivator(0.5, true, 2.0).getActivationKey().equals(
+                new SigmoidActivator(0.5, true, 3.0).getActivationKey()));
+        assertFalse(new SigmoidActivator(0.5, true, 2.0).getActivationKey().equals(
+                new SigmoidActivator(0.5, false, 2.0).getActivationKey()));
+        assertFalse(new SigmoidActivator(0.0, true, 1.0).getActivationKey().equals(
+                new HyperbolicTangentActivator(0.0, true).getActivationKey()));
+
+        SigmoidActivator approx = new SigmoidActivator();
+        approx.setMaxError(1e-3);
+        assertFalse(approx.getActivationKey().equals(new SigmoidActivator().getActivationKey()));
+    }
+}
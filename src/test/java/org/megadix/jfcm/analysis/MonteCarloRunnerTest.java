@@ -0,0 +1,164 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.act.SigmoidActivator;
+import org.megadix.jfcm.conn.WeightDistribution;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+import org.megadix.jfcm.utils.SimpleFcmRunner;
+
+public class MonteCarloRunnerTest {
+
+    @Test
+    public void test_run_noDistributions() {
+        CognitiveMap map = buildTestMap();
+        MonteCarloResult result = new MonteCarloRunner(map).run(100);
+        assertEquals(100, result.getRuns());
+        assertEquals(0, result.getUnconvergedRuns());
+
+        new SimpleFcmRunner(map, MonteCarloRunner.DEFAULT_MAX_DELTA, 1000).converge();
+        for (Concept c : map.getConcepts().values()) {
+            StreamingStatistics stats = result.getStatistics(c.getName());
+            assertEquals(100, stats.getCount());
+            assertEquals(c.getOutputAsDouble(), stats.getMean(), 1e-6);
+            assertEquals(0.0, stats.getStandardDeviation(), 1e-12);
+        }
+    }
+
+    @Test
+    public void test_run_distributions() {
+        CognitiveMap map = buildTestMap();
+        ((WeightedConnection) map.getConnection("a-b")).setDistribution(WeightDistribution.uniform(-1.0, 1.0));
+        ((WeightedConnection) map.getConnection("b-c")).setDistribution(WeightDistribution.normal(0.5, 0.2));
+        MonteCarloRunner runner = new MonteCarloRunner(map);
+        runner.setBlockSize(32);
+        MonteCarloResult result = runner.run(1000);
+
+        // a is fixed
+        assertEquals(0.0, result.getStandardDeviation("a"), 0.0);
+        assertEquals(1.0, result.getMean("a"), 0.0);
+        // b = sigmoid(b + w): spread over the range of w
+        StreamingStatistics b = result.getStatistics("b");
+        assertTrue(b.getStandardDeviation() > 0.05);
+        assertTrue(b.getQuantile(0.05) < b.getMean() && b.getMean() < b.getQuantile(0.95));
+        assertTrue(b.getMin() < b.getQuantile(0.5) && b.getQuantile(0.5) < b.getMax());
+        assertTrue(result.getStandardDeviation("c") > 0.0);
+        assertTrue(result.getThroughput() > 0.0);
+    }
+
+    @Test
+    public void test_run_parallelSameAsSequential() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(9, 30, 100);
+        int k = 0;
+        for (Object conn : map.getConnections().values()) {
+            WeightedConnection wc = (WeightedConnection) conn;
+            double w = wc.getWeight();
+            switch (k++ % 3) {
+            case 0:
+                wc.setDistribution(WeightDistribution.uniform(w - 0.1, w + 0.1));
+                break;
+            case 1:
+                wc.setDistribution(WeightDistribution.triangular(w - 0.2, w, w + 0.1));
+                break;
+            default:
+                break;
+            }
+        }
+        MonteCarloRunner runner = new MonteCarloRunner(map);
+        runner.setMaxEpochs(50);
+        runner.setBlockSize(16);
+        runner.setSeed(7);
+        MonteCarloResult expected = runner.run(300);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            runner.setExecutor(executor);
+            MonteCarloResult actual = runner.run(300);
+            assertEquals(expected.getUnconvergedRuns(), actual.getUnconvergedRuns());
+            for (String name : expected.getConceptNames()) {
+                StreamingStatistics e = expected.getStatistics(name);
+                StreamingStatistics a = actual.getStatistics(name);
+                assertEquals(e.getCount(), a.getCount());
+                assertEquals(e.getMean(), a.getMean(), 0.0);
+                assertEquals(e.getVariance(), a.getVariance(), 0.0);
+                assertEquals(e.getQuantile(0.9), a.getQuantile(0.9), 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_weightDistributions() {
+        SplitMixRandom rnd = new SplitMixRandom(5);
+        WeightDistribution[] distributions = { WeightDistribution.uniform(-0.5, 1.0),
+                WeightDistribution.triangular(0.0, 0.8, 1.0), WeightDistribution.normal(-0.3, 0.1) };
+        for (WeightDistribution d : distributions) {
+            StreamingStatistics stats = new StreamingStatistics();
+            for (int k = 0; k < 100000; k++) {
+                stats.add(d.sample(rnd));
+            }
+            assertEquals(d.getMean(), stats.getMean(), 0.01);
+        }
+        StreamingStatistics triangular = new StreamingStatistics();
+        for (int k = 0; k < 100000; k++) {
+            triangular.add(distributions[1].sample(rnd));
+        }
+        assertTrue(triangular.getMin() >= 0.0 && triangular.getMax() <= 1.0);
+        assertEquals(0.4, triangular.getQuantile(0.2), 0.01);
+        assertEquals(0.8, triangular.getQuantile(0.8), 0.01);
+    }
+
+    @Test
+    public void test_splitMixRandom() {
+        SplitMixRandom a = new SplitMixRandom(11);
+        SplitMixRandom b = new SplitMixRandom(11);
+        assertEquals(a.nextLong(), b.nextLong());
+        SplitMixRandom a1 = a.split();
+        SplitMixRandom b1 = b.split();
+        assertEquals(a1.nextDouble(), b1.nextDouble(), 0.0);
+        assertEquals(a.nextInt(100), b.nextInt(100));
+        assertTrue(a1.nextLong() != a.nextLong());
+    }
+
+    /**
+     * a (fixed) -&gt; b -&gt; c
+     */
+    private static CognitiveMap buildTestMap() {
+        CognitiveMap map = new CognitiveMap("test");
+        map.addConcept(new Concept("a", null, new SigmoidActivator(), null, 1.0, true));
+        map.addConcept(new Concept("b", null, new SigmoidActivator(), null, 0.5, false));
+        map.addConcept(new Concept("c", null, new SigmoidActivator(), null, 0.5, false));
+        map.addConnection(new WeightedConnection("a-b", null, 0.4));
+        map.addConnection(new WeightedConnection("b-c", null, 0.7));
+        map.connect("a", "a-b", "b");
+        map.connect("b", "b-c", "c");
+        return map;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuantileSketchTest {
+
+    @Test
+    public void test_getQuantile_exactBelowCapacity() {
+        QuantileSketch sketch = new QuantileSketch(16);
+        for (int v = 10; v >= 1; v--) {
+            sketch.add(v);
+        }
+        sketch.add(Double.NaN);
+        assertEquals(10, sketch.getCount());
+        assertEquals(1.0, sketch.getQuantile(0.0), 0.0);
+        assertEquals(1.0, sketch.getQuantile(0.1), 0.0);
+        assertEquals(5.0, sketch.getQuantile(0.5), 0.0);
+        assertEquals(9.0, sketch.getQuantile(0.9), 0.0);
+        assertEquals(10.0, sketch.getQuantile(1.0), 0.0);
+        assertTrue(Double.isNaN(new QuantileSketch().getQuantile(0.5)));
+    }
+
+    @Test
+    public void test_getQuantile_accuracy() {
+        Random rnd = new Random(1);
+        int count = 200000;
+        double[] values = new double[count];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int k = 0; k < count; k++) {
+            values[k] = rnd.nextGaussian();
+            sketch.add(values[k]);
+        }
+        Arrays.sort(values);
+        assertEquals(count, sketch.getCount());
+        assertEquals(values[0], sketch.getMin(), 0.0);
+        assertEquals(values[count - 1], sketch.getMax(), 0.0);
+        for (double q : new double[] { 0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99 }) {
+            assertEquals(q, rank(values, sketch.getQuantile(q)), 0.01);
+        }
+    }
+
+    @Test
+    public void test_merge() {
+        Random rnd = new Random(2);
+        double[] values = new double[50000];
+        QuantileSketch merged = new QuantileSketch();
+        for (int part = 0; part < 10; part++) {
+            QuantileSketch sketch = new QuantileSketch(64 * (part % 3 + 1));
+            for (int k = 0; k < 5000; k++) {
+                double value = rnd.nextDouble() * (part + 1);
+                sketch.add(value);
+                values[part * 5000 + k] = value;
+            }
+            merged.merge(sketch);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, merged.getCount());
+        assertEquals(values[0], merged.getMin(), 0.0);
+        assertEquals(values[values.length - 1], merged.getMax(), 0.0);
+        for (double q = 0.05; q < 1.0; q += 0.05) {
+            assertEquals(q, rank(values, merged.getQuantile(q)), 0.02);
+        }
+    }
+
+    @Test
+    public void test_streamingStatistics_merge() {
+        Random rnd = new Random(3);
+        StreamingStatistics all = new StreamingStatistics();
+        StreamingStatistics merged = new StreamingStatistics();
+        double sum = 0.0;
+        double sumSq = 0.0;
+        int count = 0;
+        for (int part = 0; part < 5; part++) {
+            StreamingStatistics stats = new StreamingStatistics();
+            for (int k = 0; k < 1000 * (part + 1); k++) {
+                double value = 10.0 + rnd.nextGaussian() * (part + 1);
+                stats.add(value);
+                all.add(value);
+                sum += value;
+                sumSq += value * value;
+                count++;
+            }
+            merged.merge(stats);
+        }
+        double mean = sum / count;
+        double variance = (sumSq - count * mean * mean) / (count - 1);
+        assertEquals(count, merged.getCount());
+        assertEquals(mean, all.getMean(), 1e-9);
+        assertEquals(mean, merged.getMean(), 1e-9);
+        assertEquals(variance, all.getVariance(), 1e-6);
+        assertEquals(variance, merged.getVariance(), 1e-6);
+    }
+
+    /**
+     * @return fraction of sorted values &lt; value
+     */
+    private static double rank(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return (double) (index < 0 ? -index - 1 : index) / sorted.length;
+    }
+}
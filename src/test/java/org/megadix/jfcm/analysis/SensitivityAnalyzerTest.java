@@ -0,0 +1,152 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.act.SigmoidActivator;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+import org.megadix.jfcm.utils.SimpleFcmRunner;
+
+public class SensitivityAnalyzerTest {
+
+    @Test
+    public void test_oneAtATime_sameAsSimpleFcmRunner() {
+        CognitiveMap map = buildTestMap();
+        SensitivityAnalyzer analyzer = new SensitivityAnalyzer(map);
+        analyzer.setMaxDelta(1e-20);
+        SensitivityResult result = analyzer.oneAtATime();
+        assertEquals(SensitivityResult.Method.ONE_AT_A_TIME, result.getMethod());
+        assertArrayEquals(new String[] { "a", "b", "c", "d" }, result.getInputNames());
+        assertEquals(4, result.getRuns());
+        assertEquals(0, result.getUnconvergedRuns());
+        assertTrue(result.isBaselineConverged());
+        assertNull(result.getInteractionEffects());
+
+        CognitiveMap baselineMap = map.copy();
+        new SimpleFcmRunner(baselineMap, 1e-20, 1000).converge();
+        for (String input : result.getInputNames()) {
+            CognitiveMap perturbed = baselineMap.copy();
+            Concept concept = perturbed.getConcepts().get(input);
+            double x = concept.getOutputAsDouble();
+            double h = x + 0.1 <= 1.0 ? 0.1 : -0.1;
+            concept.setOutput(x + h);
+            concept.setFixedOutput(true);
+            new SimpleFcmRunner(perturbed, 1e-20, 1000).converge();
+
+            for (Concept c : perturbed.getConcepts().values()) {
+                double y0 = baselineMap.getConcepts().get(c.getName()).getOutputAsDouble();
+                assertEquals((c.getOutputAsDouble() - y0) / h, result.getMainEffect(input, c.getName()), 1e-6);
+            }
+        }
+        assertEquals(1.0, result.getMainEffect("a", "a"), 1e-9);
+        assertEquals(0.0, result.getMainEffect("c", "a"), 0.0);
+        assertEquals(0.0, result.getMainEffect("a", "d"), 0.0);
+        assertTrue(result.getMainEffect("a", "c") > 0.0);
+        assertTrue(result.getMainEffect("b", "c") < 0.0);
+    }
+
+    @Test
+    public void test_morris() {
+        CognitiveMap map = buildTestMap();
+        SensitivityAnalyzer analyzer = new SensitivityAnalyzer(map);
+        analyzer.setInputs("a", "b");
+        SensitivityResult result = analyzer.morris(10, SensitivityAnalyzer.DEFAULT_LEVELS);
+        assertEquals(30, result.getRuns());
+        assertEquals(2, result.getMainEffects().length);
+        assertTrue(result.getMainEffect("a", "c") > 0.0);
+        assertTrue(result.getMainEffect("b", "c") > 0.0);
+        assertEquals(0.0, result.getMainEffect("a", "d"), 0.0);
+        assertEquals(0.0, result.getMainEffect("b", "a"), 0.0);
+        assertEquals(0.0, result.getInteractionEffect("b", "a"), 0.0);
+        assertEquals(1.0, result.getMainEffect("a", "a"), 1e-12);
+    }
+
+    @Test
+    public void test_sobol() {
+        CognitiveMap map = buildTestMap();
+        SensitivityAnalyzer analyzer = new SensitivityAnalyzer(map);
+        analyzer.setInputs("a", "d");
+        analyzer.setSeed(3);
+        SensitivityResult result = analyzer.sobol(2000);
+        assertEquals(2000 * 4, result.getRuns());
+
+        // c depends on a only
+        assertEquals(1.0, result.getMainEffect("a", "c"), 0.05);
+        assertEquals(1.0, result.getInteractionEffect("a", "c"), 0.05);
+        assertEquals(0.0, result.getMainEffect("d", "c"), 0.0);
+        assertEquals(0.0, result.getInteractionEffect("d", "c"), 0.0);
+        assertEquals(1.0, result.getMainEffect("a", "b"), 0.05);
+        assertEquals(1.0, result.getMainEffect("d", "d"), 0.1);
+        assertEquals(0.0, result.getMainEffect("a", "d"), 0.0);
+    }
+
+    @Test
+    public void test_parallelSameAsSequential() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(5, 40, 150);
+        SensitivityAnalyzer analyzer = new SensitivityAnalyzer(map);
+        analyzer.setMaxEpochs(50);
+        analyzer.setInputs("c0", "c1", "c3", "c9");
+        SensitivityResult expected = analyzer.morris(8, 6);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            analyzer.setExecutor(executor);
+            SensitivityResult actual = analyzer.morris(8, 6);
+            assertEquals(expected.getUnconvergedRuns(), actual.getUnconvergedRuns());
+            for (int j = 0; j < 4; j++) {
+                assertArrayEquals(expected.getMainEffects()[j], actual.getMainEffects()[j], 0.0);
+                assertArrayEquals(expected.getInteractionEffects()[j], actual.getInteractionEffects()[j], 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_setInputs_notFound() {
+        new SensitivityAnalyzer(buildTestMap()).setInputs("a", "x");
+    }
+
+    /**
+     * a -&gt; c &lt;- b, a -&gt; b; d isolated; a and d fixed
+     */
+    private static CognitiveMap buildTestMap() {
+        CognitiveMap map = new CognitiveMap("test");
+        map.addConcept(new Concept("a", null, new SigmoidActivator(), null, 0.5, true));
+        map.addConcept(new Concept("b", null, new SigmoidActivator(), null, 0.3, false));
+        map.addConcept(new Concept("c", null, new SigmoidActivator(), null, 0.2, false));
+        map.addConcept(new Concept("d", null, new SigmoidActivator(), null, 0.7, true));
+        map.addConnection(new WeightedConnection("a-c", null, 0.8));
+        map.addConnection(new WeightedConnection("b-c", null, -0.6));
+        map.addConnection(new WeightedConnection("a-b", null, 0.5));
+        map.connect("a", "a-c", "c");
+        map.connect("b", "b-c", "c");
+        map.connect("a", "a-b", "b");
+        return map;
+    }
+}
@@ -123,6 +123,35 @@ public class WeightedConnectionTest {
         assertNotNull(delay_10.getOutput());
     }
 
+    @Test
+    public void test_calculateOutput_delayValues() throws Exception {
+        Concept c1 = new Concept("c1", null, null, null, null, true);
+        Concept c2 = new Concept("c2", null, new LinearActivator(), null, null, false);
+        WeightedConnection conn = new WeightedConnection("c1-c2", null, 2.0, 3);
+        c1.connectOutputTo(conn);
+        conn.connectOutputTo(c2);
+
+        // source outputs, null = undefined
+        Double[] outputs = { 1.0, 2.0, null, 4.0, 5.0, 6.0, null, 8.0 };
+        for (int i = 0; i < outputs.length; i++) {
+            c1.setOutput(outputs[i]);
+            conn.calculateOutput();
+            if (i < 3 || outputs[i - 3] == null) {
+                assertFalse("epoch " + i, conn.hasOutput());
+            } else {
+                assertEquals("epoch " + i, outputs[i - 3] * 2.0, conn.getOutputAsDouble(), 0.0);
+            }
+        }
+
+        // delay line is emptied
+        conn.setDelay(1);
+        c1.setOutput(10.0);
+        conn.calculateOutput();
+        assertFalse(conn.hasOutput());
+        conn.calculateOutput();
+        assertEquals(20.0, conn.getOutputAsDouble(), 0.0);
+    }
+
     @Test
     public void test_calculateOutput_null() throws Exception {
         Concept c1 = new Concept("c1", null, null, null, null, true);
@@ -0,0 +1,180 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.conn.WeightedConnection;
+
+public class BatchCognitiveMapTest {
+
+    @Test
+    public void test_execute_sameAsCompiled() {
+        for (MapCompiler.Backend backend : new MapCompiler.Backend[] { MapCompiler.Backend.DENSE,
+                MapCompiler.Backend.SPARSE }) {
+            for (long seed = 0; seed < 5; seed++) {
+                CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(seed, 40, 150);
+                int scenarios = 7;
+                Random rnd = new Random(seed);
+
+                BatchCognitiveMap batch = new BatchCognitiveMap(MapCompiler.compile(map, backend), scenarios);
+                CompiledCognitiveMap[] single = new CompiledCognitiveMap[scenarios];
+                for (int s = 0; s < scenarios; s++) {
+                    single[s] = MapCompiler.compile(map, backend);
+                    for (int i = 0; i < batch.size(); i++) {
+                        int r = rnd.nextInt(10);
+                        if (r == 0) {
+                            batch.clearOutput(s, i);
+                            single[s].clearOutput(i);
+                        } else if (r == 1) {
+                            batch.setFixedOutput(s, i, true);
+                            single[s].setFixedOutput(i, true);
+                        } else {
+                            double value = rnd.nextDouble() * 2.0 - 1.0;
+                            batch.setOutput(s, i, value);
+                            single[s].setOutput(i, value);
+                        }
+                    }
+                }
+
+                double[] deltas = new double[scenarios];
+                for (int epoch = 0; epoch < 30; epoch++) {
+                    batch.execute();
+                    batch.calculateAverageSquareDeltas(deltas);
+                    for (int s = 0; s < scenarios; s++) {
+                        single[s].execute();
+                        assertEquals(single[s].calculateAverageSquareDelta(), deltas[s], 0.0);
+                        for (int i = 0; i < batch.size(); i++) {
+                            assertEquals(single[s].hasOutput(i), batch.hasOutput(s, i));
+                            assertEquals(single[s].getOutput(i), batch.getOutput(s, i), 0.0);
+                            assertEquals(single[s].getPrevOutput(i), batch.getPrevOutput(s, i), 0.0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_execute_inactive() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(3, 20, 60);
+        BatchCognitiveMap batch = new BatchCognitiveMap(MapCompiler.compile(map), 2);
+        CompiledCognitiveMap single = MapCompiler.compile(map);
+
+        batch.execute();
+        single.execute();
+        double[] output = new double[batch.size()];
+        double[] prevOutput = new double[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            output[i] = batch.getOutput(1, i);
+            prevOutput[i] = batch.getPrevOutput(1, i);
+        }
+
+        boolean[] active = { true, false };
+        for (int epoch = 0; epoch < 5; epoch++) {
+            batch.execute(active);
+            single.execute();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(single.getOutput(i), batch.getOutput(0, i), 0.0);
+            assertEquals(output[i], batch.getOutput(1, i), 0.0);
+            assertEquals(prevOutput[i], batch.getPrevOutput(1, i), 0.0);
+        }
+    }
+
+    @Test
+    public void test_reset() {
+        CompiledCognitiveMap compiled = MapCompiler.compile(CompiledCognitiveMapTest.buildRandomMap(12, 30, 100));
+        double[] initial = new double[compiled.size()];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = compiled.getOutput(i);
+        }
+        BatchCognitiveMap batch = new BatchCognitiveMap(compiled, 2);
+
+        // state of the compiled map changes after the batch was created
+        compiled.execute();
+        compiled.setOutput(0, 0.123);
+        batch.execute();
+        batch.reset();
+        for (int s = 0; s < 2; s++) {
+            for (int i = 0; i < initial.length; i++) {
+                assertEquals(initial[i], batch.getOutput(s, i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void test_setWeights() {
+        for (MapCompiler.Backend backend : new MapCompiler.Backend[] { MapCompiler.Backend.DENSE,
+                MapCompiler.Backend.SPARSE }) {
+            CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(11, 30, 100);
+            MapTopology topology = MapCompiler.compile(map, backend).getTopology();
+            int scenarios = 3;
+            Random rnd = new Random(11);
+
+            BatchCognitiveMap batch = new BatchCognitiveMap(MapCompiler.compile(map, backend), scenarios);
+            CompiledCognitiveMap[] single = new CompiledCognitiveMap[scenarios];
+            for (int s = 0; s < scenarios; s++) {
+                CognitiveMap copy = CompiledCognitiveMapTest.buildRandomMap(11, 30, 100);
+                double[] weights = new double[topology.getEdgeCount()];
+                for (int e = 0; e < weights.length; e++) {
+                    weights[e] = s == 0 ? topology.getWeights()[e] : rnd.nextDouble() * 2.0 - 1.0;
+                    ((WeightedConnection) copy.getConnection(topology.getConnectionName(e))).setWeight(weights[e]);
+                }
+                if (s > 0) {
+                    batch.setWeights(s, weights);
+                }
+                single[s] = MapCompiler.compile(copy, backend);
+            }
+            assertEquals(topology.getWeights()[5], batch.getWeight(0, 5), 0.0);
+            double[] infinite = topology.getWeights();
+            infinite[0] = Double.POSITIVE_INFINITY;
+            try {
+                batch.setWeights(1, infinite);
+                fail("should fail");
+            } catch (IllegalArgumentException ex) {
+                // OK
+            }
+
+            for (int epoch = 0; epoch < 20; epoch++) {
+                batch.execute();
+                for (int s = 0; s < scenarios; s++) {
+                    single[s].execute();
+                    for (int i = 0; i < batch.size(); i++) {
+                        assertEquals(single[s].getOutput(i), batch.getOutput(s, i), 1e-9);
+                    }
+                }
+            }
+
+            batch.reset();
+            CompiledCognitiveMap initial = MapCompiler.compile(map, backend);
+            for (int s = 0; s < scenarios; s++) {
+                for (int i = 0; i < batch.size(); i++) {
+                    assertEquals(initial.hasOutput(i), batch.hasOutput(s, i));
+                    assertEquals(initial.getOutput(i), batch.getOutput(s, i), 0.0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.exec;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.megadix.jfcm.*;
+import org.megadix.jfcm.act.*;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.utils.FcmIO;
+import org.megadix.jfcm.utils.SimpleFcmRunnerTest;
+
+public class CompiledCognitiveMapTest {
+
+    private static final MapCompiler.Backend[] BACKENDS = { MapCompiler.Backend.DENSE, MapCompiler.Backend.SPARSE };
+
+    /**
+     * Build a random map using every built-in activator, delays and parallel connections.
+     *
+     * @param seed random seed
+     * @param size number of concepts
+     * @param connections number of connections
+     * @return new map
+     */
+    public static CognitiveMap buildRandomMap(long seed, int size, int connections) {
+        Random rnd = new Random(seed);
+        CognitiveMap map = new CognitiveMap("Random map " + seed);
+
+        for (int i = 0; i < size; i++) {
+            BaseConceptActivator act;
+            switch (i % 8) {
+            case 0:
+                act = new SigmoidActivator(0.1, rnd.nextBoolean(), 1.0 + rnd.nextDouble());
+                break;
+            case 1:
+                act = new HyperbolicTangentActivator(0.1, rnd.nextBoolean());
+                break;
+            case 2:
+                act = new SignumActivator(0.1, rnd.nextBoolean(), SignumActivator.Mode.BINARY, 0.5);
+                break;
+            case 3:
+                act = new LinearActivator(0.0, rnd.nextBoolean(), 0.5, -1.0, 1.0);
+                break;
+            case 4:
+                act = new GaussianActivator(0.0, rnd.nextBoolean(), 1.5);
+                break;
+            case 5:
+                act = new CauchyActivator(0.2, rnd.nextBoolean());
+                break;
+            case 6:
+                act = new NaryActivator(0.0, rnd.nextBoolean(), 4);
+                break;
+            default:
+                act = new IntervalActivator(0.0, rnd.nextBoolean(), IntervalActivator.Mode.BIPOLAR, 0.0, 2.0);
+                break;
+            }
+            Double output = rnd.nextInt(5) == 0 ? null : rnd.nextDouble() * 2.0 - 1.0;
+            map.addConcept(new Concept("c" + i, null, act, null, output, rnd.nextInt(10) == 0));
+        }
+
+        for (int i = 0; i < connections; i++) {
+            int delay = rnd.nextInt(6) == 0 ? 1 + rnd.nextInt(4) : 0;
+            String name = "conn" + i;
+            map.addConnection(new WeightedConnection(name, null, rnd.nextDouble() * 2.0 - 1.0, delay));
+            map.connect("c" + rnd.nextInt(size), name, "c" + rnd.nextInt(size));
+        }
+
+        return map;
+    }
+
+    @Test
+    public void test_execute_exact() throws Exception {
+        for (MapCompiler.Backend backend : BACKENDS) {
+            checkEquivalence(SimpleFcmRunnerTest.buildTestMap_1(), backend, 20, 0.0);
+            checkEquivalence(FcmIO.loadXml(getClass().getResourceAsStream(
+                    "/org/megadix/jfcm/utils/FcmIOTest_1.fcm.xml")).get(0), backend, 20, 0.0);
+        }
+    }
+
+    @Test
+    public void test_execute_random() {
+        for (MapCompiler.Backend backend : BACKENDS) {
+            for (long seed = 0; seed < 10; seed++) {
+                checkEquivalence(buildRandomMap(seed, 40, 150), backend, 50, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void test_chooseBackend() {
+        assertTrue(MapCompiler.compile(buildRandomMap(0, 10, 80)) instanceof DenseCognitiveMap);
+        assertTrue(MapCompiler.compile(buildRandomMap(0, 100, 300)) instanceof SparseCognitiveMap);
+        assertTrue(MapCompiler.compile(new CognitiveMap("empty")) instanceof SparseCognitiveMap);
+    }
+
+    @Test
+    public void test_execute_nullAndInfinite() {
+        CognitiveMap map = new CognitiveMap("test");
+        map.addConcept(new Concept("a", null, null, null, Double.POSITIVE_INFINITY, true));
+        map.addConcept(new Concept("b", null, null, null, null, false));
+        map.addConcept(new Concept("c", null, new SigmoidActivator(), null, 0.5, false));
+        map.addConcept(new Concept("d", null, new SigmoidActivator(), null, 0.5, false));
+        map.addConcept(new Concept("e", null, new SigmoidActivator(), null, 0.5, false));
+        map.addConnection(new WeightedConnection("a-c", null, 1.0));
+        map.addConnection(new WeightedConnection("b-d", null, 1.0));
+        map.connect("a", "a-c", "c");
+        map.connect("b", "b-d", "d");
+
+        CompiledCognitiveMap compiled = MapCompiler.compile(map);
+        compiled.execute();
+
+        assertTrue(Double.isNaN(compiled.getOutput(compiled.indexOf("c"))));
+        assertTrue(compiled.hasOutput(compiled.indexOf("c")));
+        assertFalse(compiled.hasOutput(compiled.indexOf("d")));
+        assertFalse(compiled.hasOutput(compiled.indexOf("e")));
+        assertEquals(0.5, compiled.getPrevOutput(compiled.indexOf("e")), 0.0);
+    }
+
+    @Test
+    public void test_execute_nonFiniteWeights() {
+        for (MapCompiler.Backend backend : BACKENDS) {
+            CognitiveMap map = new CognitiveMap("test");
+            map.addConcept(new Concept("undefined", null, null, null, null, false));
+            map.addConcept(new Concept("zero", null, null, null, 0.0, true));
+            map.addConcept(new Concept("one", null, null, null, 1.0, true));
+            map.addConcept(new Concept("b", null, new SigmoidActivator(), null, null, false));
+            map.addConcept(new Concept("c", null, new SigmoidActivator(), null, null, false));
+            map.addConnection(new WeightedConnection("undefined-b", null, Double.POSITIVE_INFINITY));
+            map.addConnection(new WeightedConnection("one-b", null, 1.0));
+            map.addConnection(new WeightedConnection("undefined-c", null, Double.NaN));
+            map.addConnection(new WeightedConnection("zero-c", null, Double.NEGATIVE_INFINITY));
+            map.connect("undefined", "undefined-b", "b");
+            map.connect("one", "one-b", "b");
+            map.connect("undefined", "undefined-c", "c");
+            map.connect("zero", "zero-c", "c");
+
+            assertEquals(1, MapCompiler.compileTopology(map).getDirectEdgeCount());
+            BatchCognitiveMap batch = new BatchCognitiveMap(MapCompiler.compile(map, backend), 2);
+            checkEquivalence(map, backend, 3, 0.0);
+            for (int epoch = 0; epoch < 3; epoch++) {
+                batch.execute();
+            }
+            for (String name : new String[] { "b", "c" }) {
+                assertEquals(map.getConcept(name).getOutputAsDouble(), batch.getOutput(1, batch.indexOf(name)), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void test_compile_activatorGroups() {
+        CognitiveMap map = new CognitiveMap("test");
+        map.addConcept(new Concept("a", null, null, null, 1.0, true));
+        for (int i = 0; i < 3; i++) {
+            map.addConcept(new Concept("s" + i, null, new SigmoidActivator(), null, 0.5, false));
+            map.addConcept(new Concept("t" + i, null, new HyperbolicTangentActivator(), null, 0.5, false));
+        }
+        map.addConcept(new Concept("x", null, new SigmoidActivator(0.0, true, 2.0), null, 0.5, false));
+
+        assertEquals(3, MapCompiler.compileTopology(map).getActivatorGroupCount());
+    }
+
+    @Test
+    public void test_compile_activatorsChangedAfterCompile() {
+        CognitiveMap[] maps = new CognitiveMap[2];
+        for (int m = 0; m < maps.length; m++) {
+            maps[m] = new CognitiveMap("test");
+            maps[m].addConcept(new Concept("in", null, null, null, 1.0, true));
+            maps[m].addConcept(new Concept("a", null, new SigmoidActivator(), null, null, false));
+            maps[m].addConcept(new Concept("b", null, new SigmoidActivator(), null, null, false));
+            maps[m].addConnection(new WeightedConnection("in -> a", null, 1.0));
+            maps[m].addConnection(new WeightedConnection("in -> b", null, 1.0));
+            maps[m].connect("in", "in -> a", "a");
+            maps[m].connect("in", "in -> b", "b");
+        }
+        CompiledCognitiveMap compiled = MapCompiler.compile(maps[0]);
+        BatchCognitiveMap batch = new BatchCognitiveMap(compiled, 1);
+        ((SigmoidActivator) maps[0].getConcept("a").getConceptActivator()).setK(10.0);
+
+        compiled.execute();
+        batch.execute();
+        maps[1].execute();
+
+        for (String name : new String[] { "a", "b" }) {
+            double expected = maps[1].getConcept(name).getOutputAsDouble();
+            assertEquals(expected, compiled.getOutput(compiled.indexOf(name)), 1e-9);
+            assertEquals(expected, batch.getOutput(0, batch.indexOf(name)), 1e-9);
+        }
+    }
+
+    @Test
+    public void test_copy() {
+        for (MapCompiler.Backend backend : BACKENDS) {
+            CompiledCognitiveMap compiled = MapCompiler.compile(buildRandomMap(8, 40, 150), backend);
+            for (int epoch = 0; epoch < 3; epoch++) {
+                compiled.execute();
+            }
+
+            CompiledCognitiveMap copy = compiled.copy();
+            assertSame(compiled.getClass(), copy.getClass());
+            assertSame(compiled.getTopology(), copy.getTopology());
+            for (int epoch = 0; epoch < 20; epoch++) {
+                compiled.execute();
+                copy.execute();
+                for (int i = 0; i < compiled.size(); i++) {
+                    assertEquals(compiled.hasOutput(i), copy.hasOutput(i));
+                    assertEquals(compiled.getOutput(i), copy.getOutput(i), 0.0);
+                }
+            }
+
+            // independent state
+            copy.setFixedOutput(0, true);
+            copy.setOutput(0, 0.25);
+            assertFalse(compiled.isFixedOutput(0));
+            compiled.execute();
+            copy.execute();
+            assertEquals(0.25, copy.getOutput(0), 0.0);
+        }
+    }
+
+    @Test
+    public void test_writeTo() {
+        CognitiveMap map = SimpleFcmRunnerTest.buildTestMap_1();
+        CompiledCognitiveMap compiled = MapCompiler.compile(map);
+        compiled.setFixedOutput("c1", -1.0);
+        compiled.execute();
+        compiled.writeTo(map);
+
+        assertTrue(map.getConcept("c1").isFixedOutput());
+        assertEquals(-1.0, map.getConcept("c1").getOutput(), 0.0);
+        assertEquals(1.0, map.getConcept("c2").getOutput(), 0.0);
+        assertEquals(0.0, map.getConcept("c2").getPrevOutput(), 0.0);
+    }
+
+    @Test
+    public void test_compile_unsupported() {
+        CognitiveMap map = new CognitiveMap("test");
+        map.addConcept(new Concept("c1", null, new ConceptActivator() {
+            public void calculateNextOutput(Concept c) {
+                // dummy
+            }
+
+            public void accept(Visitor visitor) {
+                visitor.visitConceptActivator(this);
+            }
+        }, null, null, false));
+
+        try {
+            MapCompiler.compile(map);
+            fail("should fail");
+        } catch (UnsupportedOperationException ex) {
+            // OK
+        }
+    }
+
+    @Test
+    public void test_compile_conceptNotInMap() {
+        // foreign concept, with or without the name of a concept of the map
+        for (String name : new String[] { "x", "c1" }) {
+            CognitiveMap map = new CognitiveMap("test");
+            map.addConcept(new Concept("c1", null, new SigmoidActivator(), null, 0.5, false));
+            map.addConnection(new WeightedConnection("c1-x", null, 1.0));
+            map.getConnection("c1-x").setFrom(map.getConcept("c1"));
+            map.getConnection("c1-x").setTo(new Concept(name, null, new SigmoidActivator(), null, 0.5, false));
+
+            try {
+                MapCompiler.compile(map);
+                fail("should fail");
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().contains("c1-x"));
+            }
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    private void checkEquivalence(CognitiveMap map, MapCompiler.Backend backend, int epochs, double tolerance) {
+        CompiledCognitiveMap compiled = MapCompiler.compile(map, backend);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            map.execute();
+            compiled.execute();
+
+            assertEquals(nullToNaN(map.calculateAverageSquareDelta()), compiled.calculateAverageSquareDelta(),
+                    tolerance);
+
+            for (int i = 0; i < compiled.size(); i++) {
+                Concept c = map.getConcept(compiled.getTopology().getConceptName(i));
+                String msg = map.getName() + " " + backend + ", epoch " + epoch + ", " + c.getName();
+                assertEquals(msg, c.getOutput() != null, compiled.hasOutput(i));
+                assertEquals(msg, nullToNaN(c.getOutput()), compiled.getOutput(i), tolerance);
+                assertEquals(msg, nullToNaN(c.getPrevOutput()), compiled.getPrevOutput(i), tolerance);
+                assertEquals(msg, nullToNaN(c.getInput()), compiled.getInput(i), tolerance);
+            }
+        }
+    }
+
+    private static double nullToNaN(Double d) {
+        return d == null ? Double.NaN : d;
+    }
+}
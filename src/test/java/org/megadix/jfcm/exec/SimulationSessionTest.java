@@ -0,0 +1,114 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.exec;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.utils.CompiledFcmRunner;
+import org.megadix.jfcm.utils.SimpleFcmRunnerTest;
+
+public class SimulationSessionTest {
+
+    @Test
+    public void test_converge_sameAsCompiledFcmRunner() {
+        CognitiveMap map = SimpleFcmRunnerTest.buildTestMap_1();
+        MapModel model = new MapModel(map);
+        SimulationSession session = model.newSession();
+
+        CompiledFcmRunner runner = new CompiledFcmRunner(map, 0.001, 100);
+        assertEquals(runner.converge(), session.converge(0.001, 100));
+
+        CompiledCognitiveMap expected = runner.getCompiledMap();
+        for (int i = 0; i < model.size(); i++) {
+            assertEquals(expected.getOutput(i), session.getOutput(i), 0.0);
+        }
+        assertEquals(expected.getAverageSquareDelta(), session.getAverageSquareDelta(), 0.0);
+    }
+
+    @Test
+    public void test_sessions_independent() {
+        MapModel model = new MapModel(CompiledCognitiveMapTest.buildRandomMap(9, 40, 150));
+        SimulationSession s1 = model.newSession();
+        SimulationSession s2 = model.newSession();
+
+        s1.setFixedOutput(0, true);
+        s1.setOutput(0, 0.75);
+        s1.run(10);
+        assertEquals(10, s1.getEpochs());
+        assertEquals(0, s2.getEpochs());
+        assertFalse(s2.isFixedOutput(0));
+        assertFalse(model.newSession().isFixedOutput(0));
+
+        // restart: same state as a new session, delay history included
+        s2.run(10);
+        double[] expected = s2.getOutputs(null);
+        s2.restart();
+        s2.run(10);
+        assertArrayEquals(expected, s2.getOutputs(null), 0.0);
+    }
+
+    @Test
+    public void test_sessions_concurrent() throws Exception {
+        final MapModel model = new MapModel(CompiledCognitiveMapTest.buildRandomMap(10, 200, 1000));
+        final int scenarios = 32;
+
+        // expected results, one scenario at a time
+        List<double[]> expected = new ArrayList<>();
+        for (int s = 0; s < scenarios; s++) {
+            expected.add(runScenario(model, s));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int s = 0; s < scenarios; s++) {
+                final int scenario = s;
+                futures.add(executor.submit(new Callable<double[]>() {
+                    public double[] call() {
+                        return runScenario(model, scenario);
+                    }
+                }));
+            }
+            for (int s = 0; s < scenarios; s++) {
+                assertArrayEquals(expected.get(s), futures.get(s).get(), 0.0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static double[] runScenario(MapModel model, int scenario) {
+        SimulationSession session = model.newSession();
+        session.setFixedOutput(scenario % model.size(), true);
+        session.setOutput(scenario % model.size(), 1.0);
+        session.run(30);
+        return session.getOutputs(null);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+import org.megadix.jfcm.exec.MapCompiler;
+import org.megadix.jfcm.exec.MapTopology;
+import org.megadix.jfcm.utils.SimpleFcmRunner;
+
+public class HebbianLearningTest {
+
+    @Test
+    public void test_learn_nhl() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(1, 30, 100);
+        MapTopology topology = MapCompiler.compileTopology(map);
+        double[][] trajectory = buildTrajectory(map, 30);
+
+        HebbianLearning learning = new HebbianLearning(topology);
+        LearningResult result = learning.learn(trajectory);
+        assertEquals(LearningResult.StopReason.CONVERGED, result.getReason());
+        assertTrue(result.getSweeps() > 1);
+        assertTrue(result.getMaxChange() <= HebbianLearning.DEFAULT_TOLERANCE);
+
+        double[] initial = topology.getWeights();
+        double[] learned = result.getWeights();
+        boolean changed = false;
+        for (int e = 0; e < learned.length; e++) {
+            assertTrue(learned[e] >= -1.0 && learned[e] <= 1.0);
+            assertTrue(initial[e] * learned[e] >= 0.0);
+            changed |= initial[e] != learned[e];
+        }
+        assertTrue(changed);
+
+        result.applyTo(map);
+        for (int e = 0; e < learned.length; e++) {
+            String name = topology.getConnectionName(e);
+            assertEquals(learned[e], ((WeightedConnection) map.getConnection(name)).getWeight(), 0.0);
+            assertEquals(learned[e], result.getWeight(name), 0.0);
+        }
+    }
+
+    @Test
+    public void test_applyTo_missingConnection() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(1, 30, 100);
+        MapTopology topology = MapCompiler.compileTopology(map);
+        LearningResult result = new HebbianLearning(topology).learn(buildTrajectory(map, 30));
+
+        // last edge of the topology is missing: no weight is changed
+        CognitiveMap other = CompiledCognitiveMapTest.buildRandomMap(1, 30, 100);
+        other.getConnections().remove(topology.getConnectionName(topology.getEdgeCount() - 1));
+        try {
+            result.applyTo(other);
+            fail("should fail");
+        } catch (IllegalArgumentException ex) {
+            // OK
+        }
+        double[] initial = topology.getWeights();
+        for (int e = 0; e < topology.getEdgeCount() - 1; e++) {
+            WeightedConnection conn = (WeightedConnection) other.getConnection(topology.getConnectionName(e));
+            assertEquals(initial[e], conn.getWeight(), 0.0);
+        }
+    }
+
+    @Test
+    public void test_learn_singleStep() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(2, 5, 8);
+        MapTopology topology = MapCompiler.compileTopology(map);
+        double[][] trajectory = { { 0.1, 0.2, 0.3, 0.4, 0.5 } };
+        double[] initial = new double[topology.getEdgeCount()];
+        for (int e = 0; e < initial.length; e++) {
+            initial[e] = 0.5;
+        }
+
+        HebbianLearning learning = new HebbianLearning(topology);
+        learning.setMaxSweeps(1);
+        learning.setLearningRate(0.1);
+        learning.setDecay(0.1);
+        LearningResult result = learning.learn(trajectory, initial);
+        assertEquals(LearningResult.StopReason.MAX_SWEEPS, result.getReason());
+        for (int e = 0; e < initial.length; e++) {
+            if (topology.getEdgeDelay(e) > 0) {
+                // no source value before the first step
+                assertEquals(0.5, result.getWeight(e), 0.0);
+            } else {
+                double s = trajectory[0][topology.getEdgeSource(e)];
+                double t = trajectory[0][topology.getEdgeTarget(e)];
+                assertEquals(0.9 * 0.5 + 0.1 * t * (s - 0.5 * t), result.getWeight(e), 1e-15);
+            }
+        }
+    }
+
+    @Test
+    public void test_learn_ahl() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(3, 20, 60);
+        MapTopology topology = MapCompiler.compileTopology(map);
+
+        // nothing changes: no concept is activated
+        double[][] constant = new double[10][topology.size()];
+        for (double[] row : constant) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = 0.5;
+            }
+        }
+        HebbianLearning learning = new HebbianLearning(topology);
+        learning.setRule(HebbianLearning.Rule.AHL);
+        LearningResult result = learning.learn(constant);
+        assertEquals(1, result.getSweeps());
+        assertEquals(0.0, result.getMaxChange(), 0.0);
+        assertArrayEquals(topology.getWeights(), result.getWeights(), 0.0);
+
+        learning.setRule(HebbianLearning.Rule.NHL);
+        assertTrue(learning.learn(constant).getMaxChange() > 0.0);
+
+        learning.setRule(HebbianLearning.Rule.AHL);
+        result = learning.learn(buildTrajectory(map, 20));
+        assertEquals(LearningResult.StopReason.CONVERGED, result.getReason());
+    }
+
+    @Test
+    public void test_learn_parallelSameAsSequential() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(4, 200, 5000);
+        double[][] trajectory = buildTrajectory(map, 20);
+
+        HebbianLearning learning = new HebbianLearning(map);
+        learning.setMaxSweeps(50);
+        LearningResult expected = learning.learn(trajectory);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            learning.setExecutor(executor);
+            learning.setParallelThreshold(1);
+            LearningResult actual = learning.learn(trajectory);
+            assertEquals(expected.getSweeps(), actual.getSweeps());
+            assertEquals(expected.getMaxChange(), actual.getMaxChange(), 0.0);
+            assertArrayEquals(expected.getWeights(), actual.getWeights(), 0.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_learn_invalidTrajectory() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(5, 10, 20);
+        new HebbianLearning(map).learn(new double[][] { new double[9] });
+    }
+
+    /**
+     * Record the trajectory of a copy of a map, the map itself is not executed.
+     *
+     * @param map map to run
+     * @param epochs number of epochs
+     * @return outputs of the initial state and of every epoch
+     */
+    public static double[][] buildTrajectory(CognitiveMap map, int epochs) {
+        SimpleFcmRunner runner = new SimpleFcmRunner(map.copy(), epochs);
+        runner.setRecordTrajectory(true);
+        runner.run();
+        return runner.getLastResult().getTrajectory();
+    }
+}
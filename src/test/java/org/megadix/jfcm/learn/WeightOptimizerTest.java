@@ -0,0 +1,121 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.learn;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.act.SigmoidActivator;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+
+public class WeightOptimizerTest {
+
+    private static final String[] CONNECTIONS = { "a_b", "b_c", "c_a", "a_c" };
+    private static final double[] WEIGHTS = { 0.8, -0.6, 0.5, 0.7 };
+
+    @Test
+    public void test_optimize_recoverWeights() {
+        CognitiveMap map = buildTestMap();
+        double[][] trajectory = HebbianLearningTest.buildTrajectory(map, 10);
+        for (String name : CONNECTIONS) {
+            ((WeightedConnection) map.getConnection(name)).setWeight(0.0);
+        }
+
+        WeightOptimizer optimizer = new WeightOptimizer(map, new TrajectoryError(trajectory));
+        optimizer.setPopulationSize(20);
+        optimizer.setMaxGenerations(1000);
+        optimizer.setTargetError(1e-12);
+        optimizer.setSeed(1);
+        OptimizationResult result = optimizer.optimize();
+        assertEquals(OptimizationResult.StopReason.TARGET_REACHED, result.getReason());
+        assertTrue(result.getError() <= 1e-12);
+        assertEquals(20L * (result.getGenerations() + 1), result.getEvaluations());
+        assertTrue(result.getThroughput() > 0.0);
+
+        result.applyTo(map);
+        for (int k = 0; k < CONNECTIONS.length; k++) {
+            assertEquals(WEIGHTS[k], ((WeightedConnection) map.getConnection(CONNECTIONS[k])).getWeight(), 1e-3);
+        }
+    }
+
+    @Test
+    public void test_optimize_initialWeightsReachTarget() {
+        CognitiveMap map = buildTestMap();
+        double[][] trajectory = HebbianLearningTest.buildTrajectory(map, 5);
+        WeightOptimizer optimizer = new WeightOptimizer(map, new TrajectoryError(trajectory));
+        OptimizationResult result = optimizer.optimize();
+        assertEquals(OptimizationResult.StopReason.TARGET_REACHED, result.getReason());
+        assertEquals(0, result.getGenerations());
+        assertEquals(0.0, result.getError(), 0.0);
+    }
+
+    @Test
+    public void test_optimize_deterministic() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(7, 20, 60);
+        TrajectoryError fitness = new TrajectoryError(
+                HebbianLearningTest.buildTrajectory(CompiledCognitiveMapTest.buildRandomMap(8, 20, 60), 10));
+
+        WeightOptimizer optimizer = new WeightOptimizer(map, fitness);
+        optimizer.setMaxGenerations(20);
+        optimizer.setSeed(42);
+        OptimizationResult expected = optimizer.optimize();
+        assertEquals(OptimizationResult.StopReason.MAX_GENERATIONS, expected.getReason());
+        assertEquals(20, expected.getGenerations());
+
+        OptimizationResult again = optimizer.optimize();
+        assertEquals(expected.getError(), again.getError(), 0.0);
+        assertArrayEquals(expected.getWeights(), again.getWeights(), 0.0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            optimizer.setExecutor(executor);
+            OptimizationResult parallel = optimizer.optimize();
+            assertEquals(expected.getError(), parallel.getError(), 0.0);
+            assertArrayEquals(expected.getWeights(), parallel.getWeights(), 0.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_optimize_wrongSize() {
+        CognitiveMap map = buildTestMap();
+        new WeightOptimizer(map, new TrajectoryError(new double[2][4])).optimize();
+    }
+
+    private static CognitiveMap buildTestMap() {
+        CognitiveMap map = new CognitiveMap("test");
+        map.addConcept(new Concept("a", null, new SigmoidActivator(), null, 0.9, false));
+        map.addConcept(new Concept("b", null, new SigmoidActivator(), null, 0.1, false));
+        map.addConcept(new Concept("c", null, new SigmoidActivator(), null, 0.4, false));
+        for (int k = 0; k < CONNECTIONS.length; k++) {
+            String name = CONNECTIONS[k];
+            map.addConnection(new WeightedConnection(name, null, WEIGHTS[k]));
+            map.connect(name.substring(0, 1), name, name.substring(2));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AsyncTraceSinkTest {
+
+    /**
+     * Records every snapshot, optionally slowing down the writer thread
+     */
+    private static class RecordingSink implements TraceSink {
+        final List<Integer> iterations = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<double[]> outputs = Collections.synchronizedList(new ArrayList<double[]>());
+        final long delay;
+        volatile boolean closed;
+
+        RecordingSink(long delay) {
+            this.delay = delay;
+        }
+
+        public void open(String[] conceptNames) {
+            // nothing to do
+        }
+
+        public void write(int iteration, double[] values) throws IOException {
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+            }
+            iterations.add(iteration);
+            outputs.add(values.clone());
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void test_block() throws Exception {
+        RecordingSink target = new RecordingSink(1);
+        AsyncTraceSink sink = new AsyncTraceSink(target, 2, AsyncTraceSink.Backpressure.BLOCK, 1);
+        sink.open(new String[] { "a", "b" });
+
+        double[] outputs = new double[2];
+        for (int i = 0; i < 50; i++) {
+            outputs[0] = i;
+            outputs[1] = -i;
+            sink.write(i, outputs);
+        }
+        sink.close();
+
+        assertTrue(target.closed);
+        assertEquals(50, target.iterations.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, target.iterations.get(i).intValue());
+            assertEquals(i, target.outputs.get(i)[0], 0.0);
+            assertEquals(-i, target.outputs.get(i)[1], 0.0);
+        }
+    }
+
+    @Test
+    public void test_drop() throws Exception {
+        RecordingSink target = new RecordingSink(2);
+        AsyncTraceSink sink = new AsyncTraceSink(target, 1, AsyncTraceSink.Backpressure.DROP, 1);
+        sink.open(new String[] { "a" });
+
+        double[] outputs = new double[1];
+        for (int i = 0; i < 200; i++) {
+            sink.write(i, outputs);
+        }
+        sink.close();
+
+        assertTrue(sink.getDroppedCount() > 0);
+        assertEquals(200, target.iterations.size() + sink.getDroppedCount());
+    }
+
+    @Test
+    public void test_sample() throws Exception {
+        RecordingSink target = new RecordingSink(0);
+        AsyncTraceSink sink = new AsyncTraceSink(target, 4, AsyncTraceSink.Backpressure.SAMPLE, 10);
+        sink.open(new String[] { "a" });
+
+        double[] outputs = new double[1];
+        for (int i = 0; i <= 100; i++) {
+            sink.write(i, outputs);
+        }
+        sink.close();
+
+        assertEquals(11, target.iterations.size());
+        for (int i = 0; i < target.iterations.size(); i++) {
+            assertEquals(i * 10, target.iterations.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void test_error() throws Exception {
+        TraceSink target = new RecordingSink(0) {
+            @Override
+            public void write(int iteration, double[] values) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        AsyncTraceSink sink = new AsyncTraceSink(target);
+        sink.open(new String[] { "a" });
+        sink.write(0, new double[1]);
+
+        try {
+            sink.close();
+            fail("should fail");
+        } catch (IOException ex) {
+            assertEquals("disk full", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+import org.megadix.jfcm.exec.MapCompiler;
+
+public class BatchFcmRunnerTest {
+
+    @Test
+    public void test_converge() {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(5, 30, 90);
+        BatchFcmRunner runner = new BatchFcmRunner(map, 0.001, 100);
+
+        int scenarios = 50;
+        Random rnd = new Random(5);
+        double[][] initialOutputs = runner.createInitialOutputs(scenarios);
+        boolean[][] fixedOutputs = runner.createFixedOutputs(scenarios);
+        for (int s = 0; s < scenarios; s++) {
+            for (int i = 0; i < initialOutputs[s].length; i++) {
+                initialOutputs[s][i] = rnd.nextInt(5) == 0 ? Double.NaN : rnd.nextDouble() * 2.0 - 1.0;
+            }
+            fixedOutputs[s][rnd.nextInt(fixedOutputs[s].length)] = true;
+        }
+
+        BatchResult result = runner.converge(initialOutputs, fixedOutputs);
+        assertEquals(scenarios, result.getScenarioCount());
+
+        boolean anyConverged = false;
+        for (int s = 0; s < scenarios; s++) {
+            // same scenario, alone
+            CompiledCognitiveMap compiled = MapCompiler.compile(map);
+            for (int i = 0; i < compiled.size(); i++) {
+                if (Double.isNaN(initialOutputs[s][i])) {
+                    compiled.clearOutput(i);
+                } else {
+                    compiled.setOutput(i, initialOutputs[s][i]);
+                }
+                compiled.setFixedOutput(i, fixedOutputs[s][i]);
+            }
+            double delta = compiled.calculateAverageSquareDelta();
+            int epochs = 0;
+            while ((Double.isNaN(delta) || Double.isInfinite(delta) || delta > 0.001) && epochs < 100) {
+                compiled.execute();
+                delta = compiled.calculateAverageSquareDelta();
+                epochs++;
+            }
+
+            assertEquals(epochs, result.getEpochs(s));
+            assertEquals(delta <= 0.001, result.isConverged(s));
+            for (int i = 0; i < compiled.size(); i++) {
+                assertEquals(compiled.getOutput(i), result.getOutputs(s)[i], 0.0);
+            }
+            anyConverged |= result.isConverged(s);
+        }
+        assertTrue(anyConverged);
+    }
+
+    @Test
+    public void test_run() {
+        CognitiveMap map = SimpleFcmRunnerTest.buildTestMap_1();
+        BatchFcmRunner runner = new BatchFcmRunner(map, 0.0, 10);
+        double[][] initialOutputs = runner.createInitialOutputs(2);
+        initialOutputs[1][runner.indexOf("c1")] = -1.0;
+
+        BatchResult result = runner.run(initialOutputs, null);
+
+        new CompiledFcmRunner(map, 10).run();
+        assertEquals(map.getConcept("c2").getOutput(), result.getOutput(0, "c2"), 0.0);
+        assertEquals(10, result.getEpochs(0));
+        assertEquals(10, result.getEpochs(1));
+        assertEquals(-1.0, result.getOutput(1, "c1"), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_converge_noMap() {
+        new BatchFcmRunner(0.1, 10).converge(new double[1][1], null);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+import org.megadix.jfcm.exec.MapCompiler;
+
+public class CompiledFcmRunnerTest {
+
+    @Test
+    public void test_converge() {
+        CognitiveMap map = SimpleFcmRunnerTest.buildTestMap_1();
+        FcmRunner runner = new CompiledFcmRunner(map, 0.1, 1000);
+        assertTrue(runner.converge());
+
+        assertTrue(map.calculateAverageSquareDelta() <= 0.1);
+    }
+
+    @Test
+    public void test_converge_sameAsSimpleFcmRunner() {
+        for (MapCompiler.Backend backend : MapCompiler.Backend.values()) {
+            CognitiveMap expected = CompiledCognitiveMapTest.buildRandomMap(1, 50, 120);
+            CognitiveMap actual = CompiledCognitiveMapTest.buildRandomMap(1, 50, 120);
+
+            boolean expectedResult = new SimpleFcmRunner(expected, 0.001, 200).converge();
+            CompiledFcmRunner runner = new CompiledFcmRunner(actual, 0.001, 200);
+            runner.setBackend(backend);
+            assertEquals(expectedResult, runner.converge());
+
+            for (Concept c : expected.getConcepts().values()) {
+                Concept c2 = actual.getConcept(c.getName());
+                assertEquals(c.getOutput() == null, c2.getOutput() == null);
+                if (c.getOutput() != null) {
+                    assertEquals(c.getOutput(), c2.getOutput(), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_run() {
+        CognitiveMap map = SimpleFcmRunnerTest.buildTestMap_1();
+        CompiledFcmRunner runner = new CompiledFcmRunner(map, 10);
+        runner.run();
+
+        assertEquals(-1.0, map.getConcept("c2").getOutput(), 0.0);
+        assertNotNull(runner.getCompiledMap());
+    }
+
+    @Test
+    public void test_run_trajectorySameAsSimpleFcmRunner() {
+        BaseFcmRunner[] runners = { new SimpleFcmRunner(CompiledCognitiveMapTest.buildRandomMap(2, 30, 90), 20),
+                new CompiledFcmRunner(CompiledCognitiveMapTest.buildRandomMap(2, 30, 90), 20) };
+        final double[][] last = new double[runners.length][30];
+        final int[] epochs = new int[runners.length];
+        for (int r = 0; r < runners.length; r++) {
+            final int index = r;
+            runners[r].setRecordTrajectory(true);
+            runners[r].addEpochListener(new EpochListener() {
+                public void epochCompleted(int epoch, EpochState state) {
+                    assertEquals(epochs[index]++, epoch);
+                    state.getOutputs(last[index]);
+                }
+            });
+            runners[r].run();
+            assertEquals(21, epochs[r]);
+        }
+
+        RunResult expected = runners[0].getLastResult();
+        RunResult actual = runners[1].getLastResult();
+        assertEquals(RunResult.StopReason.MAX_EPOCHS, actual.getReason());
+        assertEquals(20, actual.getEpochs());
+        assertTrue(actual.getWallTimeNanos() > 0);
+        assertArrayEquals(expected.getConceptNames(), actual.getConceptNames());
+        assertEquals(21, actual.getTrajectory().length);
+        for (int epoch = 0; epoch < actual.getTrajectory().length; epoch++) {
+            assertArrayEquals(expected.getTrajectory()[epoch], actual.getTrajectory()[epoch], 1e-9);
+        }
+        assertArrayEquals(last[0], actual.getTrajectory()[20], 1e-9);
+        assertArrayEquals(last[1], actual.getTrajectory()[20], 0.0);
+        assertEquals(expected.getAverageSquareDelta(), actual.getAverageSquareDelta(), 1e-9);
+    }
+
+    @Test
+    public void test_converge_result() {
+        CompiledFcmRunner runner = new CompiledFcmRunner(SimpleFcmRunnerTest.buildTestMap_1(), 0.1, 1000);
+        assertNull(runner.getLastResult());
+        assertTrue(runner.converge());
+
+        RunResult result = runner.getLastResult();
+        assertEquals(RunResult.StopReason.CONVERGED, result.getReason());
+        assertTrue(result.getAverageSquareDelta() <= 0.1);
+        assertNull(result.getTrajectory());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_converge_noMap() {
+        new CompiledFcmRunner(0.1, 10).converge();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.act.BaseConceptActivator;
+import org.megadix.jfcm.act.SigmoidActivator;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+import org.megadix.jfcm.exec.MapModel;
+import org.megadix.jfcm.exec.SimulationSession;
+
+public class CompiledMapCacheTest {
+
+    @Test
+    public void test_hash() throws Exception {
+        CognitiveMap map = FcmIO.loadXml(getClass().getResourceAsStream("FcmIOTest_1.fcm.xml")).get(0);
+        CognitiveMap same = FcmIO.loadXml(getClass().getResourceAsStream("FcmIOTest_1.fcm.xml")).get(0);
+        String hash = ContentHashVisitor.hash(map);
+        assertEquals(64, hash.length());
+        assertEquals(hash, ContentHashVisitor.hash(same));
+        assertEquals(hash, ContentHashVisitor.hash(map.copy()));
+
+        // descriptions are ignored
+        same.setDescription("another description");
+        assertEquals(hash, ContentHashVisitor.hash(same));
+
+        same.getConcept("c1").setOutput(0.25);
+        assertFalse(hash.equals(ContentHashVisitor.hash(same)));
+
+        same = map.copy();
+        WeightedConnection conn = (WeightedConnection) same.getConnections().values().iterator().next();
+        conn.setWeight(conn.getWeight() + 1e-12);
+        assertFalse(hash.equals(ContentHashVisitor.hash(same)));
+
+        same = map.copy();
+        same.getConcept("c1").setConceptActivator(new SigmoidActivator(0.0, true, 3.0));
+        assertFalse(hash.equals(ContentHashVisitor.hash(same)));
+    }
+
+    @Test
+    public void test_get() throws Exception {
+        CompiledMapCache cache = new CompiledMapCache();
+        CognitiveMap map = FcmIO.loadXml(getClass().getResourceAsStream("FcmIOTest_1.fcm.xml")).get(0);
+
+        MapModel model = cache.get(map);
+        assertEquals(map.getName(), model.getName());
+        assertSame(model, cache.get(FcmIO.loadXml(getClass().getResourceAsStream("FcmIOTest_1.fcm.xml")).get(0)));
+        assertSame(model, cache.getIfPresent(ContentHashVisitor.hash(map)));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(model.estimateMemory(), cache.getMemory());
+
+        map.getConcept("c1").setOutput(0.25);
+        assertNotSame(model, cache.get(map));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getMissCount());
+
+        assertTrue(cache.invalidate(ContentHashVisitor.hash(map)));
+        assertFalse(cache.invalidate(ContentHashVisitor.hash(map)));
+        assertEquals(model.estimateMemory(), cache.getMemory());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMemory());
+    }
+
+    @Test
+    public void test_get_activatorsChangedAfterCompile() {
+        CompiledMapCache cache = new CompiledMapCache();
+        CognitiveMap map = buildSigmoidMap();
+        MapModel model = cache.get(map);
+        ((SigmoidActivator) map.getConcept("a").getConceptActivator()).setK(10.0);
+
+        // hit on the original content, the change does not leak into the cached model
+        CognitiveMap same = buildSigmoidMap();
+        assertSame(model, cache.get(same));
+        SimulationSession session = model.newSession();
+        session.execute();
+        same.execute();
+        assertEquals(same.getConcept("a").getOutputAsDouble(), session.getOutput("a"), 1e-9);
+    }
+
+    @Test
+    public void test_get_customActivators() {
+        CompiledMapCache cache = new CompiledMapCache();
+        cache.get(buildSigmoidMap());
+
+        // subclass of a built-in activator: same parameters, different function
+        CognitiveMap subclass = buildSigmoidMap();
+        subclass.getConcept("a").setConceptActivator(new SigmoidActivator() {
+            @Override
+            public double activate(double conceptInput, double conceptOutput) {
+                return 1.0;
+            }
+        });
+        assertFalse(ContentHashVisitor.hasBuiltInActivators(subclass));
+        assertFalse(ContentHashVisitor.hash(buildSigmoidMap()).equals(ContentHashVisitor.hash(subclass)));
+        SimulationSession session = cache.get(subclass).newSession();
+        session.execute();
+        assertEquals(1.0, session.getOutput("a"), 0.0);
+
+        // custom activator, compiled but not cached
+        CognitiveMap custom = buildSigmoidMap();
+        custom.getConcept("a").setConceptActivator(new BaseConceptActivator() {
+            @Override
+            protected double calculateNextOutputImpl(Concept c) {
+                return 0.25;
+            }
+        });
+        session = cache.get(custom).newSession();
+        session.execute();
+        assertEquals(0.25, session.getOutput("a"), 0.0);
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void test_get_evictLeastRecentlyUsed() {
+        CognitiveMap[] maps = new CognitiveMap[3];
+        for (int i = 0; i < maps.length; i++) {
+            maps[i] = CompiledCognitiveMapTest.buildRandomMap(i, 50, 200);
+        }
+        long size = new MapModel(maps[0]).estimateMemory();
+        assertTrue(size > 0);
+        // room for two models of about the same size
+        CompiledMapCache cache = new CompiledMapCache(size * 5 / 2);
+
+        MapModel model0 = cache.get(maps[0]);
+        cache.get(maps[1]);
+        assertSame(model0, cache.get(maps[0]));
+        cache.get(maps[2]);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getMemory() <= cache.getMaxMemory());
+        assertSame(model0, cache.getIfPresent(ContentHashVisitor.hash(maps[0])));
+        assertNull(cache.getIfPresent(ContentHashVisitor.hash(maps[1])));
+
+        // larger than the budget: compiled, not cached
+        CompiledMapCache small = new CompiledMapCache(size / 2);
+        assertNotNull(small.get(maps[0]));
+        assertEquals(0, small.size());
+        assertEquals(0, small.getMemory());
+    }
+
+    private static CognitiveMap buildSigmoidMap() {
+        CognitiveMap map = new CognitiveMap("sigmoid");
+        map.addConcept(new Concept("in", null, null, null, 1.0, true));
+        map.addConcept(new Concept("a", null, new SigmoidActivator(), null, null, false));
+        map.addConnection(new WeightedConnection("in -> a", null, 1.0));
+        map.connect("in", "in -> a", "a");
+        return map;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.act.GaussianActivator;
+import org.megadix.jfcm.act.HyperbolicTangentActivator;
+import org.megadix.jfcm.act.SigmoidActivator;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+import org.megadix.jfcm.exec.MapCompiler;
+
+public class FcmBinaryTest {
+
+    @Test
+    public void test_saveBinary_loadBinary() throws Exception {
+        CognitiveMap map = FcmIO.loadXml(getClass().getResourceAsStream("FcmIOTest_1.fcm.xml")).get(0);
+        map.getConcept("c2").setOutput(Double.NaN);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FcmIO.saveBinary(map, baos);
+        CognitiveMap loaded = FcmIO.loadBinary(new ByteArrayInputStream(baos.toByteArray()));
+
+        assertEquals(toXml(map), toXml(loaded));
+        assertEquals(map.getConcept("c1").getInConnections().size(),
+                loaded.getConcept("c1").getInConnections().size());
+    }
+
+    @Test
+    public void test_saveBinary_maxError() throws Exception {
+        CognitiveMap map = new CognitiveMap("maxError");
+        SigmoidActivator sigmoid = new SigmoidActivator(0.0, true, 2.0);
+        sigmoid.setMaxError(1e-6);
+        HyperbolicTangentActivator tanh = new HyperbolicTangentActivator();
+        tanh.setMaxError(1e-4);
+        GaussianActivator gauss = new GaussianActivator(0.0, true, 0.5);
+        gauss.setMaxError(1e-3);
+        map.addConcept(new Concept("c1", null, sigmoid, null, 0.5, false));
+        map.addConcept(new Concept("c2", null, tanh, null, 0.5, false));
+        map.addConcept(new Concept("c3", null, gauss, null, 0.5, false));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FcmIO.saveBinary(map, baos);
+        CognitiveMap loaded = FcmIO.loadBinary(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(1e-6, ((SigmoidActivator) loaded.getConcept("c1").getConceptActivator()).getMaxError(), 0.0);
+        assertEquals(1e-4,
+                ((HyperbolicTangentActivator) loaded.getConcept("c2").getConceptActivator()).getMaxError(), 0.0);
+        assertEquals(1e-3, ((GaussianActivator) loaded.getConcept("c3").getConceptActivator()).getMaxError(), 0.0);
+
+        String xml = toXml(map);
+        assertTrue(xml.contains("maxError"));
+        assertEquals(xml, toXml(loaded));
+        assertEquals(xml, toXml(FcmIO.loadXml(new StringReader(xml), true).get(0)));
+    }
+
+    @Test
+    public void test_loadBinary_file() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(3, 50, 200);
+        map.setDescription("Test map èé");
+        File file = tempFile("FcmBinaryTest_test_loadBinary_file.bin");
+        FcmIO.saveBinary(map, file.getPath());
+
+        assertEquals(toXml(map), toXml(FcmIO.loadBinary(file.getPath())));
+    }
+
+    @Test
+    public void test_loadBinaryCompiled() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(4, 60, 250);
+        File file = tempFile("FcmBinaryTest_test_loadBinaryCompiled.bin");
+        FcmIO.saveBinary(map, file.getPath());
+
+        for (MapCompiler.Backend backend : MapCompiler.Backend.values()) {
+            CompiledCognitiveMap expected = MapCompiler.compile(map, backend);
+            CompiledCognitiveMap actual = FcmIO.loadBinaryCompiled(file.getPath(), backend);
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getTopology().getExtraEdgeCount(), actual.getTopology().getExtraEdgeCount());
+
+            for (int epoch = 0; epoch < 20; epoch++) {
+                expected.execute();
+                actual.execute();
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.getTopology().getConceptName(i), actual.getTopology().getConceptName(i));
+                    assertEquals(expected.hasOutput(i), actual.hasOutput(i));
+                    assertEquals(expected.getOutput(i), actual.getOutput(i), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_loadBinary_corrupted() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FcmIO.saveBinary(CompiledCognitiveMapTest.buildRandomMap(5, 10, 20), baos);
+        byte[] data = baos.toByteArray();
+
+        try {
+            FcmIO.loadBinary(new ByteArrayInputStream(Arrays.copyOf(data, data.length / 2)));
+            fail("should fail");
+        } catch (ParseException ex) {
+            // OK
+        }
+
+        data[0] = 'X';
+        try {
+            FcmIO.loadBinary(new ByteArrayInputStream(data));
+            fail("should fail");
+        } catch (ParseException ex) {
+            // OK
+        }
+    }
+
+    @Test
+    public void test_saveBinary_conceptNotInMap() {
+        // foreign concept, with or without the name of a concept of the map
+        for (String name : new String[] { "x", "c2" }) {
+            CognitiveMap map = new CognitiveMap("test");
+            map.addConcept(new Concept("c1", null, new SigmoidActivator(), null, 0.5, false));
+            map.addConcept(new Concept("c2", null, new SigmoidActivator(), null, 0.5, false));
+            map.addConnection(new WeightedConnection("c1-x", null, 1.0));
+            map.getConnection("c1-x").setFrom(map.getConcept("c1"));
+            map.getConnection("c1-x").setTo(new Concept(name, null, new SigmoidActivator(), null, 0.5, false));
+
+            try {
+                FcmIO.saveBinary(map, new ByteArrayOutputStream());
+                fail("should fail");
+            } catch (IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().contains("c1-x"));
+            }
+        }
+    }
+
+    @Test
+    public void test_loadBinary_invalidEndpoints() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FcmIO.saveBinary(CompiledCognitiveMapTest.buildRandomMap(6, 10, 20), baos);
+
+        ByteBuffer valid = ByteBuffer.wrap(baos.toByteArray());
+        valid.putInt(endpointsOffset(valid) + 3 * 4, 9);
+        assertEquals(20, FcmBinary.readMap(valid).getConnections().size());
+
+        for (int value : new int[] { 10, -2, Integer.MAX_VALUE }) {
+            for (int column = 0; column < 2; column++) {
+                ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
+                buffer.putInt(endpointsOffset(buffer) + column * 20 * 4 + 3 * 4, value);
+                try {
+                    FcmBinary.readMap(buffer.duplicate());
+                    fail("should fail");
+                } catch (ParseException ex) {
+                    // OK
+                }
+                buffer.rewind();
+                try {
+                    FcmBinary.readCompiled(buffer, MapCompiler.Backend.AUTO);
+                    fail("should fail");
+                } catch (ParseException ex) {
+                    // OK
+                }
+            }
+        }
+    }
+
+    /*
+     * private stuff
+     */
+
+    /**
+     * @return offset of the array of connection sources, followed by destinations
+     */
+    private static int endpointsOffset(ByteBuffer buffer) {
+        int stringCount = buffer.getInt(8);
+        int offset = 12 + (stringCount + 1) * 4;
+        offset += buffer.getInt(12 + stringCount * 4) + 8;
+        int n = buffer.getInt(offset);
+        offset += 4 + n * (4 + 4 + 1 + 1 + 8 + 8 * FcmBinary.ACT_PARAMS + 8 + 8);
+        int m = buffer.getInt(offset);
+        return offset + 4 + m * 8;
+    }
+
+    private static String toXml(CognitiveMap map) {
+        StringWriter writer = new StringWriter();
+        FcmIO.saveAsXml(map, writer);
+        return writer.toString();
+    }
+
+    private static File tempFile(String name) {
+        File tempDir = new File("target/temp");
+        tempDir.mkdirs();
+        return new File(tempDir, name);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.conn.WeightedConnection;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+
+public class FcmXmlReaderTest {
+
+    @Test
+    public void test_readMap_multipleMaps() throws Exception {
+        List<CognitiveMap> maps = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            maps.add(CompiledCognitiveMapTest.buildRandomMap(i, 20, 50));
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FcmIO.saveAsXml(maps, baos);
+
+        try (FcmXmlReader reader = new FcmXmlReader(new ByteArrayInputStream(baos.toByteArray()), true)) {
+            for (CognitiveMap expected : maps) {
+                CognitiveMap map = reader.readMap();
+                assertNotNull(map);
+                assertEquals(expected.getName(), map.getName());
+                assertEquals(expected.getConcepts().size(), map.getConcepts().size());
+                assertEquals(expected.getConnections().size(), map.getConnections().size());
+
+                for (Concept c : expected.getConcepts().values()) {
+                    Concept c2 = map.getConcept(c.getName());
+                    assertEquals(c.getOutput(), c2.getOutput());
+                    assertEquals(c.isFixedOutput(), c2.isFixedOutput());
+                    assertEquals(c.getConceptActivator().getClass(), c2.getConceptActivator().getClass());
+                    assertEquals(c.getInConnections().size(), c2.getInConnections().size());
+                    assertEquals(c.getOutConnections().size(), c2.getOutConnections().size());
+                }
+                WeightedConnection conn = (WeightedConnection) expected.getConnection("conn7");
+                WeightedConnection conn2 = (WeightedConnection) map.getConnection("conn7");
+                assertEquals(conn.getWeight(), conn2.getWeight(), 0.0);
+                assertEquals(conn.getDelay(), conn2.getDelay());
+                assertEquals(conn.getFrom().getName(), conn2.getFrom().getName());
+                assertEquals(conn.getTo().getName(), conn2.getTo().getName());
+            }
+            assertNull(reader.readMap());
+            assertNull(reader.readMap());
+        }
+    }
+
+    @Test
+    public void test_readMap_validate() throws Exception {
+        InputStream is = getClass().getResourceAsStream("FcmIOTest_1.fcm.xml");
+        try (FcmXmlReader reader = new FcmXmlReader(is, true)) {
+            assertEquals("Test Map", reader.readMap().getName());
+            assertNull(reader.readMap());
+        }
+    }
+
+    @Test
+    public void test_readMap_validate_error() throws Exception {
+        String xml = "<jfcm:maps xmlns:jfcm=\"http://www.megadix.org/standards/JFCM-map-v-1.2.xsd\">"
+                + "<map name=\"m\"><concepts><concept name=\"c1\" act=\"SIGMOID\" output=\"abc\"/></concepts>"
+                + "</map></jfcm:maps>";
+
+        try (FcmXmlReader reader = new FcmXmlReader(new StringReader(xml), true)) {
+            reader.readMap();
+            fail("should fail");
+        } catch (ParseException ex) {
+            // OK
+        }
+
+        // without validation, the same error is found by the parser
+        try (FcmXmlReader reader = new FcmXmlReader(new StringReader(xml))) {
+            reader.readMap();
+            fail("should fail");
+        } catch (ParseException ex) {
+            // OK
+        }
+    }
+
+    @Test
+    public void test_readMap_missingReference() throws Exception {
+        String xml = "<maps><map name=\"m\"><concepts><concept name=\"c1\" act=\"SIGMOID\"/></concepts>"
+                + "<connections><connection name=\"c1-c2\" from=\"c1\" to=\"c2\" type=\"WEIGHTED\"/></connections>"
+                + "</map></maps>";
+
+        try (FcmXmlReader reader = new FcmXmlReader(new StringReader(xml))) {
+            reader.readMap();
+            fail("should fail");
+        } catch (ParseException ex) {
+            assertTrue(ex.getMessage().contains("\"to\""));
+        }
+    }
+}
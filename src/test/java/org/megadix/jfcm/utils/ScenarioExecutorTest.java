@@ -0,0 +1,211 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.exec.CompiledCognitiveMap;
+
+public class ScenarioExecutorTest {
+
+    @Test
+    public void test_submit_sameAsCompiledFcmRunner() throws Exception {
+        ScenarioExecutor executor = ScenarioExecutor.newPlatformThreadExecutor(4);
+        try {
+            CognitiveMap map = SimpleFcmRunnerTest.buildTestMap_1();
+            executor.register("test", "1", map);
+
+            List<Future<ScenarioResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ScenarioRequest request = new ScenarioRequest("test", "1", 0.001, 100);
+                request.setFixedOutput("c1", i / 20.0);
+                futures.add(executor.submit(request));
+            }
+
+            for (int i = 0; i < 20; i++) {
+                CognitiveMap expectedMap = SimpleFcmRunnerTest.buildTestMap_1();
+                expectedMap.setFixedOutput("c1", i / 20.0);
+                CompiledFcmRunner runner = new CompiledFcmRunner(expectedMap, 0.001, 100);
+                boolean converged = runner.converge();
+                CompiledCognitiveMap expected = runner.getCompiledMap();
+
+                ScenarioResult result = futures.get(i).get();
+                assertEquals(converged, result.isConverged());
+                for (Concept c : expectedMap.getConcepts().values()) {
+                    assertEquals(expected.getOutput(expected.indexOf(c.getName())), result.getOutput(c.getName()),
+                            0.0);
+                }
+            }
+
+            assertEquals(20, executor.getSubmittedCount());
+            assertEquals(20, executor.getCompletedCount());
+            assertEquals(20, executor.getCompletedCount(ScenarioResult.Status.CONVERGED));
+            assertEquals(0, executor.getQueuedCount());
+            assertEquals(0, executor.getRunningCount());
+            assertTrue(executor.getEpochCount() > 0);
+            assertTrue(executor.getThroughput() > 0.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_submit_timeout() throws Exception {
+        ScenarioExecutor executor = ScenarioExecutor.newPlatformThreadExecutor(1);
+        try {
+            executor.register("osc", "1", SimpleFcmRunnerTest.buildOscillator());
+
+            ScenarioRequest request = new ScenarioRequest("osc", "1", 0.001, Integer.MAX_VALUE);
+            request.setTimeout(50, TimeUnit.MILLISECONDS);
+            ScenarioResult result = executor.submit(request).get(10, TimeUnit.SECONDS);
+
+            assertEquals(ScenarioResult.Status.TIMED_OUT, result.getStatus());
+            assertTrue(result.getEpochs() > 0);
+            assertEquals(1, executor.getCompletedCount(ScenarioResult.Status.TIMED_OUT));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_submit_maxEpochs() throws Exception {
+        ScenarioExecutor executor = ScenarioExecutor.newVirtualThreadExecutor();
+        try {
+            executor.register("osc", "1", SimpleFcmRunnerTest.buildOscillator());
+            ScenarioResult result = executor.submit(new ScenarioRequest("osc", "1", 0.001, 25)).get();
+
+            assertEquals(ScenarioResult.Status.MAX_EPOCHS, result.getStatus());
+            assertEquals(25, result.getEpochs());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_submit_cancel() throws Exception {
+        ScenarioExecutor executor = ScenarioExecutor.newPlatformThreadExecutor(1);
+        try {
+            executor.register("osc", "1", SimpleFcmRunnerTest.buildOscillator());
+
+            Future<ScenarioResult> running = executor.submit(new ScenarioRequest("osc", "1", 0.001,
+                    Integer.MAX_VALUE));
+            Future<ScenarioResult> queued = executor.submit(new ScenarioRequest("osc", "1", 0.001, 10));
+            while (executor.getRunningCount() == 0) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, executor.getQueuedCount());
+
+            queued.cancel(false);
+            running.cancel(true);
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(2, executor.getCompletedCount(ScenarioResult.Status.CANCELLED));
+            assertEquals(0, executor.getQueuedCount());
+            assertEquals(0, executor.getRunningCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_submit_requestChanged() throws Exception {
+        ScenarioExecutor executor = ScenarioExecutor.newPlatformThreadExecutor(1);
+        try {
+            executor.register("test", "1", SimpleFcmRunnerTest.buildTestMap_1());
+            executor.register("osc", "1", SimpleFcmRunnerTest.buildOscillator());
+
+            ScenarioRequest blocker = new ScenarioRequest("osc", "1", 0.001, Integer.MAX_VALUE);
+            blocker.setTimeout(50, TimeUnit.MILLISECONDS);
+            executor.submit(blocker);
+
+            ScenarioRequest request = new ScenarioRequest("test", "1", 0.001, 100);
+            request.setFixedOutput("c1", 0.5);
+            Future<ScenarioResult> future = executor.submit(request);
+            request.setFixedOutput("c1", 0.9);
+            request.setOutput("c2", 1.0);
+            request.setMaxDelta(0.0);
+            request.setMaxEpochs(1);
+            request.setTimeout(1, TimeUnit.NANOSECONDS);
+
+            ScenarioRequest original = new ScenarioRequest("test", "1", 0.001, 100);
+            original.setFixedOutput("c1", 0.5);
+            ScenarioResult expected = executor.submit(original).get(10, TimeUnit.SECONDS);
+            ScenarioResult result = future.get(10, TimeUnit.SECONDS);
+
+            assertEquals(ScenarioResult.Status.CONVERGED, result.getStatus());
+            assertEquals(expected.getEpochs(), result.getEpochs());
+            assertArrayEquals(expected.getOutputs(), result.getOutputs(), 0.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_averageRunTime_cancelledBeforeStart() throws Exception {
+        ScenarioExecutor executor = ScenarioExecutor.newPlatformThreadExecutor(1);
+        try {
+            executor.register("osc", "1", SimpleFcmRunnerTest.buildOscillator());
+
+            ScenarioRequest blocker = new ScenarioRequest("osc", "1", 0.001, Integer.MAX_VALUE);
+            blocker.setTimeout(50, TimeUnit.MILLISECONDS);
+            Future<ScenarioResult> running = executor.submit(blocker);
+            executor.submit(new ScenarioRequest("osc", "1", 0.001, 10)).cancel(false);
+            ScenarioResult result = running.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(2, executor.getCompletedCount());
+            assertEquals(1, executor.getCompletedCount(ScenarioResult.Status.CANCELLED));
+            assertEquals(result.getRunTimeNanos(), executor.getAverageRunTimeNanos(), 0.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_submit_invalid() throws Exception {
+        ScenarioExecutor executor = ScenarioExecutor.newPlatformThreadExecutor(1, 1);
+        try {
+            executor.register("test", "1", SimpleFcmRunnerTest.buildTestMap_1());
+            try {
+                executor.submit(new ScenarioRequest("test", "2", 0.001, 10));
+                fail("should fail");
+            } catch (IllegalArgumentException ex) {
+                // OK
+            }
+
+            ScenarioRequest request = new ScenarioRequest("test", "1", 0.001, 10);
+            request.setOutput("unknown", 1.0);
+            ScenarioResult result = executor.submit(request).get();
+            assertEquals(ScenarioResult.Status.FAILED, result.getStatus());
+            assertTrue(result.getError() instanceof IllegalArgumentException);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
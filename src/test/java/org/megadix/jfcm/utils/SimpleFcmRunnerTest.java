@@ -22,10 +22,12 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 import org.megadix.jfcm.*;
+import org.megadix.jfcm.act.SigmoidActivator;
 import org.megadix.jfcm.act.SignumActivator;
 import org.megadix.jfcm.conn.WeightedConnection;
 
 import java.io.File;
+import java.io.StringWriter;
 
 public class SimpleFcmRunnerTest {
 
@@ -118,6 +120,22 @@ public class SimpleFcmRunnerTest {
         assertTrue(file.exists());
     }
 
+    @Test
+    public void test_run_asyncTrace() {
+        StringWriter expected = new StringWriter();
+        SimpleFcmRunner runner = new SimpleFcmRunner(buildTestMap_1(), 10);
+        runner.setTraceSink(new CsvTraceSink(expected));
+        runner.run();
+
+        StringWriter actual = new StringWriter();
+        runner = new SimpleFcmRunner(buildTestMap_1(), 10);
+        runner.setTraceSink(new AsyncTraceSink(new CsvTraceSink(actual), 2, AsyncTraceSink.Backpressure.BLOCK, 1));
+        runner.run();
+
+        assertEquals(12, expected.toString().split("\n").length);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
     @Test
     public void test_run_without_file() {
         CognitiveMap map = buildTestMap_1();
@@ -125,4 +143,96 @@ public class SimpleFcmRunnerTest {
         runner.run();
     }
 
+    @Test
+    public void test_converge_limitCycle() {
+        SimpleFcmRunner runner = new SimpleFcmRunner(buildOscillator(), 0.001, 1000);
+        runner.setCycleDetection(SimpleFcmRunner.DEFAULT_CYCLE_HISTORY, 0.0);
+        assertFalse(runner.converge());
+
+        RunResult result = runner.getLastResult();
+        assertEquals(RunResult.StopReason.LIMIT_CYCLE, result.getReason());
+        assertFalse(result.isConverged());
+        assertTrue(result.getCycleLength() >= 2);
+        assertTrue(result.getEpochs() < 10);
+        assertEquals(result.getEpochs() - result.getCycleLength(), result.getCycleStart());
+
+        // disabled
+        runner.setMap(buildOscillator());
+        runner.setCycleDetection(0, 0.0);
+        assertFalse(runner.converge());
+        assertEquals(RunResult.StopReason.MAX_EPOCHS, runner.getLastResult().getReason());
+        assertEquals(1000, runner.getLastResult().getEpochs());
+        assertEquals(-1, runner.getLastResult().getCycleStart());
+
+        // disabled by default
+        runner = new SimpleFcmRunner(buildOscillator(), 0.001, 1000);
+        assertFalse(runner.converge());
+        assertEquals(RunResult.StopReason.MAX_EPOCHS, runner.getLastResult().getReason());
+        assertEquals(1000, runner.getLastResult().getEpochs());
+        assertEquals(-1, runner.getLastResult().getCycleStart());
+    }
+
+    @Test
+    public void test_converge_cycleDetectionDisabledByDefault() {
+        // bipolar self-loop, output alternates between 1.0 and -1.0
+        CognitiveMap map = new CognitiveMap("flip");
+        map.addConcept(new Concept("a", null,
+                new SignumActivator(0.0, false, SignumActivator.Mode.BIPOLAR, 0.0), null, 1.0, false));
+        map.addConnection(new WeightedConnection("a-a", null, -1.0));
+        map.connect("a", "a-a", "a");
+
+        SimpleFcmRunner runner = new SimpleFcmRunner(map, 0.0, 101);
+        assertFalse(runner.converge());
+        assertEquals(101, runner.getLastResult().getEpochs());
+        assertEquals(-1.0, map.getConcept("a").getOutputAsDouble(), 0.0);
+    }
+
+    @Test
+    public void test_converge_fixedPoint() {
+        SimpleFcmRunner runner = new SimpleFcmRunner(buildSelfLoop(), 1e-20, 1000);
+        runner.converge();
+        RunResult exact = runner.getLastResult();
+        assertEquals(0, exact.getCycleLength());
+
+        runner.setMap(buildSelfLoop());
+        runner.setCycleDetection(SimpleFcmRunner.DEFAULT_CYCLE_HISTORY, 1e-3);
+        assertFalse(runner.converge());
+        RunResult result = runner.getLastResult();
+        assertEquals(RunResult.StopReason.FIXED_POINT, result.getReason());
+        assertEquals(1, result.getCycleLength());
+        assertTrue(result.getEpochs() < exact.getEpochs());
+        assertTrue(result.getAverageSquareDelta() > 1e-20);
+    }
+
+    @Test
+    public void test_converge_result() {
+        SimpleFcmRunner runner = new SimpleFcmRunner(buildTestMap_1(), 0.1, 1000);
+        assertTrue(runner.converge());
+        assertEquals(RunResult.StopReason.CONVERGED, runner.getLastResult().getReason());
+        assertEquals(0, runner.getLastResult().getCycleLength());
+    }
+
+    /**
+     * Two signum concepts inhibiting each other: never converges
+     *
+     * @return new map
+     */
+    public static CognitiveMap buildOscillator() {
+        CognitiveMap map = new CognitiveMap("osc");
+        map.addConcept(new Concept("a", null, new SignumActivator(), null, 1.0, false));
+        map.addConcept(new Concept("b", null, new SignumActivator(), null, 1.0, false));
+        map.addConnection(new WeightedConnection("a-b", null, -2.0));
+        map.addConnection(new WeightedConnection("b-a", null, 2.0));
+        map.connect("a", "a-b", "b");
+        map.connect("b", "b-a", "a");
+        return map;
+    }
+
+    private static CognitiveMap buildSelfLoop() {
+        CognitiveMap map = new CognitiveMap("self loop");
+        map.addConcept(new Concept("a", null, new SigmoidActivator(), null, 0.0, false));
+        map.addConnection(new WeightedConnection("a-a", null, 0.5));
+        map.connect("a", "a-a", "a");
+        return map;
+    }
 }
@@ -0,0 +1,99 @@
+/*
+JFCM (Java Fuzzy Congnitive Maps)
+Copyright (C) De Franciscis Dimitri - www.megadix.it
+
+This library is free software; you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation; either version 2.1 of the License, or (at your option) any
+later version.
+
+This library is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License along
+with this library; if not, write to the Free Software Foundation, Inc., 59
+Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package org.megadix.jfcm.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.List;
+
+import org.junit.Test;
+import org.megadix.jfcm.CognitiveMap;
+import org.megadix.jfcm.Concept;
+import org.megadix.jfcm.act.SigmoidActivator;
+import org.megadix.jfcm.exec.CompiledCognitiveMapTest;
+
+public class StreamingXmlVisitorTest {
+
+    @Test
+    public void test_visit_sameAsToXmlVisitor() throws Exception {
+        CognitiveMap map = CompiledCognitiveMapTest.buildRandomMap(1, 30, 80);
+        map.setDescription("description <>&\"");
+
+        ToXmlVisitor domVisitor = new ToXmlVisitor();
+        map.accept(domVisitor);
+        StringWriter expected = new StringWriter();
+        domVisitor.saveTo(expected);
+
+        StringWriter actual = new StringWriter();
+        StreamingXmlVisitor visitor = new StreamingXmlVisitor(actual);
+        map.accept(visitor);
+        visitor.close();
+
+        CognitiveMap expectedMap = FcmIO.loadXml(new StringReader(expected.toString()), true).get(0);
+        CognitiveMap actualMap = FcmIO.loadXml(new StringReader(actual.toString()), true).get(0);
+
+        // canonical form: save both again with the DOM visitor
+        assertEquals(toDomXml(expectedMap), toDomXml(actualMap));
+        assertEquals(map.getDescription(), actualMap.getDescription());
+    }
+
+    @Test
+    public void test_visit_multipleMaps() throws Exception {
+        CognitiveMap empty = new CognitiveMap("empty");
+        CognitiveMap noConnections = new CognitiveMap("no connections");
+        noConnections.addConcept(new Concept("c1", null, new SigmoidActivator(), null, 0.5, true));
+        CognitiveMap random = CompiledCognitiveMapTest.buildRandomMap(2, 10, 20);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        StreamingXmlVisitor visitor = new StreamingXmlVisitor(baos);
+        empty.accept(visitor);
+        noConnections.accept(visitor);
+        random.accept(visitor);
+        visitor.close();
+
+        List<CognitiveMap> maps = FcmIO.loadXml(new ByteArrayInputStream(baos.toByteArray()), true);
+        assertEquals(3, maps.size());
+        assertEquals("empty", maps.get(0).getName());
+        assertEquals(0, maps.get(0).getConcepts().size());
+        assertEquals(0.5, maps.get(1).getConcept("c1").getOutput(), 0.0);
+        assertTrue(maps.get(1).getConcept("c1").isFixedOutput());
+        assertEquals(random.getConnections().size(), maps.get(2).getConnections().size());
+    }
+
+    @Test
+    public void test_close_noMaps() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new StreamingXmlVisitor(baos).close();
+
+        assertEquals(0, FcmIO.loadXml(new ByteArrayInputStream(baos.toByteArray()), true).size());
+    }
+
+    /*
+     * private stuff
+     */
+
+    private static String toDomXml(CognitiveMap map) {
+        ToXmlVisitor visitor = new ToXmlVisitor();
+        map.accept(visitor);
+        StringWriter writer = new StringWriter();
+        visitor.saveTo(writer);
+        return writer.toString();
+    }
+}